@@ -78,6 +78,18 @@ public interface ClusterMateConstants
      */
     public final static String CUSTOM_HTTP_HEADER_UNCOMPRESSED_LENGTH = "X-CM-UncompressedLength";
 
+    /**
+     * Range snapshot responses (used for bootstrapping nodes) indicate
+     * timestamp from which incremental syncing is to continue with this header.
+     */
+    public final static String CUSTOM_HTTP_HEADER_SNAPSHOT_TIME = "X-CM-SnapshotTime";
+
+    /**
+     * Failed PUTs of resumable uploads indicate length of content received
+     * so far with this header; upload may be resumed from this offset.
+     */
+    public final static String CUSTOM_HTTP_HEADER_UPLOAD_OFFSET = "X-CM-UploadOffset";
+
     /*
     /**********************************************************************
     /* Query parameters, ClusterMate-specific
@@ -107,6 +119,15 @@ public interface ClusterMateConstants
 
     public final static String QUERY_PARAM_KEYRANGE_LENGTH = "keyRangeLength";
 
+    /**
+     * Optional query parameter for sync list requests, used to pass set
+     * of key ranges to list entries for, in format used by {@link KeySlots};
+     * if included, entries are only listed for these ranges, instead of
+     * the whole range indicated by {@link #QUERY_PARAM_KEYRANGE_START}
+     * and {@link #QUERY_PARAM_KEYRANGE_LENGTH}.
+     */
+    public final static String QUERY_PARAM_KEYRANGES = "keyRanges";
+
     /**
      * Query parameter used to pass information about calling node.
      */
@@ -153,6 +174,39 @@ public interface ClusterMateConstants
      */
     public final static String QUERY_PARAM_RETRY_COUNT = "retry";
 
+    /**
+     * Query parameter used for resumable uploads: id of the upload, chosen
+     * by client. If included with PUT, content is appended to partial
+     * content of the upload; with HEAD, returns length of partial content
+     * received so far.
+     */
+    public final static String QUERY_PARAM_UPLOAD_ID = "uploadId";
+
+    /**
+     * Query parameter used with resumable uploads to indicate offset, within
+     * whole content, of the content being PUT.
+     */
+    public final static String QUERY_PARAM_UPLOAD_OFFSET = "uploadOffset";
+
+    /**
+     * Query parameter used with resumable uploads to indicate total length
+     * of content; entry is created once this much content has been received.
+     */
+    public final static String QUERY_PARAM_UPLOAD_LENGTH = "uploadLength";
+
+    /**
+     * Query parameter used with PUT to indicate durability level requested;
+     * value is name of one of {@link PutDurability} values.
+     */
+    public final static String QUERY_PARAM_DURABILITY = "durability";
+
+    /**
+     * Query parameter used with PUT to indicate that entry must not be
+     * recreated if it has been deleted, even if server otherwise allows
+     * undeletion; used for read-repair.
+     */
+    public final static String QUERY_PARAM_NO_UNDELETE = "noUndelete";
+
     /*
     /**********************************************************************
     /* Standard HTTP Response codes
@@ -163,6 +217,8 @@ public interface ClusterMateConstants
 
     public final static int HTTP_STATUS_OK_PARTIAL = 206;
 
+    public final static int HTTP_STATUS_NOT_MODIFIED = 304;
+
     public final static int HTTP_STATUS_NOT_FOUND = 404;
 
     public final static int HTTP_STATUS_ERROR_CONFLICT = 409;
@@ -206,5 +262,11 @@ public interface ClusterMateConstants
 
     public final static String STATE_INACTIVE = "inactive";
 
+    /**
+     * Pseudo-state used for requesting node to rebalance its key range
+     * online.
+     */
+    public final static String STATE_REBALANCE = "rebalance";
+
     public final static String HTTP_CONTENT_BINARY = "application/octet-stream";
 }
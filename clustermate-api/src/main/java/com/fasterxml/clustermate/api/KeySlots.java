@@ -0,0 +1,301 @@
+package com.fasterxml.clustermate.api;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Set of individual key values ("slots") of a {@link KeySpace}; unlike
+ * {@link KeyRange}, need not be consecutive. Used for non-contiguous
+ * ownership, where a node may own any set of slots, so that load can be
+ * balanced at finer granularity than by moving range boundaries.
+ *<p>
+ * Instances are immutable.
+ *<p>
+ * Textual representation is a comma-separated list of slots and inclusive
+ * slot ranges, like <code>"0-99,200,305-310"</code>.
+ */
+public final class KeySlots
+{
+    protected final KeySpace _keyspace;
+
+    /**
+     * Slots included; never modified after construction
+     */
+    protected final BitSet _slots;
+
+    /*
+    /**********************************************************************
+    /* Construction, factory methods
+    /**********************************************************************
+     */
+
+    protected KeySlots(KeySpace space, BitSet slots)
+    {
+        _keyspace = space;
+        _slots = slots;
+    }
+
+    // Constructor used by deserializer
+    protected KeySlots(External ext)
+    {
+        this(ext.keyspace, _parse(ext.keyspace, ext.slots));
+    }
+
+    public static KeySlots valueOf(KeySpace space, String ref)
+        throws IllegalArgumentException
+    {
+        return new KeySlots(space, _parse(space, ref));
+    }
+
+    /**
+     * Factory method for constructing slot set that contains all slots of
+     * given range.
+     */
+    public static KeySlots of(KeyRange range)
+    {
+        BitSet bits = new BitSet(range.getKeyspace().getLength());
+        range.fill(bits);
+        return new KeySlots(range.getKeyspace(), bits);
+    }
+
+    private static BitSet _parse(KeySpace space, String ref)
+    {
+        final int length = space.getLength();
+        BitSet bits = new BitSet(length);
+        if (ref == null) {
+            return bits;
+        }
+        ref = ref.trim();
+        if (ref.isEmpty()) {
+            return bits;
+        }
+        for (String part : ref.split(",")) {
+            part = part.trim();
+            int ix = part.indexOf('-');
+            int from, to;
+            try {
+                if (ix < 0) {
+                    from = to = Integer.parseInt(part);
+                } else {
+                    from = Integer.parseInt(part.substring(0, ix).trim());
+                    to = Integer.parseInt(part.substring(ix+1).trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid KeySlots reference '"+ref+"'");
+            }
+            if (from < 0 || to >= length || from > to) {
+                throw new IllegalArgumentException("Invalid slot range '"+part+"' for key space of "
+                        +length+" slots");
+            }
+            bits.set(from, to+1);
+        }
+        return bits;
+    }
+
+    /*
+    /**********************************************************************
+    /* Fluent factories
+    /**********************************************************************
+     */
+
+    public KeySlots union(KeySlots other)
+    {
+        BitSet bits = (BitSet) _slots.clone();
+        bits.or(other._slots);
+        return new KeySlots(_keyspace, bits);
+    }
+
+    public KeySlots intersection(KeySlots other)
+    {
+        BitSet bits = (BitSet) _slots.clone();
+        bits.and(other._slots);
+        return new KeySlots(_keyspace, bits);
+    }
+
+    /**
+     * Method for constructing slot set that contains slots of this set that
+     * are not included in given set.
+     */
+    public KeySlots difference(KeySlots other)
+    {
+        BitSet bits = (BitSet) _slots.clone();
+        bits.andNot(other._slots);
+        return new KeySlots(_keyspace, bits);
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    public KeySpace getKeyspace() { return _keyspace; }
+
+    /**
+     * @return Number of slots included
+     */
+    public int size() { return _slots.cardinality(); }
+
+    public boolean empty() { return _slots.isEmpty(); }
+
+    public boolean contains(KeyHash key) {
+        return _slots.get(key.getModuloHash());
+    }
+
+    /**
+     * Alternate lookup method, used in cases where caller wants to minimize
+     * allocations of {@link KeyHash} instances.
+     */
+    public boolean contains(int rawHash) {
+        return _slots.get(KeyHash.calcModulo(rawHash, _keyspace.getLength()));
+    }
+
+    public boolean containsSlot(int slot) {
+        return _slots.get(slot);
+    }
+
+    /**
+     * Method for checking whether all slots of given set are included
+     * in this set.
+     */
+    public boolean contains(KeySlots other)
+    {
+        BitSet bits = (BitSet) other._slots.clone();
+        bits.andNot(_slots);
+        return bits.isEmpty();
+    }
+
+    public boolean overlapsWith(KeySlots other) {
+        return _slots.intersects(other._slots);
+    }
+
+    public void fill(BitSet bits) {
+        bits.or(_slots);
+    }
+
+    /**
+     * Method for converting this set into list of consecutive ranges,
+     * ordered by starting point. A run that extends to the end of key space
+     * is combined with one starting from the beginning, to produce a
+     * wrapping range.
+     */
+    public List<KeyRange> asRanges()
+    {
+        List<KeyRange> result = new ArrayList<KeyRange>();
+        final int length = _keyspace.getLength();
+        if (_slots.cardinality() == length) {
+            result.add(_keyspace.fullRange());
+            return result;
+        }
+        int start = _slots.nextSetBit(0);
+        while (start >= 0) {
+            int end = _slots.nextClearBit(start);
+            result.add(_keyspace.range(start, end-start));
+            start = (end >= length) ? -1 : _slots.nextSetBit(end);
+        }
+        // wrap-around: combine last and first runs, if both touch the edge
+        int count = result.size();
+        if (count > 1 && _slots.get(0) && _slots.get(length-1)) {
+            KeyRange first = result.remove(0);
+            KeyRange last = result.remove(count-2);
+            result.add(last.withLength(last.getLength() + first.getLength()));
+        }
+        return result;
+    }
+
+    /**
+     * Method for finding the smallest single range that contains all
+     * slots of this set; that is, range that excludes the biggest gap
+     * between included slots.
+     */
+    public KeyRange boundingRange()
+    {
+        List<KeyRange> ranges = asRanges();
+        final int count = ranges.size();
+        if (count == 0) {
+            return _keyspace.emptyRange();
+        }
+        if (count == 1) {
+            return ranges.get(0);
+        }
+        final int length = _keyspace.getLength();
+        // find biggest gap between consecutive runs (including the one that wraps)
+        int bestGap = -1;
+        int bestIndex = 0;
+        for (int i = 0; i < count; ++i) {
+            KeyRange curr = ranges.get(i);
+            KeyRange next = ranges.get((i+1) % count);
+            int end = (curr.getStart() + curr.getLength()) % length;
+            int gap = next.getStart() - end;
+            if (gap < 0) {
+                gap += length;
+            }
+            if (gap > bestGap) {
+                bestGap = gap;
+                bestIndex = i;
+            }
+        }
+        // bounding range starts after the biggest gap
+        KeyRange first = ranges.get((bestIndex+1) % count);
+        return first.withLength(length - bestGap);
+    }
+
+    /*
+    /**********************************************************************
+    /* Overrides
+    /**********************************************************************
+     */
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (o == this) return true;
+        if (o == null) return false;
+        if (o.getClass() != getClass()) return false;
+        KeySlots other = (KeySlots) o;
+        return _keyspace.equals(other._keyspace) && _slots.equals(other._slots);
+    }
+
+    @Override
+    public int hashCode() { return _slots.hashCode(); }
+
+    /**
+     * Returns textual representation that may be passed to
+     * {@link #valueOf(KeySpace, String)}.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        int start = _slots.nextSetBit(0);
+        while (start >= 0) {
+            int end = _slots.nextClearBit(start) - 1;
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(start);
+            if (end > start) {
+                sb.append('-').append(end);
+            }
+            start = _slots.nextSetBit(end+1);
+        }
+        return sb.toString();
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper types for (de)serialization
+    /**********************************************************************
+     */
+
+    /**
+     * Helper class used for deserialization, used as "delegating"
+     * class
+     */
+    public static class External
+    {
+        public KeySpace keyspace;
+        public String slots;
+    }
+}
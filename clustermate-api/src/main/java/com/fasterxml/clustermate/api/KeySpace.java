@@ -88,6 +88,15 @@ public final class KeySpace
         return _emptyRange;
     }
 
+    /**
+     * Factory method for constructing a {@link KeySlots} within this
+     * key space, from its textual representation.
+     */
+    public KeySlots slots(String ref) throws IllegalArgumentException
+    {
+        return KeySlots.valueOf(this, ref);
+    }
+
     /**
      * Factory method for testing
      */
@@ -147,6 +156,37 @@ public final class KeySpace
         return range(start, end-start);
     }
     
+    /**
+     * Helper method called to calculate set of slots to allocate to a node,
+     * such that slots are interleaved between nodes: slot <code>s</code> is
+     * allocated to nodes with indexes <code>s % nodeCount</code> and
+     * <code>copies-1</code> following ones. This spreads any consecutive
+     * set of hot slots evenly across all nodes.
+     * 
+     * @param index Zero-based index of the node
+     * @param nodeCount Number of nodes to allocate slots for
+     * @param copies Number of copies of data that must exist
+     */
+    public KeySlots calcInterleavedSlots(int index, int nodeCount, int copies)
+    {
+        BitSet bits = new BitSet(_length);
+        if (nodeCount <= 1 || copies >= nodeCount) {
+            bits.set(0, _length);
+        } else {
+            for (int slot = 0; slot < _length; ++slot) {
+                int owner = slot % nodeCount;
+                int offset = index - owner;
+                if (offset < 0) {
+                    offset += nodeCount;
+                }
+                if (offset < copies) {
+                    bits.set(slot);
+                }
+            }
+        }
+        return new KeySlots(this, bits);
+    }
+
     /*
     /**********************************************************************
     /* Simple accessors
@@ -180,6 +220,21 @@ public final class KeySpace
         return slices.cardinality();
     }
 
+    /**
+     * Method similar to {@link #getCoverage}, but used with (possibly
+     * non-contiguous) slot sets.
+     * 
+     * @return Number of 'slots' covered by given slot sets
+     */
+    public int getSlotCoverage(Iterable<KeySlots> slotSets)
+    {
+        BitSet slices = new BitSet(_length);
+        for (KeySlots slots : slotSets) {
+            slots.fill(slices);
+        }
+        return slices.cardinality();
+    }
+
     /*
     /**********************************************************************
     /* Overrides
@@ -38,6 +38,12 @@ public class NodeDefinition
      */
     protected final KeyRange _totalKeyRange;
 
+    /**
+     * Optional explicit set of slots node owns, if ownership is not
+     * contiguous; if so, ranges are bounding ranges of the slots.
+     */
+    protected final KeySlots _slots;
+
     public NodeDefinition(IpAndPort address, int index,
             KeyRange activeRange, KeyRange passiveRange)
     {
@@ -46,6 +52,21 @@ public class NodeDefinition
         _activeKeyRange = activeRange;
         _passiveKeyRange = passiveRange;
         _totalKeyRange = activeRange.union(passiveRange);
+        _slots = null;
+    }
+
+    /**
+     * Constructor used for nodes with non-contiguous ownership; same
+     * slots are used both actively and passively.
+     */
+    public NodeDefinition(IpAndPort address, int index, KeySlots slots)
+    {
+        _address = address;
+        _index = index;
+        _activeKeyRange = slots.boundingRange();
+        _passiveKeyRange = _activeKeyRange;
+        _totalKeyRange = _activeKeyRange;
+        _slots = slots;
     }
 
     public IpAndPort getAddress() { return _address; }
@@ -55,6 +76,12 @@ public class NodeDefinition
     public KeyRange getPassiveRange() { return _passiveKeyRange; }
     public KeyRange getTotalRange() { return _totalKeyRange; }
 
+    /**
+     * @return Explicit slots owned, if any; null for nodes that own
+     *    a single contiguous range
+     */
+    public KeySlots getSlots() { return _slots; }
+
     @Override
     public String toString()
     {
@@ -64,6 +91,7 @@ public class NodeDefinition
             .append("; index: ").append(_index)
             .append("; active: ").append(_activeKeyRange)
             .append(", passive: ").append(_passiveKeyRange)
+            .append((_slots == null) ? "" : "; slots: "+_slots)
             .append("}")
             .toString();
     }
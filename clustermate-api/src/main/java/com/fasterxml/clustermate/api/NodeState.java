@@ -25,6 +25,19 @@ public class NodeState
     protected KeyRange rangeActive;
     protected KeyRange rangePassive;
     protected KeyRange rangeSync;
+
+    /**
+     * Optional set of slots that node actively owns, if node uses
+     * non-contiguous ownership; if so, {@link #rangeActive} is
+     * the smallest range that contains all these slots.
+     */
+    protected KeySlots slotsActive;
+
+    /**
+     * Optional set of slots that node passively owns; only used
+     * along with {@link #slotsActive}.
+     */
+    protected KeySlots slotsPassive;
     protected long lastSyncAttempt;
 
     protected boolean disabled;
@@ -41,6 +54,11 @@ public class NodeState
      * Lazily calculated combination of active and passive range
      */
     private volatile KeyRange _totalRange;
+
+    /**
+     * Lazily calculated combination of active and passive slots
+     */
+    private volatile KeySlots _totalSlots;
     
     /*
     /**********************************************************************
@@ -61,6 +79,8 @@ public class NodeState
         this.rangeActive = null;
         this.rangePassive = null;
         this.rangeSync = null;
+        this.slotsActive = null;
+        this.slotsPassive = null;
         this.disabled = false;
         this.lastSyncAttempt = 0L;
         this.syncedUpTo = 0L;
@@ -104,6 +124,14 @@ public class NodeState
     public KeyRange getRangeSync() {
         return rangeSync;
     }
+
+    public KeySlots getSlotsActive() {
+        return slotsActive;
+    }
+
+    public KeySlots getSlotsPassive() {
+        return slotsPassive;
+    }
     
     public boolean isDisabled() {
         return disabled;
@@ -122,11 +150,11 @@ public class NodeState
     }
 
     public boolean inAnyRange(KeyHash key) {
-        return totalRange().contains(key);
+        return totalSlots().contains(key);
     }
 
     public boolean inAnyRange(int routingHash) {
-        return totalRange().contains(routingHash);
+        return totalSlots().contains(routingHash);
     }
     
     /*
@@ -193,4 +221,41 @@ public class NodeState
         } 
         return total;
     }
+
+    // note: not serialized, hence non-standard naming
+    public boolean hasExplicitSlots() {
+        return (slotsActive != null);
+    }
+
+    /**
+     * Accessor for slots node actively owns: either explicitly defined
+     * slots, or all slots of the active range.
+     */
+    // note: not serialized, hence non-standard naming
+    public KeySlots activeSlots() {
+        if (slotsActive != null) {
+            return slotsActive;
+        }
+        return KeySlots.of(getRangeActive());
+    }
+
+    /**
+     * Accessor for all slots node owns, actively or passively.
+     */
+    // note: not serialized, hence non-standard naming
+    public KeySlots totalSlots()
+    {
+        KeySlots total = _totalSlots;
+        if (total == null) {
+            if (slotsActive == null) {
+                total = KeySlots.of(totalRange());
+            } else if (slotsPassive == null) {
+                total = slotsActive;
+            } else {
+                total = slotsActive.union(slotsPassive);
+            }
+            _totalSlots = total;
+        }
+        return total;
+    }
 }
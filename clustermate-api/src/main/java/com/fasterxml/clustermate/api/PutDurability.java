@@ -0,0 +1,54 @@
+package com.fasterxml.clustermate.api;
+
+/**
+ * Enumeration of durability levels that PUT requests may ask for: that is,
+ * how far content must have progressed towards persistent storage before
+ * server acknowledges the PUT.
+ */
+public enum PutDurability
+{
+    /**
+     * Content file (if content is not inlined), as well as directory that
+     * contains it, are forced to disk before PUT is acknowledged.
+     *<p>
+     * NOTE: entry metadata (and inlined content) is NOT forced to disk by
+     * this level: its durability is determined by the store backend and
+     * its configuration. So unless backend is configured to sync its
+     * writes, entry may still be lost on crash.
+     */
+    SYNC_CONTENT,
+
+    /**
+     * Default level: content is written to the store before PUT is
+     * acknowledged, but is not forced to disk; durability relies on
+     * other copies of the entry.
+     */
+    WRITE,
+
+    /**
+     * PUT is acknowledged once content has been received in memory;
+     * entry is written asynchronously, and any problems with writing it
+     * are not reported to client. Only meant for data that can be
+     * re-created.
+     */
+    BUFFERED
+    ;
+
+    /**
+     * Lenient lookup method that accepts names regardless of case.
+     *
+     * @return Matching value, if any; null if none
+     */
+    public static PutDurability find(String name)
+    {
+        if (name != null) {
+            name = name.trim();
+            for (PutDurability d : values()) {
+                if (d.name().equalsIgnoreCase(name)) {
+                    return d;
+                }
+            }
+        }
+        return null;
+    }
+}
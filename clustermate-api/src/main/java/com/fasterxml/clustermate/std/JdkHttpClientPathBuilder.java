@@ -98,6 +98,25 @@ public class JdkHttpClientPathBuilder
         return (_headers != null) && !_headers.isEmpty();
     }
 
+    /**
+     * @return Content type to send, if any
+     */
+    public String getContentType() {
+        return _contentType;
+    }
+
+    /**
+     * Accessor for headers to send, for HTTP clients other than
+     * {@link HttpURLConnection} (see {@link #addHeaders}): values are either
+     * Strings, or Lists of Strings for multi-valued headers.
+     */
+    public Map<String, Object> getHeaders() {
+        if (_headers == null) {
+            return Collections.emptyMap();
+        }
+        return _headers;
+    }
+
     @Override
     public String toString() {
          return _url();
@@ -0,0 +1,74 @@
+package com.fasterxml.clustermate.api;
+
+import java.util.List;
+
+public class KeySlotsTest extends ApiTestBase
+{
+    protected final KeySpace DEFAULT_SPACE = new KeySpace(360);
+
+    public void testToAndFromString()
+    {
+        KeySlots slots = DEFAULT_SPACE.slots("0-9, 20,350-359");
+        assertEquals(21, slots.size());
+        assertEquals("0-9,20,350-359", slots.toString());
+        assertEquals(slots, DEFAULT_SPACE.slots(slots.toString()));
+        assertTrue(DEFAULT_SPACE.slots("").empty());
+
+        try {
+            DEFAULT_SPACE.slots("300-360");
+            fail("Should not pass");
+        } catch (IllegalArgumentException e) {
+            verifyException(e, "Invalid slot range");
+        }
+    }
+
+    public void testRanges()
+    {
+        KeySlots slots = DEFAULT_SPACE.slots("0-9,20,350-359");
+        List<KeyRange> ranges = slots.asRanges();
+        assertEquals(2, ranges.size());
+        assertEquals(DEFAULT_SPACE.range(20, 1), ranges.get(0));
+        // wrapping run combined
+        assertEquals(DEFAULT_SPACE.range(350, 20), ranges.get(1));
+        // biggest gap is between 21 and 349
+        assertEquals(DEFAULT_SPACE.range(350, 31), slots.boundingRange());
+
+        assertEquals(DEFAULT_SPACE.range(100, 50),
+                KeySlots.of(DEFAULT_SPACE.range(100, 50)).boundingRange());
+        assertTrue(DEFAULT_SPACE.slots("").boundingRange().empty());
+    }
+
+    public void testSetOperations()
+    {
+        KeySlots a = DEFAULT_SPACE.slots("0-99");
+        KeySlots b = DEFAULT_SPACE.slots("50-149");
+        assertEquals(DEFAULT_SPACE.slots("50-99"), a.intersection(b));
+        assertEquals(DEFAULT_SPACE.slots("0-149"), a.union(b));
+        assertEquals(DEFAULT_SPACE.slots("0-49"), a.difference(b));
+        assertTrue(a.overlapsWith(b));
+        assertTrue(a.contains(DEFAULT_SPACE.slots("10-20")));
+        assertFalse(a.contains(b));
+        assertTrue(a.contains(DEFAULT_SPACE.hash(360 + 5)));
+        assertFalse(a.contains(DEFAULT_SPACE.hash(100)));
+    }
+
+    public void testInterleavedSlots()
+    {
+        // 4 nodes, 2 copies: every slot on exactly 2 nodes, each node has half of slots
+        int[] counts = new int[360];
+        for (int i = 0; i < 4; ++i) {
+            KeySlots slots = DEFAULT_SPACE.calcInterleavedSlots(i, 4, 2);
+            assertEquals(180, slots.size());
+            for (int s = 0; s < 360; ++s) {
+                if (slots.containsSlot(s)) {
+                    ++counts[s];
+                }
+            }
+        }
+        for (int s = 0; s < 360; ++s) {
+            assertEquals(2, counts[s]);
+        }
+        // and with as many copies as nodes, full ownership
+        assertEquals(360, DEFAULT_SPACE.calcInterleavedSlots(1, 3, 3).size());
+    }
+}
@@ -77,6 +77,9 @@ public class AHCContentGetter<K extends EntryKey>
                 if (statusCode == ClusterMateConstants.HTTP_STATUS_NOT_FOUND) { // is this a fail or success? For now it's actually success...
                     return AHCReadCallResult.notFound(_server);
                 }
+                if (statusCode == ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED) { // conditional GET, no content
+                    return AHCReadCallResult.notModified(_server);
+                }
                 // then the default fallback
                 String excerpt = handler.getExcerpt();
                 return new AHCReadCallResult<T>(CallFailure.general(_server, statusCode, startTime,
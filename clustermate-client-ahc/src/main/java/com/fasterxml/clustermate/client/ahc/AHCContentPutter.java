@@ -14,6 +14,7 @@ import com.fasterxml.clustermate.client.StoreClientConfig;
 import com.fasterxml.clustermate.client.call.*;
 import com.fasterxml.storemate.shared.ByteContainer;
 import com.fasterxml.storemate.shared.compress.Compression;
+import com.fasterxml.storemate.shared.hash.HashConstants;
 import com.fasterxml.storemate.shared.util.IOUtil;
 import com.fasterxml.storemate.shared.util.WithBytesCallback;
 import com.ning.http.client.AsyncHttpClient;
@@ -204,11 +205,17 @@ public class AHCContentPutter<K extends EntryKey>
         {
             _content = content;
             _keyConverter = keyConverter;
-            // Let's see if we can calculate content checksum early, for even the first request
-            int checksum = 0;
-            ByteContainer bytes = _content.contentAsBytes();
-            if (bytes != null) {
-                checksum = _keyConverter.contentHashFor(bytes);
+            /* Let's see if we can calculate content checksum early, for even the first request.
+             * Note that hash must be that of all of content, even if only part of it is
+             * sent (when resuming uploads); so only calculate it if not yet known.
+             */
+            int checksum = _content.getContentHash();
+            if (checksum == HashConstants.NO_CHECKSUM) {
+                ByteContainer bytes = _content.contentAsBytes();
+                if (bytes != null) {
+                    checksum = _keyConverter.contentHashFor(bytes);
+                    _content.setContentHash(checksum);
+                }
             }
             _checksum = new AtomicInteger(checksum);
         }
@@ -220,13 +227,8 @@ public class AHCContentPutter<K extends EntryKey>
         @Override
         public Body createBody() throws IOException
         {
-            int checksum = _checksum.get();
             ByteContainer bytes = _content.contentAsBytes();
             if (bytes != null) {
-                if (checksum == 0) {
-                    checksum = _keyConverter.contentHashFor(bytes);
-                    _checksum.set(checksum);
-                }
                 return bytes.withBytes(BodyCallback.instance);
             }
             File f = _content.contentAsFile();
@@ -238,6 +240,12 @@ public class AHCContentPutter<K extends EntryKey>
                             +ie.getMessage(), ie);
                 }
             }
+            // Streams are only used for remainders of files, when resuming uploads; or if caller
+            // passes a stream, in which case body can only be generated once
+            InputStream in = _content.contentAsStream();
+            if (in != null) {
+                return new BodyInputStreamBacked(in, _content.length(), _checksum);
+            }
             // sanity check; we'll never get here:
             throw new IOException("No suitable body generation method found");
         }
@@ -39,6 +39,14 @@ public final class AHCReadCallResult<T> extends ReadCallResult<T>
         return new AHCReadCallResult<T>(server, ClusterMateConstants.HTTP_STATUS_NOT_FOUND);
     }
 
+    /**
+     * Factory method for result of conditional GET, for which server indicated
+     * that content has not changed (and thus was not included).
+     */
+    public static <T> AHCReadCallResult<T> notModified(ClusterServerNode server) {
+        return new AHCReadCallResult<T>(server, ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED);
+    }
+
     public void setHeaders(HttpResponseHeaders h) {
         _headers = h;
     }
@@ -0,0 +1,25 @@
+package com.fasterxml.clustermate.client.ahc;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation that reads content from given {@link java.io.InputStream},
+ * length of which is known (or -1 if not known).
+ */
+public class BodyInputStreamBacked extends BodyStreamBacked
+{
+    protected final long _length;
+
+    public BodyInputStreamBacked(InputStream in, long contentLength,
+            AtomicInteger checksum)
+    {
+        super(in, checksum);
+        _length = contentLength;
+    }
+
+    @Override
+    public long getContentLength() {
+        return _length;
+    }
+}
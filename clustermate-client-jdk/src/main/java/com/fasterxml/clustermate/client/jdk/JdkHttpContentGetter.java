@@ -70,6 +70,9 @@ public class JdkHttpContentGetter<K extends EntryKey>
                 if (statusCode == ClusterMateConstants.HTTP_STATUS_NOT_FOUND) { // is this a fail or success? For now it's actually success...
                     return JdkHttpReadCallResult.notFound(_server);
                 }
+                if (statusCode == ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED) { // conditional GET, no content
+                    return JdkHttpReadCallResult.notModified(_server);
+                }
                 // then the default fallback
                 return new JdkHttpReadCallResult<T>(conn, CallFailure.general(_server, statusCode, startTime,
                          System.currentTimeMillis(), getExcerpt(conn, statusCode, config.getMaxExcerptLength())));
@@ -46,6 +46,15 @@ public class JdkHttpReadCallResult<T> extends ReadCallResult<T>
                 ClusterMateConstants.HTTP_STATUS_NOT_FOUND, null);
     }
 
+    /**
+     * Factory method for result of conditional GET, for which server indicated
+     * that content has not changed (and thus was not included).
+     */
+    public static <T> JdkHttpReadCallResult<T> notModified(ClusterServerNode server) {
+        return new JdkHttpReadCallResult<T>(null, server,
+                ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED, null);
+    }
+
     /*
     /**********************************************************************
     /* Accessors
@@ -0,0 +1,309 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.storemate.shared.util.BufferRecycler;
+import com.fasterxml.clustermate.api.*;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.client.cluster.ClusterServerNodeImpl;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+
+/**
+ * Intermediate base class used by accessors that use
+ * JDK 11 HTTP client for HTTP Access.
+ */
+public abstract class BaseJdk11Accessor<
+    K extends EntryKey
+> extends Loggable
+{
+    /**
+     * Not sure what is optimal chunk size, but 16k sounds like
+     * a reasonable starting point.
+     */
+    protected final static int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Headers that JDK HTTP client does not allow callers to set, as it
+     * manages them itself.
+     */
+    protected final static Set<String> RESTRICTED_HEADERS = new HashSet<String>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+
+    /**
+     * We can reuse read buffers as they are somewhat costly to
+     * allocate, reallocate all the time.
+     */
+    final protected static BufferRecycler _bufferRecycler = new BufferRecycler(CHUNK_SIZE);
+
+    protected final HttpClient _httpClient;
+
+    protected final ObjectMapper _mapper;
+
+    protected final RequestPathStrategy<?> _pathFinder;
+
+    protected EntryKeyConverter<K> _keyConverter;
+
+    protected BaseJdk11Accessor(StoreClientConfig<K,?> storeConfig, HttpClient httpClient)
+    {
+        super();
+        _httpClient = httpClient;
+        _mapper = storeConfig.getJsonMapper();
+        _pathFinder = storeConfig.getPathStrategy();
+        _keyConverter = storeConfig.getKeyConverter();
+    }
+
+    /*
+    /**********************************************************************
+    /* HTTP Request helpers
+    /**********************************************************************
+     */
+
+    /**
+     * Helper method for constructing request builder for given path, with
+     * headers added and timeout set; caller still needs to set method.
+     */
+    protected HttpRequest.Builder requestFor(JdkHttpClientPathBuilder path, long timeoutMsecs)
+    {
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(path.toString()))
+                .timeout(Duration.ofMillis(timeoutMsecs));
+        String contentType = path.getContentType();
+        if (contentType != null && !contentType.isEmpty()) {
+            req = req.header(ClusterMateConstants.HTTP_HEADER_CONTENT_TYPE, contentType);
+        }
+        for (Map.Entry<String,Object> entry : path.getHeaders().entrySet()) {
+            String name = entry.getKey();
+            if (RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                continue;
+            }
+            Object ob = entry.getValue();
+            if (ob instanceof String) {
+                req = req.header(name, (String) ob);
+            } else {
+                for (Object value : (List<?>) ob) {
+                    req = req.header(name, (String) value);
+                }
+            }
+        }
+        return req;
+    }
+
+    /**
+     * Helper method for sending given request asynchronously, and waiting
+     * up to given timeout for response (or, with streaming body handlers,
+     * response headers) to arrive.
+     *
+     * @throws TimeoutException If response was not received in time; if so,
+     *   request is cancelled.
+     */
+    protected <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+            long timeoutMsecs)
+        throws IOException, InterruptedException, TimeoutException
+    {
+        CompletableFuture<HttpResponse<T>> future = _httpClient.sendAsync(request, handler);
+        try {
+            return future.get(timeoutMsecs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            throw new IOException(t.getMessage(), t);
+        }
+    }
+
+    /**
+     * Helper method for constructing body handler that exposes response content
+     * as a stream, reading of which must complete within given timeout (counting
+     * from this call), as client timeouts only cover time until response headers
+     * are received.
+     */
+    protected HttpResponse.BodyHandler<InputStream> streamBody(final long timeoutMsecs)
+    {
+        final long deadline = System.currentTimeMillis() + timeoutMsecs;
+        return new HttpResponse.BodyHandler<InputStream>() {
+            @Override
+            public HttpResponse.BodySubscriber<InputStream> apply(HttpResponse.ResponseInfo info) {
+                return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(),
+                        (InputStream in) -> new DeadlineInputStream(in, deadline - System.currentTimeMillis()));
+            }
+        };
+    }
+
+    protected JdkHttpClientPathBuilder addChecksum(JdkHttpClientPathBuilder path, int checksum)
+    {
+        return path.addParameter(ClusterMateConstants.QUERY_PARAM_CHECKSUM,
+                (checksum == 0) ? "0" : String.valueOf(checksum));
+    }
+
+    /*
+    /**********************************************************************
+    /* HTTP Response helpers
+    /**********************************************************************
+     */
+
+    /**
+     * Helper method that takes care of processing state based on any
+     * standard headers we might pick up
+     */
+    protected void handleHeaders(ClusterServerNode server, HttpResponse<?> resp,
+            long requestTime)
+    {
+        String versionStr = header(resp, ClusterMateConstants.CUSTOM_HTTP_HEADER_LAST_CLUSTER_UPDATE);
+        if (versionStr != null && (versionStr = versionStr.trim()).length() > 0) {
+            try {
+                long l = Long.parseLong(versionStr);
+                long responseTime = System.currentTimeMillis();
+                ((ClusterServerNodeImpl) server).updateLastClusterUpdateAvailable(l, requestTime, responseTime);
+            } catch (Exception e) {
+                logWarn("Invalid Cluster version String '"+versionStr+"' received from "
+                        +server.getAddress());
+            }
+        }
+    }
+
+    protected static String header(HttpResponse<?> resp, String headerName) {
+        return resp.headers().firstValue(headerName).orElse(null);
+    }
+
+    protected long parseLongHeader(HttpResponse<?> resp, String headerName)
+    {
+        String lenStr = header(resp, headerName);
+        if (lenStr == null) {
+            return -1L;
+        }
+        lenStr = lenStr.trim();
+        if (lenStr.length() == 0) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(lenStr);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad numeric value for header '"+headerName+"': \""+lenStr+"\"");
+        }
+    }
+
+    protected ContentType findContentType(HttpResponse<?> resp, ContentType defaultType)
+    {
+        String ctStr = header(resp, ClusterMateConstants.HTTP_HEADER_CONTENT_TYPE);
+        if (ctStr != null) {
+            ctStr = ctStr.trim();
+            if (ctStr.length() > 0) {
+                ContentType ct = ContentType.findType(ctStr);
+                if (ct == null) {
+                    logWarn("Unrecognized Content-Type ('"+ctStr+"'); defaulting to: "+defaultType);
+                }
+                return ct;
+            }
+        }
+        return defaultType;
+    }
+
+    /*
+    /**********************************************************************
+    /* HTTP content handling
+    /**********************************************************************
+     */
+
+    protected long copy(InputStream in, OutputStream out, boolean closeInput) throws IOException
+    {
+        final BufferRecycler.Holder bufferHolder = _bufferRecycler.getHolder();
+        final byte[] copyBuffer = bufferHolder.borrowBuffer();
+
+        try {
+            long total = 0L;
+            int count;
+            while ((count = in.read(copyBuffer)) > 0) {
+                out.write(copyBuffer, 0, count);
+                total += count;
+            }
+            return total;
+        } finally {
+            bufferHolder.returnBuffer(copyBuffer);
+            if (closeInput) {
+                try { in.close(); } catch (IOException e0) {
+                    logError("Failed to close input: "+e0.getMessage());
+                }
+            }
+        }
+    }
+
+    protected void drain(InputStream in)
+    {
+        try {
+            while (in.skip(8000) > 0) { }
+        } catch (IOException e) {
+            this.logWarn(e, "Problems draining stream");
+        }
+        finally {
+            try { in.close();
+            } catch (IOException e2) {
+                this.logWarn(e2, "Problems closing response stream after draining");
+            }
+        }
+    }
+
+    protected String getExcerpt(HttpResponse<InputStream> resp, int maxLen)
+    {
+        InputStream in = resp.body();
+        try {
+            return getExcerpt(in, maxLen);
+        } catch (Exception e) {
+            return "[N/A due to error: "+e.getMessage()+"]";
+        } finally {
+            try { in.close();
+            } catch (IOException e2) {
+                this.logWarn(e2, "Problems closing response stream after draining");
+            }
+        }
+    }
+
+    protected String getExcerpt(InputStream in, int maxLen) throws IOException
+    {
+        char[] buf = new char[maxLen];
+        int offset = 0;
+        InputStreamReader r = new InputStreamReader(in, "UTF-8");
+
+        while (offset < buf.length) {
+            int count = r.read(buf, offset, buf.length-offset);
+            if (count <= 0) {
+                break;
+            }
+            offset += count;
+        }
+        return new String(buf, 0, offset);
+    }
+
+    /*
+    /**********************************************************************
+    /* Other
+    /**********************************************************************
+     */
+
+    protected static Throwable _unwrap(Throwable t) {
+        while (t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    protected String toBase64(byte[] data) {
+        return _mapper.convertValue(data, String.class);
+    }
+}
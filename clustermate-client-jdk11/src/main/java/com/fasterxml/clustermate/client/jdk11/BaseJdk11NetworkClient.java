@@ -0,0 +1,97 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.clustermate.api.*;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+
+/**
+ * {@link NetworkClient} implementation built on JDK 11 {@link HttpClient}.
+ * By default HTTP/2 is used, so that concurrent calls to a server node are
+ * multiplexed over a single connection, if server supports it; otherwise
+ * client falls back to HTTP/1.1 with persistent connections.
+ */
+public abstract class BaseJdk11NetworkClient<
+    K extends EntryKey,
+    CONFIG extends StoreClientConfig<K,CONFIG>
+>
+    extends NetworkClient<K>
+{
+    protected final HttpClient _httpClient;
+
+    protected final ObjectMapper _mapper;
+
+    protected final CONFIG _config;
+
+    /**
+     * The usual constructor to call; configures HTTP client using standard
+     * settings.
+     */
+    protected BaseJdk11NetworkClient(CONFIG config)
+    {
+        this(config, (HttpClient) null);
+    }
+
+    /**
+     * Alternate constructor to use to use custom configurations of HTTP client.
+     */
+    protected BaseJdk11NetworkClient(CONFIG config, HttpClient httpClient)
+    {
+        _config = config;
+        _mapper = config.getJsonMapper();
+        _httpClient = (httpClient == null) ? buildHttpClient(config) : httpClient;
+    }
+
+    /**
+     * Method called to build the HTTP client with default settings,
+     * if explicit client is not passed to constructor.
+     */
+    public HttpClient buildHttpClient(CONFIG config)
+    {
+        return buildHttpClient(config, HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(config.getCallConfig().getConnectTimeoutMsecs()))
+                );
+    }
+
+    /**
+     * Overriable method called with default HTTP client settings (as defined
+     * by builder initialized with defaults), to build actual client.
+     */
+    protected HttpClient buildHttpClient(CONFIG config, HttpClient.Builder builder)
+    {
+        return builder.build();
+    }
+
+    /*
+    /**********************************************************************
+    /* Standard factory methods
+    /**********************************************************************
+     */
+
+    @Override
+    public JdkHttpClientPathBuilder pathBuilder(IpAndPort server) {
+        return new JdkHttpClientPathBuilder(server);
+    }
+
+    @Override
+    public void shutdown() {
+        // nothing to do here: JDK 11 client has no explicit close, connections
+        // are closed once client is no longer reachable
+    }
+
+    @Override
+    public EntryAccessors<K> getEntryAccessors() {
+        return new Jdk11EntryAccessors<K>(_config, _httpClient);
+    }
+
+    @Override
+    public EntryKeyConverter<K> getKeyConverter() {
+        return _config.getKeyConverter();
+    }
+}
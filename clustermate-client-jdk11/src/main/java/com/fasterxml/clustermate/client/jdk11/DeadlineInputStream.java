@@ -0,0 +1,101 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wrapper for response body streams of JDK HTTP client, used to bound the
+ * time spent reading response content: timeouts of the client itself only
+ * cover time until response headers are received. If content is not fully
+ * read by the deadline, underlying stream is closed (which also unblocks
+ * any read waiting for more content), and reads fail with
+ * {@link HttpTimeoutException}.
+ */
+public class DeadlineInputStream extends FilterInputStream
+{
+    /**
+     * Single shared timer thread is enough, since all it does is close
+     * streams that are past their deadline.
+     */
+    private final static ScheduledThreadPoolExecutor _timer;
+    static {
+        _timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Jdk11ResponseDeadlines");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        _timer.setRemoveOnCancelPolicy(true);
+    }
+
+    protected final long _timeoutMsecs;
+
+    protected final ScheduledFuture<?> _expiration;
+
+    protected volatile boolean _expired;
+
+    public DeadlineInputStream(InputStream in, long timeoutMsecs)
+    {
+        super(in);
+        _timeoutMsecs = timeoutMsecs;
+        _expiration = _timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                _expired = true;
+                try {
+                    DeadlineInputStream.this.in.close();
+                } catch (IOException e) { }
+            }
+        }, Math.max(0L, timeoutMsecs), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        _checkExpired();
+        int b = in.read();
+        _checkExpired();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int len) throws IOException
+    {
+        _checkExpired();
+        int count = in.read(b, offset, len);
+        _checkExpired();
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        _checkExpired();
+        long count = in.skip(n);
+        _checkExpired();
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        _expiration.cancel(false);
+        in.close();
+    }
+
+    private void _checkExpired() throws IOException
+    {
+        // content read after expiration may be incomplete, so must fail
+        if (_expired) {
+            throw new HttpTimeoutException("Response content not read within "+_timeoutMsecs+" msecs");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.storemate.shared.util.IOUtil;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+import com.fasterxml.clustermate.client.call.CallConfig;
+import com.fasterxml.clustermate.client.call.CallFailure;
+import com.fasterxml.clustermate.client.call.ContentDeleter;
+import com.fasterxml.clustermate.client.call.DeleteCallParameters;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+
+public class Jdk11ContentDeleter<K extends EntryKey>
+    extends BaseJdk11Accessor<K>
+    implements ContentDeleter<K>
+{
+    protected final ClusterServerNode _server;
+
+    public Jdk11ContentDeleter(StoreClientConfig<K,?> storeConfig, HttpClient httpClient,
+            ClusterServerNode server)
+    {
+        super(storeConfig, httpClient);
+        _server = server;
+    }
+
+    @Override
+    public CallFailure tryDelete(CallConfig config, DeleteCallParameters params,
+            long endOfTime, K contentId)
+    {
+        // first: if we can't spend at least 10 msecs, let's give up:
+        final long startTime = System.currentTimeMillis();
+        final long timeoutMsecs = Math.min(endOfTime - startTime, config.getDeleteCallTimeoutMsecs());
+        if (timeoutMsecs < config.getMinimumTimeoutMsecs()) {
+            return CallFailure.timeout(_server, startTime, startTime);
+        }
+        try {
+            JdkHttpClientPathBuilder path = _server.rootPath();
+            path = _pathFinder.appendStoreEntryPath(path);
+            path = _keyConverter.appendToPath(path, contentId);
+            if (params != null) {
+                path = params.appendToPath(path, contentId);
+            }
+            HttpRequest request = requestFor(path, timeoutMsecs).DELETE().build();
+            HttpResponse<InputStream> resp = send(request, streamBody(timeoutMsecs), timeoutMsecs);
+            int statusCode = resp.statusCode();
+
+            // one thing first: handle standard headers, if any?
+            handleHeaders(_server, resp, startTime);
+
+            // call ok?
+            if (!IOUtil.isHTTPSuccess(statusCode)) {
+                // if not, why not? Any well-known problems? (besides timeout that was handled earlier)
+
+                // then the default fallback
+                String msg = getExcerpt(resp, config.getMaxExcerptLength());
+                return CallFailure.general(_server, statusCode, startTime, System.currentTimeMillis(), msg);
+            }
+            drain(resp.body());
+            return null;
+        } catch (TimeoutException e) {
+            return CallFailure.timeout(_server, startTime, System.currentTimeMillis());
+        } catch (Exception e) {
+            return CallFailure.clientInternal(_server, startTime, System.currentTimeMillis(), e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.io.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.storemate.shared.ByteRange;
+import com.fasterxml.storemate.shared.compress.Compression;
+import com.fasterxml.storemate.shared.compress.Compressors;
+import com.fasterxml.storemate.shared.util.IOUtil;
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.client.call.*;
+import com.fasterxml.clustermate.client.call.GetContentProcessor.Handler;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+
+/**
+ * Helper accessors class used for making a single GET call to a single
+ * server node. Response content is streamed to processor as it arrives.
+ */
+public class Jdk11ContentGetter<K extends EntryKey>
+    extends BaseJdk11Accessor<K>
+    implements ContentGetter<K>
+{
+    protected final ClusterServerNode _server;
+
+    public Jdk11ContentGetter(StoreClientConfig<K,?> storeConfig, HttpClient httpClient,
+            ClusterServerNode server)
+    {
+        super(storeConfig, httpClient);
+        _server = server;
+    }
+
+    /*
+    /**********************************************************************
+    /* Call implementation
+    /**********************************************************************
+     */
+
+    @Override
+    public <T> ReadCallResult<T> tryGet(CallConfig config, ReadCallParameters params,
+            long endOfTime, K contentId, GetContentProcessor<T> processor, ByteRange range)
+    {
+        // first: if we can't spend at least 10 msecs, let's give up:
+        final long startTime = System.currentTimeMillis();
+        final long timeoutMsecs = Math.min(endOfTime - startTime, config.getGetCallTimeoutMsecs());
+        if (timeoutMsecs < config.getMinimumTimeoutMsecs()) {
+            return new Jdk11ReadCallResult<T>(null, CallFailure.timeout(_server, startTime, startTime));
+        }
+        try {
+            JdkHttpClientPathBuilder path = _server.rootPath();
+            path = _pathFinder.appendStoreEntryPath(path);
+            path = _keyConverter.appendToPath(path, contentId);
+            if (params != null) {
+                path = params.appendToPath(path, contentId);
+            }
+            // plus, allow use of GZIP and LZF
+            path = path.setHeader(ClusterMateConstants.HTTP_HEADER_ACCEPT_COMPRESSION,
+                    "lzf, gzip, identity");
+            // and may use range as well
+            if (range != null) {
+                path = path.setHeader(ClusterMateConstants.HTTP_HEADER_RANGE_FOR_REQUEST,
+                        range.asRequestHeader());
+            }
+            HttpRequest request = requestFor(path, timeoutMsecs).GET().build();
+            HttpResponse<InputStream> resp = send(request, streamBody(timeoutMsecs), timeoutMsecs);
+            int statusCode = resp.statusCode();
+
+            // one thing first: handle standard headers, if any?
+            handleHeaders(_server, resp, startTime);
+
+            if (!IOUtil.isHTTPSuccess(statusCode)) {
+                if (statusCode == ClusterMateConstants.HTTP_STATUS_NOT_FOUND) { // is this a fail or success? For now it's actually success...
+                    drain(resp.body());
+                    return Jdk11ReadCallResult.notFound(_server);
+                }
+                if (statusCode == ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED) { // conditional GET, no content
+                    drain(resp.body());
+                    return Jdk11ReadCallResult.notModified(_server);
+                }
+                // then the default fallback
+                return new Jdk11ReadCallResult<T>(resp, CallFailure.general(_server, statusCode, startTime,
+                         System.currentTimeMillis(), getExcerpt(resp, config.getMaxExcerptLength())));
+            }
+
+            InputStream in = resp.body();
+            // Then, anything to uncompress?
+            String comps = header(resp, ClusterMateConstants.HTTP_HEADER_COMPRESSION);
+            if (comps != null && !comps.isEmpty()) {
+                Compression comp = Compression.from(comps);
+                if (comp != null) {
+                    in = Compressors.uncompressingStream(in, comp);
+                }
+            }
+            Handler<T> h = processor.createHandler();
+            T result;
+            if (h.startContent(statusCode, null)) {
+                copy(in, h.asStream(), true);
+                result = h.completeContentProcessing();
+            } else {
+                // need to skip contents, if caller is not interested in them...
+                drain(in);
+                result = null;
+            }
+            return new Jdk11ReadCallResult<T>(resp, _server, statusCode, result);
+        } catch (TimeoutException e) {
+            return new Jdk11ReadCallResult<T>(null, CallFailure.timeout(_server, startTime, System.currentTimeMillis()));
+        } catch (HttpTimeoutException e) { // from reading of content, after headers
+            return new Jdk11ReadCallResult<T>(null, CallFailure.timeout(_server, startTime, System.currentTimeMillis()));
+        } catch (Exception e) {
+            return new Jdk11ReadCallResult<T>(null, CallFailure.clientInternal(_server,
+                    startTime, System.currentTimeMillis(), _unwrap(e)));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.client.call.CallConfig;
+import com.fasterxml.clustermate.client.call.CallFailure;
+import com.fasterxml.clustermate.client.call.ContentHeader;
+import com.fasterxml.clustermate.client.call.ReadCallParameters;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+import com.fasterxml.storemate.shared.util.IOUtil;
+
+/**
+ * Helper object for making HEAD requests.
+ */
+public class Jdk11ContentHeader<K extends EntryKey>
+    extends BaseJdk11Accessor<K>
+    implements ContentHeader<K>
+{
+    protected final ClusterServerNode _server;
+
+    public Jdk11ContentHeader(StoreClientConfig<K,?> storeConfig, HttpClient httpClient,
+            ClusterServerNode server)
+    {
+        super(storeConfig, httpClient);
+        _server = server;
+    }
+
+    /*
+    /**********************************************************************
+    /* Call implementation
+    /**********************************************************************
+     */
+
+    @Override
+    public Jdk11HeadCallResult tryHead(CallConfig config, ReadCallParameters params,
+            long endOfTime, K contentId)
+    {
+        // first: if we can't spend at least 10 msecs, let's give up:
+        final long startTime = System.currentTimeMillis();
+        long timeoutMsecs = Math.min(endOfTime - startTime, config.getGetCallTimeoutMsecs());
+        if (timeoutMsecs < config.getMinimumTimeoutMsecs()) {
+            return new Jdk11HeadCallResult(CallFailure.timeout(_server, startTime, startTime));
+        }
+        try {
+            JdkHttpClientPathBuilder path = _server.rootPath();
+            path = _pathFinder.appendStoreEntryPath(path);
+            path = _keyConverter.appendToPath(path, contentId);
+            if (params != null) {
+                path = params.appendToPath(path, contentId);
+            }
+            HttpRequest request = requestFor(path, timeoutMsecs)
+                    .method("HEAD", BodyPublishers.noBody())
+                    .build();
+            HttpResponse<Void> resp = send(request, BodyHandlers.discarding(), timeoutMsecs);
+            int statusCode = resp.statusCode();
+
+            // one thing first: handle standard headers, if any?
+            handleHeaders(_server, resp, startTime);
+
+            // call ok?
+            if (!IOUtil.isHTTPSuccess(statusCode)) {
+                // if not, why not? Any well-known problems? (besides timeout that was handled earlier)
+                return new Jdk11HeadCallResult(CallFailure.general(_server, statusCode, startTime,
+                        System.currentTimeMillis(), "N/A"));
+            }
+            try {
+                return new Jdk11HeadCallResult(resp, _server, ClusterMateConstants.HTTP_STATUS_OK,
+                        parseLongHeader(resp, ClusterMateConstants.HTTP_HEADER_CONTENT_LENGTH));
+            } catch (Exception e) {
+                return new Jdk11HeadCallResult(CallFailure.formatException(_server,
+                        statusCode, startTime, System.currentTimeMillis(), e.getMessage()));
+            }
+        } catch (TimeoutException e) {
+            return new Jdk11HeadCallResult(CallFailure.timeout(_server, startTime, System.currentTimeMillis()));
+        } catch (Exception e) {
+            return new Jdk11HeadCallResult(CallFailure.clientInternal(_server, startTime, System.currentTimeMillis(), e));
+        }
+    }
+}
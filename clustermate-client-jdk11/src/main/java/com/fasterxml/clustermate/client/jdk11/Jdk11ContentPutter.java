@@ -0,0 +1,155 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.io.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fasterxml.storemate.shared.ByteContainer;
+import com.fasterxml.storemate.shared.compress.Compression;
+import com.fasterxml.storemate.shared.hash.HashConstants;
+import com.fasterxml.storemate.shared.util.IOUtil;
+import com.fasterxml.storemate.shared.util.WithBytesCallback;
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+import com.fasterxml.clustermate.client.call.*;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+
+/**
+ * Helper accessors class used for making a single PUT call to a single
+ * server node. Content is streamed to server by body publishers, directly
+ * from the byte container, file or stream of {@link PutContentProvider}.
+ */
+public class Jdk11ContentPutter<K extends EntryKey>
+    extends BaseJdk11Accessor<K>
+    implements ContentPutter<K>
+{
+    protected final ClusterServerNode _server;
+
+    public Jdk11ContentPutter(StoreClientConfig<K,?> storeConfig, HttpClient httpClient,
+            ClusterServerNode server)
+    {
+        super(storeConfig, httpClient);
+        _server = server;
+    }
+
+    @Override
+    public CallFailure tryPut(CallConfig config, PutCallParameters params,
+    		long endOfTime, K contentId, PutContentProvider content)
+    {
+        // first: if we can't spend at least 10 msecs, let's give up:
+        final long startTime = System.currentTimeMillis();
+        final long timeout = Math.min(endOfTime - startTime, config.getPutCallTimeoutMsecs());
+        if (timeout < config.getMinimumTimeoutMsecs()) {
+            return CallFailure.timeout(_server, startTime, startTime);
+        }
+        try {
+            return _tryPut(config, params, endOfTime, contentId, content, startTime, timeout);
+        } catch (TimeoutException e) {
+            return CallFailure.timeout(_server, startTime, System.currentTimeMillis());
+        } catch (Exception e) {
+            return CallFailure.clientInternal(_server, startTime, System.currentTimeMillis(), e);
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Call implementation
+    /**********************************************************************
+     */
+
+    public CallFailure _tryPut(CallConfig config, PutCallParameters params,
+            long endOfTime,
+            K contentId, PutContentProvider content,
+            final long startTime, final long timeoutMsecs)
+        throws IOException, InterruptedException, TimeoutException
+    {
+        JdkHttpClientPathBuilder path = _server.rootPath();
+        path = _pathFinder.appendStoreEntryPath(path);
+        path = _keyConverter.appendToPath(path, contentId);
+
+        // Is compression known?
+        Compression comp = content.getExistingCompression();
+        if (comp != null) { // if so, must be indicated
+            path = path.addCompression(comp, content.uncompressedLength());
+        }
+        path = path.setContentType(ClusterMateConstants.HTTP_CONTENT_BINARY);
+        if (params != null) {
+            path = params.appendToPath(path, contentId);
+        }
+        // Ok; and then figure out most optimal way for getting content:
+        int hash = content.getContentHash();
+        BodyPublisher body;
+        InputStream in = null;
+
+        ByteContainer bc = content.contentAsBytes();
+        if (bc != null) { // most efficient, yay
+            if (hash == HashConstants.NO_CHECKSUM) {
+                hash = _keyConverter.contentHashFor(bc);
+                content.setContentHash(hash);
+            }
+            path = addChecksum(path, hash);
+            // no need to copy contents, publisher can use the underlying array
+            body = bc.withBytes(new WithBytesCallback<BodyPublisher>() {
+                @Override
+                public BodyPublisher withBytes(byte[] buffer, int offset, int length) {
+                    return BodyPublishers.ofByteArray(buffer, offset, length);
+                }
+            });
+        } else {
+            if (hash != HashConstants.NO_CHECKSUM) {
+                path = addChecksum(path, hash);
+            }
+            File f = content.contentAsFile();
+            if (f != null) { // length known, content read as needed
+                body = BodyPublishers.ofFile(f.toPath());
+            } else { // length not known, will be sent chunked
+                final InputStream stream = content.contentAsStream();
+                in = stream;
+                // Stream can only be read once: if client tries to re-send
+                // (on redirect, or retry of idempotent request), must fail
+                // rather than send truncated or empty content
+                final AtomicBoolean streamUsed = new AtomicBoolean(false);
+                body = BodyPublishers.ofInputStream(() -> {
+                    if (!streamUsed.compareAndSet(false, true)) {
+                        throw new IllegalStateException("Stream content can not be re-sent");
+                    }
+                    return stream;
+                });
+            }
+        }
+        HttpRequest request = requestFor(path, timeoutMsecs)
+                .PUT(body)
+                .build();
+        HttpResponse<InputStream> resp;
+        try {
+            resp = send(request, streamBody(timeoutMsecs), timeoutMsecs);
+        } finally {
+            if (in != null) {
+                try { in.close(); } catch (IOException e) {
+                    logWarn("Problems closing stream: "+e.getMessage());
+                }
+            }
+        }
+        int statusCode = resp.statusCode();
+
+        // one more thing: handle standard headers, if any?
+        handleHeaders(_server, resp, startTime);
+
+        if (IOUtil.isHTTPSuccess(statusCode)) {
+            drain(resp.body());
+            return null;
+        }
+        // if not, why not? Any well-known problems?
+
+        // then the default fallback
+        String msg = getExcerpt(resp, config.getMaxExcerptLength());
+        return CallFailure.general(_server, statusCode, startTime, System.currentTimeMillis(), msg);
+    }
+}
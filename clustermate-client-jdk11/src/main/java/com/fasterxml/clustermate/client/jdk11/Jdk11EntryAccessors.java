@@ -0,0 +1,51 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.net.http.HttpClient;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.client.call.*;
+
+public class Jdk11EntryAccessors<K extends EntryKey>
+    implements EntryAccessors<K>
+{
+    protected final StoreClientConfig<K,?> _storeConfig;
+
+    protected final HttpClient _httpClient;
+
+    public Jdk11EntryAccessors(StoreClientConfig<K,?> storeConfig, HttpClient httpClient)
+    {
+        _storeConfig = storeConfig;
+        _httpClient = httpClient;
+    }
+
+    @Override
+    public ContentPutter<K> entryPutter(ClusterServerNode server) {
+        return new Jdk11ContentPutter<K>(_storeConfig, _httpClient, server);
+    }
+
+    @Override
+    public ContentGetter<K> entryGetter(ClusterServerNode server) {
+        return new Jdk11ContentGetter<K>(_storeConfig, _httpClient, server);
+    }
+
+    @Override
+    public ContentHeader<K> entryHeader(ClusterServerNode server) {
+        return new Jdk11ContentHeader<K>(_storeConfig, _httpClient, server);
+    }
+
+    @Override
+    public ContentDeleter<K> entryDeleter(ClusterServerNode server) {
+        return new Jdk11ContentDeleter<K>(_storeConfig, _httpClient, server);
+    }
+
+    @Override
+    public EntryInspector<K> entryInspector(ClusterServerNode server) {
+        return new Jdk11EntryInspector<K>(_storeConfig, _httpClient, server);
+    }
+
+    @Override
+    public EntryLister<K> entryLister(ClusterServerNode server) {
+        return new Jdk11EntryLister<K>(_storeConfig, _httpClient, server);
+    }
+}
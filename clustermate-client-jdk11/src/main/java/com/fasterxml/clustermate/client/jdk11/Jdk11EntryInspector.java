@@ -0,0 +1,95 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.ContentType;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.msg.ItemInfo;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+import com.fasterxml.clustermate.client.call.*;
+import com.fasterxml.clustermate.client.util.ContentConverter;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+import com.fasterxml.storemate.shared.util.IOUtil;
+
+public class Jdk11EntryInspector<K extends EntryKey>
+    extends BaseJdk11Accessor<K>
+    implements EntryInspector<K>
+{
+    protected final ClusterServerNode _server;
+
+    public Jdk11EntryInspector(StoreClientConfig<K,?> storeConfig, HttpClient httpClient,
+            ClusterServerNode server)
+    {
+        super(storeConfig, httpClient);
+        _server = server;
+    }
+
+    /*
+    /**********************************************************************
+    /* Call implementation
+    /**********************************************************************
+     */
+
+    @Override
+    public <T extends ItemInfo> ReadCallResult<T> tryInspect(CallConfig config,
+            ReadCallParameters params, long endOfTime, K contentId, ContentConverter<T> converter)
+    {
+        if (converter == null) {
+            throw new IllegalArgumentException("Missing converter");
+        }
+        // first: if we can't spend at least 10 msecs, let's give up:
+        final long startTime = System.currentTimeMillis();
+        final long timeoutMsecs = Math.min(endOfTime - startTime, config.getGetCallTimeoutMsecs());
+        if (timeoutMsecs < config.getMinimumTimeoutMsecs()) {
+            return failed(null, CallFailure.timeout(_server, startTime, startTime));
+        }
+        HttpResponse<InputStream> resp = null;
+        InputStream in = null;
+
+        try {
+            JdkHttpClientPathBuilder path = _server.rootPath();
+            path = _pathFinder.appendStoreEntryInfoPath(path);
+            path = _keyConverter.appendToPath(path, contentId);
+            HttpRequest request = requestFor(path, timeoutMsecs).GET().build();
+            resp = send(request, streamBody(timeoutMsecs), timeoutMsecs);
+            int statusCode = resp.statusCode();
+            handleHeaders(_server, resp, startTime);
+
+            // call ok?
+            if (!IOUtil.isHTTPSuccess(statusCode)) {
+                if (statusCode == ClusterMateConstants.HTTP_STATUS_NOT_FOUND) { // nothing totally wrong here, present as non-failure
+                    drain(resp.body());
+                    return Jdk11ReadCallResult.notFound(_server);
+                }
+                // if not, why not? Any well-known problems? (besides timeout that was handled earlier)
+                String msg = getExcerpt(resp, config.getMaxExcerptLength());
+                return failed(resp, CallFailure.general(_server, statusCode, startTime, System.currentTimeMillis(), msg));
+            }
+            ContentType contentType = findContentType(resp, ContentType.JSON);
+            in = resp.body();
+            T info = converter.convert(contentType, in);
+            return new Jdk11ReadCallResult<T>(resp, _server, info);
+        } catch (TimeoutException e) {
+            return failed(null, CallFailure.timeout(_server, startTime, System.currentTimeMillis()));
+        } catch (Exception e) {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e2) { }
+            }
+            return failed(resp, CallFailure.clientInternal(_server,
+                    startTime, System.currentTimeMillis(), _unwrap(e)));
+        }
+    }
+
+    protected <T extends ItemInfo> ReadCallResult<T> failed(HttpResponse<?> resp, CallFailure fail) {
+        return new Jdk11ReadCallResult<T>(resp, fail);
+    }
+}
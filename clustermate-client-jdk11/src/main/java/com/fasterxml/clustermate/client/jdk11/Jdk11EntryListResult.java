@@ -0,0 +1,55 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.net.http.HttpResponse;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.msg.ListResponse;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.call.CallFailure;
+import com.fasterxml.clustermate.client.call.ListCallResult;
+
+public class Jdk11EntryListResult<T> extends ListCallResult<T>
+{
+    protected final HttpResponse<?> _response;
+
+    /*
+    /**********************************************************************
+    /* Construction, initialization
+    /**********************************************************************
+     */
+
+    public Jdk11EntryListResult(HttpResponse<?> response, ClusterServerNode server,
+            ListResponse<T> resp) {
+        super(server, resp);
+        _response = response;
+    }
+
+    public Jdk11EntryListResult(CallFailure fail) {
+        super(fail);
+        _response = null;
+    }
+
+    public Jdk11EntryListResult(ClusterServerNode server, int failCode) {
+        super(server, failCode);
+        _response = null;
+    }
+
+    public static <T> Jdk11EntryListResult<T> notFound(ClusterServerNode server) {
+        return new Jdk11EntryListResult<T>(server, ClusterMateConstants.HTTP_STATUS_NOT_FOUND);
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    @Override
+    public String getHeaderValue(String key)
+    {
+        if (_response != null) {
+            return BaseJdk11Accessor.header(_response, key);
+        }
+        return null;
+    }
+}
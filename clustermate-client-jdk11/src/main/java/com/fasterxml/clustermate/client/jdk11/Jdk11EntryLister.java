@@ -0,0 +1,89 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.io.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeoutException;
+
+import com.fasterxml.storemate.shared.util.IOUtil;
+import com.fasterxml.clustermate.api.*;
+import com.fasterxml.clustermate.api.msg.ListResponse;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.client.call.*;
+import com.fasterxml.clustermate.client.util.ContentConverter;
+import com.fasterxml.clustermate.std.JdkHttpClientPathBuilder;
+
+public class Jdk11EntryLister<K extends EntryKey>
+    extends BaseJdk11Accessor<K>
+    implements EntryLister<K>
+{
+    protected final ClusterServerNode _server;
+
+    public Jdk11EntryLister(StoreClientConfig<K,?> storeConfig, HttpClient httpClient,
+            ClusterServerNode server)
+    {
+        super(storeConfig, httpClient);
+        _server = server;
+    }
+
+    @Override
+    public <T> ListCallResult<T> tryList(CallConfig config, long endOfTime,
+            K prefix, K lastSeen, ListItemType type, int maxResults,
+            ContentConverter<ListResponse<T>> converter)
+    {
+        if (converter == null) {
+            throw new IllegalArgumentException("Missing converter");
+        }
+
+        // first: if we can't spend at least 10 msecs, let's give up:
+        final long startTime = System.currentTimeMillis();
+        final long timeoutMsecs = Math.min(endOfTime - startTime, config.getGetCallTimeoutMsecs());
+        if (timeoutMsecs < config.getMinimumTimeoutMsecs()) {
+            return failed(CallFailure.timeout(_server, startTime, startTime));
+        }
+        JdkHttpClientPathBuilder path = _server.rootPath();
+        path = _pathFinder.appendStoreListPath(path);
+        path = _keyConverter.appendToPath(path, prefix);
+        path = path.addParameter(ClusterMateConstants.QUERY_PARAM_MAX_ENTRIES, String.valueOf(maxResults))
+                .addParameter(ClusterMateConstants.QUERY_PARAM_TYPE, type.toString())
+                ;
+        if (lastSeen != null) {
+            path = path.addParameter(ClusterMateConstants.QUERY_PARAM_LAST_SEEN, toBase64(lastSeen.asBytes()));
+        }
+        InputStream in = null;
+
+        try {
+            HttpRequest request = requestFor(path, timeoutMsecs).GET().build();
+            HttpResponse<InputStream> resp = send(request, streamBody(timeoutMsecs), timeoutMsecs);
+            int statusCode = resp.statusCode();
+            // handle std headers first, before anything else
+            handleHeaders(_server, resp, startTime);
+
+            // call ok?
+            if (!IOUtil.isHTTPSuccess(statusCode)) {
+                // if not, why not? Any well-known problems? (besides timeout that was handled earlier)
+                String msg = getExcerpt(resp, config.getMaxExcerptLength());
+                return failed(CallFailure.general(_server, statusCode, startTime, System.currentTimeMillis(), msg));
+            }
+            ContentType contentType = findContentType(resp, ContentType.JSON);
+            in = resp.body();
+            ListResponse<T> listResp = converter.convert(contentType, in);
+            return new Jdk11EntryListResult<T>(resp, _server, listResp);
+        } catch (TimeoutException e) {
+            return failed(CallFailure.timeout(_server, startTime, System.currentTimeMillis()));
+        } catch (Exception e) {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e2) { }
+            }
+            return failed(CallFailure.clientInternal(_server,
+                    startTime, System.currentTimeMillis(), _unwrap(e)));
+        }
+    }
+
+    protected <T> ListCallResult<T> failed(CallFailure fail) {
+        return new Jdk11EntryListResult<T>(fail);
+    }
+}
@@ -0,0 +1,50 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.net.http.HttpResponse;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.call.CallFailure;
+import com.fasterxml.clustermate.client.call.HeadCallResult;
+
+public class Jdk11HeadCallResult extends HeadCallResult
+{
+    protected final HttpResponse<?> _response;
+
+    /*
+    /**********************************************************************
+    /* Construction, initialization
+    /**********************************************************************
+     */
+
+    public Jdk11HeadCallResult(HttpResponse<?> response,
+            ClusterServerNode server, int status, long contentLength)
+    {
+        super(server, contentLength);
+        _response = response;
+    }
+
+    public Jdk11HeadCallResult(CallFailure fail) {
+        super(fail);
+        _response = null;
+    }
+
+    public static Jdk11HeadCallResult notFound(ClusterServerNode server) {
+        return new Jdk11HeadCallResult(null, server, ClusterMateConstants.HTTP_STATUS_NOT_FOUND, -1);
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    @Override
+    public String getHeaderValue(String key)
+    {
+        if (_response != null) {
+            return BaseJdk11Accessor.header(_response, key);
+        }
+        return null;
+    }
+}
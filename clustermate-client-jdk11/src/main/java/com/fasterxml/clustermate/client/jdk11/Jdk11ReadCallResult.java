@@ -0,0 +1,72 @@
+package com.fasterxml.clustermate.client.jdk11;
+
+import java.net.http.HttpResponse;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.call.CallFailure;
+import com.fasterxml.clustermate.client.call.ReadCallResult;
+
+/**
+ * Container for results of a single GET call to a server node.
+ * Note that at most one of '_fail' and '_result' can be non-null; however,
+ * it is possible for both to be null: this occurs in cases where
+ * communication to server(s) succeeds, but no content was found
+ * (either 404, or deleted content).
+ */
+public class Jdk11ReadCallResult<T> extends ReadCallResult<T>
+{
+    protected final HttpResponse<?> _response;
+
+    /*
+    /**********************************************************************
+    /* Construction, initialization
+    /**********************************************************************
+     */
+
+    public Jdk11ReadCallResult(HttpResponse<?> response,
+            ClusterServerNode server, T result) {
+        super(server, result);
+        _response = response;
+    }
+
+    public Jdk11ReadCallResult(HttpResponse<?> response,
+            ClusterServerNode server, int status, T result) {
+        super(server, status, result);
+        _response = response;
+    }
+
+    public Jdk11ReadCallResult(HttpResponse<?> response, CallFailure fail) {
+        super(fail);
+        _response = response;
+    }
+
+    public static <T> Jdk11ReadCallResult<T> notFound(ClusterServerNode server) {
+        return new Jdk11ReadCallResult<T>(null, server,
+                ClusterMateConstants.HTTP_STATUS_NOT_FOUND, null);
+    }
+
+    /**
+     * Factory method for result of conditional GET, for which server indicated
+     * that content has not changed (and thus was not included).
+     */
+    public static <T> Jdk11ReadCallResult<T> notModified(ClusterServerNode server) {
+        return new Jdk11ReadCallResult<T>(null, server,
+                ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED, null);
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    @Override
+    public String getHeaderValue(String key)
+    {
+        if (_response != null) {
+            return BaseJdk11Accessor.header(_response, key);
+        }
+        return null;
+    }
+}
@@ -2,6 +2,7 @@ package com.fasterxml.clustermate.client;
 
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.clustermate.api.RequestPathBuilder;
 import com.fasterxml.clustermate.client.call.ContentDeleter;
 import com.fasterxml.clustermate.client.call.ContentGetter;
@@ -41,6 +42,17 @@ public interface ClusterServerNode
     public KeyRange getPassiveRange();
     public KeyRange getTotalRange();
 
+    /**
+     * Slots node actively owns; for nodes with contiguous ownership, all
+     * slots of the active range.
+     */
+    public KeySlots getActiveSlots();
+
+    /**
+     * All slots node owns, actively or passively.
+     */
+    public KeySlots getTotalSlots();
+
     /*
     /**********************************************************************
     /* Timestamp access
@@ -1,6 +1,7 @@
 package com.fasterxml.clustermate.client;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -8,13 +9,18 @@ import com.fasterxml.clustermate.api.*;
 import com.fasterxml.clustermate.api.msg.ItemInfo;
 import com.fasterxml.clustermate.api.msg.ListItem;
 import com.fasterxml.clustermate.api.msg.ListResponse;
+import com.fasterxml.clustermate.client.cache.NearCache;
+import com.fasterxml.clustermate.client.cache.NearCacheConfig;
 import com.fasterxml.clustermate.client.call.*;
 import com.fasterxml.clustermate.client.operation.*;
 import com.fasterxml.clustermate.client.util.ContentConverter;
 import com.fasterxml.clustermate.client.util.GenericContentConverter;
+import com.fasterxml.clustermate.client.util.SingleFlight;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.storemate.shared.ByteContainer;
 import com.fasterxml.storemate.shared.ByteRange;
+import com.fasterxml.storemate.shared.compress.Compression;
 import com.fasterxml.storemate.shared.util.ByteAggregator;
 
 /**
@@ -56,6 +62,29 @@ public abstract class StoreClient<K extends EntryKey,
 
     protected final ContentConverter<I> _infoConverter;
 
+    /**
+     * Optional cache for contents of entries, if enabled by configuration.
+     */
+    protected final NearCache<K> _nearCache;
+
+    /**
+     * In-flight GETs of content as bytes, used for coalescing concurrent
+     * identical GETs, if enabled.
+     */
+    protected final SingleFlight<byte[]> _getFlights;
+
+    /**
+     * In-flight HEADs, used for coalescing concurrent identical HEADs,
+     * if enabled.
+     */
+    protected final SingleFlight<HeadOperationResult> _headFlights;
+
+    /**
+     * Helper used for read-repair of entries missing from some server
+     * nodes, if enabled.
+     */
+    protected final ReadRepairer<K> _readRepairer;
+
     /*
     /**********************************************************************
     /* Life-cycle
@@ -118,6 +147,11 @@ public abstract class StoreClient<K extends EntryKey,
         _thread = null;
         _stopRequested = new AtomicBoolean(false);
         _infoConverter = infoConverter;
+        NearCacheConfig cacheConfig = config.getOperationConfig().getNearCacheConfig();
+        _nearCache = (cacheConfig == null) ? null : new NearCache<K>(cacheConfig);
+        _getFlights = new SingleFlight<byte[]>();
+        _headFlights = new SingleFlight<HeadOperationResult>();
+        _readRepairer = new ReadRepairer<K>();
     }
 
     /**
@@ -133,6 +167,10 @@ public abstract class StoreClient<K extends EntryKey,
         _statusAccessor = base._statusAccessor;
         _clusterView = base._clusterView;
         _infoConverter = base._infoConverter;
+        _nearCache = base._nearCache;
+        _getFlights = base._getFlights;
+        _headFlights = base._headFlights;
+        _readRepairer = base._readRepairer;
 
         _listReaders = base._listReaders;
 
@@ -171,6 +209,7 @@ public abstract class StoreClient<K extends EntryKey,
         if (t != null) {
             t.interrupt();
         }
+        _readRepairer.stop();
         // Should we ask HTTP Client to shut down here, or within thread?
         _httpClient.shutdown();
 //        _blockingHttpClient.getConnectionManager().shutdown();
@@ -313,12 +352,38 @@ public abstract class StoreClient<K extends EntryKey,
      * {@link IllegalStateException}, whereas missing content is indicated by
      * null return value.
      * 
+     *<p>
+     * If near cache is enabled (see {@link NearCacheConfig}), contents are
+     * returned from cache if fresh enough; and otherwise revalidated
+     * with a conditional GET.
+     *<p>
+     * If read coalescing is enabled (see {@link OperationConfig#getCoalesceReads}),
+     * concurrent calls for the same key share a single GET operation, and
+     * each caller gets its own copy of contents.
+     * 
      * @return Array of bytes returned, if content exists; null if no such content
      *    exists (never PUT, or has been DELETEd)
      */
-    public byte[] getContentAsBytes(ReadCallParameters params, K key)
+    public byte[] getContentAsBytes(final ReadCallParameters params, final K key)
             throws InterruptedException
     {
+        if (!_coalesceReads(params)) {
+            return _getContentAsBytes(params, key);
+        }
+        return _getFlights.execute(new ReadFlightKey(params, key, null), new BytesCall() {
+            @Override
+            public byte[] call() throws InterruptedException {
+                return _getContentAsBytes(params, key);
+            }
+        });
+    }
+
+    protected byte[] _getContentAsBytes(ReadCallParameters params, K key)
+            throws InterruptedException
+    {
+        if (_nearCache != null) {
+            return _getCachedContentAsBytes(params, key);
+        }
         GetContentProcessorForBytes processor = new GetContentProcessorForBytes();
         GetOperationResult<ByteAggregator> result = getContent(params, key, processor);
         if (result.failed()) { // failed to contact any server
@@ -326,7 +391,72 @@ public abstract class StoreClient<K extends EntryKey,
         }
         // otherwise, we either got content, or got 404 or deletion
         ByteAggregator aggr = result.getContents();
-        return (aggr == null) ? null : aggr.toByteArray();
+        if (aggr == null) {
+            return null;
+        }
+        byte[] data = aggr.toByteArray();
+        _readRepair(params, key, result, data);
+        return data;
+    }
+
+    protected byte[] _getCachedContentAsBytes(ReadCallParameters params, K key)
+            throws InterruptedException
+    {
+        NearCache.Entry cached = _nearCache.find(key);
+        ReadCallParameters getParams = params;
+        if (cached != null) {
+            if (cached.isFresh(System.currentTimeMillis())) {
+                return cached.getContents();
+            }
+            if (cached.canRevalidate()) {
+                getParams = new ConditionalReadCallParameters(params, cached.getContentHash());
+            }
+        }
+        GetOperationResult<ByteAggregator> result = getContent(getParams, key,
+                new GetContentProcessorForBytes());
+        if (result.failed()) {
+            _handleGetFailure(params, key, result);
+        }
+        if (result.isNotModified()) {
+            _nearCache.revalidated(cached, System.currentTimeMillis());
+            return cached.getContents();
+        }
+        ByteAggregator aggr = result.getContents();
+        if (aggr == null) { // not found (any more)
+            _nearCache.remove(key);
+            return null;
+        }
+        byte[] data = aggr.toByteArray();
+        if (data.length <= _nearCache.getConfig().getMaxEntryBytes()) {
+            int hash = _keyConverter.contentHashFor(ByteContainer.simple(data));
+            _nearCache.add(key, data.clone(), hash, System.currentTimeMillis());
+        }
+        _readRepair(params, key, result, data);
+        return data;
+    }
+
+    /**
+     * Method called after content has been fetched as bytes, to queue
+     * read-repair for server nodes that reported content missing, if
+     * read-repair is enabled.
+     *<p>
+     * Repair is only done for actual content (200 response with content):
+     * not for entries reported as deleted (204), since "missing" nodes may
+     * have the deletion as well. Conversely, since nodes may report deleted
+     * entries as missing (404), repair PUTs ask servers not to recreate
+     * deleted entries.
+     */
+    protected void _readRepair(ReadCallParameters params, K key,
+            GetOperationResult<?> result, byte[] data)
+    {
+        if (result.getMissingCount() > 0 && data.length > 0
+                && result.getStatus() == ClusterMateConstants.HTTP_STATUS_OK) {
+            CONFIG config = _getConfig(params);
+            if (config.getOperationConfig().getReadRepair()) {
+                // copy, since caller may modify contents
+                _readRepairer.repair(config, key, data.clone(), result.getMissingServers());
+            }
+        }
     }
 
     /**
@@ -334,6 +464,10 @@ public abstract class StoreClient<K extends EntryKey,
      * Note that failure to perform GET operation will be signaled with
      * {@link IllegalStateException}, whereas missing content is indicated by
      * 'false' return value
+     *<p>
+     * If parallel GETs are enabled (see {@link OperationConfig#getParallelGetMinLength}),
+     * content that is long enough is fetched as byte ranges, concurrently from
+     * all server nodes that have a copy.
      * 
      * @return Original result file, if content exists; null if content was not found but
      *   operation succeeded (throw exception if access operation itself fails)
@@ -341,6 +475,13 @@ public abstract class StoreClient<K extends EntryKey,
     public final File getContentAsFile(ReadCallParameters params, K key, File resultFile)
         throws InterruptedException
     {
+        final CONFIG config = _getConfig(params);
+        final long minParallel = config.getOperationConfig().getParallelGetMinLength();
+        if (minParallel > 0L) {
+            if (_getContentAsFileInParallel(config, params, key, resultFile, minParallel)) {
+                return resultFile;
+            }
+        }
         GetContentProcessorForFiles processor = new GetContentProcessorForFiles(resultFile);
         GetOperationResult<File> result = getContent(params, key, processor);
         if (result.failed()) { // failed to contact any server
@@ -367,7 +508,22 @@ public abstract class StoreClient<K extends EntryKey,
      * @return Array of bytes returned, if content exists; null if no such content
      *    exists (never PUT, or has been DELETEd)
      */
-    public final byte[] getPartialContentAsBytes(ReadCallParameters params, K key, ByteRange range)
+    public final byte[] getPartialContentAsBytes(final ReadCallParameters params, final K key,
+            final ByteRange range)
+        throws InterruptedException
+    {
+        if (!_coalesceReads(params)) {
+            return _getPartialContentAsBytes(params, key, range);
+        }
+        return _getFlights.execute(new ReadFlightKey(params, key, range), new BytesCall() {
+            @Override
+            public byte[] call() throws InterruptedException {
+                return _getPartialContentAsBytes(params, key, range);
+            }
+        });
+    }
+
+    protected byte[] _getPartialContentAsBytes(ReadCallParameters params, K key, ByteRange range)
         throws InterruptedException
     {
         GetContentProcessorForBytes processor = new GetContentProcessorForBytes();
@@ -438,6 +594,41 @@ public abstract class StoreClient<K extends EntryKey,
         return result.getContentLength();
     }
     
+    /**
+     * Helper method for trying to GET content as byte ranges, concurrently
+     * from multiple server nodes, if content is long enough.
+     *
+     * @return True if content was fetched; false if it is to be fetched using
+     *   a regular GET (content is missing or too short, or parallel fetch failed)
+     */
+    protected boolean _getContentAsFileInParallel(CONFIG config, ReadCallParameters params,
+            K key, File resultFile, long minLength)
+        throws InterruptedException
+    {
+        final long startTime = System.currentTimeMillis();
+        final NodesForKey nodes = _clusterView.getNodesFor(key);
+        if (nodes.size() < 2) {
+            return false;
+        }
+        // need to know length first (also covers missing entries, failures)
+        HeadOperationResult head = headContent(params, key);
+        final long length = head.getContentLength();
+        if (length < minLength) {
+            return false;
+        }
+        ParallelGetOperation<K,CONFIG> op = new ParallelGetOperation<K,CONFIG>(config, startTime,
+                nodes, key, params, length, head.getContentHash());
+        try {
+            if (op.fetchInto(resultFile)) {
+                return true;
+            }
+            logWarn("Parallel GET of '"+key+"' ("+length+" bytes) failed; will retry with regular GET");
+        } catch (IOException e) {
+            logWarn(e, "Parallel GET of '"+key+"' failed; will retry with regular GET: "+e.getMessage());
+        }
+        return false;
+    }
+
     protected void _handleGetFailure(ReadCallParameters params, K key, GetOperationResult<?> result)
     {
         NodeFailure nodeFail = result.getFirstFail();
@@ -479,8 +670,30 @@ public abstract class StoreClient<K extends EntryKey,
     {
         final long startTime = System.currentTimeMillis();
         final NodesForKey nodes = _clusterView.getNodesFor(key);
+        final CONFIG config = _getConfig(params);
 
-        return new PutOperationImpl<K,CONFIG>(_getConfig(params), startTime,
+        if (_nearCache != null) {
+            _nearCache.remove(key);
+        }
+
+        // Compress on client side? If so, do it just once, for all replicas
+        Compression comp = config.getOperationConfig().getUploadCompression();
+        if (comp != null && comp != Compression.NONE) {
+            // Stream content gets (partially) consumed, so can not be sent as is if compression fails
+            boolean resendable = true;
+            try {
+                resendable = (content.contentAsBytes() != null) || (content.contentAsFile() != null);
+                content = PutContentCompressor.compress(content, comp, config.getKeyConverter());
+            } catch (IOException e) {
+                if (!resendable) {
+                    logWarn(e, "Failed to compress stream content for key "+key+", failing PUT: "+e.getMessage());
+                    return new PutOperationImpl<K,CONFIG>(config, startTime,
+                            nodes, key, params, content).failAll(e);
+                }
+                logWarn(e, "Failed to compress content for key "+key+", will send as is: "+e.getMessage());
+            }
+        }
+        return new PutOperationImpl<K,CONFIG>(config, startTime,
                 nodes, key, params, content);
     }
 
@@ -556,7 +769,10 @@ public abstract class StoreClient<K extends EntryKey,
                 // did we get the thing?
                 T entry = gotten.getResult();
                 if (entry != null) {
-                    return result.withFailed(retries).setContents(server, entry);
+                    return result.withFailed(retries).setContents(server, gotten.getStatus(), entry);
+                }
+                if (_notModified(gotten)) {
+                    return result.withFailed(retries).setNotModified(server);
                 }
                 // it not, it's 404, missing entry. Neither fail nor really success...
                 result = result.withMissing(server);
@@ -583,7 +799,10 @@ public abstract class StoreClient<K extends EntryKey,
                 if (gotten.succeeded()) {
                     T entry = gotten.getResult(); // got it?
                     if (entry != null) {
-                        return result.withFailed(retries).setContents(server, entry);
+                        return result.withFailed(retries).setContents(server, gotten.getStatus(), entry);
+                    }
+                    if (_notModified(gotten)) {
+                        return result.withFailed(retries).setNotModified(server);
                     }
                     // it not, it's 404, missing entry. Neither fail nor really success...
                     result = result.withMissing(server);
@@ -610,7 +829,10 @@ public abstract class StoreClient<K extends EntryKey,
                 if (gotten.succeeded()) {
                     T entry = gotten.getResult(); // got it?
                     if (entry != null) {
-                        return result.withFailed(retries).setContents(server, entry);
+                        return result.withFailed(retries).setContents(server, gotten.getStatus(), entry);
+                    }
+                    if (_notModified(gotten)) {
+                        return result.withFailed(retries).setNotModified(server);
                     }
                     // it not, it's 404, missing entry. Neither fail nor really success...
                     result = result.withMissing(server);
@@ -641,7 +863,10 @@ public abstract class StoreClient<K extends EntryKey,
                 if (gotten.succeeded()) {
                     T entry = gotten.getResult(); // got it?
                     if (entry != null) {
-                        return result.withFailed(retries).setContents(server, entry);
+                        return result.withFailed(retries).setContents(server, gotten.getStatus(), entry);
+                    }
+                    if (_notModified(gotten)) {
+                        return result.withFailed(retries).setNotModified(server);
                     }
                     // it not, it's 404, missing entry. Neither fail nor really success...
                     result = result.withMissing(server);
@@ -666,7 +891,29 @@ public abstract class StoreClient<K extends EntryKey,
     /**********************************************************************
      */
 
-    public HeadOperationResult headContent(ReadCallParameters params, K key)
+    /**
+     * Method called to find out whether content exists, and if so, its length.
+     *<p>
+     * If read coalescing is enabled (see {@link OperationConfig#getCoalesceReads}),
+     * concurrent calls for the same key share a single HEAD operation, and
+     * the same result object.
+     */
+    public HeadOperationResult headContent(final ReadCallParameters params, final K key)
+        throws InterruptedException
+    {
+        if (!_coalesceReads(params)) {
+            return _headContent(params, key);
+        }
+        return _headFlights.execute(new ReadFlightKey(params, key, null),
+                new SingleFlight.Call<HeadOperationResult>() {
+            @Override
+            public HeadOperationResult call() throws InterruptedException {
+                return _headContent(params, key);
+            }
+        });
+    }
+
+    protected HeadOperationResult _headContent(ReadCallParameters params, K key)
         throws InterruptedException
     {
         final long startTime = System.currentTimeMillis();
@@ -705,7 +952,8 @@ public abstract class StoreClient<K extends EntryKey,
                     continue;
                 }
                 if (gotten.hasContentLength()) {
-                    return result.withFailed(retries).setContentLength(server, gotten.getContentLength());
+                    return result.withFailed(retries).setContentLength(server,
+                            gotten.getContentLength(), gotten.getContentHash());
                 }
                 // it not, it's 404, missing entry. Neither fail nor really success...
                 result = result.withMissing(server);
@@ -731,7 +979,8 @@ public abstract class StoreClient<K extends EntryKey,
                         params, endOfTime, key);
                 if (gotten.succeeded()) {
                     if (gotten.hasContentLength()) {
-                        return result.withFailed(retries).setContentLength(server, gotten.getContentLength());
+                        return result.withFailed(retries).setContentLength(server,
+                                gotten.getContentLength(), gotten.getContentHash());
                     }
                     // it not, it's 404, missing entry. Neither fail nor really success...
                     result = result.withMissing(server);
@@ -757,7 +1006,8 @@ public abstract class StoreClient<K extends EntryKey,
                         params, endOfTime, key);
                 if (gotten.succeeded()) {
                     if (gotten.hasContentLength()) {
-                        return result.withFailed(retries).setContentLength(server, gotten.getContentLength());
+                        return result.withFailed(retries).setContentLength(server,
+                                gotten.getContentLength(), gotten.getContentHash());
                     }
                     // it not, it's 404, missing entry. Neither fail nor really success...
                     result = result.withMissing(server);
@@ -789,7 +1039,8 @@ public abstract class StoreClient<K extends EntryKey,
                         params, endOfTime, key);
                 if (gotten.succeeded()) {
                     if (gotten.hasContentLength()) {
-                        return result.withFailed(retries).setContentLength(server, gotten.getContentLength());
+                        return result.withFailed(retries).setContentLength(server,
+                                gotten.getContentLength(), gotten.getContentHash());
                     }
                     // it not, it's 404, missing entry. Neither fail nor really success...
                     result = result.withMissing(server);
@@ -947,6 +1198,10 @@ public abstract class StoreClient<K extends EntryKey,
         final long startTime = System.currentTimeMillis();
         final CONFIG config = _getConfig(params);
 
+        if (_nearCache != null) {
+            _nearCache.remove(key);
+        }
+
         // First things first: find Server nodes to talk to:
         NodesForKey nodes = _clusterView.getNodesFor(key);
         DeleteOperationResult result = new DeleteOperationResult(config.getOperationConfig());
@@ -1102,6 +1357,14 @@ public abstract class StoreClient<K extends EntryKey,
         return new GenericContentConverter<ITEM>(config.getJsonMapper(), infoType);
     }
     
+    protected boolean _coalesceReads(ReadCallParameters params) {
+        return _getConfig(params).getOperationConfig().getCoalesceReads();
+    }
+
+    protected static boolean _notModified(ReadCallResult<?> result) {
+        return result.getStatus() == ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED;
+    }
+
     protected boolean _allowRetries(CONFIG config) {
         return config.getOperationConfig().getAllowRetries();
     }
@@ -1127,4 +1390,59 @@ public abstract class StoreClient<K extends EntryKey,
             }
         }
     }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Key used for coalescing identical concurrent reads: read calls are
+     * identical if they are for the same entry and range, and use same
+     * call parameters (compared by identity).
+     */
+    protected static class ReadFlightKey
+    {
+        protected final ReadCallParameters _params;
+
+        protected final EntryKey _key;
+
+        protected final long _rangeStart, _rangeEnd;
+
+        public ReadFlightKey(ReadCallParameters params, EntryKey key, ByteRange range)
+        {
+            _params = params;
+            _key = key;
+            _rangeStart = (range == null) ? -1L : range.getStart();
+            _rangeEnd = (range == null) ? -1L : range.getEnd();
+        }
+
+        @Override
+        public int hashCode() {
+            return _key.hashCode() ^ (int) _rangeStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (o == null || o.getClass() != getClass()) return false;
+            ReadFlightKey other = (ReadFlightKey) o;
+            return (other._params == _params)
+                    && (other._rangeStart == _rangeStart) && (other._rangeEnd == _rangeEnd)
+                    && other._key.equals(_key);
+        }
+    }
+
+    /**
+     * Call for getting content as bytes; callers that join an in-flight call
+     * get their own copy of contents.
+     */
+    protected abstract static class BytesCall extends SingleFlight.Call<byte[]>
+    {
+        @Override
+        public byte[] copy(byte[] result) {
+            return (result == null) ? null : result.clone();
+        }
+    }
 }
@@ -1,11 +1,12 @@
 package com.fasterxml.clustermate.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-
+import com.fasterxml.storemate.shared.compress.Compression;
 
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.api.EntryKeyConverter;
 import com.fasterxml.clustermate.api.RequestPathStrategy;
+import com.fasterxml.clustermate.client.cache.NearCacheConfig;
 import com.fasterxml.clustermate.client.call.CallConfig;
 import com.fasterxml.clustermate.client.operation.OperationConfig;
 import com.fasterxml.clustermate.json.ClusterMateObjectMapper;
@@ -84,6 +85,22 @@ public abstract class StoreClientConfigBuilder<
     protected long _getOperationTimeoutMsecs;
 
     protected long _deleteOperationTimeoutMsecs;
+
+    // // Content handling
+
+    protected Compression _uploadCompression;
+
+    protected NearCacheConfig _nearCacheConfig;
+
+    protected boolean _coalesceReads;
+
+    protected long _putPrecheckMinLength;
+
+    protected long _parallelGetMinLength;
+
+    protected long _resumablePutMinLength;
+
+    protected boolean _readRepair;
     
     /*
     /**********************************************************************
@@ -123,6 +140,13 @@ public abstract class StoreClientConfigBuilder<
         _deleteOperationTimeoutMsecs = operationConfig.getDeleteOperationTimeoutMsecs();
 
         _allowRetries = operationConfig.getAllowRetries();
+        _uploadCompression = operationConfig.getUploadCompression();
+        _nearCacheConfig = operationConfig.getNearCacheConfig();
+        _coalesceReads = operationConfig.getCoalesceReads();
+        _putPrecheckMinLength = operationConfig.getPutPrecheckMinLength();
+        _parallelGetMinLength = operationConfig.getParallelGetMinLength();
+        _resumablePutMinLength = operationConfig.getResumablePutMinLength();
+        _readRepair = operationConfig.getReadRepair();
         
         final CallConfig callConfig = operationConfig.getCallConfig();
         _connectTimeoutMsecs = callConfig.getConnectTimeoutMsecs();
@@ -142,7 +166,9 @@ public abstract class StoreClientConfigBuilder<
         return new OperationConfig(cc,
                 _minOksToSucceed, _optimalOks, _maxOks,
                 _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
-                _allowRetries
+                _allowRetries, _uploadCompression, _nearCacheConfig, _coalesceReads,
+                _putPrecheckMinLength, _parallelGetMinLength, _resumablePutMinLength,
+                _readRepair
         );
     }
 
@@ -236,6 +262,88 @@ public abstract class StoreClientConfigBuilder<
          return (BUILDER) this;
     }
 
+    // // // Content handling
+
+    /**
+     * Method for enabling compression of PUT content on client side
+     * (once per operation, shared by all server calls); null or
+     * {@link Compression#NONE} to disable.
+     */
+    @SuppressWarnings("unchecked")
+    public BUILDER setUploadCompression(Compression comp) {
+        _uploadCompression = comp;
+        return (BUILDER) this;
+    }
+
+    /**
+     * Method for enabling client-side caching of entry contents read using
+     * {@link StoreClient#getContentAsBytes}; null to disable.
+     */
+    @SuppressWarnings("unchecked")
+    public BUILDER setNearCacheConfig(NearCacheConfig cfg) {
+        _nearCacheConfig = cfg;
+        return (BUILDER) this;
+    }
+
+    /**
+     * Method for enabling coalescing of concurrent identical reads
+     * ({@link StoreClient#getContentAsBytes}, {@link StoreClient#headContent})
+     * for the same key: if enabled, only one operation is in progress at any
+     * given time, and its results are shared by all callers.
+     */
+    @SuppressWarnings("unchecked")
+    public BUILDER setCoalesceReads(boolean state) {
+        _coalesceReads = state;
+        return (BUILDER) this;
+    }
+
+    /**
+     * Method for enabling pre-flight checks for PUTs of content at least
+     * as long as specified: before uploading content to a server node, a
+     * conditional HEAD is made to see if node already has identical content.
+     * 0 to disable checks.
+     */
+    @SuppressWarnings("unchecked")
+    public BUILDER setPutPrecheckMinLength(long length) {
+        _putPrecheckMinLength = length;
+        return (BUILDER) this;
+    }
+
+    /**
+     * Method for enabling parallel downloads for GETs of content (into files)
+     * at least as long as specified: content is fetched as byte ranges,
+     * concurrently from different server nodes that have a copy.
+     * 0 to disable parallel downloads.
+     */
+    @SuppressWarnings("unchecked")
+    public BUILDER setParallelGetMinLength(long length) {
+        _parallelGetMinLength = length;
+        return (BUILDER) this;
+    }
+
+    /**
+     * Method for enabling resumable uploads for PUTs of content at least
+     * as long as specified: if upload to a server node fails, it is resumed
+     * from where it was cut off, instead of re-sending all of content.
+     * 0 to disable resumable uploads.
+     */
+    @SuppressWarnings("unchecked")
+    public BUILDER setResumablePutMinLength(long length) {
+        _resumablePutMinLength = length;
+        return (BUILDER) this;
+    }
+
+    /**
+     * Method for enabling or disabling read-repair: if enabled, content
+     * GET as bytes after one or more server nodes reported it missing is
+     * PUT to those nodes asynchronously.
+     */
+    @SuppressWarnings("unchecked")
+    public BUILDER setReadRepair(boolean state) {
+        _readRepair = state;
+        return (BUILDER) this;
+    }
+
     @SuppressWarnings("unchecked")
     public BUILDER setBasePath(String[] path) {
         _basePath = path;
@@ -0,0 +1,176 @@
+package com.fasterxml.clustermate.client.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.storemate.shared.hash.HashConstants;
+
+import com.fasterxml.clustermate.api.EntryKey;
+
+/**
+ * Simple bounded in-memory cache of entry contents, used by client to avoid
+ * re-fetching contents of entries that are read over and over again.
+ * Since entries can not be modified (only deleted and re-created), cached
+ * contents can be validated using the content hash, which server uses as
+ * the ETag for conditional GETs.
+ *<p>
+ * Cache is an LRU cache bounded by total byte size of contents. To avoid
+ * one-off reads from flushing useful entries, an entry is (by default)
+ * only admitted when it is read for the second time within a short
+ * period: this is checked using a small table of key hashes of recently
+ * seen entries ("doorkeeper").
+ */
+public class NearCache<K extends EntryKey>
+{
+    protected final static int DOORKEEPER_SIZE = 4096;
+
+    protected final NearCacheConfig _config;
+
+    protected final LinkedHashMap<K,Entry> _entries;
+
+    protected final int[] _doorkeeper;
+
+    protected long _totalBytes;
+
+    public NearCache(NearCacheConfig config)
+    {
+        _config = config;
+        // access-ordered, for LRU eviction
+        _entries = new LinkedHashMap<K,Entry>(64, 0.75f, true);
+        _doorkeeper = config.getAdmitOnFirstAccess() ? null : new int[DOORKEEPER_SIZE];
+    }
+
+    public NearCacheConfig getConfig() { return _config; }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method for finding cached entry for given key, if any; entry returned
+     * may need to be revalidated, depending on {@link Entry#isFresh}.
+     */
+    public synchronized Entry find(K key) {
+        return _entries.get(key);
+    }
+
+    /**
+     * Method called to add given content in cache, if it passes admission
+     * checks.
+     *
+     * @return True if content was added in cache; false if not
+     */
+    public synchronized boolean add(K key, byte[] data, int contentHash, long now)
+    {
+        if (data.length > _config.getMaxEntryBytes()) {
+            return false;
+        }
+        if (_doorkeeper != null && !_entries.containsKey(key) && !_seenBefore(key)) {
+            return false;
+        }
+        Entry prev = _entries.put(key, new Entry(data, contentHash, now + _config.getFreshnessMsecs()));
+        if (prev != null) {
+            _totalBytes -= prev.length();
+        }
+        _totalBytes += data.length;
+        _evict();
+        return true;
+    }
+
+    /**
+     * Method called after server has verified that cached content is still
+     * valid.
+     */
+    public void revalidated(Entry entry, long now) {
+        entry._freshUntil = now + _config.getFreshnessMsecs();
+    }
+
+    public synchronized void remove(K key)
+    {
+        Entry prev = _entries.remove(key);
+        if (prev != null) {
+            _totalBytes -= prev.length();
+        }
+    }
+
+    public synchronized int size() {
+        return _entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return _totalBytes;
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected boolean _seenBefore(K key)
+    {
+        final int hash = key.hashCode();
+        final int ix = hash & (_doorkeeper.length - 1);
+        if (_doorkeeper[ix] == hash) {
+            return true;
+        }
+        _doorkeeper[ix] = hash;
+        return false;
+    }
+
+    protected void _evict()
+    {
+        final long max = _config.getMaxTotalBytes();
+        Iterator<Map.Entry<K,Entry>> it = _entries.entrySet().iterator();
+        while (_totalBytes > max && it.hasNext()) {
+            _totalBytes -= it.next().getValue().length();
+            it.remove();
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Cached content of a single entry, along with its content hash and
+     * freshness information.
+     */
+    public static class Entry
+    {
+        protected final byte[] _data;
+
+        protected final int _contentHash;
+
+        protected volatile long _freshUntil;
+
+        protected Entry(byte[] data, int contentHash, long freshUntil) {
+            _data = data;
+            _contentHash = contentHash;
+            _freshUntil = freshUntil;
+        }
+
+        public boolean isFresh(long now) { return now < _freshUntil; }
+
+        /**
+         * @return Whether content can be revalidated with conditional GET;
+         *   false if content hash is not known.
+         */
+        public boolean canRevalidate() { return _contentHash != HashConstants.NO_CHECKSUM; }
+
+        public int getContentHash() { return _contentHash; }
+
+        public int length() { return _data.length; }
+
+        /**
+         * Accessor for a copy of cached contents; copy is needed so that
+         * caller can not modify cached contents.
+         */
+        public byte[] getContents() { return _data.clone(); }
+    }
+}
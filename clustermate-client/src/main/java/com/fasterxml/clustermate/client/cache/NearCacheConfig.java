@@ -0,0 +1,95 @@
+package com.fasterxml.clustermate.client.cache;
+
+/**
+ * Immutable configuration for {@link NearCache}: size limits, freshness
+ * period and admission policy.
+ */
+public class NearCacheConfig
+{
+    /**
+     * By default let's allow up to 32 megs of cached content
+     */
+    public final static long DEFAULT_MAX_TOTAL_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * By default only cache entries up to 256k in size; bigger entries
+     * would flush too many smaller ones.
+     */
+    public final static int DEFAULT_MAX_ENTRY_BYTES = 256 * 1024;
+
+    /**
+     * Entries are considered fresh (usable without revalidation) for
+     * one second by default.
+     */
+    public final static long DEFAULT_FRESHNESS_MSECS = 1000L;
+
+    protected final long _maxTotalBytes;
+
+    protected final int _maxEntryBytes;
+
+    protected final long _freshnessMsecs;
+
+    /**
+     * Whether entries are to be cached on first access (true), or only
+     * if they are requested again, soon after first access (false).
+     */
+    protected final boolean _admitOnFirstAccess;
+
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Instance creation, building
+    ///////////////////////////////////////////////////////////////////////
+     */
+
+    public NearCacheConfig() {
+        this(DEFAULT_MAX_TOTAL_BYTES, DEFAULT_MAX_ENTRY_BYTES, DEFAULT_FRESHNESS_MSECS, false);
+    }
+
+    public NearCacheConfig(long maxTotalBytes, int maxEntryBytes, long freshnessMsecs,
+            boolean admitOnFirstAccess)
+    {
+        _maxTotalBytes = maxTotalBytes;
+        _maxEntryBytes = maxEntryBytes;
+        _freshnessMsecs = freshnessMsecs;
+        _admitOnFirstAccess = admitOnFirstAccess;
+    }
+
+    public NearCacheConfig withMaxTotalBytes(long l) {
+        return (l == _maxTotalBytes) ? this :
+            new NearCacheConfig(l, _maxEntryBytes, _freshnessMsecs, _admitOnFirstAccess);
+    }
+
+    public NearCacheConfig withMaxEntryBytes(int l) {
+        return (l == _maxEntryBytes) ? this :
+            new NearCacheConfig(_maxTotalBytes, l, _freshnessMsecs, _admitOnFirstAccess);
+    }
+
+    public NearCacheConfig withFreshnessMsecs(long l) {
+        return (l == _freshnessMsecs) ? this :
+            new NearCacheConfig(_maxTotalBytes, _maxEntryBytes, l, _admitOnFirstAccess);
+    }
+
+    public NearCacheConfig withAdmitOnFirstAccess(boolean b) {
+        return (b == _admitOnFirstAccess) ? this :
+            new NearCacheConfig(_maxTotalBytes, _maxEntryBytes, _freshnessMsecs, b);
+    }
+
+    /*
+    ///////////////////////////////////////////////////////////////////////
+    // Public API
+    ///////////////////////////////////////////////////////////////////////
+     */
+
+    public long getMaxTotalBytes() { return _maxTotalBytes; }
+
+    public int getMaxEntryBytes() { return _maxEntryBytes; }
+
+    /**
+     * Length of time, in milliseconds, after fetching (or revalidating)
+     * an entry, during which it is returned without contacting server.
+     * After this, a conditional GET is made before returning it.
+     */
+    public long getFreshnessMsecs() { return _freshnessMsecs; }
+
+    public boolean getAdmitOnFirstAccess() { return _admitOnFirstAccess; }
+}
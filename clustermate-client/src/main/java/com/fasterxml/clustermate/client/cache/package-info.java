@@ -0,0 +1,5 @@
+/**
+ * Package that contains the optional client-side cache of entry contents
+ * ("near cache"), used to avoid re-fetching frequently read entries.
+ */
+package com.fasterxml.clustermate.client.cache;
@@ -0,0 +1,52 @@
+package com.fasterxml.clustermate.client.call;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+
+/**
+ * {@link ReadCallParameters} implementation used for making conditional
+ * GETs: adds "If-None-Match" header with given content hash (which
+ * server uses as the ETag), in addition to whatever settings wrapped
+ * parameters (if any) add.
+ */
+public class ConditionalReadCallParameters extends ReadCallParameters
+{
+    protected final ReadCallParameters _delegate;
+
+    protected final int _contentHash;
+
+    public ConditionalReadCallParameters(ReadCallParameters delegate, int contentHash)
+    {
+        super(delegate);
+        _delegate = delegate;
+        _contentHash = contentHash;
+    }
+
+    protected ConditionalReadCallParameters(ConditionalReadCallParameters base,
+            StoreClientConfig<?,?> config)
+    {
+        super(base, config);
+        _delegate = (base._delegate == null) ? null
+                : (ReadCallParameters) base._delegate.withClientConfig(config);
+        _contentHash = base._contentHash;
+    }
+
+    @Override
+    public ConditionalReadCallParameters withClientConfig(StoreClientConfig<?,?> config) {
+        return new ConditionalReadCallParameters(this, config);
+    }
+
+    @Override
+    public <B extends RequestPathBuilder<B>> B appendToPath(B pathBuilder, EntryKey contentId)
+    {
+        if (_delegate != null) {
+            pathBuilder = _delegate.appendToPath(pathBuilder, contentId);
+        }
+        return pathBuilder.setHeader(ClusterMateConstants.HTTP_HEADER_ETAG_NO_MATCH,
+                "\""+_contentHash+"\"");
+    }
+
+    public int getContentHash() { return _contentHash; }
+}
@@ -0,0 +1,55 @@
+package com.fasterxml.clustermate.client.call;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.PutDurability;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+
+/**
+ * {@link PutCallParameters} implementation used for indicating durability
+ * level server is to use for PUT, in addition to whatever settings wrapped
+ * parameters (if any) add.
+ */
+public class DurabilityPutCallParameters extends PutCallParameters
+{
+    protected final PutCallParameters _delegate;
+
+    protected final PutDurability _durability;
+
+    public DurabilityPutCallParameters(PutCallParameters delegate, PutDurability durability)
+    {
+        super(delegate);
+        _delegate = delegate;
+        _durability = durability;
+    }
+
+    protected DurabilityPutCallParameters(DurabilityPutCallParameters base,
+            StoreClientConfig<?,?> config)
+    {
+        super(base, config);
+        _delegate = (base._delegate == null) ? null
+                : (PutCallParameters) base._delegate.withClientConfig(config);
+        _durability = base._durability;
+    }
+
+    @Override
+    public DurabilityPutCallParameters withClientConfig(StoreClientConfig<?,?> config) {
+        return new DurabilityPutCallParameters(this, config);
+    }
+
+    @Override
+    public <B extends RequestPathBuilder<B>> B appendToPath(B pathBuilder, EntryKey contentId)
+    {
+        if (_delegate != null) {
+            pathBuilder = _delegate.appendToPath(pathBuilder, contentId);
+        }
+        if (_durability != null) {
+            pathBuilder = pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_DURABILITY,
+                    _durability.name());
+        }
+        return pathBuilder;
+    }
+
+    public PutDurability getDurability() { return _durability; }
+}
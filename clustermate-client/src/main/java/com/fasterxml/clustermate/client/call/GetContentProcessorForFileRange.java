@@ -0,0 +1,63 @@
+package com.fasterxml.clustermate.client.call;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@link GetContentProcessor} implementation used for GETting a byte range
+ * of content, and writing it in a file at the offset of the range; this
+ * allows multiple ranges to be written in the same file concurrently.
+ * Result is the number of bytes written.
+ */
+public class GetContentProcessorForFileRange extends GetContentProcessor<Long>
+{
+    protected final FileChannel _channel;
+
+    protected final long _offset;
+
+    public GetContentProcessorForFileRange(FileChannel channel, long offset) {
+        _channel = channel;
+        _offset = offset;
+    }
+
+    @Override public GetContentProcessorForFileRange.Handler createHandler() {
+        return new Handler(_channel, _offset);
+    }
+
+    public static class Handler extends GetContentProcessor.Handler<Long>
+    {
+        protected final FileChannel _channel;
+
+        protected final long _offset;
+
+        protected long _count;
+
+        public Handler(FileChannel channel, long offset) {
+            _channel = channel;
+            _offset = offset;
+        }
+
+        @Override
+        public boolean processContent(byte[] content, int offset, int length)
+            throws IOException
+        {
+            ByteBuffer bb = ByteBuffer.wrap(content, offset, length);
+            while (bb.hasRemaining()) {
+                // positional writes do not change position of channel, so are safe to use concurrently
+                _count += _channel.write(bb, _offset + _count);
+            }
+            return true;
+        }
+
+        @Override
+        public Long completeContentProcessing() {
+            return Long.valueOf(_count);
+        }
+
+        @Override
+        public void contentProcessingFailed(Throwable cause) {
+            // nothing to clean up: caller owns the file, and range will be re-fetched
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.fasterxml.clustermate.client.call;
 
+import com.fasterxml.storemate.shared.hash.HashConstants;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
 import com.fasterxml.clustermate.client.ClusterServerNode;
 
 public abstract class HeadCallResult
@@ -45,4 +48,25 @@ public abstract class HeadCallResult
     
     public long getContentLength() { return _contentLength; }
     public boolean hasContentLength() { return _contentLength >= 0L; }
+
+    /**
+     * Accessor for content hash of the entry, as indicated by server using
+     * ETag header, if any.
+     *
+     * @return Content hash of entry, if known; {@link HashConstants#NO_CHECKSUM} if not
+     */
+    public int getContentHash()
+    {
+        String etag = getHeaderValue(ClusterMateConstants.HTTP_HEADER_ETAG);
+        if (etag != null) {
+            etag = etag.trim();
+            final int len = etag.length();
+            if (len > 2 && etag.charAt(0) == '"' && etag.charAt(len-1) == '"') {
+                try {
+                    return Integer.parseInt(etag.substring(1, len-1));
+                } catch (NumberFormatException e) { } // not one of ours; ignore
+            }
+        }
+        return HashConstants.NO_CHECKSUM;
+    }
 }
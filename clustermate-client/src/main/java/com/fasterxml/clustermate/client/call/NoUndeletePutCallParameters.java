@@ -0,0 +1,45 @@
+package com.fasterxml.clustermate.client.call;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+
+/**
+ * {@link PutCallParameters} implementation used for indicating that server
+ * must not recreate a deleted entry, in addition to whatever settings wrapped
+ * parameters (if any) add. Used for read-repair, where entry missing from
+ * a server node may have been deleted there.
+ */
+public class NoUndeletePutCallParameters extends PutCallParameters
+{
+    protected final PutCallParameters _delegate;
+
+    public NoUndeletePutCallParameters(PutCallParameters delegate)
+    {
+        super(delegate);
+        _delegate = delegate;
+    }
+
+    protected NoUndeletePutCallParameters(NoUndeletePutCallParameters base,
+            StoreClientConfig<?,?> config)
+    {
+        super(base, config);
+        _delegate = (base._delegate == null) ? null
+                : (PutCallParameters) base._delegate.withClientConfig(config);
+    }
+
+    @Override
+    public NoUndeletePutCallParameters withClientConfig(StoreClientConfig<?,?> config) {
+        return new NoUndeletePutCallParameters(this, config);
+    }
+
+    @Override
+    public <B extends RequestPathBuilder<B>> B appendToPath(B pathBuilder, EntryKey contentId)
+    {
+        if (_delegate != null) {
+            pathBuilder = _delegate.appendToPath(pathBuilder, contentId);
+        }
+        return pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_NO_UNDELETE, "true");
+    }
+}
@@ -1,5 +1,6 @@
 package com.fasterxml.clustermate.client.call;
 
+import com.fasterxml.clustermate.api.PutDurability;
 import com.fasterxml.clustermate.client.StoreClientConfig;
 
 /**
@@ -23,4 +24,12 @@ public abstract class PutCallParameters
     protected PutCallParameters(PutCallParameters base, StoreClientConfig<?,?> config) {
         super(config);
     }
+
+    /**
+     * Mutant factory for constructing parameters that ask server to use
+     * given durability level, in addition to settings of these parameters.
+     */
+    public PutCallParameters withDurability(PutDurability durability) {
+        return new DurabilityPutCallParameters(this, durability);
+    }
 }
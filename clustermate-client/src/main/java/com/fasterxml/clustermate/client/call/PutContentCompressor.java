@@ -0,0 +1,270 @@
+package com.fasterxml.clustermate.client.call;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.storemate.shared.ByteContainer;
+import com.fasterxml.storemate.shared.compress.Compression;
+import com.fasterxml.storemate.shared.compress.Compressors;
+import com.fasterxml.storemate.shared.hash.HashConstants;
+import com.fasterxml.storemate.shared.hash.IncrementalHasher32;
+
+import com.fasterxml.clustermate.api.EntryKeyConverter;
+import com.fasterxml.clustermate.std.ChecksumUtil;
+
+/**
+ * Helper class used for compressing content to PUT once on client side,
+ * before sending it to server nodes: this way all replicas receive the same
+ * compressed content (with {@link PutContentProvider#getExistingCompression()}
+ * indicating compression used), instead of each server compressing content
+ * separately. Content hash of the uncompressed content is calculated in the
+ * same pass.
+ *<p>
+ * Compressed content is kept in memory up to {@link #MAX_IN_MEMORY_LENGTH}
+ * bytes; longer content is written in a temporary file, which is deleted
+ * when provider is released.
+ */
+public class PutContentCompressor
+{
+    /**
+     * Content shorter than this is not worth compressing.
+     */
+    public final static int MIN_COMPRESSIBLE_LENGTH = 200;
+
+    /**
+     * Maximum length of compressed content to keep in memory.
+     */
+    public final static int MAX_IN_MEMORY_LENGTH = 256 * 1024;
+
+    protected final static int BUFFER_LENGTH = 16 * 1024;
+
+    private PutContentCompressor() { }
+
+    /**
+     * Method for compressing given content, if it is not yet compressed, and
+     * is long enough to be worth compressing.
+     *
+     * @return Provider for compressed content, or original content if
+     *    no compression was done (in which case content hash is still
+     *    calculated for byte-backed content)
+     */
+    public static PutContentProvider compress(PutContentProvider content, Compression comp,
+            EntryKeyConverter<?> keyConverter)
+        throws IOException
+    {
+        if (comp == null || comp == Compression.NONE
+                || content.getExistingCompression() != null) {
+            return content;
+        }
+        final long length = content.length();
+        if (length >= 0L && length < MIN_COMPRESSIBLE_LENGTH) {
+            return content;
+        }
+        ByteContainer bytes = content.contentAsBytes();
+        if (bytes != null) {
+            return _compressBytes(content, bytes, comp, keyConverter);
+        }
+        File f = content.contentAsFile();
+        if (f != null) {
+            InputStream in = new FileInputStream(f);
+            try {
+                PutContentProvider result = _compressStream(content, in, comp, keyConverter);
+                // not worth it? If so, can still use the original file
+                if (result.length() >= f.length()) {
+                    content.setContentHash(result.getContentHash());
+                    result.release();
+                    return content;
+                }
+                return result;
+            } finally {
+                in.close();
+            }
+        }
+        InputStream in = content.contentAsStream();
+        if (in == null) { // should never occur, but just in case
+            return content;
+        }
+        // with streams, there's no going back even if compression did not help
+        try {
+            return _compressStream(content, in, comp, keyConverter);
+        } finally {
+            in.close();
+        }
+    }
+
+    protected static PutContentProvider _compressBytes(PutContentProvider content,
+            ByteContainer bytes, Compression comp, EntryKeyConverter<?> keyConverter)
+        throws IOException
+    {
+        int hash = content.getContentHash();
+        if (hash == HashConstants.NO_CHECKSUM) {
+            hash = keyConverter.contentHashFor(bytes);
+            content.setContentHash(hash);
+        }
+        // already compressed by caller, without indicating it? Leave as is
+        if (Compressors.isCompressed(bytes)) {
+            return content;
+        }
+        byte[] compressed = (comp == Compression.GZIP)
+                ? Compressors.gzipCompress(bytes) : Compressors.lzfCompress(bytes);
+        if (compressed.length >= bytes.byteLength()) {
+            return content;
+        }
+        return new Compressed(content, ByteContainer.simple(compressed), null,
+                compressed.length, comp, bytes.byteLength(), hash);
+    }
+
+    protected static PutContentProvider _compressStream(PutContentProvider content,
+            InputStream in, Compression comp, EntryKeyConverter<?> keyConverter)
+        throws IOException
+    {
+        final IncrementalHasher32 hasher = keyConverter.createStreamingContentHasher();
+        final SpillingOutputStream buffer = new SpillingOutputStream();
+        boolean ok = false;
+        try {
+            OutputStream out = Compressors.compressingStream(buffer, comp);
+            final byte[] copyBuffer = new byte[BUFFER_LENGTH];
+            long total = 0L;
+            int count;
+            while ((count = in.read(copyBuffer)) > 0) {
+                hasher.update(copyBuffer, 0, count);
+                out.write(copyBuffer, 0, count);
+                total += count;
+            }
+            out.close();
+            ok = true;
+            final int hash = ChecksumUtil.cleanChecksum(hasher.calculateHash());
+            content.setContentHash(hash);
+            return new Compressed(content, buffer.bytes(), buffer.file(), buffer.length(),
+                    comp, total, hash);
+        } finally {
+            if (!ok) {
+                buffer.discard();
+            }
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * {@link PutContentProvider} for compressed content, backed either by
+     * a byte container or a temporary file.
+     */
+    protected static class Compressed implements PutContentProvider
+    {
+        protected final PutContentProvider _original;
+
+        protected final ByteContainer _bytes;
+
+        protected final File _tempFile;
+
+        protected final long _length;
+
+        protected final Compression _compression;
+
+        protected final long _uncompressedLength;
+
+        protected final AtomicInteger _contentHash;
+
+        public Compressed(PutContentProvider original, ByteContainer bytes, File tempFile,
+                long length, Compression comp, long uncompressedLength, int contentHash)
+        {
+            _original = original;
+            _bytes = bytes;
+            _tempFile = tempFile;
+            _length = length;
+            _compression = comp;
+            _uncompressedLength = uncompressedLength;
+            _contentHash = new AtomicInteger(contentHash);
+        }
+
+        @Override
+        public void release() {
+            _original.release();
+            if (_tempFile != null) {
+                _tempFile.delete();
+            }
+        }
+
+        @Override public long length() { return _length; }
+        @Override public long uncompressedLength() { return _uncompressedLength; }
+        @Override public ByteContainer contentAsBytes() { return _bytes; }
+        @Override public File contentAsFile() { return _tempFile; }
+        @Override public InputStream contentAsStream() { return null; }
+        @Override public int getContentHash() { return _contentHash.get(); }
+
+        @Override
+        public void setContentHash(int hash) {
+            _contentHash.compareAndSet(HashConstants.NO_CHECKSUM, hash);
+        }
+
+        @Override public Compression getExistingCompression() { return _compression; }
+        @Override public Object rawSource() { return _original.rawSource(); }
+    }
+
+    /**
+     * Output stream that buffers content in memory, up to
+     * {@link #MAX_IN_MEMORY_LENGTH} bytes, and then moves it to
+     * a temporary file.
+     */
+    protected static class SpillingOutputStream extends OutputStream
+    {
+        protected ByteArrayOutputStream _memory = new ByteArrayOutputStream(BUFFER_LENGTH);
+
+        protected File _file;
+
+        protected OutputStream _fileOut;
+
+        protected long _length;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int len) throws IOException
+        {
+            if (_fileOut == null && (_length + len) > MAX_IN_MEMORY_LENGTH) {
+                _file = File.createTempFile("cm-put-", ".tmp");
+                _fileOut = new BufferedOutputStream(new FileOutputStream(_file), BUFFER_LENGTH);
+                _memory.writeTo(_fileOut);
+                _memory = null;
+            }
+            if (_fileOut != null) {
+                _fileOut.write(b, offset, len);
+            } else {
+                _memory.write(b, offset, len);
+            }
+            _length += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (_fileOut != null) {
+                _fileOut.close();
+            }
+        }
+
+        public long length() { return _length; }
+
+        public ByteContainer bytes() {
+            return (_memory == null) ? null : ByteContainer.simple(_memory.toByteArray());
+        }
+
+        public File file() { return _file; }
+
+        public void discard() {
+            if (_file != null) {
+                try {
+                    _fileOut.close();
+                } catch (IOException e) { }
+                _file.delete();
+            }
+        }
+    }
+}
@@ -32,6 +32,19 @@ public class PutContentProviders
     public static StdPutContentProvider forBytes(ByteContainer bytes, Compression comp, long origLen) {
         return new ByteBacked(bytes, comp, origLen);
     }
+
+    /**
+     * Factory method for creating a provider that exposes content of given
+     * provider starting at given offset: used when resuming uploads.
+     * Content hash, compression and uncompressed length are those of the
+     * whole content.
+     *<p>
+     * Note that only providers that expose content as bytes or as a file can
+     * be used, since streams can not be re-read.
+     */
+    public static PutContentProvider remainderOf(PutContentProvider content, long offset) {
+        return new Remainder(content, offset);
+    }
     
     /**
      * Intermediate base class used for building actual {@link PutContentProvider} instances.
@@ -166,4 +179,76 @@ public class PutContentProviders
         @Override public InputStream contentAsStream() { return null; }
         @Override public Object rawSource() { return _file; }
     }
+
+    /*
+    /**********************************************************************
+    /* Wrapper used for resumed uploads
+    /**********************************************************************
+     */
+
+    /**
+     * {@link PutContentProvider} that exposes content of another provider,
+     * starting at given offset. Content is only exposed as bytes or as
+     * a stream, since file (if any) contains all of content.
+     */
+    protected static class Remainder
+        implements PutContentProvider
+    {
+        protected final PutContentProvider _content;
+
+        protected final long _offset;
+
+        public Remainder(PutContentProvider content, long offset) {
+            _content = content;
+            _offset = offset;
+        }
+
+        /**
+         * Wrapped provider is released by its owner, not by this provider.
+         */
+        @Override public void release() { }
+
+        @Override public long length() { return _content.length() - _offset; }
+        @Override public long uncompressedLength() { return _content.uncompressedLength(); }
+
+        @Override
+        public ByteContainer contentAsBytes() {
+            ByteContainer bytes = _content.contentAsBytes();
+            if (bytes == null) {
+                return null;
+            }
+            return bytes.view((int) _offset, bytes.byteLength() - (int) _offset);
+        }
+
+        @Override public File contentAsFile() { return null; }
+
+        @Override
+        public InputStream contentAsStream() throws IOException
+        {
+            File f = _content.contentAsFile();
+            if (f == null) {
+                throw new IllegalStateException("Can not resume upload of content from a stream");
+            }
+            InputStream in = new FileInputStream(f);
+            long toSkip = _offset;
+            while (toSkip > 0L) {
+                long count = in.skip(toSkip);
+                if (count <= 0L) {
+                    in.close();
+                    throw new EOFException("Could not skip to offset "+_offset+" of file "+f.getAbsolutePath());
+                }
+                toSkip -= count;
+            }
+            return in;
+        }
+
+        @Override public int getContentHash() { return _content.getContentHash(); }
+        /**
+         * Hash must be that of all of content, so hash calculated over the remainder
+         * must never be passed to the wrapped provider.
+         */
+        @Override public void setContentHash(int hash) { }
+        @Override public Compression getExistingCompression() { return _content.getExistingCompression(); }
+        @Override public Object rawSource() { return _content.rawSource(); }
+    }
 }
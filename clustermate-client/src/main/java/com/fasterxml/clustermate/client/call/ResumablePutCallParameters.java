@@ -0,0 +1,103 @@
+package com.fasterxml.clustermate.client.call;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+
+/**
+ * {@link PutCallParameters} implementation used for PUTs that are part of
+ * a resumable upload: adds upload id, offset of content being sent and
+ * total length of content as query parameters, in addition to whatever
+ * settings wrapped parameters (if any) add.
+ *<p>
+ * Also contains {@link Status}, parameters used for HEAD requests to find
+ * out how much of content server has received so far.
+ */
+public class ResumablePutCallParameters extends PutCallParameters
+{
+    protected final PutCallParameters _delegate;
+
+    protected final String _uploadId;
+
+    protected final long _offset;
+
+    protected final long _totalLength;
+
+    public ResumablePutCallParameters(PutCallParameters delegate, String uploadId,
+            long offset, long totalLength)
+    {
+        super(delegate);
+        _delegate = delegate;
+        _uploadId = uploadId;
+        _offset = offset;
+        _totalLength = totalLength;
+    }
+
+    protected ResumablePutCallParameters(ResumablePutCallParameters base,
+            StoreClientConfig<?,?> config)
+    {
+        super(base, config);
+        _delegate = (base._delegate == null) ? null
+                : (PutCallParameters) base._delegate.withClientConfig(config);
+        _uploadId = base._uploadId;
+        _offset = base._offset;
+        _totalLength = base._totalLength;
+    }
+
+    @Override
+    public ResumablePutCallParameters withClientConfig(StoreClientConfig<?,?> config) {
+        return new ResumablePutCallParameters(this, config);
+    }
+
+    @Override
+    public <B extends RequestPathBuilder<B>> B appendToPath(B pathBuilder, EntryKey contentId)
+    {
+        if (_delegate != null) {
+            pathBuilder = _delegate.appendToPath(pathBuilder, contentId);
+        }
+        return pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_ID, _uploadId)
+                .addParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_OFFSET, _offset)
+                .addParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_LENGTH, _totalLength);
+    }
+
+    public String getUploadId() { return _uploadId; }
+    public long getOffset() { return _offset; }
+    public long getTotalLength() { return _totalLength; }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Parameters for HEAD requests used for finding out length of content
+     * received for an upload: server reports it as the content length,
+     * or responds with 404 if it has no content for the upload.
+     */
+    public static class Status extends ReadCallParameters
+    {
+        protected final String _uploadId;
+
+        public Status(String uploadId) {
+            super();
+            _uploadId = uploadId;
+        }
+
+        protected Status(Status base, StoreClientConfig<?,?> config) {
+            super(base, config);
+            _uploadId = base._uploadId;
+        }
+
+        @Override
+        public Status withClientConfig(StoreClientConfig<?,?> config) {
+            return new Status(this, config);
+        }
+
+        @Override
+        public <B extends RequestPathBuilder<B>> B appendToPath(B pathBuilder, EntryKey contentId) {
+            return pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_ID, _uploadId);
+        }
+    }
+}
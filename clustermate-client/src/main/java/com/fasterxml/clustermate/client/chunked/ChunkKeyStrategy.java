@@ -0,0 +1,55 @@
+package com.fasterxml.clustermate.client.chunked;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.EntryKeyConverter;
+
+/**
+ * Strategy used for deriving keys of chunks of chunked content, from the key
+ * of the main entry (which contains manifest) and the upload id of the content.
+ * Chunk keys should hash to different key ranges, so that chunks get spread
+ * over multiple server nodes; and must differ between uploads, so that
+ * chunks of one upload never replace (or get deleted along with) chunks
+ * of another.
+ */
+public abstract class ChunkKeyStrategy<K extends EntryKey>
+{
+    /**
+     * Method called to construct key for the chunk with given index
+     * (starting with 0).
+     *
+     * @param uploadId Id of the upload that stored chunks (see
+     *   {@link ChunkManifest#uploadId}); null for content stored without one
+     */
+    public abstract K chunkKey(K baseKey, String uploadId, int index);
+
+    /**
+     * Factory method for the default strategy, which appends suffix with
+     * upload id and chunk index to the external (String) representation of the base key.
+     * Note that this only results in chunks spreading across key ranges if
+     * routing hash is calculated over the full key; with custom routing
+     * (for example, using just a group prefix) a custom strategy is needed.
+     */
+    public static <K extends EntryKey> ChunkKeyStrategy<K> suffixed(EntryKeyConverter<K> keyConverter) {
+        return new Suffixed<K>(keyConverter);
+    }
+
+    /**
+     * Default {@link ChunkKeyStrategy} implementation, see {@link #suffixed}.
+     */
+    public static class Suffixed<K extends EntryKey> extends ChunkKeyStrategy<K>
+    {
+        public final static String SUFFIX = "#chunk-";
+
+        protected final EntryKeyConverter<K> _keyConverter;
+
+        public Suffixed(EntryKeyConverter<K> keyConverter) {
+            _keyConverter = keyConverter;
+        }
+
+        @Override
+        public K chunkKey(K baseKey, String uploadId, int index) {
+            String suffix = (uploadId == null) ? (SUFFIX + index) : (SUFFIX + uploadId + "-" + index);
+            return _keyConverter.stringToKey(_keyConverter.keyToString(baseKey) + suffix);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.fasterxml.clustermate.client.chunked;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * POJO stored as the main entry for chunked content: contains information
+ * needed to locate, fetch and verify chunks.
+ */
+public class ChunkManifest
+{
+    /**
+     * Identifier used to recognize manifest entries.
+     */
+    public final static String FORMAT_ID = "cm-chunked-1";
+
+    /**
+     * Identifier of the manifest format, to distinguish manifests
+     * from regular entries; should always be {@link #FORMAT_ID}.
+     */
+    public String format;
+
+    /**
+     * Unique id of the upload that stored chunks; used as part of chunk
+     * keys, so that each upload has its own chunks.
+     */
+    public String uploadId;
+
+    /**
+     * Total length of content, in bytes.
+     */
+    public long length;
+
+    /**
+     * Length of each chunk, except for the last one (which may be shorter).
+     */
+    public int chunkSize;
+
+    /**
+     * Content hashes of chunks, in order; length is also the number of chunks.
+     */
+    public int[] chunkHashes;
+
+    // only for deserialization:
+    protected ChunkManifest() { }
+
+    public ChunkManifest(String uploadId, long length, int chunkSize, int[] chunkHashes)
+    {
+        format = FORMAT_ID;
+        this.uploadId = uploadId;
+        this.length = length;
+        this.chunkSize = chunkSize;
+        this.chunkHashes = chunkHashes;
+    }
+
+    @JsonIgnore
+    public boolean isValid() {
+        return FORMAT_ID.equals(format) && (chunkHashes != null) && (chunkSize > 0)
+                && (length >= 0L) && (chunkHashes.length == chunkCountFor(length, chunkSize));
+    }
+
+    public int chunkCount() {
+        return chunkHashes.length;
+    }
+
+    public long chunkOffset(int index) {
+        return (long) index * chunkSize;
+    }
+
+    public int chunkLength(int index) {
+        return (int) Math.min(chunkSize, length - chunkOffset(index));
+    }
+
+    public static int chunkCountFor(long length, int chunkSize) {
+        return (int) ((length + chunkSize - 1) / chunkSize);
+    }
+}
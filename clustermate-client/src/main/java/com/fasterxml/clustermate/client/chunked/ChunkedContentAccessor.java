@@ -0,0 +1,406 @@
+package com.fasterxml.clustermate.client.chunked;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.storemate.shared.ByteContainer;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.EntryKeyConverter;
+import com.fasterxml.clustermate.client.Loggable;
+import com.fasterxml.clustermate.client.StoreClient;
+import com.fasterxml.clustermate.client.call.*;
+import com.fasterxml.clustermate.client.operation.DeleteOperationResult;
+import com.fasterxml.clustermate.client.operation.PutOperationResult;
+
+/**
+ * Accessor used for storing and fetching very large content as chunked
+ * content: content is split into fixed-size chunks, stored as separate
+ * entries using keys derived by {@link ChunkKeyStrategy}; and a
+ * {@link ChunkManifest} is stored under the main key.
+ * Manifest is only stored after all chunks have been successfully stored,
+ * so readers never see partial content; if storing fails, chunks already
+ * stored are deleted. Since each upload uses a unique upload id as part of
+ * chunk keys, this never deletes chunks of any other upload (such as
+ * content being overwritten).
+ *<p>
+ * Chunks are uploaded and downloaded in parallel, using the executor given
+ * (which is owned by caller). Each chunk is verified using its content hash,
+ * and calls for individual chunks are retried up to {@link #MAX_CHUNK_ATTEMPTS}
+ * times.
+ */
+public class ChunkedContentAccessor<K extends EntryKey>
+    extends Loggable
+{
+    /**
+     * Let's use 8 megabyte chunks by default: big enough to keep number of
+     * entries reasonable, small enough to keep per-chunk memory usage modest.
+     */
+    public final static int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    public final static int MAX_CHUNK_ATTEMPTS = 3;
+
+    protected final StoreClient<K,?,?> _client;
+
+    protected final ExecutorService _executor;
+
+    protected final ChunkKeyStrategy<K> _keyStrategy;
+
+    protected final int _chunkSize;
+
+    protected final EntryKeyConverter<K> _keyConverter;
+
+    protected final ObjectMapper _mapper;
+
+    /*
+    /**********************************************************************
+    /* Life-cycle
+    /**********************************************************************
+     */
+
+    public ChunkedContentAccessor(StoreClient<K,?,?> client, ExecutorService executor)
+    {
+        this(client, executor, ChunkKeyStrategy.suffixed(client.getKeyConverter()),
+                DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedContentAccessor(StoreClient<K,?,?> client, ExecutorService executor,
+            ChunkKeyStrategy<K> keyStrategy, int chunkSize)
+    {
+        super(ChunkedContentAccessor.class);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size ("+chunkSize+"): must be positive");
+        }
+        _client = client;
+        _executor = executor;
+        _keyStrategy = keyStrategy;
+        _chunkSize = chunkSize;
+        _keyConverter = client.getKeyConverter();
+        _mapper = client.getConfig().getJsonMapper();
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method for PUTting contents of given file as chunked content.
+     *
+     * @return Manifest stored for content
+     *
+     * @throws IOException If storing of any of chunks, or manifest, failed
+     */
+    public ChunkManifest putContent(final PutCallParameters params, final K key, File file)
+        throws InterruptedException, IOException
+    {
+        final long length = file.length();
+        final int chunkCount = ChunkManifest.chunkCountFor(length, _chunkSize);
+        final int[] hashes = new int[chunkCount];
+        final ChunkManifest manifest = new ChunkManifest(_newUploadId(), length, _chunkSize, hashes);
+        // chunks successfully stored, to delete if we fail
+        final AtomicIntegerArray stored = new AtomicIntegerArray(chunkCount);
+        boolean success = false;
+        try {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                final FileChannel channel = in.getChannel();
+                List<Future<?>> futures = new ArrayList<Future<?>>(chunkCount);
+                for (int i = 0; i < chunkCount; ++i) {
+                    final int index = i;
+                    futures.add(_executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            hashes[index] = _putChunk(params, key, manifest, index, channel);
+                            stored.set(index, 1);
+                            return null;
+                        }
+                    }));
+                }
+                _waitForAll(futures);
+            } finally {
+                in.close();
+            }
+            // and only after all chunks are stored, manifest
+            byte[] manifestBytes = _mapper.writeValueAsBytes(manifest);
+            PutOperationResult result = _client.putContent(params, key, manifestBytes)
+                    .completeOptimally()
+                    .finish();
+            if (!result.succeededMinimally()) {
+                throw new IOException("Failed to PUT manifest for chunked content '"+key+"': "+result);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                _deleteStoredChunks(key, manifest.uploadId, stored);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Method for GETting chunked content and storing it in given file.
+     *
+     * @return Manifest of content, if content exists; null if not
+     *
+     * @throws IOException If main entry is not a manifest, or fetching
+     *    (or verification) of any of chunks failed
+     */
+    public ChunkManifest getContentAsFile(final ReadCallParameters params, final K key, File resultFile)
+        throws InterruptedException, IOException
+    {
+        final ChunkManifest manifest = findManifest(params, key);
+        if (manifest == null) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(resultFile, "rw");
+        try {
+            raf.setLength(manifest.length);
+            final FileChannel channel = raf.getChannel();
+            final int chunkCount = manifest.chunkCount();
+            List<Future<?>> futures = new ArrayList<Future<?>>(chunkCount);
+            for (int i = 0; i < chunkCount; ++i) {
+                final int index = i;
+                futures.add(_executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        _getChunk(params, key, manifest, index, channel);
+                        return null;
+                    }
+                }));
+            }
+            _waitForAll(futures);
+        } finally {
+            raf.close();
+        }
+        return manifest;
+    }
+
+    /**
+     * Method for fetching manifest of chunked content with given key, if
+     * content exists.
+     *
+     * @return Manifest, if entry exists; null if not
+     *
+     * @throws IOException If entry exists but is not a valid manifest
+     */
+    public ChunkManifest findManifest(ReadCallParameters params, K key)
+        throws InterruptedException, IOException
+    {
+        byte[] data = _client.getContentAsBytes(params, key);
+        if (data == null) {
+            return null;
+        }
+        ChunkManifest manifest;
+        try {
+            manifest = _mapper.readValue(data, ChunkManifest.class);
+        } catch (IOException e) {
+            throw new IOException("Entry '"+key+"' is not a chunked content manifest: "+e.getMessage(), e);
+        }
+        if (!manifest.isValid()) {
+            throw new IOException("Entry '"+key+"' is not a valid chunked content manifest");
+        }
+        return manifest;
+    }
+
+    /**
+     * Method for DELETEing chunked content: manifest is deleted first (so
+     * content is no longer visible), after which chunks are deleted
+     * in parallel.
+     *
+     * @return True if content existed and was deleted; false if no content
+     *   was found
+     */
+    public boolean deleteContent(final DeleteCallParameters params, K key)
+        throws InterruptedException, IOException
+    {
+        ChunkManifest manifest = findManifest(null, key);
+        if (manifest == null) {
+            return false;
+        }
+        DeleteOperationResult result = _client.deleteContent(params, key);
+        if (!result.succeededMinimally()) {
+            throw new IOException("Failed to DELETE manifest for chunked content '"+key+"': "+result);
+        }
+        final int chunkCount = manifest.chunkCount();
+        List<Future<?>> futures = new ArrayList<Future<?>>(chunkCount);
+        for (int i = 0; i < chunkCount; ++i) {
+            final K chunkKey = _keyStrategy.chunkKey(key, manifest.uploadId, i);
+            futures.add(_executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    DeleteOperationResult chunkResult = _client.deleteContent(params, chunkKey);
+                    if (!chunkResult.succeededMinimally()) {
+                        throw new IOException("Failed to DELETE chunk '"+chunkKey+"': "+chunkResult);
+                    }
+                    return null;
+                }
+            }));
+        }
+        _waitForAll(futures);
+        return true;
+    }
+
+    /*
+    /**********************************************************************
+    /* Per-chunk operations
+    /**********************************************************************
+     */
+
+    protected int _putChunk(PutCallParameters params, K key, ChunkManifest manifest, int index,
+            FileChannel channel)
+        throws InterruptedException, IOException
+    {
+        final K chunkKey = _keyStrategy.chunkKey(key, manifest.uploadId, index);
+        final byte[] data = new byte[manifest.chunkLength(index)];
+        _readFully(channel, data, manifest.chunkOffset(index));
+        final int hash = _keyConverter.contentHashFor(ByteContainer.simple(data));
+
+        PutOperationResult result = null;
+        for (int attempt = 1; attempt <= MAX_CHUNK_ATTEMPTS; ++attempt) {
+            PutContentProvider content = PutContentProviders.forBytes(data);
+            // server will verify content against hash we calculated
+            content.setContentHash(hash);
+            result = _client.putContent(params, chunkKey, content)
+                    .completeOptimally()
+                    .finish();
+            if (result.succeededMinimally()) {
+                return hash;
+            }
+        }
+        throw new IOException("Failed to PUT chunk #"+index+" ('"+chunkKey+"') of '"+key
+                +"' after "+MAX_CHUNK_ATTEMPTS+" attempts: "+result);
+    }
+
+    protected void _getChunk(ReadCallParameters params, K key, ChunkManifest manifest, int index,
+            FileChannel channel)
+        throws InterruptedException, IOException
+    {
+        final K chunkKey = _keyStrategy.chunkKey(key, manifest.uploadId, index);
+        final int expLength = manifest.chunkLength(index);
+        final int expHash = manifest.chunkHashes[index];
+        String problem = null;
+
+        for (int attempt = 1; attempt <= MAX_CHUNK_ATTEMPTS; ++attempt) {
+            byte[] data;
+            try {
+                data = _client.getContentAsBytes(params, chunkKey);
+            } catch (IllegalStateException e) { // failure to access servers
+                problem = e.getMessage();
+                continue;
+            }
+            if (data == null) {
+                problem = "chunk not found";
+            } else if (data.length != expLength) {
+                problem = "chunk length "+data.length+" differs from expected "+expLength;
+            } else if (_keyConverter.contentHashFor(ByteContainer.simple(data)) != expHash) {
+                problem = "chunk content hash does not match";
+            } else {
+                _writeFully(channel, data, manifest.chunkOffset(index));
+                return;
+            }
+        }
+        throw new IOException("Failed to GET chunk #"+index+" ('"+chunkKey+"') of '"+key
+                +"' after "+MAX_CHUNK_ATTEMPTS+" attempts: "+problem);
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    /**
+     * Method called after failure to store chunked content, to delete chunks
+     * that were stored, as they can not be accessed without manifest.
+     * This is done on best-effort basis: failures are only logged, and
+     * chunks being stored concurrently (by tasks that could not be
+     * cancelled) may be missed.
+     */
+    protected void _deleteStoredChunks(K key, String uploadId, AtomicIntegerArray stored)
+    {
+        for (int i = 0, end = stored.length(); i < end; ++i) {
+            if (stored.get(i) == 0) {
+                continue;
+            }
+            final K chunkKey = _keyStrategy.chunkKey(key, uploadId, i);
+            try {
+                DeleteOperationResult result = _client.deleteContent(null, chunkKey);
+                if (!result.succeededMinimally()) {
+                    logWarn("Failed to DELETE chunk '"+chunkKey+"' of failed PUT of '"+key+"': "+result);
+                }
+            } catch (InterruptedException e) { // retain status; caller is failing anyway
+                Thread.currentThread().interrupt();
+                logWarn("Interrupted when deleting chunks of failed PUT of '"+key+"'");
+                return;
+            } catch (Exception e) {
+                logWarn(e, "Failed to DELETE chunk '"+chunkKey+"' of failed PUT of '"+key+"'");
+            }
+        }
+    }
+
+    /**
+     * Method for generating a unique id for an upload, to use as part of
+     * chunk keys.
+     */
+    protected String _newUploadId() {
+        return UUID.randomUUID().toString();
+    }
+
+    protected void _waitForAll(List<Future<?>> futures)
+        throws InterruptedException, IOException
+    {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof InterruptedException) {
+                throw (InterruptedException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            throw new IOException(t.getMessage(), t);
+        } finally { // if we failed, no point in continuing with other chunks
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // NOTE: positional reads and writes are safe to use concurrently
+
+    protected static void _readFully(FileChannel channel, byte[] data, long offset)
+        throws IOException
+    {
+        ByteBuffer bb = ByteBuffer.wrap(data);
+        while (bb.hasRemaining()) {
+            int count = channel.read(bb, offset + bb.position());
+            if (count < 0) {
+                throw new EOFException("Unexpected end of file, at "+(offset + bb.position()));
+            }
+        }
+    }
+
+    protected static void _writeFully(FileChannel channel, byte[] data, long offset)
+        throws IOException
+    {
+        ByteBuffer bb = ByteBuffer.wrap(data);
+        while (bb.hasRemaining()) {
+            channel.write(bb, offset + bb.position());
+        }
+    }
+}
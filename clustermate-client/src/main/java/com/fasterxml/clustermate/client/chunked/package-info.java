@@ -0,0 +1,8 @@
+/**
+ * Package that contains support for storing very large content as
+ * a set of fixed-size chunks (stored as separate entries, under derived keys),
+ * plus a manifest entry stored under the main key.
+ * Chunks are uploaded and downloaded in parallel, which both increases
+ * throughput and spreads load over more server nodes.
+ */
+package com.fasterxml.clustermate.client.chunked;
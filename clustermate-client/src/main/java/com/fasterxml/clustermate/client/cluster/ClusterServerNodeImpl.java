@@ -6,6 +6,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.api.KeyHash;
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.clustermate.api.RequestPath;
 import com.fasterxml.clustermate.api.RequestPathBuilder;
 import com.fasterxml.clustermate.client.ClusterServerNode;
@@ -46,6 +47,15 @@ public class ClusterServerNodeImpl
     private KeyRange _activeRange;
     private KeyRange _passiveRange;
     private KeyRange _totalRange;
+
+    /**
+     * Explicitly defined slots node owns, if ownership is non-contiguous;
+     * null if not.
+     */
+    private KeySlots _explicitActiveSlots, _explicitPassiveSlots;
+
+    // Slots calculated from either explicit slots or ranges
+    private KeySlots _activeSlots, _totalSlots;
     
     protected final AtomicBoolean _disabled = new AtomicBoolean(false);
 
@@ -108,6 +118,7 @@ public class ClusterServerNodeImpl
         _activeRange = activeRange;
         _passiveRange = passiveRange;
         _totalRange = _activeRange.union(_passiveRange);
+        _updateSlots(null, null);
 
         _entryPutter = entryAccessors.entryPutter(this);
         _entryGetter = entryAccessors.entryGetter(this);
@@ -126,6 +137,7 @@ public class ClusterServerNodeImpl
         _activeRange = activeRange;
         _passiveRange = passiveRange;
         _totalRange = _activeRange.union(_passiveRange);
+        _updateSlots(null, null);
 
         _entryPutter = null;
         _entryGetter = null;
@@ -156,15 +168,49 @@ public class ClusterServerNodeImpl
      */
     public boolean updateRanges(KeyRange activeRange, KeyRange passiveRange)
     {
-        if (_activeRange.equals(activeRange) && _passiveRange.equals(passiveRange)) {
+        return updateRanges(activeRange, passiveRange, null, null);
+    }
+
+    /**
+     * @param activeSlots Explicit active slots, if node has non-contiguous
+     *    ownership; null if not
+     * @param passiveSlots Explicit passive slots, if node has non-contiguous
+     *    ownership; null if not
+     *
+     * @return True if ranges or slots changed
+     */
+    public boolean updateRanges(KeyRange activeRange, KeyRange passiveRange,
+            KeySlots activeSlots, KeySlots passiveSlots)
+    {
+        if (_activeRange.equals(activeRange) && _passiveRange.equals(passiveRange)
+                && _equals(_explicitActiveSlots, activeSlots)
+                && _equals(_explicitPassiveSlots, passiveSlots)) {
             return false;
         }
         _activeRange = activeRange;
         _passiveRange = passiveRange;
         _totalRange = activeRange.union(passiveRange);
+        _updateSlots(activeSlots, passiveSlots);
         return true;
     }
 
+    private void _updateSlots(KeySlots activeSlots, KeySlots passiveSlots)
+    {
+        _explicitActiveSlots = activeSlots;
+        _explicitPassiveSlots = passiveSlots;
+        if (activeSlots == null) {
+            _activeSlots = KeySlots.of(_activeRange);
+            _totalSlots = KeySlots.of(_totalRange);
+        } else {
+            _activeSlots = activeSlots;
+            _totalSlots = (passiveSlots == null) ? activeSlots : activeSlots.union(passiveSlots);
+        }
+    }
+
+    private static boolean _equals(Object o1, Object o2) {
+        return (o1 == null) ? (o2 == null) : o1.equals(o2);
+    }
+
     /**
      * @return True if state changed
      */
@@ -228,6 +274,12 @@ public class ClusterServerNodeImpl
     @Override
     public KeyRange getTotalRange() { return _totalRange; }
 
+    @Override
+    public KeySlots getActiveSlots() { return _activeSlots; }
+
+    @Override
+    public KeySlots getTotalSlots() { return _totalSlots; }
+
     @Override
     public boolean isDisabled() { return _disabled.get(); }
 
@@ -266,13 +318,33 @@ public class ClusterServerNodeImpl
          * larger range once caught up)
          */
         KeyRange range = getActiveRange();
-        int distance = range.clockwiseDistance(keyHash);
+        int distance;
+        if (_explicitActiveSlots == null) {
+            distance = range.clockwiseDistance(keyHash);
+        } else {
+            /* With non-contiguous ownership there is no natural ordering; so
+             * use rendezvous hashing between slot and node, to spread primary
+             * ownership evenly between nodes that own the slot.
+             */
+            final int length = range.getKeyspace().getLength();
+            int rank = _rendezvousHash(keyHash.getModuloHash(), _address.hashCode()) % length;
+            distance = _explicitActiveSlots.contains(keyHash) ? rank : (length + rank);
+        }
         if (isDisabled()) {
-            distance += range.getKeyspace().getLength();
+            distance += 2 * range.getKeyspace().getLength();
         }
         return distance;
     }
 
+    private static int _rendezvousHash(int slot, int nodeHash)
+    {
+        int h = slot * 0x9E3779B1 ^ nodeHash;
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        return h & 0x7FFFFFFF;
+    }
+
     /*
     /**********************************************************************
     /* Call accessors, paths etc
@@ -122,7 +122,7 @@ public class ClusterViewByClientImpl<K extends EntryKey>
     {
         BitSet slices = new BitSet(_keyspace.getLength());
         for (ClusterServerNode state : states) {
-            state.getTotalRange().fill(slices);
+            state.getTotalSlots().fill(slices);
         }
         return slices.cardinality();
     }
@@ -154,7 +154,7 @@ public class ClusterViewByClientImpl<K extends EntryKey>
             _addNode(byNode, localState);
         }
         boolean needInvalidate = localState.updateRanges(stateInfo.getRangeActive(),
-                stateInfo.getRangePassive());
+                stateInfo.getRangePassive(), stateInfo.getSlotsActive(), stateInfo.getSlotsPassive());
         if (localState.updateDisabled(stateInfo.isDisabled())) {
             needInvalidate = true;
         }
@@ -193,7 +193,7 @@ public class ClusterViewByClientImpl<K extends EntryKey>
         }
         state.setLastNodeUpdateFetched(nodeInfoTimestamp);
         boolean needInvalidate = state.updateRanges(stateInfo.getRangeActive(),
-                stateInfo.getRangePassive());
+                stateInfo.getRangePassive(), stateInfo.getSlotsActive(), stateInfo.getSlotsPassive());
         if (state.updateDisabled(stateInfo.isDisabled())) {
             needInvalidate = true;
         }
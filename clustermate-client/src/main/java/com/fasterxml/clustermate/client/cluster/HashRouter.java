@@ -78,7 +78,7 @@ public final class HashRouter<K extends EntryKey>
         ArrayList<ClusterServerNode> appl = new ArrayList<ClusterServerNode>();
         for (int i = 0; i < allCount; ++i) {
             ClusterServerNode state = allNodes[i];
-            if (state.getTotalRange().contains(keyHash)) {
+            if (state.getTotalSlots().contains(keyHash)) {
                 appl.add(state);
             }
         }
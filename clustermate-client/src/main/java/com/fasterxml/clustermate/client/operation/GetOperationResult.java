@@ -1,5 +1,6 @@
 package com.fasterxml.clustermate.client.operation;
 
+import com.fasterxml.clustermate.api.ClusterMateConstants;
 import com.fasterxml.clustermate.client.ClusterServerNode;
 import com.fasterxml.clustermate.client.call.GetContentProcessor;
 
@@ -17,11 +18,28 @@ public class GetOperationResult<T> extends ReadOperationResult<GetOperationResul
      */
     protected T _contents;
 
+    /**
+     * HTTP status code of the response that delivered contents, if any:
+     * usually 200, but may also be 204 for entries server reports as
+     * deleted ("empty").
+     */
+    protected int _status;
+
+    /**
+     * Flag set if a conditional GET was made, and server indicated that
+     * content has not changed (and did not return it).
+     */
+    protected boolean _notModified;
+
     public GetOperationResult(OperationConfig config) {
         super(config);
     }
 
-    public GetOperationResult<T> setContents(ClusterServerNode server, T contents)
+    public GetOperationResult<T> setContents(ClusterServerNode server, T contents) {
+        return setContents(server, ClusterMateConstants.HTTP_STATUS_OK, contents);
+    }
+
+    public GetOperationResult<T> setContents(ClusterServerNode server, int status, T contents)
     {
         if (server == null) {
             throw new IllegalArgumentException("Should not set null server");
@@ -30,12 +48,33 @@ public class GetOperationResult<T> extends ReadOperationResult<GetOperationResul
             throw new IllegalStateException("Already received successful response from "+_server+"; trying to override with "+server);
         }
         _server = server;
+        _status = status;
         _contents = contents;
         return this;
     }
+
+    /**
+     * Method called when server responds to a conditional GET by indicating
+     * that entry exists but has not been modified; if so, no contents are
+     * included.
+     */
+    public GetOperationResult<T> setNotModified(ClusterServerNode server)
+    {
+        setContents(server, ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED, null);
+        _notModified = true;
+        return this;
+    }
     
     // // // Extended API
 
     public T getContents() { return _contents; }
+
+    public boolean isNotModified() { return _notModified; }
+
+    /**
+     * @return HTTP status code of the response that delivered contents;
+     *    0 if no contents were delivered
+     */
+    public int getStatus() { return _status; }
 }
 
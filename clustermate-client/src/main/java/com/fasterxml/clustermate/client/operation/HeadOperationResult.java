@@ -1,5 +1,7 @@
 package com.fasterxml.clustermate.client.operation;
 
+import com.fasterxml.storemate.shared.hash.HashConstants;
+
 import com.fasterxml.clustermate.client.ClusterServerNode;
 
 public class HeadOperationResult
@@ -9,6 +11,11 @@ public class HeadOperationResult
      * Actual length fetched, if any
      */
     protected long _contentLength = -1L;
+
+    /**
+     * Content hash of the entry, if server indicated it
+     */
+    protected int _contentHash = HashConstants.NO_CHECKSUM;
     
     public HeadOperationResult(OperationConfig config)
     {
@@ -16,16 +23,29 @@ public class HeadOperationResult
     }
     
     public HeadOperationResult setContentLength(ClusterServerNode server, long length)
+    {
+        return setContentLength(server, length, HashConstants.NO_CHECKSUM);
+    }
+
+    public HeadOperationResult setContentLength(ClusterServerNode server, long length,
+            int contentHash)
     {
         if (_server != null) {
             throw new IllegalStateException("Already received successful response from "+_server+"; trying to override with "+server);
         }
         _server = server;
         _contentLength = length;
+        _contentHash = contentHash;
         return this;
     }
 
     // // // Extended API
 
     public long getContentLength() { return _contentLength; }
+
+    /**
+     * @return Content hash of the entry, if known; {@link HashConstants#NO_CHECKSUM}
+     *   if not
+     */
+    public int getContentHash() { return _contentHash; }
 }
@@ -1,5 +1,8 @@
 package com.fasterxml.clustermate.client.operation;
 
+import com.fasterxml.storemate.shared.compress.Compression;
+
+import com.fasterxml.clustermate.client.cache.NearCacheConfig;
 import com.fasterxml.clustermate.client.call.CallConfig;
 
 public class OperationConfig
@@ -67,6 +70,57 @@ public class OperationConfig
      * disabled for tests.
      */
     protected final boolean _allowRetries;
+
+    /**
+     * Compression to apply to PUT content on client side, once, before
+     * sending it to all server nodes; null means that content is sent
+     * as is (and servers compress it as they see fit).
+     */
+    protected final Compression _uploadCompression;
+
+    /**
+     * Configuration for client-side cache of entry contents, if one is to
+     * be used; null if no caching is to be done.
+     */
+    protected final NearCacheConfig _nearCacheConfig;
+
+    /**
+     * Setting that determines whether concurrent identical read operations
+     * (GETs of content as bytes, HEADs) for the same key are coalesced into
+     * a single operation, results of which are shared by all callers.
+     */
+    protected final boolean _coalesceReads;
+
+    /**
+     * Minimum length of content to PUT, for which a pre-flight check
+     * (conditional HEAD) is made before uploading content to a server node,
+     * to see if node already has identical content; 0 (or negative)
+     * means that no checks are made.
+     */
+    protected final long _putPrecheckMinLength;
+
+    /**
+     * Minimum length of content to GET as a file, for which content is
+     * fetched as multiple byte ranges, concurrently from different
+     * server nodes; 0 (or negative) means content is always fetched from
+     * a single node.
+     */
+    protected final long _parallelGetMinLength;
+
+    /**
+     * Minimum length of content to PUT, for which resumable uploads are
+     * used: if upload to a server node fails, it is resumed from the offset
+     * server had received, instead of re-sending all of content;
+     * 0 (or negative) means that resumable uploads are not used.
+     */
+    protected final long _resumablePutMinLength;
+
+    /**
+     * Setting that determines whether read-repair is done: if content is
+     * GET (as bytes) after one or more server nodes reported it missing,
+     * content is PUT to those nodes asynchronously.
+     */
+    protected final boolean _readRepair;
     
     /*
     ///////////////////////////////////////////////////////////////////////
@@ -92,6 +146,18 @@ public class OperationConfig
             int minOks, int optimalOks, int maxOks,
             long put, long get, long delete,
             boolean allowRetries)
+    {
+        this(callConfig, minOks, optimalOks, maxOks, put, get, delete,
+                allowRetries, null, null, false, 0L, 0L, 0L, false);
+    }
+
+    public OperationConfig(CallConfig callConfig,
+            int minOks, int optimalOks, int maxOks,
+            long put, long get, long delete,
+            boolean allowRetries, Compression uploadCompression,
+            NearCacheConfig nearCacheConfig, boolean coalesceReads,
+            long putPrecheckMinLength, long parallelGetMinLength,
+            long resumablePutMinLength, boolean readRepair)
     {
         _callConfig = callConfig;
         
@@ -104,16 +170,87 @@ public class OperationConfig
         _deleteOperationTimeoutMsecs = delete;
 
         _allowRetries = allowRetries;
+        _uploadCompression = uploadCompression;
+        _nearCacheConfig = nearCacheConfig;
+        _coalesceReads = coalesceReads;
+        _putPrecheckMinLength = putPrecheckMinLength;
+        _parallelGetMinLength = parallelGetMinLength;
+        _resumablePutMinLength = resumablePutMinLength;
+        _readRepair = readRepair;
     }
 
     public OperationConfig withCallConfig(CallConfig cc) {
         return (_callConfig == cc) ? this : new OperationConfig(cc,
                 _minOksToSucceed, _optimalOks, _maxOks,
                 _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
-                _allowRetries
+                _allowRetries, _uploadCompression, _nearCacheConfig, _coalesceReads,
+                _putPrecheckMinLength, _parallelGetMinLength, _resumablePutMinLength, _readRepair
+                );
+    }
+
+    public OperationConfig withUploadCompression(Compression comp) {
+        return (_uploadCompression == comp) ? this : new OperationConfig(_callConfig,
+                _minOksToSucceed, _optimalOks, _maxOks,
+                _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
+                _allowRetries, comp, _nearCacheConfig, _coalesceReads,
+                _putPrecheckMinLength, _parallelGetMinLength, _resumablePutMinLength, _readRepair
+                );
+    }
+
+    public OperationConfig withNearCacheConfig(NearCacheConfig cfg) {
+        return (_nearCacheConfig == cfg) ? this : new OperationConfig(_callConfig,
+                _minOksToSucceed, _optimalOks, _maxOks,
+                _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
+                _allowRetries, _uploadCompression, cfg, _coalesceReads,
+                _putPrecheckMinLength, _parallelGetMinLength, _resumablePutMinLength, _readRepair
+                );
+    }
+
+    public OperationConfig withCoalesceReads(boolean state) {
+        return (_coalesceReads == state) ? this : new OperationConfig(_callConfig,
+                _minOksToSucceed, _optimalOks, _maxOks,
+                _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
+                _allowRetries, _uploadCompression, _nearCacheConfig, state,
+                _putPrecheckMinLength, _parallelGetMinLength, _resumablePutMinLength, _readRepair
+                );
+    }
+
+    public OperationConfig withPutPrecheckMinLength(long length) {
+        return (_putPrecheckMinLength == length) ? this : new OperationConfig(_callConfig,
+                _minOksToSucceed, _optimalOks, _maxOks,
+                _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
+                _allowRetries, _uploadCompression, _nearCacheConfig, _coalesceReads,
+                length, _parallelGetMinLength, _resumablePutMinLength, _readRepair
                 );
     }
     
+    public OperationConfig withParallelGetMinLength(long length) {
+        return (_parallelGetMinLength == length) ? this : new OperationConfig(_callConfig,
+                _minOksToSucceed, _optimalOks, _maxOks,
+                _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
+                _allowRetries, _uploadCompression, _nearCacheConfig, _coalesceReads,
+                _putPrecheckMinLength, length, _resumablePutMinLength, _readRepair
+                );
+    }
+
+    public OperationConfig withResumablePutMinLength(long length) {
+        return (_resumablePutMinLength == length) ? this : new OperationConfig(_callConfig,
+                _minOksToSucceed, _optimalOks, _maxOks,
+                _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
+                _allowRetries, _uploadCompression, _nearCacheConfig, _coalesceReads,
+                _putPrecheckMinLength, _parallelGetMinLength, length, _readRepair
+                );
+    }
+
+    public OperationConfig withReadRepair(boolean state) {
+        return (_readRepair == state) ? this : new OperationConfig(_callConfig,
+                _minOksToSucceed, _optimalOks, _maxOks,
+                _putOperationTimeoutMsecs, _getOperationTimeoutMsecs, _deleteOperationTimeoutMsecs,
+                _allowRetries, _uploadCompression, _nearCacheConfig, _coalesceReads,
+                _putPrecheckMinLength, _parallelGetMinLength, _resumablePutMinLength, state
+                );
+    }
+
     /*
     ///////////////////////////////////////////////////////////////////////
     // Public API
@@ -155,4 +292,49 @@ public class OperationConfig
     public long getDeleteOperationTimeoutMsecs() { return _deleteOperationTimeoutMsecs; }
 
     public boolean getAllowRetries() { return _allowRetries; }
+
+    /**
+     * Compression that client uses for PUT content (compressing it just once
+     * for all replicas), if any; null if content is to be sent as is.
+     */
+    public Compression getUploadCompression() { return _uploadCompression; }
+
+    /**
+     * Configuration of client-side content cache, if one is used; null
+     * if contents are not cached.
+     */
+    public NearCacheConfig getNearCacheConfig() { return _nearCacheConfig; }
+
+    /**
+     * Whether concurrent identical read operations for the same key
+     * share a single in-flight operation.
+     */
+    public boolean getCoalesceReads() { return _coalesceReads; }
+
+    /**
+     * Minimum length of content for which PUTs first check whether server
+     * node already has identical content (and if so, skip uploading);
+     * 0 if no such checks are to be made.
+     */
+    public long getPutPrecheckMinLength() { return _putPrecheckMinLength; }
+
+    /**
+     * Minimum length of content for which GETs into files fetch content
+     * as byte ranges from multiple server nodes concurrently; 0 if content
+     * is always fetched from a single node.
+     */
+    public long getParallelGetMinLength() { return _parallelGetMinLength; }
+
+    /**
+     * Minimum length of content for which PUTs use resumable uploads, so that
+     * failed uploads are resumed instead of restarted; 0 if resumable uploads
+     * are not used.
+     */
+    public long getResumablePutMinLength() { return _resumablePutMinLength; }
+
+    /**
+     * Whether content found after some server nodes reported it missing
+     * is to be PUT to those nodes (asynchronously).
+     */
+    public boolean getReadRepair() { return _readRepair; }
 }
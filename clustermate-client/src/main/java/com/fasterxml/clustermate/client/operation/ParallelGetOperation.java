@@ -0,0 +1,240 @@
+package com.fasterxml.clustermate.client.operation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.storemate.shared.ByteRange;
+import com.fasterxml.storemate.shared.hash.HashConstants;
+import com.fasterxml.storemate.shared.hash.IncrementalHasher32;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.client.call.GetContentProcessorForFileRange;
+import com.fasterxml.clustermate.client.call.ReadCallParameters;
+import com.fasterxml.clustermate.client.call.ReadCallResult;
+import com.fasterxml.clustermate.std.ChecksumUtil;
+
+/**
+ * Operation used for GETting content of a big entry into a file, by
+ * splitting content into byte ranges that are fetched concurrently from
+ * different server nodes that have a copy of the entry, and written to
+ * the file at their offsets. If content hash of the entry is known,
+ * contents of the file are verified after all ranges have been fetched.
+ *<p>
+ * Operation does not report details of individual failures: caller is
+ * expected to fall back to a regular GET if operation does not succeed.
+ */
+public class ParallelGetOperation<K extends EntryKey,
+    CONFIG extends StoreClientConfig<K, CONFIG>
+>
+    extends OperationBase<K,CONFIG>
+{
+    /**
+     * Let's not split content into ranges shorter than 1 megabyte; for
+     * shorter ranges overhead of additional calls outweighs benefits.
+     */
+    public final static long MIN_RANGE_LENGTH = 1024L * 1024L;
+
+    protected final long _endOfTime;
+
+    protected final long _lastValidTime;
+
+    protected final NodesForKey _nodes;
+
+    protected final ReadCallParameters _params;
+
+    protected final long _contentLength;
+
+    protected final int _contentHash;
+
+    /*
+    /**********************************************************************
+    /* Life-cycle
+    /**********************************************************************
+     */
+
+    public ParallelGetOperation(CONFIG config, long startTime,
+            NodesForKey serverNodes, K key, ReadCallParameters params,
+            long contentLength, int contentHash)
+    {
+        super(config, startTime, key);
+        _endOfTime = _startTime + _operationConfig.getGetOperationTimeoutMsecs();
+        _lastValidTime = _endOfTime - _callConfig.getMinimumTimeoutMsecs();
+        _nodes = serverNodes;
+        _params = params;
+        _contentLength = contentLength;
+        _contentHash = contentHash;
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method for fetching content into given file (which will be overwritten).
+     *
+     * @return True if all of content was fetched (and verified, if content
+     *   hash is known); false if not, in which case contents of the file are
+     *   undefined.
+     */
+    public boolean fetchInto(File resultFile)
+        throws InterruptedException, IOException
+    {
+        final int rangeCount = rangeCountFor(_contentLength, _nodes.size());
+        final long rangeLength = _contentLength / rangeCount;
+
+        RandomAccessFile raf = new RandomAccessFile(resultFile, "rw");
+        try {
+            raf.setLength(_contentLength);
+            final FileChannel channel = raf.getChannel();
+            List<RangeFetch> fetches = new ArrayList<RangeFetch>(rangeCount);
+            Thread[] threads = new Thread[rangeCount];
+            for (int i = 0; i < rangeCount; ++i) {
+                long start = i * rangeLength;
+                // last range gets whatever remains
+                long length = (i == rangeCount-1) ? (_contentLength - start) : rangeLength;
+                fetches.add(new RangeFetch(i, channel, start, length));
+            }
+            // first range is fetched by the calling thread; others by helper threads
+            for (int i = 1; i < rangeCount; ++i) {
+                threads[i] = new Thread(fetches.get(i), "ParallelGet-"+_key+"-"+i);
+                threads[i].setDaemon(true);
+                threads[i].start();
+            }
+            try {
+                fetches.get(0).run();
+                for (int i = 1; i < rangeCount; ++i) {
+                    threads[i].join();
+                }
+            } catch (InterruptedException e) {
+                for (int i = 1; i < rangeCount; ++i) {
+                    threads[i].interrupt();
+                }
+                throw e;
+            }
+            for (RangeFetch fetch : fetches) {
+                if (!fetch.succeeded()) {
+                    return false;
+                }
+            }
+            if (_contentHash == HashConstants.NO_CHECKSUM) {
+                return true;
+            }
+            return _calcContentHash(channel) == _contentHash;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Helper method for figuring out number of ranges to split content in:
+     * one per server node, as long as ranges are not too short.
+     */
+    public static int rangeCountFor(long contentLength, int nodeCount)
+    {
+        long maxRanges = contentLength / MIN_RANGE_LENGTH;
+        if (maxRanges < nodeCount) {
+            return (maxRanges < 1L) ? 1 : (int) maxRanges;
+        }
+        return Math.max(1, nodeCount);
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    /**
+     * Method for fetching a single range of content: first tries the server
+     * node "assigned" to the range, and then others in order, so that
+     * concurrent ranges are initially fetched from different nodes.
+     */
+    protected boolean _fetchRange(int index, FileChannel channel, long start, long length)
+        throws InterruptedException
+    {
+        final ByteRange range = new ByteRange(start, length);
+        final GetContentProcessorForFileRange processor = new GetContentProcessorForFileRange(channel, start);
+        final int nodeCount = _nodes.size();
+
+        // enabled nodes first; disabled ones only if others fail
+        for (int round = 0; round < 2; ++round) {
+            final boolean disabledOnes = (round > 0);
+            for (int i = 0; i < nodeCount; ++i) {
+                ClusterServerNode server = _nodes.node((index + i) % nodeCount);
+                if (server.isDisabled() != disabledOnes) {
+                    continue;
+                }
+                if (System.currentTimeMillis() >= _lastValidTime) {
+                    return false;
+                }
+                ReadCallResult<Long> gotten = server.entryGetter().tryGet(_callConfig,
+                        _params, _endOfTime, _key, processor, range);
+                // need all of range; anything else (failure, 404) means we need to try another node
+                if (gotten.succeeded()) {
+                    Long count = gotten.getResult();
+                    if (count != null && count.longValue() == length) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    protected int _calcContentHash(FileChannel channel) throws IOException
+    {
+        IncrementalHasher32 hasher = _config.getKeyConverter().createStreamingContentHasher();
+        ByteBuffer bb = ByteBuffer.allocate(64000);
+        long offset = 0L;
+        int count;
+        while ((count = channel.read(bb, offset)) > 0) {
+            hasher.update(bb.array(), 0, count);
+            offset += count;
+            bb.clear();
+        }
+        return ChecksumUtil.cleanChecksum(hasher.calculateHash());
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    protected class RangeFetch implements Runnable
+    {
+        protected final int _index;
+
+        protected final FileChannel _channel;
+
+        protected final long _start, _length;
+
+        protected volatile boolean _succeeded;
+
+        public RangeFetch(int index, FileChannel channel, long start, long length)
+        {
+            _index = index;
+            _channel = channel;
+            _start = start;
+            _length = length;
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                _succeeded = _fetchRange(_index, _channel, _start, _length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public boolean succeeded() { return _succeeded; }
+    }
+}
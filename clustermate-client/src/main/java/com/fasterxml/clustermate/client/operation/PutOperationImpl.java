@@ -1,12 +1,21 @@
 package com.fasterxml.clustermate.client.operation;
 
+import java.io.*;
 import java.util.*;
 
+import com.fasterxml.storemate.shared.ByteContainer;
+import com.fasterxml.storemate.shared.hash.HashConstants;
+import com.fasterxml.storemate.shared.hash.IncrementalHasher32;
+
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.client.*;
 import com.fasterxml.clustermate.client.call.CallFailure;
+import com.fasterxml.clustermate.client.call.HeadCallResult;
 import com.fasterxml.clustermate.client.call.PutCallParameters;
 import com.fasterxml.clustermate.client.call.PutContentProvider;
+import com.fasterxml.clustermate.client.call.PutContentProviders;
+import com.fasterxml.clustermate.client.call.ResumablePutCallParameters;
+import com.fasterxml.clustermate.std.ChecksumUtil;
 
 public class PutOperationImpl<K extends EntryKey,
     CONFIG extends StoreClientConfig<K, CONFIG>
@@ -57,6 +66,22 @@ public class PutOperationImpl<K extends EntryKey,
 
     protected long _roundStartTime;
 
+    /**
+     * Content hash to use for pre-flight checks, if any; resolved lazily
+     * before first check.
+     */
+    protected int _precheckHash;
+
+    protected boolean _precheckHashResolved;
+
+    /**
+     * Id of the resumable upload used for content, if any; resolved lazily
+     * before first upload.
+     */
+    protected String _uploadId;
+
+    protected boolean _uploadIdResolved;
+
     // // // State
 
     /**
@@ -126,6 +151,22 @@ public class PutOperationImpl<K extends EntryKey,
         return _result;
     }
 
+    /**
+     * Method called when content can not be sent to any of the nodes (for
+     * example, due to failure to read stream content that can not be
+     * re-read), to mark calls to all nodes as failed.
+     */
+    public PutOperationImpl<K,CONFIG> failAll(Throwable cause)
+    {
+        final long now = System.currentTimeMillis();
+        for (PutCallState state : _activeNodes) {
+            _result.withFailed(new NodeFailure(state.server(),
+                    CallFailure.clientInternal(state.server(), _startTime, now, cause)));
+        }
+        _activeNodes.clear();
+        return this;
+    }
+
     /*
     /**********************************************************************
     /* Public API implementation
@@ -258,7 +299,7 @@ public class PutOperationImpl<K extends EntryKey,
             if (!includeDisabled && server.isDisabled()) { // skip disabled during first round (unless no retries)
                 continue;
             }
-            CallFailure fail = server.entryPutter().tryPut(_callConfig, _params, _endOfTime, _key, _content);
+            CallFailure fail = _alreadyPresent(call) ? null : _tryPut(call);
             if (fail == null) { // success
                 _currentNodes.remove();
                 _result.addSucceeded(server);
@@ -275,6 +316,7 @@ public class PutOperationImpl<K extends EntryKey,
                 _result.withFailed(new NodeFailure(server, fail));
             }
         }
+        _currentNodes = null; // so that next round starts from the first remaining node
         return false;
     }
 
@@ -295,7 +337,7 @@ public class PutOperationImpl<K extends EntryKey,
         while (_currentNodes.hasNext()) {
             final PutCallState call = _currentNodes.next();
             final ClusterServerNode server = call.server();
-            CallFailure fail = server.entryPutter().tryPut(_callConfig, _params, _endOfTime, _key, _content);
+            CallFailure fail = _alreadyPresent(call) ? null : _tryPut(call);
             if (fail == null) { // success
                 _currentNodes.remove();
                 _result.addSucceeded(server);
@@ -311,9 +353,167 @@ public class PutOperationImpl<K extends EntryKey,
                 _result.withFailed(new NodeFailure(server, fail));
             }
         }
+        _currentNodes = null;
         return false; // still node done
     }
 
+    /*
+    /**********************************************************************
+    /* Upload handling
+    /**********************************************************************
+     */
+
+    /**
+     * Method for uploading content to given node: either in one go, or,
+     * if resumable uploads are used, by resuming the upload from the offset
+     * node had received during earlier failed attempt (if any).
+     */
+    protected CallFailure _tryPut(PutCallState call)
+    {
+        final ClusterServerNode server = call.server();
+        final String uploadId = _resumableUploadId();
+        if (uploadId == null) {
+            return server.entryPutter().tryPut(_callConfig, _params, _endOfTime, _key, _content);
+        }
+        long offset = 0L;
+        if (call._uploadStarted) { // earlier attempt failed; see how much server got
+            offset = _receivedLength(call, uploadId);
+        }
+        call._uploadStarted = true;
+        PutContentProvider content = (offset == 0L) ? _content
+                : PutContentProviders.remainderOf(_content, offset);
+        return server.entryPutter().tryPut(_callConfig,
+                new ResumablePutCallParameters(_params, uploadId, offset, _content.length()),
+                _endOfTime, _key, content);
+    }
+
+    /**
+     * @return Id of the resumable upload to use, if content is to be uploaded
+     *   using resumable uploads; null if not
+     */
+    protected String _resumableUploadId()
+    {
+        if (!_uploadIdResolved) {
+            _uploadIdResolved = true;
+            final long minLength = _operationConfig.getResumablePutMinLength();
+            if (minLength > 0L && _content.length() >= minLength) {
+                try {
+                    // must be able to re-read content from an offset (not possible for streams);
+                    // and need hash of all of content for server to verify content
+                    if ((_content.contentAsBytes() != null || _content.contentAsFile() != null)
+                            && _calcContentHash() != HashConstants.NO_CHECKSUM) {
+                        _uploadId = UUID.randomUUID().toString();
+                    }
+                } catch (IOException e) { } // can still do regular upload
+            }
+        }
+        return _uploadId;
+    }
+
+    /**
+     * Method for finding out how much of content given node has received
+     * for the upload; 0 if nothing (or if this can not be determined).
+     */
+    protected long _receivedLength(PutCallState call, String uploadId)
+    {
+        HeadCallResult result = call.server().entryHeader().tryHead(_callConfig,
+                new ResumablePutCallParameters.Status(uploadId), _endOfTime, _key);
+        if (result.succeeded() && result.hasContentLength()) {
+            return Math.min(result.getContentLength(), _content.length());
+        }
+        return 0L;
+    }
+
+    /*
+    /**********************************************************************
+    /* Pre-flight checks
+    /**********************************************************************
+     */
+
+    /**
+     * Method called before uploading content to given node, to check whether
+     * node already has identical content (if pre-flight checks are enabled
+     * and content is long enough): this is done by a HEAD request, and
+     * content is considered identical only if both content hash (ETag) and
+     * content length match, to reduce the risk of hash collisions (hash
+     * being only 32 bits) causing content not to be uploaded.
+     * Check is only done once per node.
+     *
+     * @return True if node already has identical content, and there is
+     *   no need to upload content
+     */
+    protected boolean _alreadyPresent(PutCallState call)
+    {
+        if (call._prechecked) {
+            return false;
+        }
+        call._prechecked = true;
+        final int hash = _precheckHash();
+        final long length = _content.length();
+        if (hash == HashConstants.NO_CHECKSUM || length < 0L) {
+            return false;
+        }
+        // note: not a conditional HEAD, since 304 response would not include length
+        HeadCallResult result = call.server().entryHeader().tryHead(_callConfig,
+                null, _endOfTime, _key);
+        return result.succeeded()
+                && (result.getContentHash() == hash)
+                && result.hasContentLength()
+                && (result.getContentLength() == length);
+    }
+
+    protected int _precheckHash()
+    {
+        if (!_precheckHashResolved) {
+            _precheckHashResolved = true;
+            final long minLength = _operationConfig.getPutPrecheckMinLength();
+            if (minLength > 0L && _content.length() >= minLength) {
+                try {
+                    _precheckHash = _calcContentHash();
+                } catch (IOException e) { // can't check, but can still try to PUT
+                    _precheckHash = HashConstants.NO_CHECKSUM;
+                }
+            }
+        }
+        return _precheckHash;
+    }
+
+    protected int _calcContentHash() throws IOException
+    {
+        int hash = _content.getContentHash();
+        if (hash != HashConstants.NO_CHECKSUM) {
+            return hash;
+        }
+        // pre-compressed content: would need to uncompress to calculate hash, skip
+        if (_content.getExistingCompression() != null) {
+            return HashConstants.NO_CHECKSUM;
+        }
+        ByteContainer bytes = _content.contentAsBytes();
+        if (bytes != null) {
+            hash = _config.getKeyConverter().contentHashFor(bytes);
+        } else {
+            File f = _content.contentAsFile();
+            // and streams can only be read once, so no check for them
+            if (f == null) {
+                return HashConstants.NO_CHECKSUM;
+            }
+            IncrementalHasher32 hasher = _config.getKeyConverter().createStreamingContentHasher();
+            InputStream in = new FileInputStream(f);
+            try {
+                byte[] buffer = new byte[16 * 1024];
+                int count;
+                while ((count = in.read(buffer)) > 0) {
+                    hasher.update(buffer, 0, count);
+                }
+            } finally {
+                in.close();
+            }
+            hash = ChecksumUtil.getChecksum32(hasher);
+        }
+        _content.setContentHash(hash);
+        return hash;
+    }
+
     /*
     /**********************************************************************
     /* Internal methods
@@ -356,6 +556,16 @@ public class PutOperationImpl<K extends EntryKey,
         protected final ClusterServerNode _node;
 
         protected NodeFailure _fails;
+
+        /**
+         * Whether pre-flight check has already been done for the node
+         */
+        protected boolean _prechecked;
+
+        /**
+         * Whether (resumable) upload of content to the node has been attempted
+         */
+        protected boolean _uploadStarted;
         
         public PutCallState(ClusterServerNode node)
         {
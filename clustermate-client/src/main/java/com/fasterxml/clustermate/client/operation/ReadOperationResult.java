@@ -1,6 +1,8 @@
 package com.fasterxml.clustermate.client.operation;
 
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 
 import com.fasterxml.clustermate.client.ClusterServerNode;
 
@@ -100,6 +102,16 @@ public class ReadOperationResult<T extends ReadOperationResult<T>>
         return (_serversWithoutEntry == null) ? 0 : _serversWithoutEntry.size();
     }
 
+    /**
+     * Accessor for server nodes that reported requested entry missing, if any.
+     */
+    public List<ClusterServerNode> getMissingServers() {
+        if (_serversWithoutEntry == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(_serversWithoutEntry);
+    }
+
     public ClusterServerNode getSuccessServer() {
         return _server;
     }
@@ -0,0 +1,144 @@
+package com.fasterxml.clustermate.client.operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.storemate.shared.ByteContainer;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.Loggable;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+import com.fasterxml.clustermate.client.call.CallFailure;
+import com.fasterxml.clustermate.client.call.NoUndeletePutCallParameters;
+import com.fasterxml.clustermate.client.call.PutContentProvider;
+import com.fasterxml.clustermate.client.call.PutContentProviders;
+
+/**
+ * Helper class used for read-repair: when content of an entry has been
+ * fetched from a server node after other nodes reported it missing,
+ * content is PUT to those nodes asynchronously, instead of waiting for
+ * the servers to sync it.
+ *<p>
+ * PUTs use the regular PUT handling of servers, so existing entries are
+ * never overwritten: if a node got the entry in the meantime (by syncing,
+ * for example), it just reports a duplicate PUT. Since nodes may report
+ * deleted entries as missing, PUTs also ask servers not to recreate deleted
+ * entries (see {@link NoUndeletePutCallParameters}). Note, too, that entries
+ * created by read-repair use default TTL settings of servers.
+ *<p>
+ * Repairs are best-effort: they are done by a single background thread,
+ * from a bounded queue; and are dropped if the queue is full, or if a repair
+ * of the same entry is already pending. Failures are only logged.
+ */
+public class ReadRepairer<K extends EntryKey>
+    extends Loggable
+{
+    /**
+     * Let's not queue up more than 100 repairs; under heavy load it is
+     * better to drop some, as servers will sync entries eventually.
+     */
+    public final static int MAX_QUEUED_REPAIRS = 100;
+
+    protected final ThreadPoolExecutor _executor;
+
+    /**
+     * Keys of entries for which a repair is pending.
+     */
+    protected final ConcurrentHashMap<K,Boolean> _pending = new ConcurrentHashMap<K,Boolean>();
+
+    public ReadRepairer()
+    {
+        super(ReadRepairer.class);
+        // NOTE: thread is only started when first repair is queued
+        _executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_QUEUED_REPAIRS),
+                new ThreadFactory() {
+                    private final AtomicInteger _count = new AtomicInteger(0);
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "ReadRepair-"+_count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method for queuing repair of given entry on given server nodes.
+     *
+     * @param data Content of the entry; caller must not modify it afterwards
+     *
+     * @return True if repair was queued; false if it was dropped
+     */
+    public boolean repair(final StoreClientConfig<K,?> config, final K key, final byte[] data,
+            Collection<ClusterServerNode> servers)
+    {
+        if (servers.isEmpty() || _pending.putIfAbsent(key, Boolean.TRUE) != null) {
+            return false;
+        }
+        final List<ClusterServerNode> targets = new ArrayList<ClusterServerNode>(servers);
+        try {
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        _repair(config, key, data, targets);
+                    } finally {
+                        _pending.remove(key);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            _pending.remove(key);
+            return false;
+        }
+    }
+
+    public int pendingCount() {
+        return _pending.size();
+    }
+
+    public void stop() {
+        _executor.shutdownNow();
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected void _repair(StoreClientConfig<K,?> config, K key, byte[] data,
+            List<ClusterServerNode> servers)
+    {
+        final OperationConfig opConfig = config.getOperationConfig();
+        final long endOfTime = System.currentTimeMillis() + opConfig.getPutOperationTimeoutMsecs();
+        final int hash = config.getKeyConverter().contentHashFor(ByteContainer.simple(data));
+        final NoUndeletePutCallParameters params = new NoUndeletePutCallParameters(null);
+        for (ClusterServerNode server : servers) {
+            if (Thread.currentThread().isInterrupted()) { // stopped
+                return;
+            }
+            PutContentProvider content = PutContentProviders.forBytes(data);
+            content.setContentHash(hash);
+            CallFailure fail = server.entryPutter().tryPut(opConfig.getCallConfig(), params,
+                    endOfTime, key, content);
+            // 410 means entry had been deleted on the node, which is fine
+            if (fail != null && fail.getStatusCode() != ClusterMateConstants.HTTP_STATUS_ERROR_GONE) {
+                logWarn("Failed read-repair of entry '"+key+"' on server "+server.getAddress()+": "+fail);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.fasterxml.clustermate.client.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Helper class used for coalescing concurrent identical calls: if a call
+ * with given key is already in progress, caller will wait for it to complete
+ * and use its result, instead of making a call of its own.
+ *
+ * @param <V> Type of call results
+ */
+public class SingleFlight<V>
+{
+    protected final ConcurrentHashMap<Object, Flight<V>> _inFlight
+        = new ConcurrentHashMap<Object, Flight<V>>();
+
+    /**
+     * Method for executing given call, unless an identical call (one with
+     * equal key) is already in progress; if so, waits for that call to
+     * complete and returns a copy of its result (or rethrows its exception).
+     */
+    public V execute(Object key, Call<V> call) throws InterruptedException
+    {
+        final Flight<V> flight = new Flight<V>();
+        Flight<V> existing = _inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            existing._done.await();
+            if (existing._failure != null) {
+                throw existing._failure;
+            }
+            // if leader did not complete (was interrupted), we must make call ourselves
+            if (!existing._completed) {
+                return call.call();
+            }
+            return call.copy(existing._result);
+        }
+        try {
+            V result = call.call();
+            flight._result = result;
+            flight._completed = true;
+            return result;
+        } catch (RuntimeException e) {
+            flight._failure = e;
+            throw e;
+        } finally {
+            _inFlight.remove(key, flight);
+            flight._done.countDown();
+        }
+    }
+
+    /**
+     * Number of calls currently in progress
+     */
+    public int inFlightCount() {
+        return _inFlight.size();
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Call to execute; also defines how to copy result for callers that
+     * joined an in-flight call.
+     */
+    public abstract static class Call<V>
+    {
+        public abstract V call() throws InterruptedException;
+
+        /**
+         * Method called to create a copy of result to return to a caller that
+         * did not make the call itself. Default implementation returns result
+         * as is, which is fine for immutable results.
+         */
+        public V copy(V result) {
+            return result;
+        }
+    }
+
+    protected final static class Flight<V>
+    {
+        protected final CountDownLatch _done = new CountDownLatch(1);
+
+        // NOTE: no need for volatile, visibility is guaranteed by latch
+        protected V _result;
+
+        protected RuntimeException _failure;
+
+        protected boolean _completed;
+    }
+}
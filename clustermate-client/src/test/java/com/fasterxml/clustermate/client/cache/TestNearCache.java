@@ -0,0 +1,81 @@
+package com.fasterxml.clustermate.client.cache;
+
+import com.fasterxml.storemate.shared.StorableKey;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.cluster.ClientTestBase;
+
+public class TestNearCache extends ClientTestBase
+{
+    static class Key extends EntryKey
+    {
+        private final StorableKey _key;
+
+        public Key(String id) {
+            _key = new StorableKey(id.getBytes());
+        }
+
+        @Override public StorableKey asStorableKey() { return _key; }
+        @Override public byte[] asBytes() { return _key.asBytes(); }
+        @Override public int hashCode() { return _key.hashCode(); }
+        @Override public boolean equals(Object o) {
+            return (o instanceof Key) && ((Key) o)._key.equals(_key);
+        }
+    }
+
+    public void testAdmissionOnSecondAccess()
+    {
+        NearCache<Key> cache = new NearCache<Key>(new NearCacheConfig());
+        final Key key = new Key("abc");
+        final byte[] data = new byte[] { 1, 2, 3 };
+
+        // first attempt only registers key as seen
+        assertFalse(cache.add(key, data, 123, 0L));
+        assertNull(cache.find(key));
+        assertTrue(cache.add(key, data, 123, 0L));
+        NearCache.Entry entry = cache.find(key);
+        assertNotNull(entry);
+        assertEquals(123, entry.getContentHash());
+        assertEquals(3, cache.getTotalBytes());
+
+        // contents are copied, to prevent modification
+        byte[] result = entry.getContents();
+        result[0] = 9;
+        assertEquals(1, entry.getContents()[0]);
+
+        cache.remove(key);
+        assertNull(cache.find(key));
+        assertEquals(0, cache.getTotalBytes());
+    }
+
+    public void testFreshness()
+    {
+        NearCache<Key> cache = new NearCache<Key>(new NearCacheConfig()
+            .withAdmitOnFirstAccess(true).withFreshnessMsecs(100L));
+        final Key key = new Key("abc");
+        assertTrue(cache.add(key, new byte[10], 1, 1000L));
+        NearCache.Entry entry = cache.find(key);
+        assertTrue(entry.isFresh(1099L));
+        assertFalse(entry.isFresh(1100L));
+        cache.revalidated(entry, 1100L);
+        assertTrue(entry.isFresh(1150L));
+    }
+
+    public void testSizeLimits()
+    {
+        NearCache<Key> cache = new NearCache<Key>(new NearCacheConfig(100L, 50, 1000L, true));
+        // too big to be admitted at all
+        assertFalse(cache.add(new Key("big"), new byte[51], 1, 0L));
+
+        assertTrue(cache.add(new Key("a"), new byte[40], 1, 0L));
+        assertTrue(cache.add(new Key("b"), new byte[40], 2, 0L));
+        // access 'a' so that 'b' becomes least recently used
+        assertNotNull(cache.find(new Key("a")));
+        assertTrue(cache.add(new Key("c"), new byte[40], 3, 0L));
+        assertEquals(2, cache.size());
+        assertEquals(80L, cache.getTotalBytes());
+        assertNull(cache.find(new Key("b")));
+        assertNotNull(cache.find(new Key("a")));
+        assertNotNull(cache.find(new Key("c")));
+    }
+}
@@ -0,0 +1,40 @@
+package com.fasterxml.clustermate.client.chunked;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.fasterxml.clustermate.client.cluster.ClientTestBase;
+
+public class TestChunkManifest extends ClientTestBase
+{
+    public void testChunkBoundaries()
+    {
+        assertEquals(0, ChunkManifest.chunkCountFor(0L, 100));
+        assertEquals(1, ChunkManifest.chunkCountFor(1L, 100));
+        assertEquals(1, ChunkManifest.chunkCountFor(100L, 100));
+        assertEquals(2, ChunkManifest.chunkCountFor(101L, 100));
+
+        ChunkManifest manifest = new ChunkManifest("upload", 250L, 100, new int[3]);
+        assertEquals(3, manifest.chunkCount());
+        assertEquals(0L, manifest.chunkOffset(0));
+        assertEquals(200L, manifest.chunkOffset(2));
+        assertEquals(100, manifest.chunkLength(1));
+        assertEquals(50, manifest.chunkLength(2));
+    }
+
+    public void testSerialization() throws Exception
+    {
+        ObjectMapper mapper = new ObjectMapper();
+        ChunkManifest manifest = new ChunkManifest("upload", 250L, 100, new int[] { 1, 2, 3 });
+        ChunkManifest result = mapper.readValue(mapper.writeValueAsBytes(manifest), ChunkManifest.class);
+        assertTrue(result.isValid());
+        assertEquals("upload", result.uploadId);
+        assertEquals(250L, result.length);
+        assertEquals(100, result.chunkSize);
+        assertEquals(3, result.chunkHashes.length);
+        assertEquals(3, result.chunkHashes[2]);
+
+        // and something that is not a manifest should not pass validation
+        result = mapper.readValue("{\"length\":3}", ChunkManifest.class);
+        assertFalse(result.isValid());
+    }
+}
@@ -0,0 +1,158 @@
+package com.fasterxml.clustermate.client.chunked;
+
+import java.io.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+
+import com.fasterxml.clustermate.client.cluster.ClientTestBase;
+import com.fasterxml.clustermate.client.operation.OperationConfig;
+import com.fasterxml.clustermate.client.testutil.FakeKey;
+import com.fasterxml.clustermate.client.testutil.FakeServerNode;
+import com.fasterxml.clustermate.client.testutil.FakeStoreClient;
+
+public class TestChunkedContentAccessor extends ClientTestBase
+{
+    final static int CHUNK_SIZE = 1000;
+
+    // Failing chunk PUTs are retried, and content can then be read back
+    public void testRoundTripWithFailingChunk() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("chunked");
+        final byte[] DATA = _content(3500);
+        FakeServerNode node = new FakeServerNode(1);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig(), node);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        File in = _file(DATA);
+        File out = File.createTempFile("cm-test", ".out");
+        try {
+            ChunkedContentAccessor<FakeKey> accessor = _accessor(client, executor);
+            node.failPuts(1);
+            ChunkManifest manifest = accessor.putContent(null, KEY, in);
+            assertEquals(4, manifest.chunkCount());
+            // 4 chunks, manifest, and one retry
+            assertEquals(6, node.putCount());
+            assertEquals(5, node.entryCount());
+
+            ChunkManifest result = accessor.getContentAsFile(null, KEY, out);
+            assertNotNull(result);
+            assertEquals(DATA.length, result.length);
+            Assert.assertArrayEquals(DATA, _read(out));
+        } finally {
+            in.delete();
+            out.delete();
+            executor.shutdownNow();
+            client.stop();
+        }
+    }
+
+    // If a chunk can not be stored, chunks already stored must be deleted
+    public void testCleanupAfterFailedChunk() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("chunked-fail");
+        final byte[] DATA = _content(3500);
+        FakeServerNode node = new FakeServerNode(1);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig(), node);
+        // single thread, so that last chunk is stored last
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        File in = _file(DATA);
+        try {
+            ChunkedContentAccessor<FakeKey> accessor = new ChunkedContentAccessor<FakeKey>(client, executor,
+                    ChunkKeyStrategy.suffixed(client.getKeyConverter()), CHUNK_SIZE) {
+                @Override
+                protected String _newUploadId() {
+                    return "fixed";
+                }
+            };
+            // conflicting entry already exists for the last chunk
+            final FakeKey LAST_CHUNK = ChunkKeyStrategy.suffixed(client.getKeyConverter()).chunkKey(KEY, "fixed", 3);
+            node.addEntry(LAST_CHUNK, new byte[] { 1, 2, 3 });
+            try {
+                accessor.putContent(null, KEY, in);
+                fail("Should not succeed with conflicting chunk");
+            } catch (IOException e) {
+                verifyMessage("Failed to PUT chunk #3", e.getMessage());
+            }
+            // no manifest; other chunks deleted, but not entry we did not store
+            assertNull(node.findEntry(KEY));
+            assertEquals(1, node.entryCount());
+            assertFalse(node.findEntry(LAST_CHUNK).deleted);
+            assertNull(accessor.findManifest(null, KEY));
+        } finally {
+            in.delete();
+            executor.shutdownNow();
+            client.stop();
+        }
+    }
+
+    // Failing to overwrite content must not affect content being overwritten,
+    // even if new content is identical (and chunks would be identical too)
+    public void testFailedOverwriteKeepsOriginal() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("chunked-overwrite");
+        final byte[] DATA = _content(3500);
+        FakeServerNode node = new FakeServerNode(1);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig(), node);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        File in = _file(DATA);
+        File out = File.createTempFile("cm-test", ".out");
+        try {
+            ChunkedContentAccessor<FakeKey> accessor = _accessor(client, executor);
+            ChunkManifest orig = accessor.putContent(null, KEY, in);
+            assertEquals(5, node.entryCount());
+
+            // server does not allow overwriting manifest, so second upload fails
+            try {
+                accessor.putContent(null, KEY, in);
+                fail("Should not succeed in overwriting manifest");
+            } catch (IOException e) {
+                verifyMessage("Failed to PUT manifest", e.getMessage());
+            }
+            // chunks of failed upload deleted; but original ones retained
+            assertEquals(5, node.entryCount());
+            ChunkManifest result = accessor.getContentAsFile(null, KEY, out);
+            assertNotNull(result);
+            assertEquals(orig.uploadId, result.uploadId);
+            Assert.assertArrayEquals(DATA, _read(out));
+        } finally {
+            in.delete();
+            out.delete();
+            executor.shutdownNow();
+            client.stop();
+        }
+    }
+
+    private ChunkedContentAccessor<FakeKey> _accessor(FakeStoreClient client, ExecutorService executor)
+    {
+        return new ChunkedContentAccessor<FakeKey>(client, executor,
+                ChunkKeyStrategy.suffixed(client.getKeyConverter()), CHUNK_SIZE);
+    }
+
+    private File _file(byte[] data) throws IOException
+    {
+        File f = File.createTempFile("cm-test", ".tmp");
+        FileOutputStream out = new FileOutputStream(f);
+        out.write(data);
+        out.close();
+        return f;
+    }
+
+    private byte[] _read(File f) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new FileInputStream(f));
+        byte[] data = new byte[(int) f.length()];
+        in.readFully(data);
+        in.close();
+        return data;
+    }
+
+    private byte[] _content(int length)
+    {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            data[i] = (byte) (i * 7 + (i >> 8));
+        }
+        return data;
+    }
+}
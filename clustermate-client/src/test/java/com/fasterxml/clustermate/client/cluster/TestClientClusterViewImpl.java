@@ -2,6 +2,7 @@ package com.fasterxml.clustermate.client.cluster;
 
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.clustermate.api.KeySpace;
 import com.fasterxml.clustermate.client.NodesForKey;
 import com.fasterxml.clustermate.client.cluster.ClusterServerNodeImpl;
@@ -122,4 +123,28 @@ public class TestClientClusterViewImpl extends ClientTestBase
         ClusterServerNodeImpl[] moreNodes = new ClusterServerNodeImpl[] { NODE1, NODE2, NODE3, extraNode };
         assertEquals(360, view._getCoverage(moreNodes));
     }
+
+    public void testNonContiguousSlots()
+    {
+        ClusterViewByClientImpl<EntryKey> view = ClusterViewByClientImpl.forTesting(DEFAULT_SPACE);
+        KeySlots slots1 = DEFAULT_SPACE.slots("0-9,100-109");
+        KeySlots slots2 = DEFAULT_SPACE.slots("5-14,100-104");
+        ClusterServerNodeImpl node1 = ClusterServerNodeImpl.forTesting(slots1.boundingRange());
+        node1.updateRanges(slots1.boundingRange(), slots1.boundingRange(), slots1, slots1);
+        ClusterServerNodeImpl node2 = ClusterServerNodeImpl.forTesting(slots2.boundingRange());
+        node2.updateRanges(slots2.boundingRange(), slots2.boundingRange(), slots2, slots2);
+        ClusterServerNodeImpl[] nodes = new ClusterServerNodeImpl[] { node1, node2 };
+
+        // within bounding range, but not owned by either
+        assertEquals(0, view._calculateNodes(1, DEFAULT_SPACE.hash(50), nodes).size());
+        assertEquals(1, view._calculateNodes(1, DEFAULT_SPACE.hash(107), nodes).size());
+        assertEquals(2, view._calculateNodes(1, DEFAULT_SPACE.hash(7), nodes).size());
+        assertEquals(25, view._getCoverage(nodes));
+
+        // disabled nodes still go last
+        node1.updateDisabled(true);
+        NodesForKey result = view._calculateNodes(1, DEFAULT_SPACE.hash(102), nodes);
+        assertEquals(2, result.size());
+        assertSame(node2, result.node(0));
+    }
 }
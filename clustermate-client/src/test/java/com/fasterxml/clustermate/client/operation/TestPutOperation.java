@@ -0,0 +1,167 @@
+package com.fasterxml.clustermate.client.operation;
+
+import java.io.*;
+
+import org.junit.Assert;
+
+import com.fasterxml.storemate.shared.ByteContainer;
+import com.fasterxml.storemate.shared.compress.Compression;
+import com.fasterxml.storemate.shared.hash.HashConstants;
+
+import com.fasterxml.clustermate.client.call.PutContentProvider;
+import com.fasterxml.clustermate.client.call.PutContentProviders;
+import com.fasterxml.clustermate.client.cluster.ClientTestBase;
+import com.fasterxml.clustermate.client.testutil.FakeKey;
+import com.fasterxml.clustermate.client.testutil.FakeServerNode;
+import com.fasterxml.clustermate.client.testutil.FakeStoreClient;
+
+public class TestPutOperation extends ClientTestBase
+{
+    /**
+     * Stream-backed content, stream of which fails after given number of bytes
+     */
+    static class FailingStreamContent implements PutContentProvider
+    {
+        final int _length, _failAt;
+
+        int _hash = HashConstants.NO_CHECKSUM;
+
+        public FailingStreamContent(int length, int failAt) {
+            _length = length;
+            _failAt = failAt;
+        }
+
+        @Override public void release() { }
+        @Override public long length() { return _length; }
+        @Override public long uncompressedLength() { return -1L; }
+        @Override public ByteContainer contentAsBytes() { return null; }
+        @Override public File contentAsFile() { return null; }
+
+        @Override
+        public InputStream contentAsStream() {
+            return new InputStream() {
+                int _offset;
+
+                @Override
+                public int read() throws IOException {
+                    if (_offset >= _failAt) {
+                        throw new IOException("Simulated read failure at "+_offset);
+                    }
+                    return (_offset++ < _length) ? 'a' : -1;
+                }
+            };
+        }
+
+        @Override public int getContentHash() { return _hash; }
+        @Override public void setContentHash(int hash) { _hash = hash; }
+        @Override public Compression getExistingCompression() { return null; }
+        @Override public Object rawSource() { return null; }
+    }
+
+    // Stream content that could not be compressed must not be sent as (truncated) is
+    public void testFailedCompressionOfStream() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("stream");
+        FakeServerNode node1 = new FakeServerNode(1);
+        FakeServerNode node2 = new FakeServerNode(2);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig()
+                .withUploadCompression(Compression.LZF), node1, node2);
+
+        PutOperationResult result = client.putContent(null, KEY, new FailingStreamContent(5000, 1000))
+                .completeMaximally().finish();
+        assertFalse(result.succeededMinimally());
+        assertEquals(0, result.getSuccessCount());
+        assertEquals(2, result.getFailCount());
+        verifyMessage("Simulated read failure", result.getFirstFail().getFirstCallFailure().getErrorMessage());
+        assertEquals(0, node1.putCount());
+        assertEquals(0, node2.putCount());
+        assertNull(node1.findEntry(KEY));
+        client.stop();
+    }
+
+    public void testResumedUploadOfBytes() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("resumed-bytes");
+        final byte[] DATA = _content(12000);
+        FakeServerNode node = new FakeServerNode(1);
+        node.interruptUploadAt(5000L);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig()
+                .withResumablePutMinLength(1000L), node);
+
+        PutOperationResult result = client.putContent(null, KEY, DATA).completeMaximally().finish();
+        assertEquals(1, result.getSuccessCount());
+        // first attempt interrupted, second only sends the remainder
+        assertEquals(2, node.putCount());
+        assertEquals(0, node.uploadCount());
+        Assert.assertArrayEquals(DATA, node.findEntry(KEY).data);
+        client.stop();
+    }
+
+    public void testResumedUploadOfFile() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("resumed-file");
+        final byte[] DATA = _content(20000);
+        File f = File.createTempFile("cm-test", ".tmp");
+        try {
+            FileOutputStream out = new FileOutputStream(f);
+            out.write(DATA);
+            out.close();
+            FakeServerNode node = new FakeServerNode(1);
+            node.interruptUploadAt(7777L);
+            FakeStoreClient client = new FakeStoreClient(new OperationConfig()
+                    .withResumablePutMinLength(1000L), node);
+
+            PutOperationResult result = client.putContent(null, KEY,
+                    PutContentProviders.forFile(f, f.length())).completeMaximally().finish();
+            assertEquals(1, result.getSuccessCount());
+            assertEquals(2, node.putCount());
+            assertEquals(0, node.uploadCount());
+            Assert.assertArrayEquals(DATA, node.findEntry(KEY).data);
+            client.stop();
+        } finally {
+            f.delete();
+        }
+    }
+
+    public void testPrecheckSkipsIdenticalContent() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("precheck-same");
+        final byte[] DATA = _content(3000);
+        FakeServerNode node = new FakeServerNode(1);
+        node.addEntry(KEY, DATA);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig()
+                .withPutPrecheckMinLength(1000L), node);
+
+        PutOperationResult result = client.putContent(null, KEY, DATA).completeMaximally().finish();
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(0, node.putCount());
+        client.stop();
+    }
+
+    // Matching hash alone is not enough: length must match as well
+    public void testPrecheckUploadsIfLengthDiffers() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("precheck-collision");
+        final byte[] DATA = _content(3000);
+        FakeServerNode node = new FakeServerNode(1);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig()
+                .withPutPrecheckMinLength(1000L), node);
+        // existing entry with same hash, but different content (and length)
+        final int hash = client.getKeyConverter().contentHashFor(ByteContainer.simple(DATA));
+        node.addEntry(KEY, _content(2000), hash);
+
+        PutOperationResult result = client.putContent(null, KEY, DATA).completeMaximally().finish();
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(1, node.putCount());
+        client.stop();
+    }
+
+    private byte[] _content(int length)
+    {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            data[i] = (byte) (i * 7 + (i >> 8));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,160 @@
+package com.fasterxml.clustermate.client.operation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.StoreClientConfig;
+import com.fasterxml.clustermate.client.cluster.ClientTestBase;
+import com.fasterxml.clustermate.client.testutil.FakeKey;
+import com.fasterxml.clustermate.client.testutil.FakeServerNode;
+import com.fasterxml.clustermate.client.testutil.FakeStoreClient;
+
+public class TestReadRepairer extends ClientTestBase
+{
+    /**
+     * Repairer that just counts repairs, blocking until released
+     */
+    static class BlockingRepairer extends ReadRepairer<FakeKey>
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done;
+        final AtomicInteger repairs = new AtomicInteger();
+
+        public BlockingRepairer(int expRepairs) {
+            done = new CountDownLatch(expRepairs);
+        }
+
+        @Override
+        protected void _repair(StoreClientConfig<FakeKey,?> config, FakeKey key, byte[] data,
+                List<ClusterServerNode> servers)
+        {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            repairs.addAndGet(servers.size());
+            done.countDown();
+        }
+    }
+
+    public void testDeduplication() throws Exception
+    {
+        BlockingRepairer repairer = new BlockingRepairer(2);
+        final List<ClusterServerNode> servers = Collections.singletonList(null);
+        final byte[] data = new byte[] { 1, 2, 3 };
+
+        // nothing to do if no servers are missing the entry
+        assertFalse(repairer.repair(null, new FakeKey("a"), data, Collections.<ClusterServerNode>emptyList()));
+        assertEquals(0, repairer.pendingCount());
+
+        assertTrue(repairer.repair(null, new FakeKey("a"), data, servers));
+        // second repair of the same entry is dropped while first is pending
+        assertFalse(repairer.repair(null, new FakeKey("a"), data, servers));
+        assertTrue(repairer.repair(null, new FakeKey("b"), data, servers));
+        assertEquals(2, repairer.pendingCount());
+
+        repairer.release.countDown();
+        assertTrue(repairer.done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, repairer.repairs.get());
+        for (int i = 0; i < 100 && repairer.pendingCount() > 0; ++i) {
+            Thread.sleep(10L);
+        }
+        assertEquals(0, repairer.pendingCount());
+
+        // and once done, entry may be repaired again
+        assertTrue(repairer.repair(null, new FakeKey("a"), data, servers));
+        repairer.stop();
+    }
+
+    public void testRepairOfMissing() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("repaired");
+        final byte[] DATA = "Some content to repair".getBytes("UTF-8");
+        FakeServerNode node1 = new FakeServerNode(1);
+        FakeServerNode node2 = new FakeServerNode(2);
+        node2.addEntry(KEY, DATA);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig().withReadRepair(true),
+                node1, node2);
+
+        byte[] result = client.getContentAsBytes(null, KEY);
+        Assert.assertArrayEquals(DATA, result);
+        _waitForPuts(node1, 1);
+        FakeServerNode.Entry entry = node1.findEntry(KEY);
+        assertNotNull(entry);
+        assertFalse(entry.deleted);
+        Assert.assertArrayEquals(DATA, entry.data);
+        // and caller modifying result must not matter
+        result[0] = 0;
+        Assert.assertArrayEquals(DATA, node1.findEntry(KEY).data);
+        client.stop();
+    }
+
+    public void testNoRepairIfDisabled() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("not-repaired");
+        FakeServerNode node1 = new FakeServerNode(1);
+        FakeServerNode node2 = new FakeServerNode(2);
+        node2.addEntry(KEY, new byte[] { 1, 2, 3 });
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig(), node1, node2);
+
+        assertNotNull(client.getContentAsBytes(null, KEY));
+        Thread.sleep(50L);
+        assertEquals(0, node1.putCount());
+        client.stop();
+    }
+
+    // Entries reported as deleted (204) must not be "repaired" as empty entries
+    public void testNoRepairOfDeleted() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("deleted");
+        FakeServerNode node1 = new FakeServerNode(1);
+        FakeServerNode node2 = new FakeServerNode(2);
+        node2.addTombstone(KEY);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig().withReadRepair(true),
+                node1, node2);
+
+        byte[] result = client.getContentAsBytes(null, KEY);
+        assertNotNull(result);
+        assertEquals(0, result.length);
+        Thread.sleep(50L);
+        assertEquals(0, node1.putCount());
+        assertNull(node1.findEntry(KEY));
+        client.stop();
+    }
+
+    // Nor may repair recreate entries deleted from nodes that report them as missing
+    public void testNoRepairOverTombstone() throws Exception
+    {
+        final FakeKey KEY = new FakeKey("deleted-on-one");
+        final byte[] DATA = "Content deleted from one node".getBytes("UTF-8");
+        FakeServerNode node1 = new FakeServerNode(1);
+        node1.setDeletedAsEmpty(false);
+        node1.setAllowUndelete(true);
+        node1.addEntry(KEY, DATA);
+        node1.addTombstone(KEY);
+        FakeServerNode node2 = new FakeServerNode(2);
+        node2.addEntry(KEY, DATA);
+        FakeStoreClient client = new FakeStoreClient(new OperationConfig().withReadRepair(true),
+                node1, node2);
+
+        Assert.assertArrayEquals(DATA, client.getContentAsBytes(null, KEY));
+        _waitForPuts(node1, 1);
+        assertTrue(node1.findEntry(KEY).deleted);
+        client.stop();
+    }
+
+    private void _waitForPuts(FakeServerNode node, int expCount) throws InterruptedException
+    {
+        for (int i = 0; i < 200 && node.putCount() < expCount; ++i) {
+            Thread.sleep(10L);
+        }
+        assertEquals(expCount, node.putCount());
+    }
+}
@@ -0,0 +1,32 @@
+package com.fasterxml.clustermate.client.testutil;
+
+import com.fasterxml.storemate.shared.StorableKey;
+
+import com.fasterxml.clustermate.api.EntryKey;
+
+/**
+ * Simple {@link EntryKey} implementation for client tests: just wraps
+ * bytes of String id.
+ */
+public class FakeKey extends EntryKey
+{
+    private final StorableKey _key;
+
+    public FakeKey(String id) {
+        this(new StorableKey(id.getBytes()));
+    }
+
+    public FakeKey(StorableKey key) {
+        _key = key;
+    }
+
+    @Override public StorableKey asStorableKey() { return _key; }
+    @Override public byte[] asBytes() { return _key.asBytes(); }
+
+    @Override public int hashCode() { return _key.hashCode(); }
+    @Override public boolean equals(Object o) {
+        return (o instanceof FakeKey) && ((FakeKey) o)._key.equals(_key);
+    }
+
+    @Override public String toString() { return new String(_key.asBytes()); }
+}
@@ -0,0 +1,75 @@
+package com.fasterxml.clustermate.client.testutil;
+
+import com.fasterxml.storemate.shared.ByteContainer;
+import com.fasterxml.storemate.shared.StorableKey;
+import com.fasterxml.storemate.shared.hash.BlockHasher32;
+import com.fasterxml.storemate.shared.hash.BlockMurmur3Hasher;
+import com.fasterxml.storemate.shared.hash.IncrementalHasher32;
+import com.fasterxml.storemate.shared.hash.IncrementalMurmur3Hasher;
+
+import com.fasterxml.clustermate.api.DecodableRequestPath;
+import com.fasterxml.clustermate.api.EntryKeyConverter;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+
+/**
+ * {@link EntryKeyConverter} for {@link FakeKey}s.
+ */
+public class FakeKeyConverter extends EntryKeyConverter<FakeKey>
+{
+    protected final BlockHasher32 _hasher = new BlockMurmur3Hasher();
+
+    @Override
+    public FakeKey construct(byte[] rawKey) {
+        return new FakeKey(new StorableKey(rawKey));
+    }
+
+    @Override
+    public FakeKey construct(byte[] rawKey, int offset, int length) {
+        return new FakeKey(new StorableKey(rawKey, offset, length));
+    }
+
+    @Override
+    public FakeKey rawToEntryKey(StorableKey key) {
+        return new FakeKey(key);
+    }
+
+    @Override
+    public FakeKey stringToKey(String external) {
+        return new FakeKey(external);
+    }
+
+    @Override
+    public String keyToString(FakeKey key) {
+        return key.toString();
+    }
+
+    @Override
+    public String rawToString(StorableKey key) {
+        return keyToString(rawToEntryKey(key));
+    }
+
+    @Override
+    public int routingHashFor(FakeKey key) {
+        return _truncateHash(key.hashCode());
+    }
+
+    @Override
+    public int contentHashFor(ByteContainer bytes) {
+        return bytes.hash(_hasher, BlockHasher32.DEFAULT_SEED);
+    }
+
+    @Override
+    public IncrementalHasher32 createStreamingContentHasher() {
+        return new IncrementalMurmur3Hasher();
+    }
+
+    @Override
+    public <B extends RequestPathBuilder<B>> B appendToPath(B pathBuilder, FakeKey key) {
+        return pathBuilder.addPathSegment(key.toString());
+    }
+
+    @Override
+    public <P extends DecodableRequestPath> FakeKey extractFromPath(P path) {
+        return new FakeKey(path.getDecodedPath());
+    }
+}
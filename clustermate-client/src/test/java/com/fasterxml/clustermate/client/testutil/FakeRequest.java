@@ -0,0 +1,67 @@
+package com.fasterxml.clustermate.client.testutil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.clustermate.api.RequestPath;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+
+/**
+ * {@link RequestPathBuilder} used by {@link FakeServerNode} for collecting
+ * query parameters and headers that call parameters add, similar to
+ * how they would be received by a real server.
+ */
+public class FakeRequest extends RequestPathBuilder<FakeRequest>
+{
+    protected final Map<String,String> _params = new HashMap<String,String>();
+
+    protected final Map<String,String> _headers = new HashMap<String,String>();
+
+    public String getParameter(String key) { return _params.get(key); }
+
+    public String getHeader(String key) { return _headers.get(key); }
+
+    @Override
+    public RequestPath build() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FakeRequest addPathSegment(String segment) { return this; }
+
+    @Override
+    public FakeRequest addPathSegmentsRaw(String segments) { return this; }
+
+    @Override
+    public FakeRequest addParameter(String key, String value) {
+        _params.put(key, value);
+        return this;
+    }
+
+    @Override
+    public FakeRequest addHeader(String key, String value) {
+        _headers.put(key, value);
+        return this;
+    }
+
+    @Override
+    public FakeRequest setHeader(String key, String value) {
+        _headers.put(key, value);
+        return this;
+    }
+
+    @Override
+    public FakeRequest setContentType(String contentType) { return this; }
+
+    @Override
+    public String getServerPart() { return ""; }
+
+    @Override
+    public String getPath() { return ""; }
+
+    @Override
+    public boolean hasHeaders() { return !_headers.isEmpty(); }
+
+    @Override
+    public String toString() { return "params: "+_params+", headers: "+_headers; }
+}
@@ -0,0 +1,467 @@
+package com.fasterxml.clustermate.client.testutil;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.storemate.shared.ByteContainer;
+import com.fasterxml.storemate.shared.ByteRange;
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.storemate.shared.hash.HashConstants;
+import com.fasterxml.storemate.shared.util.IOUtil;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.call.*;
+
+/**
+ * In-memory stand-in for a server node, for testing client-side operations
+ * without network access. Handling of PUTs, GETs, HEADs and DELETEs mimics
+ * that of the real service: including content hash verification, duplicate
+ * and undelete checks, reporting of deleted entries, and resumable uploads.
+ * Failures may be injected to test error handling.
+ */
+public class FakeServerNode implements ClusterServerNode
+{
+    /**
+     * Stored entry; for deleted entries, just a tombstone
+     */
+    public static class Entry
+    {
+        public final byte[] data;
+        public final int hash;
+        public final boolean deleted;
+
+        public Entry(byte[] data, int hash, boolean deleted) {
+            this.data = data;
+            this.hash = hash;
+            this.deleted = deleted;
+        }
+    }
+
+    protected final IpAndPort _address;
+
+    protected final FakeKeyConverter _keyConverter = new FakeKeyConverter();
+
+    protected final ConcurrentHashMap<FakeKey,Entry> _entries = new ConcurrentHashMap<FakeKey,Entry>();
+
+    /**
+     * Content received so far for resumable uploads, by upload id
+     */
+    protected final Map<String,ByteArrayOutputStream> _uploads = new HashMap<String,ByteArrayOutputStream>();
+
+    protected final AtomicInteger _putCount = new AtomicInteger();
+
+    /**
+     * Number of PUTs to fail (with 500) before accepting PUTs again
+     */
+    protected final AtomicInteger _putFailures = new AtomicInteger();
+
+    /**
+     * Offset at which next resumable upload is to be interrupted, if any
+     */
+    protected volatile long _interruptUploadAt = -1L;
+
+    /**
+     * Whether deleted entries are reported with 204 (like with
+     * default settings of the service), or 404
+     */
+    protected volatile boolean _deletedAsEmpty = true;
+
+    protected volatile boolean _allowUndelete = false;
+
+    public FakeServerNode(int port) {
+        _address = new IpAndPort("localhost:"+port);
+    }
+
+    /*
+    /**********************************************************************
+    /* Test API: state setup, access
+    /**********************************************************************
+     */
+
+    public void addEntry(FakeKey key, byte[] data) {
+        _entries.put(key, new Entry(data, _hash(data), false));
+    }
+
+    /**
+     * Method for adding an entry with given (possibly mismatching) content hash,
+     * to simulate hash collisions.
+     */
+    public void addEntry(FakeKey key, byte[] data, int hash) {
+        _entries.put(key, new Entry(data, hash, false));
+    }
+
+    public void addTombstone(FakeKey key) {
+        _entries.put(key, new Entry(null, HashConstants.NO_CHECKSUM, true));
+    }
+
+    public Entry findEntry(FakeKey key) {
+        return _entries.get(key);
+    }
+
+    /**
+     * @return Number of live (non-deleted) entries
+     */
+    public int entryCount() {
+        int count = 0;
+        for (Entry entry : _entries.values()) {
+            if (!entry.deleted) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public int putCount() { return _putCount.get(); }
+
+    public int uploadCount() {
+        synchronized (_uploads) {
+            return _uploads.size();
+        }
+    }
+
+    public void failPuts(int count) { _putFailures.set(count); }
+
+    public void interruptUploadAt(long offset) { _interruptUploadAt = offset; }
+
+    public void setDeletedAsEmpty(boolean state) { _deletedAsEmpty = state; }
+
+    public void setAllowUndelete(boolean state) { _allowUndelete = state; }
+
+    /*
+    /**********************************************************************
+    /* ClusterServerNode implementation
+    /**********************************************************************
+     */
+
+    @Override public IpAndPort getAddress() { return _address; }
+    @Override public boolean isDisabled() { return false; }
+
+    @Override public KeyRange getActiveRange() { return null; }
+    @Override public KeyRange getPassiveRange() { return null; }
+    @Override public KeyRange getTotalRange() { return null; }
+    @Override public KeySlots getActiveSlots() { return null; }
+    @Override public KeySlots getTotalSlots() { return null; }
+
+    @Override public long getLastRequestSent() { return 0L; }
+    @Override public long getLastResponseReceived() { return 0L; }
+    @Override public long getLastNodeUpdateFetched() { return 0L; }
+    @Override public long getLastClusterUpdateFetched() { return 0L; }
+    @Override public long getLastClusterUpdateAvailable() { return 0L; }
+
+    @Override
+    public <B extends RequestPathBuilder<B>> B rootPath() {
+        throw new UnsupportedOperationException();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K extends EntryKey> ContentPutter<K> entryPutter() {
+        return (ContentPutter<K>) new ContentPutter<FakeKey>() {
+            @Override
+            public CallFailure tryPut(CallConfig config, PutCallParameters params,
+                    long endOfTime, FakeKey key, PutContentProvider content) {
+                return _put(params, key, content);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K extends EntryKey> ContentGetter<K> entryGetter() {
+        return (ContentGetter<K>) new ContentGetter<FakeKey>() {
+            @Override
+            public <T> ReadCallResult<T> tryGet(CallConfig config, ReadCallParameters params,
+                    long endOfTime, FakeKey key, GetContentProcessor<T> processor, ByteRange range) {
+                return _get(params, key, processor, range);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K extends EntryKey> ContentHeader<K> entryHeader() {
+        return (ContentHeader<K>) new ContentHeader<FakeKey>() {
+            @Override
+            public HeadCallResult tryHead(CallConfig config, ReadCallParameters params,
+                    long endOfTime, FakeKey key) {
+                return _head(params, key);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K extends EntryKey> ContentDeleter<K> entryDeleter() {
+        return (ContentDeleter<K>) new ContentDeleter<FakeKey>() {
+            @Override
+            public CallFailure tryDelete(CallConfig config, DeleteCallParameters params,
+                    long endOfTime, FakeKey key) {
+                addTombstone(key);
+                return null;
+            }
+        };
+    }
+
+    @Override
+    public <K extends EntryKey> EntryInspector<K> entryInspector() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <K extends EntryKey> EntryLister<K> entryLister() {
+        throw new UnsupportedOperationException();
+    }
+
+    /*
+    /**********************************************************************
+    /* Request handling
+    /**********************************************************************
+     */
+
+    protected CallFailure _put(PutCallParameters params, FakeKey key, PutContentProvider content)
+    {
+        try {
+            return _handlePut(params, key, content);
+        } finally { // count once handled, so tests can wait for results
+            _putCount.incrementAndGet();
+        }
+    }
+
+    protected CallFailure _handlePut(PutCallParameters params, FakeKey key, PutContentProvider content)
+    {
+        final long now = System.currentTimeMillis();
+        int failures;
+        while ((failures = _putFailures.get()) > 0) {
+            if (_putFailures.compareAndSet(failures, failures-1)) {
+                return _fail(500, "Simulated failure");
+            }
+        }
+        FakeRequest request = new FakeRequest();
+        if (params != null) {
+            request = params.appendToPath(request, key);
+        }
+        byte[] data;
+        try {
+            data = _read(content);
+        } catch (IOException e) {
+            return CallFailure.clientInternal(this, now, now, e);
+        }
+        // like network clients, calculate hash for byte-backed content, if not known
+        int hash = content.getContentHash();
+        if (hash == HashConstants.NO_CHECKSUM && content.contentAsBytes() != null) {
+            hash = _hash(content.contentAsBytes().asBytes());
+        }
+        String uploadId = request.getParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_ID);
+        if (uploadId != null) {
+            long offset = Long.parseLong(request.getParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_OFFSET));
+            long total = Long.parseLong(request.getParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_LENGTH));
+            synchronized (_uploads) {
+                ByteArrayOutputStream partial = _uploads.get(uploadId);
+                if (partial == null) {
+                    partial = new ByteArrayOutputStream();
+                    _uploads.put(uploadId, partial);
+                }
+                if (partial.size() != offset) {
+                    return _fail(400, "Invalid offset "+offset+"; have "+partial.size()+" bytes");
+                }
+                long interruptAt = _interruptUploadAt;
+                if (interruptAt >= offset && interruptAt < offset + data.length) {
+                    _interruptUploadAt = -1L;
+                    partial.write(data, 0, (int) (interruptAt - offset));
+                    return _fail(500, "Simulated interruption of upload at "+interruptAt);
+                }
+                partial.write(data, 0, data.length);
+                if (partial.size() < total) {
+                    return _fail(400, "Incomplete content for upload: "+partial.size()+" of "+total);
+                }
+                data = partial.toByteArray();
+                _uploads.remove(uploadId);
+            }
+        }
+        // compressed content not supported; would need to uncompress to verify
+        final int actualHash = _hash(data);
+        if (hash != HashConstants.NO_CHECKSUM && hash != actualHash) {
+            return _fail(400, "Bad Checksum information passed");
+        }
+        final boolean allowUndelete = _allowUndelete
+                && !"true".equals(request.getParameter(ClusterMateConstants.QUERY_PARAM_NO_UNDELETE));
+        Entry newEntry = new Entry(data, actualHash, false);
+        Entry prev = _entries.putIfAbsent(key, newEntry);
+        if (prev != null) {
+            if (prev.deleted) {
+                if (!allowUndelete) {
+                    return _fail(410, "Failed PUT: trying to recreate deleted entry");
+                }
+                _entries.replace(key, prev, newEntry);
+            } else if (prev.hash != actualHash) {
+                return _fail(409, "Failed PUT: trying to overwrite entry");
+            }
+        }
+        return null;
+    }
+
+    protected <T> ReadCallResult<T> _get(ReadCallParameters params, FakeKey key,
+            GetContentProcessor<T> processor, ByteRange range)
+    {
+        FakeRequest request = new FakeRequest();
+        if (params != null) {
+            request = params.appendToPath(request, key);
+        }
+        Entry entry = _entries.get(key);
+        if (entry == null || (entry.deleted && !_deletedAsEmpty)) {
+            return new Result<T>(this, ClusterMateConstants.HTTP_STATUS_NOT_FOUND, null);
+        }
+        int status;
+        byte[] data;
+        if (entry.deleted) {
+            status = 204;
+            data = new byte[0];
+        } else {
+            if (_etag(entry).equals(request.getHeader(ClusterMateConstants.HTTP_HEADER_ETAG_NO_MATCH))) {
+                return new Result<T>(this, ClusterMateConstants.HTTP_STATUS_NOT_MODIFIED, null);
+            }
+            data = entry.data;
+            status = ClusterMateConstants.HTTP_STATUS_OK;
+            if (range != null) {
+                range = range.resolveWithTotalLength(data.length);
+                byte[] part = new byte[(int) range.calculateLength()];
+                System.arraycopy(data, (int) range.getStart(), part, 0, part.length);
+                data = part;
+                status = ClusterMateConstants.HTTP_STATUS_OK_PARTIAL;
+            }
+        }
+        GetContentProcessor.Handler<T> h = processor.createHandler();
+        try {
+            T result = null;
+            if (h.startContent(status, null)) {
+                h.processContent(data, 0, data.length);
+                result = h.completeContentProcessing();
+            }
+            Result<T> r = new Result<T>(this, status, result);
+            if (!entry.deleted) {
+                r.header(ClusterMateConstants.HTTP_HEADER_ETAG, _etag(entry));
+            }
+            return r;
+        } catch (IOException e) {
+            h.contentProcessingFailed(e);
+            long now = System.currentTimeMillis();
+            return new Result<T>(CallFailure.clientInternal(this, now, now, e));
+        }
+    }
+
+    protected HeadCallResult _head(ReadCallParameters params, FakeKey key)
+    {
+        FakeRequest request = new FakeRequest();
+        if (params != null) {
+            request = params.appendToPath(request, key);
+        }
+        String uploadId = request.getParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_ID);
+        if (uploadId != null) {
+            synchronized (_uploads) {
+                ByteArrayOutputStream partial = _uploads.get(uploadId);
+                if (partial == null) {
+                    return new HeadResult(this, ClusterMateConstants.HTTP_STATUS_NOT_FOUND, -1L);
+                }
+                return new HeadResult(this, ClusterMateConstants.HTTP_STATUS_OK, partial.size());
+            }
+        }
+        Entry entry = _entries.get(key);
+        if (entry == null) {
+            return new HeadResult(this, ClusterMateConstants.HTTP_STATUS_NOT_FOUND, -1L);
+        }
+        if (entry.deleted) {
+            return new HeadResult(this, 204, -1L);
+        }
+        HeadResult result = new HeadResult(this, ClusterMateConstants.HTTP_STATUS_OK, entry.data.length);
+        result.header(ClusterMateConstants.HTTP_HEADER_ETAG, _etag(entry));
+        return result;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    protected int _hash(byte[] data) {
+        return _keyConverter.contentHashFor(ByteContainer.simple(data));
+    }
+
+    protected String _etag(Entry entry) {
+        return "\""+entry.hash+"\"";
+    }
+
+    protected CallFailure _fail(int status, String msg) {
+        long now = System.currentTimeMillis();
+        return CallFailure.general(this, status, now, now, msg);
+    }
+
+    protected static byte[] _read(PutContentProvider content) throws IOException
+    {
+        ByteContainer bytes = content.contentAsBytes();
+        if (bytes != null) {
+            return bytes.asBytes();
+        }
+        File f = content.contentAsFile();
+        InputStream in = (f == null) ? content.contentAsStream() : new FileInputStream(f);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8000];
+            int count;
+            while ((count = IOUtil.readFully(in, buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    static class Result<T> extends ReadCallResult<T>
+    {
+        protected final Map<String,String> _headers = new HashMap<String,String>();
+
+        public Result(ClusterServerNode server, int status, T result) {
+            super(server, status, result);
+        }
+
+        public Result(CallFailure fail) {
+            super(fail);
+        }
+
+        public void header(String key, String value) {
+            _headers.put(key, value);
+        }
+
+        @Override
+        public String getHeaderValue(String key) {
+            return _headers.get(key);
+        }
+    }
+
+    static class HeadResult extends HeadCallResult
+    {
+        protected final Map<String,String> _headers = new HashMap<String,String>();
+
+        public HeadResult(ClusterServerNode server, int status, long contentLength) {
+            super(server, status, contentLength);
+        }
+
+        public void header(String key, String value) {
+            _headers.put(key, value);
+        }
+
+        @Override
+        public String getHeaderValue(String key) {
+            return _headers.get(key);
+        }
+    }
+}
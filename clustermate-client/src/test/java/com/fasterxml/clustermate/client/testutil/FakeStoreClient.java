@@ -0,0 +1,83 @@
+package com.fasterxml.clustermate.client.testutil;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+
+import com.fasterxml.clustermate.api.EntryKeyConverter;
+import com.fasterxml.clustermate.api.RequestPathBuilder;
+import com.fasterxml.clustermate.api.msg.ItemInfo;
+import com.fasterxml.clustermate.api.msg.ListItem;
+import com.fasterxml.clustermate.client.*;
+import com.fasterxml.clustermate.client.operation.OperationConfig;
+import com.fasterxml.clustermate.json.ClusterMateObjectMapper;
+
+/**
+ * {@link StoreClient} that accesses a fixed set of {@link FakeServerNode}s,
+ * all of which store all entries (in given order).
+ */
+public class FakeStoreClient
+    extends StoreClient<FakeKey, FakeStoreClient.Config, ItemInfo>
+{
+    public FakeStoreClient(OperationConfig operConfig, FakeServerNode... nodes)
+    {
+        super(new Config(operConfig), ListItem.class, null,
+                new FixedClusterView(nodes), new FakeNetworkClient(), null);
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    public static class Config extends StoreClientConfig<FakeKey, Config>
+    {
+        public Config(OperationConfig operConfig) {
+            super(new FakeKeyConverter(), new String[0], null,
+                    new ClusterMateObjectMapper(), operConfig);
+        }
+
+        @Override
+        public <BUILDER extends StoreClientConfigBuilder<FakeKey, Config, BUILDER>> BUILDER builder() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    static class FixedClusterView extends ClusterViewByClient<FakeKey>
+    {
+        protected final FakeServerNode[] _nodes;
+
+        public FixedClusterView(FakeServerNode[] nodes) {
+            _nodes = nodes;
+        }
+
+        @Override public int getServerCount() { return _nodes.length; }
+        @Override public boolean isFullyAvailable() { return true; }
+        @Override public int getCoverage() { return 0; }
+
+        @Override
+        public NodesForKey getNodesFor(FakeKey key) {
+            return new NodesForKey(1, _nodes.clone());
+        }
+    }
+
+    static class FakeNetworkClient extends NetworkClient<FakeKey>
+    {
+        @Override
+        public RequestPathBuilder<?> pathBuilder(IpAndPort server) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void shutdown() { }
+
+        @Override
+        public EntryAccessors<FakeKey> getEntryAccessors() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public EntryKeyConverter<FakeKey> getKeyConverter() {
+            return new FakeKeyConverter();
+        }
+    }
+}
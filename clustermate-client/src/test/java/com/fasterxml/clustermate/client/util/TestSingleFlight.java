@@ -0,0 +1,93 @@
+package com.fasterxml.clustermate.client.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.clustermate.client.cluster.ClientTestBase;
+
+public class TestSingleFlight extends ClientTestBase
+{
+    public void testCoalescing() throws Exception
+    {
+        final SingleFlight<byte[]> flights = new SingleFlight<byte[]>();
+        final AtomicInteger calls = new AtomicInteger();
+        final byte[][] results = new byte[4][];
+        final Thread[] threads = new Thread[results.length];
+        // all callers must have entered 'execute()' before call can complete
+        final CountDownLatch arrived = new CountDownLatch(threads.length);
+
+        final SingleFlight.Call<byte[]> call = new SingleFlight.Call<byte[]>() {
+            @Override
+            public byte[] call() throws InterruptedException {
+                calls.incrementAndGet();
+                arrived.await();
+                // and all others be waiting for this call to complete
+                // (the only place where they may end up WAITING)
+                for (Thread t : threads) {
+                    if (t != Thread.currentThread()) {
+                        while (t.getState() != Thread.State.WAITING) {
+                            Thread.yield();
+                        }
+                    }
+                }
+                return new byte[] { 1, 2, 3 };
+            }
+
+            @Override
+            public byte[] copy(byte[] result) {
+                return result.clone();
+            }
+        };
+        for (int i = 0; i < threads.length; ++i) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    arrived.countDown();
+                    try {
+                        results[index] = flights.execute("key", call);
+                    } catch (InterruptedException e) { }
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(5000L);
+            assertFalse(t.isAlive());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, flights.inFlightCount());
+        for (int i = 0; i < results.length; ++i) {
+            assertEquals(3, results[i].length);
+            for (int j = i+1; j < results.length; ++j) {
+                assertNotSame(results[i], results[j]);
+            }
+        }
+    }
+
+    public void testFailurePropagation() throws Exception
+    {
+        SingleFlight<String> flights = new SingleFlight<String>();
+        try {
+            flights.execute("key", new SingleFlight.Call<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException("test");
+                }
+            });
+            fail("Should have thrown exception");
+        } catch (IllegalStateException e) {
+            verifyException(e, "test");
+        }
+        assertEquals(0, flights.inFlightCount());
+        // and subsequent calls not affected
+        assertEquals("ok", flights.execute("key", new SingleFlight.Call<String>() {
+            @Override
+            public String call() {
+                return "ok";
+            }
+        }));
+    }
+}
@@ -33,6 +33,7 @@ import com.fasterxml.clustermate.service.cfg.ServiceConfig;
 import com.fasterxml.clustermate.service.cleanup.CleanerUpper;
 import com.fasterxml.clustermate.service.cleanup.CleanupTask;
 import com.fasterxml.clustermate.service.cluster.*;
+import com.fasterxml.clustermate.service.metrics.Metrics;
 import com.fasterxml.clustermate.service.state.ActiveNodeState;
 import com.fasterxml.clustermate.service.state.JacksonBasedConverter;
 import com.fasterxml.clustermate.service.store.*;
@@ -166,6 +167,12 @@ public abstract class DWBasedService<
         }
         LOG.info("Managed object startup complete");
 
+        ServiceConfig serviceConfig = _serviceStuff.getServiceConfig();
+        if (serviceConfig.metricsEnabled && serviceConfig.metricsJmxEnabled) {
+            LOG.info("Starting JMX reporting of metrics, under '{}'", serviceConfig.metricsJmxRoot);
+            Metrics.startJmxReporting(serviceConfig.metricsJmxRoot);
+        }
+
         /* 27-Mar-2013, tatu: Also: need to register shutdown hook to be
          *    able to do 'prepareForStop()'
          */
@@ -204,6 +211,8 @@ public abstract class DWBasedService<
             return;
         }
         
+        Metrics.stopJmxReporting();
+
         int count = _managed.size();
         LOG.info("Stopping {} managed objects", count);
         while (--count >= 0) {
@@ -218,6 +227,11 @@ public abstract class DWBasedService<
                         e);
             }
         }
+        // and only then connections to peers, since stopping may involve calls to peers
+        if (_serviceStuff != null) {
+            _serviceStuff.stopSyncPullReadAhead();
+            _serviceStuff.stopPeerTransport();
+        }
         LOG.info("Managed object shutdown complete");
     }
 
@@ -8,6 +8,7 @@ import com.fasterxml.storemate.store.Storable;
 import com.fasterxml.storemate.store.StorableStore;
 import com.fasterxml.storemate.store.StoreOperationSource;
 
+import com.fasterxml.clustermate.api.ClusterMateConstants;
 import com.fasterxml.clustermate.jaxrs.StoreResource;
 import com.fasterxml.clustermate.jaxrs.testutil.*;
 import com.fasterxml.clustermate.service.msg.DeleteResponse;
@@ -260,4 +261,38 @@ public abstract class DeleteTestBase extends JaxrsStoreTestBase
                 null, null, null);
         assertEquals(409, response.getStatus());
     }
+
+    /**
+     * Test to verify that PUTs that ask not to recreate deleted entries
+     * (as done by read-repair) fail even if undeletes are allowed.
+     */
+    public void testDeleteTryRecreateNoUndelete() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"RecreateNoUndelete", timeMaster, true);
+        resource.getServiceConfig().cfgAllowUndelete = true;
+        final byte[] DATA1 = "tiny gob of stuff, ends up inlined".getBytes("UTF-8");
+        final TestKey INTERNAL_KEY1 = contentKey(CLIENT_ID, "data/small/1");
+
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().putEntry(new FakeHttpRequest(), response,
+                INTERNAL_KEY1, calcChecksum(DATA1), new ByteArrayInputStream(DATA1),
+                null, null, null);
+        verifyResponseOk(response);
+        timeMaster.advanceCurrentTimeMillis(10L);
+        resource.getHandler().removeEntry(new FakeHttpRequest(), response, INTERNAL_KEY1);
+        verifyResponseOk(response);
+
+        response = new FakeHttpResponse();
+        resource.getHandler().putEntry(new FakeHttpRequest()
+                .addQueryParam(ClusterMateConstants.QUERY_PARAM_NO_UNDELETE, "true"), response,
+                INTERNAL_KEY1, calcChecksum(DATA1), new ByteArrayInputStream(DATA1),
+                null, null, null);
+        assertEquals(410, response.getStatus());
+
+        // and entry remains deleted
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntry(new FakeHttpRequest(), response, INTERNAL_KEY1);
+        assertEquals(204, response.getStatus());
+    }
 }
@@ -0,0 +1,135 @@
+package com.fasterxml.clustermate.jaxrs.common;
+
+import java.io.*;
+
+import org.junit.Assert;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.PutDurability;
+import com.fasterxml.clustermate.jaxrs.StoreResource;
+import com.fasterxml.clustermate.jaxrs.testutil.*;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.storemate.store.StorableStore;
+
+/**
+ * Tests for verifying handling of durability levels requested by PUTs.
+ */
+public abstract class DurabilityTestBase extends JaxrsStoreTestBase
+{
+    final static CustomerId CLIENT_ID = CustomerId.valueOf("DURA");
+
+    @Override
+    public void setUp() {
+        initTestLogging();
+    }
+
+    protected abstract String testPrefix();
+
+    public void testSyncPut() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"-sync", timeMaster, true);
+        StorableStore entries = resource.getStores().getEntryStore();
+        // big enough not to be inlined, to get content file synced
+        final byte[] DATA = biggerRandomData(90000).getBytes("UTF-8");
+        final TestKey KEY = contentKey(CLIENT_ID, "data/sync/1");
+
+        FakeHttpResponse response = _put(resource, KEY, DATA, PutDurability.SYNC_CONTENT.name());
+        assertEquals(200, response.getStatus());
+        assertEquals(1, entryCount(entries));
+
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntry(new FakeHttpRequest(), response, KEY);
+        assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(DATA, collectOutput(response));
+
+        entries.stop();
+    }
+
+    public void testBufferedPut() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"-buffered", timeMaster, true);
+        StorableStore entries = resource.getStores().getEntryStore();
+        final byte[] DATA = "Small enough to buffer".getBytes("UTF-8");
+        final TestKey KEY = contentKey(CLIENT_ID, "data/buffered/1");
+
+        // small content is accepted before it is written...
+        FakeHttpResponse response = _put(resource, KEY, DATA, PutDurability.BUFFERED.name());
+        assertEquals(202, response.getStatus());
+
+        // ... but should get written soon after
+        for (int i = 0; i < 100 && entryCount(entries) == 0; ++i) {
+            Thread.sleep(50L);
+        }
+        assertEquals(1, entryCount(entries));
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntry(new FakeHttpRequest(), response, KEY);
+        assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(DATA, collectOutput(response));
+
+        // whereas bigger content is written before responding
+        final byte[] BIG_DATA = biggerRandomData(90000).getBytes("UTF-8");
+        response = _put(resource, contentKey(CLIENT_ID, "data/buffered/2"), BIG_DATA, PutDurability.BUFFERED.name());
+        assertEquals(200, response.getStatus());
+        assertEquals(2, entryCount(entries));
+
+        entries.stop();
+    }
+
+    // Problems with buffered PUTs must be reported, not just logged after acknowledging
+    public void testBufferedPutProblems() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"-bufprobs", timeMaster, true);
+        StorableStore entries = resource.getStores().getEntryStore();
+        final byte[] DATA = "Small enough to buffer".getBytes("UTF-8");
+        final TestKey KEY = contentKey(CLIENT_ID, "data/buffered/probs");
+
+        // content not matching checksum
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().putEntry(new FakeHttpRequest()
+                .addQueryParam(ClusterMateConstants.QUERY_PARAM_CHECKSUM, String.valueOf(calcChecksum(DATA) + 1))
+                .addQueryParam(ClusterMateConstants.QUERY_PARAM_DURABILITY, PutDurability.BUFFERED.name()),
+                response, KEY, new ByteArrayInputStream(DATA));
+        assertEquals(400, response.getStatus());
+        assertEquals(0, entryCount(entries));
+
+        // conflict with an existing entry
+        assertEquals(200, _put(resource, KEY, DATA, PutDurability.WRITE.name()).getStatus());
+        response = _put(resource, KEY, "Other content".getBytes("UTF-8"), PutDurability.BUFFERED.name());
+        assertEquals(409, response.getStatus());
+        // but identical content is fine; and written right away
+        response = _put(resource, KEY, DATA, PutDurability.BUFFERED.name());
+        assertEquals(200, response.getStatus());
+        assertEquals(1, entryCount(entries));
+
+        entries.stop();
+    }
+
+    public void testInvalidDurability() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"-invalid", timeMaster, true);
+        StorableStore entries = resource.getStores().getEntryStore();
+
+        FakeHttpResponse response = _put(resource, contentKey(CLIENT_ID, "data/invalid"),
+                "abc".getBytes("UTF-8"), "eventually");
+        assertEquals(400, response.getStatus());
+        assertEquals(0, entryCount(entries));
+
+        entries.stop();
+    }
+
+    private FakeHttpResponse _put(StoreResource<TestKey, StoredEntry<TestKey>> resource, TestKey key,
+            byte[] data, String durability)
+        throws IOException
+    {
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().putEntry(new FakeHttpRequest()
+                .addQueryParam(ClusterMateConstants.QUERY_PARAM_CHECKSUM, String.valueOf(calcChecksum(data)))
+                .addQueryParam(ClusterMateConstants.QUERY_PARAM_DURABILITY, durability),
+                response, key, new ByteArrayInputStream(data));
+        return response;
+    }
+}
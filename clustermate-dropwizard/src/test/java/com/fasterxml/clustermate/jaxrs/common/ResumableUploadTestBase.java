@@ -0,0 +1,208 @@
+package com.fasterxml.clustermate.jaxrs.common;
+
+import java.io.*;
+
+import org.junit.Assert;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.jaxrs.StoreResource;
+import com.fasterxml.clustermate.jaxrs.testutil.*;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.storemate.store.StorableStore;
+
+public abstract class ResumableUploadTestBase extends JaxrsStoreTestBase
+{
+    final static CustomerId CLIENT_ID = CustomerId.valueOf("RESU");
+
+    @Override
+    public void setUp() {
+        initTestLogging();
+    }
+
+    protected abstract String testPrefix();
+
+    public void testResumedUpload() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix(), timeMaster, true);
+        final byte[] DATA = biggerRandomData(90000).getBytes("UTF-8");
+        final String UPLOAD_ID = "upload-1";
+        final int CUT_OFF = 40000;
+
+        StorableStore entries = resource.getStores().getEntryStore();
+        final TestKey KEY = contentKey(CLIENT_ID, "data/resumable/1");
+
+        // nothing received yet
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().getEntryStats(_uploadRequest(UPLOAD_ID), response, KEY);
+        assertEquals(404, response.getStatus());
+
+        // first attempt fails part way through
+        response = new FakeHttpResponse();
+        resource.getHandler().putEntry(_uploadRequest(UPLOAD_ID, 0L, DATA.length, calcChecksum(DATA)),
+                response, KEY, new FailingInputStream(DATA, CUT_OFF));
+        assertEquals(500, response.getStatus());
+        assertEquals(String.valueOf(CUT_OFF), response.getHeader(ClusterMateConstants.CUSTOM_HTTP_HEADER_UPLOAD_OFFSET));
+        assertEquals(0, entryCount(entries));
+
+        // but server should have retained what it got
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntryStats(_uploadRequest(UPLOAD_ID), response, KEY);
+        assertEquals(200, response.getStatus());
+        assertEquals(String.valueOf(CUT_OFF), response.getHeader(ClusterMateConstants.HTTP_HEADER_CONTENT_LENGTH));
+
+        // so that we can just send the rest
+        response = new FakeHttpResponse();
+        resource.getHandler().putEntry(_uploadRequest(UPLOAD_ID, CUT_OFF, DATA.length, calcChecksum(DATA)),
+                response, KEY, new ByteArrayInputStream(DATA, CUT_OFF, DATA.length - CUT_OFF));
+        assertEquals(200, response.getStatus());
+        assertEquals(1, entryCount(entries));
+
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntry(new FakeHttpRequest(), response, KEY);
+        assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(DATA, collectOutput(response));
+
+        // and partial content is gone
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntryStats(_uploadRequest(UPLOAD_ID), response, KEY);
+        assertEquals(404, response.getStatus());
+
+        entries.stop();
+    }
+
+    // Content ending before declared length is not an error of client, upload can be resumed
+    public void testIncompleteUpload() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"-incomplete",
+                timeMaster, true);
+        final byte[] DATA = biggerRandomData(30000).getBytes("UTF-8");
+        final String UPLOAD_ID = "upload-3";
+        final int CUT_OFF = 12000;
+
+        StorableStore entries = resource.getStores().getEntryStore();
+        final TestKey KEY = contentKey(CLIENT_ID, "data/resumable/3");
+
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().putEntry(_uploadRequest(UPLOAD_ID, 0L, DATA.length, calcChecksum(DATA)),
+                response, KEY, new ByteArrayInputStream(DATA, 0, CUT_OFF));
+        assertEquals(503, response.getStatus());
+        assertEquals(String.valueOf(CUT_OFF), response.getHeader(ClusterMateConstants.CUSTOM_HTTP_HEADER_UPLOAD_OFFSET));
+        assertEquals(0, entryCount(entries));
+
+        response = new FakeHttpResponse();
+        resource.getHandler().putEntry(_uploadRequest(UPLOAD_ID, CUT_OFF, DATA.length, calcChecksum(DATA)),
+                response, KEY, new ByteArrayInputStream(DATA, CUT_OFF, DATA.length - CUT_OFF));
+        assertEquals(200, response.getStatus());
+        assertEquals(1, entryCount(entries));
+
+        entries.stop();
+    }
+
+    // Once entry exists, uploads of conflicting content are not created; but
+    // partial content is retained (until it expires), as failure is not due to content
+    public void testConflictRetainsUpload() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"-conflict",
+                timeMaster, true);
+        final byte[] DATA = biggerRandomData(20000).getBytes("UTF-8");
+        final byte[] DATA2 = biggerRandomData(20001).getBytes("UTF-8");
+        final String UPLOAD_ID = "upload-4";
+
+        StorableStore entries = resource.getStores().getEntryStore();
+        final TestKey KEY = contentKey(CLIENT_ID, "data/resumable/4");
+
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().putEntry(_uploadRequest("upload-4a", 0L, DATA.length, calcChecksum(DATA)),
+                response, KEY, new ByteArrayInputStream(DATA));
+        assertEquals(200, response.getStatus());
+
+        response = new FakeHttpResponse();
+        resource.getHandler().putEntry(_uploadRequest(UPLOAD_ID, 0L, DATA2.length, calcChecksum(DATA2)),
+                response, KEY, new ByteArrayInputStream(DATA2));
+        assertEquals(409, response.getStatus());
+        assertEquals(1, entryCount(entries));
+
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntryStats(_uploadRequest(UPLOAD_ID), response, KEY);
+        assertEquals(200, response.getStatus());
+        assertEquals(String.valueOf(DATA2.length), response.getHeader(ClusterMateConstants.HTTP_HEADER_CONTENT_LENGTH));
+
+        entries.stop();
+    }
+
+    public void testBadChecksum() throws Exception
+    {
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(1234L);
+        StoreResource<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"-checksum",
+                timeMaster, true);
+        final byte[] DATA = biggerRandomData(20000).getBytes("UTF-8");
+        final String UPLOAD_ID = "upload-2";
+
+        StorableStore entries = resource.getStores().getEntryStore();
+        final TestKey KEY = contentKey(CLIENT_ID, "data/resumable/2");
+
+        FakeHttpResponse response = new FakeHttpResponse();
+        FakeHttpRequest request = _uploadRequest(UPLOAD_ID, 0L, DATA.length, calcChecksum(DATA) + 1);
+        resource.getHandler().putEntry(request, response, KEY, new ByteArrayInputStream(DATA));
+        assertEquals(400, response.getStatus());
+        assertEquals(0, entryCount(entries));
+
+        // and upload must be restarted from scratch
+        response = new FakeHttpResponse();
+        resource.getHandler().getEntryStats(_uploadRequest(UPLOAD_ID), response, KEY);
+        assertEquals(404, response.getStatus());
+
+        entries.stop();
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    protected FakeHttpRequest _uploadRequest(String uploadId) {
+        return new FakeHttpRequest()
+            .addQueryParam(ClusterMateConstants.QUERY_PARAM_UPLOAD_ID, uploadId);
+    }
+
+    protected FakeHttpRequest _uploadRequest(String uploadId, long offset, long length, int checksum) {
+        return _uploadRequest(uploadId)
+            .addQueryParam(ClusterMateConstants.QUERY_PARAM_UPLOAD_OFFSET, String.valueOf(offset))
+            .addQueryParam(ClusterMateConstants.QUERY_PARAM_UPLOAD_LENGTH, String.valueOf(length))
+            .addQueryParam(ClusterMateConstants.QUERY_PARAM_CHECKSUM, String.valueOf(checksum));
+    }
+
+    /**
+     * Stream that simulates client disconnect after given number of bytes
+     */
+    static class FailingInputStream extends InputStream
+    {
+        protected final InputStream _in;
+
+        public FailingInputStream(byte[] data, int failAfter) {
+            _in = new ByteArrayInputStream(data, 0, failAfter);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = _in.read();
+            if (b < 0) {
+                throw new EOFException("Simulated disconnect");
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = _in.read(b, off, len);
+            if (count < 0) {
+                throw new EOFException("Simulated disconnect");
+            }
+            return count;
+        }
+    }
+}
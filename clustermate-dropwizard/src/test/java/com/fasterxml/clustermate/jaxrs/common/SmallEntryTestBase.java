@@ -138,6 +138,17 @@ public abstract class SmallEntryTestBase extends JaxrsStoreTestBase
             resource.getHandler().getEntry(req, response, INTERNAL_KEY1, stats);
             assertNotNull(stats.getEntry());
             assertEquals(200, response.getStatus());
+
+            // and Conditional HEAD too (used as pre-flight check for PUTs)
+            response = new FakeHttpResponse();
+            resource.getHandler().getEntryStats(new FakeHttpRequest(), response, INTERNAL_KEY1);
+            assertEquals(200, response.getStatus());
+            assertEquals(expEtag, response.getHeader(ClusterMateConstants.HTTP_HEADER_ETAG));
+            response = new FakeHttpResponse();
+            req = new FakeHttpRequest();
+            req.addHeader(ClusterMateConstants.HTTP_HEADER_ETAG_NO_MATCH,  expEtag);
+            resource.getHandler().getEntryStats(req, response, INTERNAL_KEY1);
+            assertEquals(304, response.getStatus());
         } finally {
             // need to also close things after done, to exit test
             entries.stop();
@@ -0,0 +1,135 @@
+package com.fasterxml.clustermate.jaxrs.common;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+
+import org.junit.Assert;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.storemate.store.StorableStore;
+
+import com.fasterxml.clustermate.api.KeySpace;
+import com.fasterxml.clustermate.api.NodeDefinition;
+import com.fasterxml.clustermate.jaxrs.testutil.*;
+import com.fasterxml.clustermate.service.cluster.ClusterPeerImpl;
+import com.fasterxml.clustermate.service.cluster.ClusterViewByServerImpl;
+import com.fasterxml.clustermate.service.state.ActiveNodeState;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.sync.SyncHandler;
+
+/**
+ * Test case(s) to verify that a new node can bootstrap its contents from
+ * a snapshot of a peer, and then continue with incremental syncing from
+ * the point where snapshot ended.
+ */
+public abstract class SnapshotBootstrapTestBase extends JaxrsStoreTestBase
+{
+    final static CustomerId CLIENT_ID = CustomerId.valueOf(1234);
+
+    final static IpAndPort SOURCE_NODE = new IpAndPort("localhost:9999");
+
+    final static IpAndPort TARGET_NODE = new IpAndPort("localhost:9997");
+
+    @Override
+    public void setUp() {
+        initTestLogging();
+    }
+
+    protected abstract String testPrefix();
+
+    @SuppressWarnings("unchecked")
+    public void testBootstrapThenIncrementalSync() throws Exception
+    {
+        final long startTime = 1234L;
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(startTime);
+
+        StoreResourceForTests<TestKey, StoredEntry<TestKey>> source = createResource(testPrefix()+"Source", timeMaster, true);
+        StoreResourceForTests<TestKey, StoredEntry<TestKey>> target = createResource(testPrefix()+"Target", timeMaster, true);
+        ClusterPeerImpl<TestKey, StoredEntry<TestKey>> peer = null;
+
+        try {
+            final TestKey KEY1 = contentKey(CLIENT_ID, "data/entry/1");
+            final TestKey KEY2 = contentKey(CLIENT_ID, "data/entry/2");
+            final TestKey KEY3 = contentKey(CLIENT_ID, "data/entry/3");
+            final byte[] SMALL_DATA = "Some data that we want to store -- small, gets inlined...".getBytes("UTF-8");
+            final byte[] BIG_DATA = biggerCompressibleData(64000).getBytes("UTF-8");
+
+            _put(source, KEY1, SMALL_DATA);
+            _put(source, KEY2, BIG_DATA);
+
+            SyncHandler<TestKey, StoredEntry<TestKey>> sourceSync = new SyncHandler<TestKey, StoredEntry<TestKey>>(source.getStuff(),
+                    source.getStores(), source.getCluster());
+            final long gracePeriod = sourceSync.getSyncGracePeriodMsecs();
+            timeMaster.advanceCurrentTimeMillis(2 * gracePeriod);
+
+            // target sees source as its only peer; calls are routed directly to source's handler
+            ((SharedStuffForTests) target.getStuff()).overridePeerTransport(new LoopbackPeerTransport(sourceSync));
+            KeySpace keyspace = new KeySpace(360);
+            ActiveNodeState targetState = new ActiveNodeState(new NodeDefinition(TARGET_NODE, 2,
+                    keyspace.fullRange(), keyspace.fullRange()), 0L);
+            ActiveNodeState sourceState = new ActiveNodeState(new NodeDefinition(SOURCE_NODE, 1,
+                    keyspace.fullRange(), keyspace.fullRange()), 0L);
+            ClusterViewByServerImpl<TestKey, StoredEntry<TestKey>> cluster
+                = new ClusterViewByServerImpl<TestKey, StoredEntry<TestKey>>(target.getStuff(),
+                    target.getStores(), keyspace, targetState,
+                    Collections.singletonMap(SOURCE_NODE, sourceState), 0L);
+            peer = (ClusterPeerImpl<TestKey, StoredEntry<TestKey>>) cluster.getPeers().get(0);
+
+            // First: bootstrap from snapshot
+            final long snapshotTime = peer.bootstrapFromSnapshot(keyspace.fullRange());
+            assertEquals(timeMaster.currentTimeMillis() - gracePeriod, snapshotTime);
+            assertEquals(snapshotTime, peer.getSyncedUpTo());
+            StorableStore targetEntries = target.getStores().getEntryStore();
+            assertEquals(2, entryCount(targetEntries));
+            _verifyContent(target, KEY1, SMALL_DATA);
+            _verifyContent(target, KEY2, BIG_DATA);
+
+            // then add an entry after snapshot, to be found by incremental sync
+            final long insertTime = timeMaster.currentTimeMillis();
+            _put(source, KEY3, SMALL_DATA);
+            timeMaster.advanceCurrentTimeMillis(2 * gracePeriod);
+
+            peer.startSyncing();
+            final long giveUpAt = System.currentTimeMillis() + 10000L;
+            // wait until sync round that includes new entry has completed
+            while (peer.getSyncedUpTo() < insertTime) {
+                if (System.currentTimeMillis() > giveUpAt) {
+                    fail("Entry added after snapshot not synced; sync state: "+peer.getSyncState());
+                }
+                // let sync thread proceed, if it is sleeping
+                timeMaster.advanceCurrentTimeMillis(Math.max(1L, timeMaster.getMaxSleepTimeNeeded()));
+                Thread.sleep(10L);
+            }
+            assertEquals(3, entryCount(targetEntries));
+            _verifyContent(target, KEY3, SMALL_DATA);
+            assertEquals(0, peer.getFailCount());
+            // only the new entry is pulled; others were copied with snapshot
+            assertEquals(1L, peer.getSyncMetrics().entriesPulled);
+        } finally {
+            if (peer != null) {
+                peer.stop();
+            }
+            source.getStores().stop();
+            target.getStores().stop();
+        }
+    }
+
+    private void _put(StoreResourceForTests<TestKey, StoredEntry<TestKey>> resource,
+            TestKey key, byte[] data) throws Exception
+    {
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().putEntry(new FakeHttpRequest(), response, key,
+                calcChecksum(data), new ByteArrayInputStream(data),
+                null, null, null);
+        assertEquals(200, response.getStatus());
+    }
+
+    private void _verifyContent(StoreResourceForTests<TestKey, StoredEntry<TestKey>> resource,
+            TestKey key, byte[] expData) throws Exception
+    {
+        FakeHttpResponse response = new FakeHttpResponse();
+        resource.getHandler().getEntry(new FakeHttpRequest(), response, key);
+        assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(expData, collectOutput(response));
+    }
+}
@@ -1,17 +1,28 @@
 package com.fasterxml.clustermate.jaxrs.common;
 
 import java.io.ByteArrayInputStream;
+import java.util.Collections;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.fasterxml.storemate.shared.IpAndPort;
 import com.fasterxml.storemate.store.StorableStore;
 import com.fasterxml.storemate.store.util.OperationDiagnostics;
 
 import com.fasterxml.clustermate.api.ClusterMateConstants;
 import com.fasterxml.clustermate.api.ContentType;
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySpace;
+import com.fasterxml.clustermate.api.NodeDefinition;
 import com.fasterxml.clustermate.jaxrs.testutil.*;
+import com.fasterxml.clustermate.service.cluster.ClusterViewByServerImpl;
+import com.fasterxml.clustermate.service.metrics.AllOperationMetrics;
+import com.fasterxml.clustermate.service.metrics.ExternalPeerSyncMetrics;
+import com.fasterxml.clustermate.service.state.ActiveNodeState;
 import com.fasterxml.clustermate.service.store.StoredEntry;
 import com.fasterxml.clustermate.service.sync.SyncHandler;
 import com.fasterxml.clustermate.service.sync.SyncListResponse;
+import com.fasterxml.clustermate.servlet.SyncListServlet;
 
 /**
  * Test case(s) to verify that we can handle basic pull list request
@@ -193,4 +204,53 @@ public abstract class SyncListTestBase extends JaxrsStoreTestBase
             resource.getStores().stop();
         }
     }
+
+    /**
+     * Test to verify that replication metrics of peers are included
+     * in metrics output of sync list servlet.
+     */
+    public void testPeerMetricsOutput() throws Exception
+    {
+        final long creationTime = 1234L;
+        final TimeMasterForSimpleTesting timeMaster = new TimeMasterForSimpleTesting(creationTime);
+
+        StoreResourceForTests<TestKey, StoredEntry<TestKey>> resource = createResource(testPrefix()+"Peers", timeMaster, true);
+
+        try {
+            KeySpace keyspace = new KeySpace(360);
+            ActiveNodeState localState = new ActiveNodeState(new NodeDefinition(new IpAndPort("localhost:9999"), 1,
+                    keyspace.fullRange(), keyspace.fullRange()), 0L);
+            final IpAndPort REMOTE = new IpAndPort("localhost:9998");
+            ActiveNodeState remoteState = new ActiveNodeState(new NodeDefinition(REMOTE, 2,
+                    keyspace.fullRange(), keyspace.fullRange()), 0L)
+                .withSyncedUpTo(1000L);
+            ClusterViewByServerImpl<TestKey, StoredEntry<TestKey>> cluster
+                = new ClusterViewByServerImpl<TestKey, StoredEntry<TestKey>>(resource.getStuff(),
+                    resource.getStores(), keyspace, localState,
+                    Collections.singletonMap(REMOTE, remoteState), 0L);
+            SyncListServlet<TestKey, StoredEntry<TestKey>> servlet
+                = new SyncListServlet<TestKey, StoredEntry<TestKey>>(resource.getStuff(), cluster, null);
+
+            timeMaster.advanceCurrentTimeMillis(2000L);
+            AllOperationMetrics metrics = new AllOperationMetrics();
+            servlet.fillOperationMetrics(metrics);
+            assertNotNull(metrics.PEERS);
+            assertEquals(1, metrics.PEERS.size());
+            ExternalPeerSyncMetrics peer = metrics.PEERS.get(String.valueOf(REMOTE));
+            assertNotNull(peer);
+            assertEquals(1000L, peer.syncedUpTo);
+            // current time is 1234 + 2000
+            assertEquals(2234L, peer.syncLagMsecs);
+            assertEquals(0L, peer.entriesPulled);
+
+            // and verify that it also gets serialized as expected
+            JsonNode json = _mapper.readTree(resource.getStuff().jsonWriter().writeValueAsString(metrics));
+            JsonNode peerJson = json.path("PEERS").path(String.valueOf(REMOTE));
+            assertTrue(peerJson.isObject());
+            assertEquals(2234L, peerJson.path("syncLagMsecs").asLong());
+            assertEquals(1000L, peerJson.path("syncedUpTo").asLong());
+        } finally {
+            resource.getStores().stop();
+        }
+    }
 }
@@ -0,0 +1,143 @@
+package com.fasterxml.clustermate.jaxrs.testutil;
+
+import java.io.*;
+import java.net.URI;
+import java.net.URLDecoder;
+
+import org.skife.config.TimeSpan;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.storemate.store.StoreException;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.ContentType;
+import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+import com.fasterxml.clustermate.service.sync.PeerTransport;
+import com.fasterxml.clustermate.service.sync.SyncHandler;
+
+/**
+ * {@link PeerTransport} used by tests: instead of making HTTP calls,
+ * dispatches sync list, sync pull and snapshot requests directly to
+ * {@link SyncHandler} of the peer node.
+ *<p>
+ * Note that 'caller' parameter is dropped, to prevent peer from
+ * registering (and starting to sync from) the calling node.
+ */
+public class LoopbackPeerTransport extends PeerTransport
+{
+    protected final SyncHandler<?,?> _peerHandler;
+
+    public LoopbackPeerTransport(SyncHandler<?,?> peerHandler) {
+        _peerHandler = peerHandler;
+    }
+
+    @Override
+    public void init(ServiceConfig config) { }
+
+    @Override
+    public void stop() { }
+
+    @Override
+    public Response get(IpAndPort peer, String url, TimeSpan timeout, String accept)
+        throws IOException, InterruptedException
+    {
+        FakeHttpRequest request = _request(url);
+        if (accept != null) {
+            request.addHeader(ClusterMateConstants.HTTP_HEADER_ACCEPT, accept);
+        }
+        FakeHttpResponse response = new FakeHttpResponse();
+        // sync list has its own end point; GET on sync-pull end point is for snapshots
+        if (_path(url).endsWith("/"+PathsForTests.SECOND_SEGMENT_SYNC_LIST)) {
+            String since = request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_SINCE);
+            try {
+                _peerHandler.listEntries(request, response, Long.valueOf(since), null);
+            } catch (StoreException e) {
+                throw new IOException(e);
+            }
+        } else {
+            _peerHandler.snapshotEntries(request, response, null);
+        }
+        return new LoopbackResponse(response);
+    }
+
+    @Override
+    public Response post(IpAndPort peer, String url, TimeSpan timeout,
+            ContentType contentType, byte[] body)
+        throws IOException, InterruptedException
+    {
+        FakeHttpResponse response = new FakeHttpResponse();
+        try {
+            _peerHandler.pullEntries(_request(url), response,
+                    new ByteArrayInputStream(body), null);
+        } catch (StoreException e) {
+            throw new IOException(e);
+        }
+        return new LoopbackResponse(response);
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    protected String _path(String url) {
+        return URI.create(url).getRawPath();
+    }
+
+    protected FakeHttpRequest _request(String url) throws IOException
+    {
+        FakeHttpRequest request = new FakeHttpRequest();
+        String query = URI.create(url).getRawQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int ix = param.indexOf('=');
+                String name = URLDecoder.decode((ix < 0) ? param : param.substring(0, ix), "UTF-8");
+                if (ClusterMateConstants.QUERY_PARAM_CALLER.equals(name)) {
+                    continue;
+                }
+                String value = (ix < 0) ? "" : URLDecoder.decode(param.substring(ix+1), "UTF-8");
+                request.addQueryParam(name, value);
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Response with contents fully materialized from the fake response.
+     */
+    static class LoopbackResponse extends PeerTransport.Response
+    {
+        protected final FakeHttpResponse _response;
+
+        protected final byte[] _content;
+
+        public LoopbackResponse(FakeHttpResponse response) throws IOException {
+            _response = response;
+            _content = response.getContentAsBytes();
+        }
+
+        @Override
+        public int statusCode() { return _response.getStatus(); }
+
+        @Override
+        public String contentType() { return _response.getContentType(); }
+
+        @Override
+        public long contentLength() { return _content.length; }
+
+        @Override
+        public String header(String name) { return _response.getHeader(name); }
+
+        @Override
+        public InputStream body() { return new ByteArrayInputStream(_content); }
+
+        @Override
+        public String excerpt() {
+            return _response.hasEntity() ? String.valueOf(_response.<Object>getEntity()) : "";
+        }
+
+        @Override
+        public void close() { }
+    }
+}
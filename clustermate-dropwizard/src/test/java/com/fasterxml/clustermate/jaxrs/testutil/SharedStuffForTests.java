@@ -5,6 +5,7 @@ import com.fasterxml.clustermate.service.SharedServiceStuff;
 import com.fasterxml.clustermate.service.cfg.ServiceConfig;
 import com.fasterxml.clustermate.service.store.StoredEntry;
 import com.fasterxml.clustermate.service.store.StoredEntryConverter;
+import com.fasterxml.clustermate.service.sync.PeerTransport;
 import com.fasterxml.storemate.shared.TimeMaster;
 import com.fasterxml.storemate.store.StoreConfig;
 import com.fasterxml.storemate.store.file.FileManager;
@@ -58,4 +59,19 @@ public class SharedStuffForTests extends SharedServiceStuff
     public EntryKeyConverter<TestKey> getKeyConverter() {
         return _entryConverter.keyConverter();
     }
+
+    /*
+    /**********************************************************************
+    /* Additional methods for tests
+    /**********************************************************************
+     */
+
+    /**
+     * Method for overriding transport used for calls to peers; needs
+     * to be called before any peers are created.
+     */
+    public SharedStuffForTests overridePeerTransport(PeerTransport transport) {
+        _peerTransport = transport;
+        return this;
+    }
 }
@@ -1,6 +1,7 @@
 package com.fasterxml.clustermate.json;
 
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.clustermate.api.KeySpace;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.core.Version;
@@ -40,6 +41,7 @@ public class ClusterMateTypesModule extends Module
         sers.addSerializer(IpAndPort.class, new IpAndPortSerializer());
         // for KeyRange, only manual serializer; deserializer with mix-ins
         sers.addSerializer(KeyRange.class, new KeyRangeSerializer());
+        sers.addSerializer(KeySlots.class, new KeySlotsSerializer());
         desers.addDeserializer(KeySpace.class, new KeySpaceDeserializer());
         sers.addSerializer(KeySpace.class, new KeySpaceSerializer());
         desers.addDeserializer(StorableKey.class, new StorableKeyDeserializer());
@@ -52,6 +54,7 @@ public class ClusterMateTypesModule extends Module
 
         // Plus mix-ins cover structured types:
         context.setMixInAnnotations(KeyRange.class, KeyRangeMixins.class);
+        context.setMixInAnnotations(KeySlots.class, KeySlotsMixins.class);
     }
 
     /*
@@ -70,4 +73,13 @@ public class ClusterMateTypesModule extends Module
         @JsonCreator
         protected KeyRangeMixins(External ext) { super(ext); }
     }
+
+    /**
+     * Similarly, {@link KeySlots} is deserialized using a delegating creator.
+     */
+    abstract static class KeySlotsMixins
+    {
+        @JsonCreator
+        protected KeySlotsMixins(KeySlots.External ext) { }
+    }
 }
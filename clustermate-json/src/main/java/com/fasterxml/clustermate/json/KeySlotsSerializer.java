@@ -0,0 +1,47 @@
+package com.fasterxml.clustermate.json;
+
+import java.io.IOException;
+
+import com.fasterxml.clustermate.api.KeySlots;
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+
+/**
+ * Serializer for slot sets: written as an Object with key space length
+ * and textual representation of slots.
+ */
+public class KeySlotsSerializer extends StdSerializer<KeySlots>
+{
+    public KeySlotsSerializer() { super(KeySlots.class); }
+
+    @Override
+    public void serialize(KeySlots value, JsonGenerator jgen, SerializerProvider provider)
+        throws IOException, JsonGenerationException
+    {
+        jgen.writeStartObject();
+        _serialize(value, jgen, provider);
+        jgen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(KeySlots value, JsonGenerator jgen,
+            SerializerProvider provider, TypeSerializer typeSer)
+                    throws IOException, JsonProcessingException
+    {
+        typeSer.writeTypePrefixForObject(value, jgen);
+        _serialize(value, jgen, provider);
+        typeSer.writeTypeSuffixForObject(value, jgen);
+    }
+
+    protected void _serialize(KeySlots value, JsonGenerator jgen, SerializerProvider provider)
+        throws IOException, JsonGenerationException
+    {
+        jgen.writeNumberField("keyspace", value.getKeyspace().getLength());
+        jgen.writeStringField("slots", value.toString());
+    }
+}
@@ -1,6 +1,7 @@
 package com.fasterxml.clustermate.json;
 
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.clustermate.api.KeySpace;
 import com.fasterxml.clustermate.json.ClusterMateTypesModule;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -31,4 +32,13 @@ public class TestBasicTypes extends JsonTestBase
         assertEquals(keyspace.range(256, 512),
                 MAPPER.readValue(KEYRANGE_STRING, KeyRange.class));
     }
+
+    public void testKeySlots() throws Exception
+    {
+        KeySpace keyspace = new KeySpace(1024);
+        KeySlots slots = keyspace.slots("0-99,200,1000-1023");
+        String json = MAPPER.writeValueAsString(slots);
+        assertEquals("{\"keyspace\":1024,\"slots\":\"0-99,200,1000-1023\"}", json);
+        assertEquals(slots, MAPPER.readValue(json, KeySlots.class));
+    }
 }
@@ -0,0 +1,125 @@
+package com.fasterxml.clustermate.loadgen;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Container for latency distribution of a single kind of operation,
+ * along with simple success/failure counts. Latencies are recorded in
+ * microseconds, using an HdrHistogram {@link Recorder} so that multiple
+ * client threads can record concurrently without locking.
+ */
+public class LatencyStats
+{
+    /**
+     * Three significant digits is plenty for latency percentiles.
+     */
+    private final static int SIGNIFICANT_DIGITS = 3;
+
+    protected final String _name;
+
+    protected final Recorder _recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    /**
+     * Accumulated histogram, gathered from {@link #_recorder} on
+     * {@link #snapshot()} calls.
+     */
+    protected final Histogram _total = new Histogram(SIGNIFICANT_DIGITS);
+
+    protected final AtomicLong _failures = new AtomicLong();
+
+    /**
+     * Whether recording is enabled; disabled during warm-up.
+     */
+    protected volatile boolean _enabled;
+
+    public LatencyStats(String name) {
+        _name = name;
+    }
+
+    /*
+    /**********************************************************************
+    /* Recording
+    /**********************************************************************
+     */
+
+    public void setEnabled(boolean state) {
+        _enabled = state;
+    }
+
+    public void recordSuccess(long startNanos, long endNanos)
+    {
+        if (_enabled) {
+            _recorder.recordValue(Math.max(0L, (endNanos - startNanos) / 1000L));
+        }
+    }
+
+    public void recordMicros(long micros)
+    {
+        if (_enabled) {
+            _recorder.recordValue(Math.max(0L, micros));
+        }
+    }
+
+    public void recordFailure()
+    {
+        if (_enabled) {
+            _failures.incrementAndGet();
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Access
+    /**********************************************************************
+     */
+
+    public String getName() { return _name; }
+
+    public long getFailureCount() { return _failures.get(); }
+
+    /**
+     * Method for getting a copy of the full histogram of values recorded so far.
+     */
+    public synchronized Histogram snapshot()
+    {
+        _total.add(_recorder.getIntervalHistogram());
+        return _total.copy();
+    }
+
+    /**
+     * Method for printing a single-line summary of latency distribution,
+     * in milliseconds.
+     *
+     * @param elapsedMsecs Length of the measurement period, used for calculating
+     *   throughput
+     */
+    public void writeSummary(PrintStream out, long elapsedMsecs)
+    {
+        Histogram h = snapshot();
+        long count = h.getTotalCount();
+        double secs = Math.max(1L, elapsedMsecs) / 1000.0;
+        out.printf("%-10s count=%d fail=%d rate=%.1f/s mean=%.2f p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f (msecs)%n",
+                _name, count, getFailureCount(), count / secs,
+                h.getMean() / 1000.0,
+                _msecs(h, 50.0), _msecs(h, 90.0), _msecs(h, 99.0), _msecs(h, 99.9),
+                h.getMaxValue() / 1000.0);
+    }
+
+    /**
+     * Method for printing full percentile distribution, in milliseconds,
+     * in the standard HdrHistogram output format.
+     */
+    public void writeDistribution(PrintStream out)
+    {
+        out.printf("Latency distribution for %s (msecs):%n", _name);
+        snapshot().outputPercentileDistribution(out, 1000.0);
+    }
+
+    private static double _msecs(Histogram h, double pct) {
+        return h.getValueAtPercentile(pct) / 1000.0;
+    }
+}
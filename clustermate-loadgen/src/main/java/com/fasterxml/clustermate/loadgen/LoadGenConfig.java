@@ -0,0 +1,139 @@
+package com.fasterxml.clustermate.loadgen;
+
+import java.io.File;
+
+import org.skife.config.TimeSpan;
+
+/**
+ * Configuration settings for {@link LoadGenerator}; simple POJO with
+ * public fields, so that it can be data-bound from JSON or YAML, or
+ * just modified directly from code.
+ */
+public class LoadGenConfig
+{
+    /*
+    /**********************************************************************
+    /* Cluster setup
+    /**********************************************************************
+     */
+
+    /**
+     * Number of service nodes to start on localhost.
+     */
+    public int nodeCount = 3;
+
+    /**
+     * Port for the first node; others use consecutive ports after this one.
+     */
+    public int basePort = 9090;
+
+    /**
+     * Number of copies of each entry to store; used for constructing
+     * key range configuration for the cluster.
+     */
+    public int numberOfCopies = 2;
+
+    /**
+     * Root directory under which data directories for nodes are created;
+     * each node gets its own sub-directory.
+     */
+    public File dataRoot = new File("loadgen-data");
+
+    /**
+     * Whether contents of {@link #dataRoot} should be cleared before
+     * starting nodes.
+     */
+    public boolean cleanDataRoot = true;
+
+    /*
+    /**********************************************************************
+    /* Load settings
+    /**********************************************************************
+     */
+
+    /**
+     * Number of client threads that issue requests concurrently.
+     */
+    public int clientThreads = 8;
+
+    /**
+     * Length of the warm-up period during which requests are made but
+     * latencies are not recorded.
+     */
+    public TimeSpan warmupTime = new TimeSpan("10s");
+
+    /**
+     * Length of the measured run, after warm-up.
+     */
+    public TimeSpan runTime = new TimeSpan("60s");
+
+    /**
+     * Number of distinct keys operations are spread over.
+     */
+    public int keyCount = 10000;
+
+    /**
+     * Size of content to PUT, in bytes.
+     */
+    public int payloadSize = 4000;
+
+    /**
+     * Maximum number of entries to ask for, per LIST call.
+     */
+    public int maxListEntries = 100;
+
+    /*
+    /**********************************************************************
+    /* Operation mix: relative weights
+    /**********************************************************************
+     */
+
+    public int putWeight = 20;
+    public int getWeight = 50;
+    public int headWeight = 15;
+    public int deleteWeight = 5;
+    public int listWeight = 10;
+
+    /*
+    /**********************************************************************
+    /* Sync lag measurement
+    /**********************************************************************
+     */
+
+    /**
+     * One out of this many PUTs is sent to just a single node, after
+     * which other nodes responsible for the key are polled to find out how
+     * long it takes for the entry to be replicated by sync. Zero or negative
+     * value disables sync lag measurement.
+     */
+    public int syncLagSampleRate = 100;
+
+    /**
+     * Delay between HEAD polls when waiting for an entry to be replicated.
+     */
+    public TimeSpan syncLagPollInterval = new TimeSpan("50ms");
+
+    /**
+     * Maximum time to wait for an entry to be replicated before giving up
+     * on it (and counting it as a time out).
+     */
+    public TimeSpan syncLagTimeout = new TimeSpan("60s");
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    public int weightFor(LoadOperation op)
+    {
+        switch (op) {
+        case PUT: return putWeight;
+        case GET: return getWeight;
+        case HEAD: return headWeight;
+        case DELETE: return deleteWeight;
+        case LIST: return listWeight;
+        }
+        throw new IllegalArgumentException("Unrecognized operation: "+op);
+    }
+}
@@ -0,0 +1,470 @@
+package com.fasterxml.clustermate.loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.storemate.shared.StorableKey;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.ListItemType;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.NodesForKey;
+import com.fasterxml.clustermate.client.StoreClient;
+import com.fasterxml.clustermate.client.call.*;
+import com.fasterxml.clustermate.client.operation.*;
+import com.fasterxml.clustermate.dw.DWBasedService;
+import com.fasterxml.clustermate.dw.DWConfigBase;
+import com.fasterxml.clustermate.service.cfg.KeyRangeAllocationStrategy;
+import com.fasterxml.clustermate.service.cfg.NodeConfig;
+import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+
+/**
+ * Base class for load generation harness that starts a local cluster of
+ * {@link DWBasedService} nodes, drives a configurable mix of PUT, GET, HEAD,
+ * DELETE and LIST operations against it using a {@link StoreClient},
+ * and reports per-operation latency distributions as well as
+ * sync replication lag.
+ *<p>
+ * PUT, GET, HEAD and LIST operations are spread over a fixed set of
+ * {@link LoadGenConfig#keyCount} keys. Keys for DELETE operations, and for
+ * PUTs used for measuring sync lag, are only used once (and are separate
+ * from the fixed set), so that deleted entries are never PUT again (which
+ * would fail, as their tombstones are retained), and lag is measured for
+ * new entries.
+ *<p>
+ * Since ClusterMate does not define concrete service or client types,
+ * actual systems (like TransiStore) need to sub-class this and implement
+ * factory methods for constructing their service nodes, configurations,
+ * client and keys.
+ */
+public abstract class LoadGenerator<
+    K extends EntryKey,
+    SCONFIG extends ServiceConfig,
+    CONF extends DWConfigBase<SCONFIG, CONF>
+>
+{
+    protected final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    protected final LoadGenConfig _config;
+
+    protected final EnumMap<LoadOperation, LatencyStats> _stats;
+
+    /**
+     * Separate statistics for single-node PUTs done to measure sync lag,
+     * as they do not follow the usual PUT path.
+     */
+    protected final LatencyStats _syncLagPutStats = new LatencyStats("SYNC-PUT");
+
+    /**
+     * Cumulative weights of operations, used for picking operations
+     * to perform; indexed by {@link LoadOperation#ordinal()}.
+     */
+    protected final int[] _cumulativeWeights;
+
+    protected final byte[] _payload;
+
+    protected final List<LocalServiceNode<SCONFIG,CONF>> _nodes
+        = new ArrayList<LocalServiceNode<SCONFIG,CONF>>();
+
+    protected final AtomicBoolean _stopRequested = new AtomicBoolean(false);
+
+    /**
+     * Counter used for generating keys that are only used once.
+     */
+    protected final AtomicInteger _uniqueKeyCounter = new AtomicInteger(0);
+
+    protected StoreClient<K,?,?> _client;
+
+    protected SyncLagTracker<K> _syncLag;
+
+    protected LoadGenerator(LoadGenConfig config)
+    {
+        _config = config;
+        _stats = new EnumMap<LoadOperation, LatencyStats>(LoadOperation.class);
+        final LoadOperation[] ops = LoadOperation.values();
+        _cumulativeWeights = new int[ops.length];
+        int total = 0;
+        for (LoadOperation op : ops) {
+            _stats.put(op, new LatencyStats(op.name()));
+            total += Math.max(0, config.weightFor(op));
+            _cumulativeWeights[op.ordinal()] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("No operations enabled: all weights are zero");
+        }
+        _payload = new byte[config.payloadSize];
+        new Random(config.payloadSize).nextBytes(_payload);
+    }
+
+    /*
+    /**********************************************************************
+    /* Abstract methods for sub-classes to implement
+    /**********************************************************************
+     */
+
+    /**
+     * Factory method for constructing (but not starting) a service node.
+     *
+     * @param index Zero-based index of the node within local cluster
+     */
+    protected abstract DWBasedService<K,?,SCONFIG,CONF> constructService(int index);
+
+    /**
+     * Factory method for constructing configuration for a service node:
+     * implementation needs to set up store configuration so that all data
+     * is stored under given directory. Cluster configuration and HTTP port
+     * will be overridden by caller.
+     */
+    protected abstract CONF constructServiceConfig(int index, File dataDir);
+
+    /**
+     * Factory method for constructing and initializing client, given set of
+     * server nodes to bootstrap from.
+     */
+    protected abstract StoreClient<K,?,?> constructClient(List<IpAndPort> nodes)
+        throws IOException;
+
+    /**
+     * Method for constructing key for entry with given index; indexes
+     * below {@link LoadGenConfig#keyCount} are used for the fixed set of
+     * keys, indexes at or above it for keys that are used only once.
+     */
+    protected abstract K keyFor(int index);
+
+    /**
+     * Method for constructing key prefix to use for LIST operations; must
+     * match keys returned by {@link #keyFor}.
+     */
+    protected abstract K listPrefix();
+
+    /*
+    /**********************************************************************
+    /* Main entry point
+    /**********************************************************************
+     */
+
+    /**
+     * Method that starts the cluster, runs warm-up and measurement phases,
+     * writes report to given stream, and finally shuts the cluster down.
+     */
+    public void run(PrintStream out) throws Exception
+    {
+        try {
+            startCluster();
+            _client = constructClient(_nodeAddresses());
+            if (_config.syncLagSampleRate > 0) {
+                _syncLag = new SyncLagTracker<K>(_client.getConfig().getCallConfig(),
+                        _config.syncLagPollInterval.getMillis(),
+                        _config.syncLagTimeout.getMillis());
+                _syncLag.start();
+            }
+            long elapsed = runLoad();
+            writeReport(out, elapsed);
+        } finally {
+            if (_syncLag != null) {
+                _syncLag.stop();
+            }
+            if (_client != null) {
+                _client.stop();
+            }
+            stopCluster();
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Cluster management
+    /**********************************************************************
+     */
+
+    public void startCluster() throws Exception
+    {
+        final int count = _config.nodeCount;
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid nodeCount ("+count+"): must be at least 1");
+        }
+        if (_config.cleanDataRoot) {
+            _deleteRecursively(_config.dataRoot);
+        }
+        NodeConfig[] clusterNodes = new NodeConfig[count];
+        for (int i = 0; i < count; ++i) {
+            clusterNodes[i] = new NodeConfig(new IpAndPort("localhost:"+(_config.basePort + i)));
+        }
+        for (int i = 0; i < count; ++i) {
+            File dataDir = new File(_config.dataRoot, "node"+(i+1));
+            if (!dataDir.exists() && !dataDir.mkdirs()) {
+                throw new IOException("Failed to create data directory '"+dataDir.getAbsolutePath()+"'");
+            }
+            CONF conf = constructServiceConfig(i, dataDir);
+            conf.overrideHttpPort(_config.basePort + i);
+            conf.disableRequestLog();
+            SCONFIG sconfig = conf.getServiceConfig();
+            sconfig.cluster.type = KeyRangeAllocationStrategy.SIMPLE_LINEAR;
+            sconfig.cluster.numberOfCopies = _config.numberOfCopies;
+            sconfig.cluster.clusterNodes = clusterNodes;
+
+            LocalServiceNode<SCONFIG,CONF> node = new LocalServiceNode<SCONFIG,CONF>(constructService(i), conf);
+            LOG.info("Starting node #{} at port {}", i+1, node.getPort());
+            node.start();
+            _nodes.add(node);
+        }
+        LOG.info("All {} nodes started", count);
+    }
+
+    public void stopCluster()
+    {
+        // stop in reverse order
+        for (int i = _nodes.size(); --i >= 0; ) {
+            LocalServiceNode<SCONFIG,CONF> node = _nodes.remove(i);
+            try {
+                node.stop();
+            } catch (Exception e) {
+                LOG.warn("Problem stopping node at port {}: {}", node.getPort(), e.getMessage());
+            }
+        }
+    }
+
+    protected List<IpAndPort> _nodeAddresses()
+    {
+        List<IpAndPort> result = new ArrayList<IpAndPort>(_nodes.size());
+        for (LocalServiceNode<?,?> node : _nodes) {
+            result.add(new IpAndPort("localhost:"+node.getPort()));
+        }
+        return result;
+    }
+
+    /*
+    /**********************************************************************
+    /* Load generation
+    /**********************************************************************
+     */
+
+    /**
+     * @return Length of measurement period, in milliseconds
+     */
+    protected long runLoad() throws InterruptedException
+    {
+        final int threadCount = Math.max(1, _config.clientThreads);
+        List<Thread> threads = new ArrayList<Thread>(threadCount);
+        _stopRequested.set(false);
+        for (int i = 0; i < threadCount; ++i) {
+            final long seed = i;
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    _workLoop(new Random(seed));
+                }
+            }, "LoadGenerator-"+i);
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+        LOG.info("Started {} client threads; warming up for {}", threadCount, _config.warmupTime);
+        Thread.sleep(_config.warmupTime.getMillis());
+
+        _setRecording(true);
+        final long start = System.currentTimeMillis();
+        LOG.info("Warm-up complete; measuring for {}", _config.runTime);
+        Thread.sleep(_config.runTime.getMillis());
+        _setRecording(false);
+        final long elapsed = System.currentTimeMillis() - start;
+
+        _stopRequested.set(true);
+        for (Thread t : threads) {
+            t.join();
+        }
+        return elapsed;
+    }
+
+    protected void _setRecording(boolean state)
+    {
+        for (LatencyStats stats : _stats.values()) {
+            stats.setEnabled(state);
+        }
+        _syncLagPutStats.setEnabled(state);
+        if (_syncLag != null) {
+            _syncLag.getLagStats().setEnabled(state);
+        }
+    }
+
+    protected void _workLoop(Random rnd)
+    {
+        int putCount = 0;
+        while (!_stopRequested.get()) {
+            LoadOperation op = _chooseOperation(rnd);
+            final boolean lagProbe = (op == LoadOperation.PUT) && (_syncLag != null)
+                    && (++putCount % _config.syncLagSampleRate) == 0;
+            K key = (lagProbe || op == LoadOperation.DELETE) ? _uniqueKey()
+                    : keyFor(rnd.nextInt(_config.keyCount));
+            LatencyStats stats = lagProbe ? _syncLagPutStats : _stats.get(op);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                switch (op) {
+                case PUT:
+                    ok = lagProbe ? _putForSyncLag(key) : _put(key);
+                    break;
+                case GET:
+                    ok = _client.getContent(null, key, new GetContentProcessorForBytes()).succeeded();
+                    break;
+                case HEAD:
+                    ok = _client.headContent(null, key).succeeded();
+                    break;
+                case DELETE:
+                    // entry to delete needs to be created first; not included in measurements
+                    if (!_put(key)) {
+                        LOG.warn("Failed PUT of entry {} to DELETE", key);
+                        ok = false;
+                        break;
+                    }
+                    start = System.nanoTime();
+                    ok = _client.deleteContent(null, key).succeededMinimally();
+                    break;
+                case LIST:
+                    ok = _list();
+                    break;
+                default:
+                    throw new IllegalStateException("Unrecognized operation: "+op);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                LOG.warn("Failed {} for key {}: {}", op, key, e.getMessage());
+                ok = false;
+            }
+            if (ok) {
+                stats.recordSuccess(start, System.nanoTime());
+            } else {
+                stats.recordFailure();
+            }
+        }
+    }
+
+    /**
+     * Method for constructing a key that has not been used before.
+     */
+    protected K _uniqueKey() {
+        return keyFor(_config.keyCount + _uniqueKeyCounter.getAndIncrement());
+    }
+
+    protected LoadOperation _chooseOperation(Random rnd)
+    {
+        final int[] weights = _cumulativeWeights;
+        int value = rnd.nextInt(weights[weights.length-1]);
+        for (int i = 0; i < weights.length; ++i) {
+            if (value < weights[i]) {
+                return LoadOperation.values()[i];
+            }
+        }
+        // should never get here
+        return LoadOperation.GET;
+    }
+
+    protected boolean _put(K key) throws InterruptedException
+    {
+        PutOperationResult result = _client.putContent(null, key, _payload)
+                .completeOptimally()
+                .finish();
+        return result.succeededMinimally();
+    }
+
+    /**
+     * Variant of PUT in which content is only sent to the primary node for
+     * the key; other responsible nodes are expected to get it via sync,
+     * and this is what {@link SyncLagTracker} measures.
+     */
+    protected boolean _putForSyncLag(K key)
+    {
+        NodesForKey nodes = _client.getCluster().getNodesFor(key);
+        if (nodes.isEmpty()) {
+            return false;
+        }
+        CallConfig callConfig = _client.getConfig().getCallConfig();
+        ClusterServerNode primary = nodes.node(0);
+        long endOfTime = System.currentTimeMillis() + callConfig.getPutCallTimeoutMsecs();
+        CallFailure fail = primary.<K>entryPutter().tryPut(callConfig, null, endOfTime, key,
+                PutContentProviders.forBytes(_payload));
+        if (fail != null) {
+            return false;
+        }
+        List<ClusterServerNode> others = nodes.asList();
+        others.remove(0);
+        _syncLag.track(key, others, System.nanoTime());
+        return true;
+    }
+
+    protected boolean _list() throws InterruptedException
+    {
+        StoreEntryLister<K,StorableKey> lister = _client.listContent(null, listPrefix(), ListItemType.ids);
+        ListOperationResult<StorableKey> result = lister.listMore(_config.maxListEntries);
+        return (result != null) && result.succeeded();
+    }
+
+    /*
+    /**********************************************************************
+    /* Reporting
+    /**********************************************************************
+     */
+
+    public void writeReport(PrintStream out, long elapsedMsecs)
+    {
+        out.printf("=== ClusterMate load test: %d nodes, %d client threads, %.1f seconds ===%n",
+                _config.nodeCount, _config.clientThreads, elapsedMsecs / 1000.0);
+        for (LatencyStats stats : _stats.values()) {
+            stats.writeSummary(out, elapsedMsecs);
+        }
+        if (_syncLag != null) {
+            _syncLagPutStats.writeSummary(out, elapsedMsecs);
+            _syncLag.getLagStats().writeSummary(out, elapsedMsecs);
+            out.printf("Sync lag: %d entries timed out, %d still pending at end of run%n",
+                    _syncLag.getTimeoutCount(), _syncLag.getPendingCount());
+        }
+        out.println();
+        for (LatencyStats stats : _stats.values()) {
+            stats.writeDistribution(out);
+        }
+        if (_syncLag != null) {
+            _syncLagPutStats.writeDistribution(out);
+            _syncLag.getLagStats().writeDistribution(out);
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    public LatencyStats getStats(LoadOperation op) { return _stats.get(op); }
+
+    public LatencyStats getSyncLagPutStats() { return _syncLagPutStats; }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    protected void _deleteRecursively(File f)
+    {
+        if (f.isDirectory()) {
+            File[] children = f.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    _deleteRecursively(child);
+                }
+            }
+        }
+        if (f.exists() && !f.delete()) {
+            LOG.warn("Failed to delete '{}'", f.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.fasterxml.clustermate.loadgen;
+
+/**
+ * Enumeration of client-side operations that load generator can issue.
+ */
+public enum LoadOperation
+{
+    PUT,
+    GET,
+    HEAD,
+    DELETE,
+    LIST
+    ;
+}
@@ -0,0 +1,115 @@
+package com.fasterxml.clustermate.loadgen;
+
+import io.dropwizard.cli.ServerCommand;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+
+import java.util.Collections;
+
+import net.sourceforge.argparse4j.inf.Namespace;
+
+import org.eclipse.jetty.server.Server;
+
+import com.fasterxml.clustermate.dw.DWBasedService;
+import com.fasterxml.clustermate.dw.DWConfigBase;
+import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+
+/**
+ * Helper class for running a single {@link DWBasedService} instance
+ * within current JVM, using given configuration object (instead of
+ * reading one from a file, as standard DropWizard "server" command does).
+ */
+public class LocalServiceNode<
+    SCONFIG extends ServiceConfig,
+    CONF extends DWConfigBase<SCONFIG, CONF>
+>
+{
+    protected final DWBasedService<?,?,SCONFIG,CONF> _service;
+
+    protected final CONF _config;
+
+    protected Server _server;
+
+    public LocalServiceNode(DWBasedService<?,?,SCONFIG,CONF> service, CONF config)
+    {
+        _service = service;
+        _config = config;
+    }
+
+    /*
+    /**********************************************************************
+    /* Life-cycle
+    /**********************************************************************
+     */
+
+    public synchronized void start() throws Exception
+    {
+        if (_server != null) {
+            throw new IllegalStateException("Node at port "+getPort()+" already started");
+        }
+        Bootstrap<CONF> bootstrap = new Bootstrap<CONF>(_service);
+        _service.initialize(bootstrap);
+        Launcher<CONF> launcher = new Launcher<CONF>(_service);
+        launcher.launch(bootstrap, _config);
+        _server = launcher.getServer();
+    }
+
+    public synchronized void stop() throws Exception
+    {
+        Server s = _server;
+        if (s != null) {
+            _server = null;
+            s.stop();
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    public DWBasedService<?,?,SCONFIG,CONF> getService() { return _service; }
+
+    public CONF getConfig() { return _config; }
+
+    public int getPort() { return _config.getApplicationPort(); }
+
+    public synchronized boolean isRunning() { return _server != null; }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Simple sub-class of standard "server" command, needed to get access to
+     * the full start up sequence (bundles, application, Jetty) without going
+     * through command-line parsing and config file reading.
+     */
+    private final static class Launcher<T extends DWConfigBase<?,T>>
+        extends ServerCommand<T>
+    {
+        private Server _server;
+
+        public Launcher(DWBasedService<?,?,?,T> service) {
+            super(service);
+        }
+
+        public void launch(Bootstrap<T> bootstrap, T config) throws Exception {
+            run(bootstrap, new Namespace(Collections.<String,Object>emptyMap()), config);
+        }
+
+        @Override
+        protected void run(Environment environment, Namespace namespace, T config)
+            throws Exception
+        {
+            Server server = config.getServerFactory().build(environment);
+            server.start();
+            _server = server;
+        }
+
+        public Server getServer() { return _server; }
+    }
+}
@@ -0,0 +1,170 @@
+package com.fasterxml.clustermate.loadgen;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.client.ClusterServerNode;
+import com.fasterxml.clustermate.client.call.CallConfig;
+import com.fasterxml.clustermate.client.call.HeadCallResult;
+
+/**
+ * Helper class that measures how long it takes for entries that were
+ * PUT to just a single server node to be replicated (via sync) to all
+ * other nodes responsible for them. Polling is done with HEAD requests
+ * from a single background thread.
+ */
+public class SyncLagTracker<K extends EntryKey>
+{
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    protected final CallConfig _callConfig;
+
+    protected final long _pollIntervalMsecs;
+
+    protected final long _timeoutMsecs;
+
+    /**
+     * Time until replication is complete, measured from completion of PUT
+     * to the first node
+     */
+    protected final LatencyStats _lag = new LatencyStats("SYNC-LAG");
+
+    protected final AtomicLong _timeouts = new AtomicLong();
+
+    protected final ConcurrentLinkedQueue<Probe<K>> _pending = new ConcurrentLinkedQueue<Probe<K>>();
+
+    protected final AtomicBoolean _running = new AtomicBoolean(false);
+
+    protected Thread _thread;
+
+    public SyncLagTracker(CallConfig callConfig, long pollIntervalMsecs, long timeoutMsecs)
+    {
+        _callConfig = callConfig;
+        _pollIntervalMsecs = pollIntervalMsecs;
+        _timeoutMsecs = timeoutMsecs;
+    }
+
+    /*
+    /**********************************************************************
+    /* Life-cycle
+    /**********************************************************************
+     */
+
+    public synchronized void start()
+    {
+        if (!_running.compareAndSet(false, true)) {
+            return;
+        }
+        _thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                _pollLoop();
+            }
+        }, "SyncLagTracker");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    public synchronized void stop()
+    {
+        _running.set(false);
+        if (_thread != null) {
+            _thread.interrupt();
+            _thread = null;
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method called after an entry has been successfully PUT to a subset
+     * of nodes; remaining nodes will be polled until they have the entry too.
+     *
+     * @param putCompleted Time (in nanoseconds) when PUT completed
+     */
+    public void track(K key, Collection<ClusterServerNode> waitFor, long putCompleted)
+    {
+        if (!waitFor.isEmpty()) {
+            _pending.add(new Probe<K>(key, waitFor, putCompleted));
+        }
+    }
+
+    public LatencyStats getLagStats() { return _lag; }
+
+    public long getTimeoutCount() { return _timeouts.get(); }
+
+    public int getPendingCount() { return _pending.size(); }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected void _pollLoop()
+    {
+        final long timeoutNanos = _timeoutMsecs * 1000L * 1000L;
+        while (_running.get()) {
+            Iterator<Probe<K>> it = _pending.iterator();
+            while (it.hasNext()) {
+                Probe<K> probe = it.next();
+                if (_checkProbe(probe)) {
+                    it.remove();
+                    _lag.recordSuccess(probe.putCompleted, System.nanoTime());
+                } else if ((System.nanoTime() - probe.putCompleted) > timeoutNanos) {
+                    it.remove();
+                    _timeouts.incrementAndGet();
+                    _lag.recordFailure();
+                    LOG.warn("Entry {} not replicated to {} node(s) within {} msecs",
+                            probe.key, probe.remaining.size(), _timeoutMsecs);
+                }
+            }
+            try {
+                Thread.sleep(_pollIntervalMsecs);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return True if entry has been replicated to all nodes
+     */
+    protected boolean _checkProbe(Probe<K> probe)
+    {
+        final long endOfTime = System.currentTimeMillis() + _callConfig.getGetCallTimeoutMsecs();
+        Iterator<ClusterServerNode> it = probe.remaining.iterator();
+        while (it.hasNext()) {
+            ClusterServerNode server = it.next();
+            HeadCallResult result = server.<K>entryHeader().tryHead(_callConfig, null,
+                    endOfTime, probe.key);
+            if (result.succeeded() && result.hasContentLength()) {
+                it.remove();
+            }
+        }
+        return probe.remaining.isEmpty();
+    }
+
+    private final static class Probe<K>
+    {
+        public final K key;
+        public final List<ClusterServerNode> remaining;
+        public final long putCompleted;
+
+        public Probe(K key, Collection<ClusterServerNode> nodes, long putCompleted) {
+            this.key = key;
+            remaining = new ArrayList<ClusterServerNode>(nodes);
+            this.putCompleted = putCompleted;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Load generation harness for ClusterMate-based systems: runs a local
+ * multi-node cluster and drives it using {@link com.fasterxml.clustermate.client.StoreClient},
+ * reporting latency distributions. Concrete systems need to sub-class
+ * {@link com.fasterxml.clustermate.loadgen.LoadGenerator} to plug in their
+ * service, client and key types.
+ */
+package com.fasterxml.clustermate.loadgen;
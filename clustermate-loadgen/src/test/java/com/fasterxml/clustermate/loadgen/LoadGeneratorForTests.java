@@ -0,0 +1,88 @@
+package com.fasterxml.clustermate.loadgen;
+
+import java.io.File;
+import java.util.List;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+
+import com.fasterxml.clustermate.client.StoreClient;
+import com.fasterxml.clustermate.client.call.CallConfig;
+import com.fasterxml.clustermate.client.operation.OperationConfig;
+import com.fasterxml.clustermate.client.testutil.FakeKey;
+import com.fasterxml.clustermate.client.testutil.FakeServerNode;
+import com.fasterxml.clustermate.client.testutil.FakeStoreClient;
+import com.fasterxml.clustermate.dw.DWBasedService;
+import com.fasterxml.clustermate.dw.DWConfigBase;
+import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+
+/**
+ * Minimal concrete {@link LoadGenerator}: instead of starting a local cluster
+ * of service nodes (which requires concrete service types that ClusterMate
+ * does not define), drives in-memory {@link FakeServerNode}s.
+ */
+public class LoadGeneratorForTests
+    extends LoadGenerator<FakeKey, ServiceConfig, LoadGeneratorForTests.Conf>
+{
+    protected final FakeServerNode[] _serverNodes;
+
+    public LoadGeneratorForTests(LoadGenConfig config, FakeServerNode... nodes)
+    {
+        super(config);
+        _serverNodes = nodes;
+    }
+
+    /*
+    /**********************************************************************
+    /* Cluster management: nothing to start, fake nodes are always "up"
+    /**********************************************************************
+     */
+
+    @Override
+    public void startCluster() { }
+
+    @Override
+    public void stopCluster() { }
+
+    @Override
+    protected List<IpAndPort> _nodeAddresses() { return null; }
+
+    /*
+    /**********************************************************************
+    /* Factory methods
+    /**********************************************************************
+     */
+
+    @Override
+    protected DWBasedService<FakeKey, ?, ServiceConfig, Conf> constructService(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Conf constructServiceConfig(int index, File dataDir) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected StoreClient<FakeKey, ?, ?> constructClient(List<IpAndPort> nodes) {
+        // all copies on fake nodes, to avoid retrying for more copies than there are nodes
+        final int copies = _serverNodes.length;
+        return new FakeStoreClient(new OperationConfig(new CallConfig(), 1, copies, copies,
+                30000L, 15000L, 20000L, true), _serverNodes);
+    }
+
+    @Override
+    protected FakeKey keyFor(int index) {
+        return new FakeKey("loadgen/"+index);
+    }
+
+    @Override
+    protected FakeKey listPrefix() {
+        return new FakeKey("loadgen/");
+    }
+
+    /**
+     * Service configuration type; never instantiated, since no service
+     * nodes are started.
+     */
+    public abstract static class Conf extends DWConfigBase<ServiceConfig, Conf> { }
+}
@@ -0,0 +1,55 @@
+package com.fasterxml.clustermate.loadgen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.skife.config.TimeSpan;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.clustermate.client.testutil.FakeServerNode;
+
+/**
+ * Smoke test for running load generator against fake server nodes.
+ */
+public class TestLoadGenerator extends TestCase
+{
+    public void testRunWithDeletes() throws Exception
+    {
+        LoadGenConfig config = new LoadGenConfig();
+        config.nodeCount = 1;
+        config.clientThreads = 2;
+        config.warmupTime = new TimeSpan("50ms");
+        config.runTime = new TimeSpan("300ms");
+        config.keyCount = 20;
+        config.payloadSize = 100;
+        // fake nodes do not support listing
+        config.listWeight = 0;
+        // and lots of deletes, to verify they do not affect PUTs
+        config.deleteWeight = 20;
+        config.syncLagSampleRate = 5;
+
+        FakeServerNode node = new FakeServerNode(1);
+        LoadGeneratorForTests gen = new LoadGeneratorForTests(config, node);
+        // pre-populate, to avoid GETs of missing entries that would be retried
+        for (int i = 0; i < config.keyCount; ++i) {
+            node.addEntry(gen.keyFor(i), gen._payload);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        gen.run(new PrintStream(bytes, true, "UTF-8"));
+
+        for (LoadOperation op : new LoadOperation[] {
+                LoadOperation.PUT, LoadOperation.GET, LoadOperation.HEAD, LoadOperation.DELETE }) {
+            LatencyStats stats = gen.getStats(op);
+            assertTrue("No "+op+" operations recorded", stats.snapshot().getTotalCount() > 0);
+            assertEquals("Failed "+op+" operations", 0L, stats.getFailureCount());
+        }
+        // sync lag probes have their own stats
+        assertTrue(gen.getSyncLagPutStats().snapshot().getTotalCount() > 0);
+        assertEquals(0L, gen.getSyncLagPutStats().getFailureCount());
+
+        String report = bytes.toString("UTF-8");
+        assertTrue(report.contains("SYNC-PUT"));
+        assertTrue(report.contains("DELETE"));
+    }
+}
@@ -1,6 +1,10 @@
 package com.fasterxml.clustermate.service;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.*;
@@ -16,8 +20,13 @@ import com.fasterxml.clustermate.api.RequestPathStrategy;
 import com.fasterxml.clustermate.api.msg.ListItem;
 import com.fasterxml.clustermate.json.ClusterMateTypesModule;
 import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+import com.fasterxml.clustermate.service.cfg.SyncThrottleConfig;
 import com.fasterxml.clustermate.service.store.StoredEntry;
 import com.fasterxml.clustermate.service.store.StoredEntryConverter;
+import com.fasterxml.clustermate.service.sync.InFlightPulls;
+import com.fasterxml.clustermate.service.sync.PeerTransport;
+import com.fasterxml.clustermate.service.throttle.ConcurrencyLimiters;
+import com.fasterxml.clustermate.service.throttle.SyncBandwidthLimiter;
 
 /**
  * Since we need to pass lots of shared helper objects this class
@@ -41,6 +50,36 @@ public abstract class SharedServiceStuff
 
     protected final RequestPathStrategy<?> _pathStrategy;
 
+    /**
+     * Per-operation concurrency limiters, shared by all front-end handlers;
+     * lazily constructed
+     */
+    protected ConcurrencyLimiters _concurrencyLimiters;
+
+    /**
+     * Bandwidth limiters for serving and applying sync-pulls, respectively;
+     * lazily constructed
+     */
+    protected SyncBandwidthLimiter _syncPullServeLimiter, _syncPullApplyLimiter;
+
+    /**
+     * Registry of entries being pulled by sync threads, shared by all peers.
+     */
+    protected final InFlightPulls _inFlightPulls = new InFlightPulls();
+
+    /**
+     * Executor used for reading ahead external files when serving sync-pulls;
+     * lazily constructed, and null if read-ahead is disabled.
+     * Shut down by {@link #stopSyncPullReadAhead}; threads are daemon threads
+     * so that they will not block JVM exit even if that is not called.
+     */
+    protected ExecutorService _syncPullReadAheadExecutor;
+
+    /**
+     * Transport used for calls to peer nodes; lazily constructed
+     */
+    protected PeerTransport _peerTransport;
+
     /*
     /**********************************************************************
     /* Construction
@@ -111,6 +150,85 @@ public abstract class SharedServiceStuff
         return _pathStrategy;
     }
 
+    public synchronized ConcurrencyLimiters getConcurrencyLimiters() {
+        if (_concurrencyLimiters == null) {
+            ServiceConfig config = getServiceConfig();
+            _concurrencyLimiters = ConcurrencyLimiters.construct(config.concurrencyLimits);
+        }
+        return _concurrencyLimiters;
+    }
+
+    public synchronized SyncBandwidthLimiter getSyncPullServeLimiter() {
+        if (_syncPullServeLimiter == null) {
+            SyncThrottleConfig config = getServiceConfig().syncThrottle;
+            _syncPullServeLimiter = new SyncBandwidthLimiter(config.servePullBytesPerSecond,
+                    config.servePullEntriesPerSecond,
+                    config.adaptToClientLoad ? getConcurrencyLimiters() : null);
+        }
+        return _syncPullServeLimiter;
+    }
+
+    public synchronized SyncBandwidthLimiter getSyncPullApplyLimiter() {
+        if (_syncPullApplyLimiter == null) {
+            SyncThrottleConfig config = getServiceConfig().syncThrottle;
+            _syncPullApplyLimiter = new SyncBandwidthLimiter(config.applyPullBytesPerSecond,
+                    config.applyPullEntriesPerSecond,
+                    config.adaptToClientLoad ? getConcurrencyLimiters() : null);
+        }
+        return _syncPullApplyLimiter;
+    }
+
+    public InFlightPulls getInFlightPulls() {
+        return _inFlightPulls;
+    }
+
+    public synchronized ExecutorService getSyncPullReadAheadExecutor() {
+        if (_syncPullReadAheadExecutor == null) {
+            int threads = getServiceConfig().cfgSyncPullReadAheadThreads;
+            if (threads > 0) {
+                _syncPullReadAheadExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                    private final AtomicInteger _count = new AtomicInteger(0);
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "SyncPullReadAhead-"+_count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            }
+        }
+        return _syncPullReadAheadExecutor;
+    }
+
+    /**
+     * Method called on shutdown, after components serving sync-pulls
+     * have been stopped: read-aheads already queued are completed,
+     * but new ones are rejected (and skipped by callers).
+     */
+    public synchronized void stopSyncPullReadAhead() {
+        if (_syncPullReadAheadExecutor != null) {
+            _syncPullReadAheadExecutor.shutdown();
+        }
+    }
+
+    public synchronized PeerTransport getPeerTransport() {
+        if (_peerTransport == null) {
+            _peerTransport = getServiceConfig().instantiatePeerTransport();
+        }
+        return _peerTransport;
+    }
+
+    /**
+     * Method called on shutdown, after all components using peer transport
+     * have been stopped.
+     */
+    public synchronized void stopPeerTransport() {
+        if (_peerTransport != null) {
+            _peerTransport.stop();
+        }
+    }
+
     /*
     /**********************************************************************
     /* Data formats
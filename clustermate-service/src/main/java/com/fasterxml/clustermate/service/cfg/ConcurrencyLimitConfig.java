@@ -0,0 +1,52 @@
+package com.fasterxml.clustermate.service.cfg;
+
+/**
+ * Configuration for adaptive per-operation concurrency limits enforced
+ * at the front end (servlet) level: requests that would exceed current
+ * limit are failed fast with 503 ("server overload"), instead of being
+ * queued behind slow requests.
+ *<p>
+ * Limits are adjusted dynamically based on observed request latency:
+ * when short-term latency grows well above long-term average, limit is
+ * reduced; and when latency is stable and limit is being reached, it
+ * is allowed to grow.
+ */
+public class ConcurrencyLimitConfig
+{
+    /**
+     * Whether concurrency limiting is enabled or not. Disabled by default.
+     */
+    public boolean enabled = false;
+
+    /**
+     * Limit to use for each operation type before any latency samples
+     * have been gathered.
+     */
+    public int initialLimit = 50;
+
+    /**
+     * Lowest limit that adaptive calculation may reduce limit to.
+     */
+    public int minLimit = 8;
+
+    /**
+     * Highest limit that adaptive calculation may increase limit to.
+     */
+    public int maxLimit = 500;
+
+    /**
+     * Ratio by which short-term average latency may exceed long-term
+     * average before concurrency limit is reduced.
+     */
+    public double latencyTolerance = 1.5;
+
+    /**
+     * To give client requests priority over synchronization requests,
+     * sync-list and sync-pull requests are rejected if any of client
+     * operation types (GET, HEAD, PUT, DELETE, LIST) has this big portion of
+     * its limit in use.
+     */
+    public double syncYieldRatio = 0.75;
+
+    public ConcurrencyLimitConfig() { }
+}
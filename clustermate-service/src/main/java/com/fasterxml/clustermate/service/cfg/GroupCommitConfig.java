@@ -0,0 +1,33 @@
+package com.fasterxml.clustermate.service.cfg;
+
+import org.skife.config.TimeSpan;
+
+/**
+ * Configuration for group commit of content files of PUTs with durability
+ * level of {@link com.fasterxml.clustermate.api.PutDurability#SYNC_CONTENT}:
+ * if enabled, concurrent requests are collected into batches that are
+ * forced to disk together, so that each directory is only forced once
+ * per batch.
+ */
+public class GroupCommitConfig
+{
+    /**
+     * Whether group commit is enabled or not; disabled by default.
+     */
+    public boolean enabled = false;
+
+    /**
+     * Maximum number of content files to sync in a single batch.
+     */
+    public int maxBatchSize = 32;
+
+    /**
+     * Maximum time to wait for more requests to arrive before syncing
+     * a batch that is not full. Default of zero means that no latency is
+     * added: batches only contain requests that arrived while previous
+     * batch was being synced.
+     */
+    public TimeSpan maxWait = new TimeSpan("0ms");
+
+    public GroupCommitConfig() { }
+}
@@ -56,5 +56,21 @@ public enum KeyRangeAllocationStrategy
      */
     DYNAMIC_WITH_APPEND,
 
+    /**
+     * Configuration setting in which nodes own non-contiguous sets of key
+     * space slots, instead of single ranges. Unless slots are explicitly
+     * defined for a node (see {@link NodeConfig#keySlots}), slots are
+     * interleaved so that each consecutive run of <code>N</code> slots (where
+     * <code>N</code> is number of nodes) is spread over all nodes, each
+     * slot stored on desired number of copies.
+     * This is best used with a bigger key space (thousands of slots), so
+     * that hot spots of key space can be split between nodes at fine
+     * granularity, by moving individual slots.
+     *<p>
+     * No additional node discovery is made, although additional nodes may
+     * join cluster if this is enabled.
+     */
+    VIRTUAL_SLOTS,
+
     ;
 }
@@ -50,6 +50,15 @@ public class NodeConfig
     @Max(Integer.MAX_VALUE)
     public int keyRangeLength = 0;
 
+    /**
+     * Optional explicit set of key space slots this node owns, as comma-separated
+     * list of slots and slot ranges (like "0-99,250,300-310").
+     * Used with {@link KeyRangeAllocationStrategy#VIRTUAL_SLOTS} to override
+     * calculated allocation, and with {@link KeyRangeAllocationStrategy#STATIC}
+     * in place of range settings.
+     */
+    public String keySlots;
+
     // Default ctor used by deserializer when binding from JSON Object
     protected NodeConfig() { }
 
@@ -9,6 +9,8 @@ import org.skife.config.TimeSpan;
 
 import com.fasterxml.clustermate.api.RequestPathStrategy;
 import com.fasterxml.clustermate.service.store.StoredEntryConverter;
+import com.fasterxml.clustermate.service.sync.JdkPeerTransport;
+import com.fasterxml.clustermate.service.sync.PeerTransport;
 import com.fasterxml.storemate.store.StoreConfig;
 import com.fasterxml.storemate.store.backend.StoreBackendBuilder;
 import com.fasterxml.storemate.store.backend.StoreBackendConfig;
@@ -93,6 +95,13 @@ public abstract class ServiceConfig
     @NotNull
     public File metadataDirectory;
 
+    /**
+     * Directory used for storing partial content of resumable uploads;
+     * if not specified, sub-directory "uploads" of {@link #metadataDirectory}
+     * is used.
+     */
+    public File uploadDirectory;
+
     /*
     /**********************************************************************
     /* Storage config: last-access store
@@ -129,11 +138,66 @@ public abstract class ServiceConfig
      */
     public boolean cfgReportDeletedAsEmpty = true;
 
+    /**
+     * Length of time partial content of an interrupted resumable upload is
+     * retained (after last content was received), to allow client to
+     * resume the upload.
+     */
+    public TimeSpan cfgPartialUploadTTL = new TimeSpan("2h");
+
+    /**
+     * Maximum number of resumable uploads that may be pending (that is,
+     * have partial content stored) at any given time; new uploads are
+     * refused (with 503) when limit is reached.
+     */
+    public int cfgMaxPartialUploads = 100;
+
+    /**
+     * Maximum total length of content of pending resumable uploads, as
+     * declared by clients; new uploads are refused (with 503) if they
+     * would exceed this limit.
+     */
+    public long cfgMaxPartialUploadBytes = 10L * 1024L * 1024L * 1024L;
+
+    /**
+     * Settings for group commit of content files of PUTs with durability
+     * level of {@link com.fasterxml.clustermate.api.PutDurability#SYNC_CONTENT}.
+     */
+    public GroupCommitConfig groupCommit = new GroupCommitConfig();
+
+    /**
+     * Maximum length of content of PUTs with durability level of
+     * {@link com.fasterxml.clustermate.api.PutDurability#BUFFERED} that is
+     * buffered in memory; PUTs with longer content are written before
+     * they are acknowledged.
+     */
+    public int cfgMaxBufferedPutLength = 64000;
+
+    /**
+     * Maximum number of PUTs with durability level of
+     * {@link com.fasterxml.clustermate.api.PutDurability#BUFFERED} that
+     * may be waiting to be written; if more are received, they are written
+     * before they are acknowledged.
+     */
+    public int cfgMaxBufferedPuts = 256;
+
     /**
      * DELETE operations may be deferred; and if so, here's configuration
      * for details.
      */
     public DeferredDeleteConfig deletes = new DeferredDeleteConfig();
+
+    /**
+     * Settings for adaptive per-operation concurrency limits, used
+     * for shedding load during overload.
+     */
+    public ConcurrencyLimitConfig concurrencyLimits = new ConcurrencyLimitConfig();
+
+    /**
+     * Settings for bandwidth limits used for serving and applying
+     * sync-pull requests.
+     */
+    public SyncThrottleConfig syncThrottle = new SyncThrottleConfig();
     
     /*
     /**********************************************************************
@@ -224,6 +288,37 @@ public abstract class ServiceConfig
      */
     public int cfgMaxEntriesPerSyncList = 500;
 
+    /**
+     * Number of threads used for reading ahead contents of external files
+     * when serving sync-pull requests, so that disk reads overlap with
+     * writing of preceding entries. If 0, no read-ahead is done.
+     */
+    public int cfgSyncPullReadAheadThreads = 2;
+
+    /**
+     * Whether a node that has never synced with any of its peers (new node,
+     * or one replacing a failed node) should first bootstrap its contents
+     * by streaming a snapshot of its key range from a single peer, before
+     * switching to incremental syncing. If disabled, all content is
+     * synced incrementally, which can take a long time for big data sets.
+     */
+    public boolean cfgBootstrapFromSnapshot = false;
+
+    /**
+     * Maximum number of peers to concurrently copy slots from, when key
+     * ranges are rebalanced. Transfers share bandwidth limits of sync pulls
+     * (see {@link #syncThrottle}).
+     */
+    public int cfgRebalanceTransferThreads = 4;
+
+    /**
+     * Maximum time to wait, when key ranges are rebalanced, for peers to
+     * actively cover slots the local node is to give up. If this time is
+     * exceeded, slots are retained as passive range, and rebalancing has
+     * to be re-tried once more peers are available.
+     */
+    public TimeSpan cfgRebalanceReleaseTimeout = new TimeSpan("1h");
+
     /**
      * What is the maximum amount of time server may keep connection
      * for "Sync List" open before having to return empty result
@@ -237,6 +332,19 @@ public abstract class ServiceConfig
      */
     public TimeSpan cfgSyncMaxLongPollTime = new TimeSpan("3s");
 
+    /**
+     * Implementation of transport used for node-to-node calls (sync lists,
+     * sync pulls, status updates).
+     */
+    public Class<? extends PeerTransport> peerTransportType = JdkPeerTransport.class;
+
+    /**
+     * Maximum number of concurrent connections used for calls to a single
+     * peer node; calls beyond this limit wait for a connection to be
+     * released, so that connections can be reused.
+     */
+    public int cfgPeerConnectionsPerNode = 4;
+
     /*
     /**********************************************************************
     /* Metrics settings
@@ -253,6 +361,13 @@ public abstract class ServiceConfig
      * Root name for metrics properties when reported via JMX.
      */
     public String metricsJmxRoot = "com.fasterxml.clustermate.metrics";
+
+    /**
+     * Setting that determines whether metrics are to be exposed as
+     * MBeans via JMX, under domain {@link #metricsJmxRoot}.
+     * Reporting is started when service is started; disabled by default.
+     */
+    public boolean metricsJmxEnabled = false;
     
     /*
     /**********************************************************************
@@ -328,6 +443,17 @@ public abstract class ServiceConfig
                 StoreBackendBuilder.class);
     }    
     
+    public PeerTransport instantiatePeerTransport()
+    {
+        if (peerTransportType == null) {
+            throw new IllegalStateException("Missing configuration for 'peerTransportType'");
+        }
+        PeerTransport transport = _createInstance(peerTransportType, "peerTransportType",
+                PeerTransport.class);
+        transport.init(this);
+        return transport;
+    }
+
     @SuppressWarnings("unchecked")
     protected <T> T _createInstance(Class<?> implCls, String desc,
             Class<T> baseType)
@@ -0,0 +1,47 @@
+package com.fasterxml.clustermate.service.cfg;
+
+/**
+ * Configuration for bandwidth limits used with node-to-node
+ * synchronization; both for serving sync-pull requests and for
+ * applying pulled entries locally. Limits are mostly useful for
+ * reducing impact of large-scale syncing (like rebuilding a node)
+ * on client requests using same disks.
+ *<p>
+ * For all rate limits, value of 0 (or negative) means "unlimited".
+ */
+public class SyncThrottleConfig
+{
+    /**
+     * Maximum number of payload bytes per second that local node will
+     * send in responses to sync-pull requests, across all peers.
+     */
+    public long servePullBytesPerSecond = 0L;
+
+    /**
+     * Maximum number of entries per second that local node will
+     * send in responses to sync-pull requests, across all peers.
+     */
+    public int servePullEntriesPerSecond = 0;
+
+    /**
+     * Maximum number of payload bytes per second that local node will
+     * store from pulled entries, across all peers it syncs from.
+     */
+    public long applyPullBytesPerSecond = 0L;
+
+    /**
+     * Maximum number of entries per second that local node will
+     * store from pulled entries, across all peers it syncs from.
+     */
+    public int applyPullEntriesPerSecond = 0;
+
+    /**
+     * Whether limits (if any) are to be further reduced based on load
+     * of client requests, as indicated by utilization of concurrency
+     * limits (see {@link ConcurrencyLimitConfig}). Has no effect unless
+     * concurrency limits are enabled.
+     */
+    public boolean adaptToClientLoad = true;
+
+    public SyncThrottleConfig() { }
+}
@@ -11,6 +11,7 @@ import com.fasterxml.storemate.shared.IpAndPort;
 import com.fasterxml.storemate.store.state.NodeStateStore;
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.clustermate.api.KeySpace;
 import com.fasterxml.clustermate.api.NodeDefinition;
 import com.fasterxml.clustermate.service.ServerUtil;
@@ -172,7 +173,8 @@ public class ClusterBootstrapper<K extends EntryKey, E extends StoredEntry<K>>
             // otherwise verify (NOTE: may need to change for dynamic registration)
             if (copies0 > nodeCount) { 
                 // actually, let's simply truncate
-                if (strategy == KeyRangeAllocationStrategy.SIMPLE_LINEAR) {
+                if (strategy == KeyRangeAllocationStrategy.SIMPLE_LINEAR
+                        || strategy == KeyRangeAllocationStrategy.VIRTUAL_SLOTS) {
                     copies = nodeCount;
                     LOG.warn("Number of copies set to "+copies0+": but with "+copies+" nodes need to truncate to that value");
                 } else {
@@ -182,7 +184,8 @@ public class ClusterBootstrapper<K extends EntryKey, E extends StoredEntry<K>>
                 // Ok for STATIC, but not for others
                 if (strategy == KeyRangeAllocationStrategy.STATIC) {
                     copies = copies0; // fine, whatever
-                } else if (copies0 < 0 && strategy == KeyRangeAllocationStrategy.SIMPLE_LINEAR) {
+                } else if (copies0 < 0 && (strategy == KeyRangeAllocationStrategy.SIMPLE_LINEAR
+                        || strategy == KeyRangeAllocationStrategy.VIRTUAL_SLOTS)) {
                     copies = nodes.length;
                     LOG.info("Number of copies set to "+copies0+": taken to mean 'maximum', in this case "+copies);
                 } else {
@@ -204,9 +207,14 @@ public class ClusterBootstrapper<K extends EntryKey, E extends StoredEntry<K>>
             }
             // Range definitions depend on strategy; static or somewhat dynamic...
             KeyRange range;
+            KeySlots slots;
             
             switch (strategy) {
             case STATIC:
+                if (node.keySlots != null) {
+                    defs.add(new NodeDefinition(ip, index, _parseSlots(node, index)));
+                    continue;
+                }
                 if (node.keyRangeStart == 0 && node.keyRangeLength == 0) {
                     throw new IllegalStateException("Missing 'keyRangeStart' and/or 'keyRangeLength' for node "
                             +index+" (out of "+end+"), when using STATIC cluster type");
@@ -221,6 +229,18 @@ public class ClusterBootstrapper<K extends EntryKey, E extends StoredEntry<K>>
                             +" nodes), keyspace="+_keyspace+", "+copies+" copies");
                 }
                 break;
+            case VIRTUAL_SLOTS:
+                if (node.keySlots != null) {
+                    slots = _parseSlots(node, index);
+                } else {
+                    slots = _keyspace.calcInterleavedSlots(i, nodeCount, copies);
+                }
+                if (slots.empty()) {
+                    throw new IllegalStateException("No slots allocated for node "+index+" (of "+nodeCount
+                            +" nodes), keyspace="+_keyspace+", "+copies+" copies");
+                }
+                defs.add(new NodeDefinition(ip, index, slots));
+                continue;
             case DYNAMIC_WITH_APPEND: // not (yet!) supported
             default:
                 throw new IllegalStateException("Unsupported (as-of-yet) cluster type: "+strategy);
@@ -231,6 +251,15 @@ public class ClusterBootstrapper<K extends EntryKey, E extends StoredEntry<K>>
         return defs;
     }
     
+    private KeySlots _parseSlots(NodeConfig node, int index)
+    {
+        try {
+            return _keyspace.slots(node.keySlots);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid 'keySlots' for node "+index+": "+e.getMessage());
+        }
+    }
+
     /**
      * Helper method that takes both configured node definitions and persisted
      * node states, to create active node definitions and update persisted
@@ -327,7 +356,7 @@ public class ClusterBootstrapper<K extends EntryKey, E extends StoredEntry<K>>
     {
         // The main thing is to see if sync range has changed...
         final KeyRange oldSyncRange = remoteNode.getRangeSync();
-        KeyRange newSyncRange = localNode.totalRange().intersection(remoteNode.totalRange());
+        KeyRange newSyncRange = localNode.calcSyncRange(remoteNode);
         
         if (newSyncRange.equals(remoteNode.getRangeSync())) {
             LOG.info("Sync range between local and {} unchanged: {}"
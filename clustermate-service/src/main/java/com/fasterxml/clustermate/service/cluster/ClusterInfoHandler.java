@@ -49,6 +49,10 @@ public class ClusterInfoHandler
     public <RESP extends ServiceResponse> RESP handlePost(ServiceRequest request, RESP response,
             OperationDiagnostics metadata)
     {
+        // Rebalancing requests come from operators, not peers; handle separately
+        if (ClusterMateConstants.STATE_REBALANCE.equals(request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_STATE))) {
+            return handleRebalance(request, response, metadata);
+        }
         // First things first: need to have a caller
         IpAndPort caller = getCallerQueryParam(request);
         if (caller == null) {
@@ -100,6 +104,40 @@ public class ClusterInfoHandler
         return (RESP) response.ok();
     }
 
+    /**
+     * Handler for requests to rebalance key range of this node: either to
+     * range specified with key range parameters, or, if none specified, to
+     * range calculated from current cluster membership.
+     */
+    @SuppressWarnings("unchecked")
+    public <RESP extends ServiceResponse> RESP handleRebalance(ServiceRequest request, RESP response,
+            OperationDiagnostics metadata)
+    {
+        KeyRange range = null;
+        Integer keyRangeStart = _findIntParam(request, ClusterMateConstants.QUERY_PARAM_KEYRANGE_START);
+        if (keyRangeStart != null) {
+            Integer keyRangeLength = _findIntParam(request, ClusterMateConstants.QUERY_PARAM_KEYRANGE_LENGTH);
+            if (keyRangeLength == null) {
+                return (RESP) badRequest(response, "Missing '"+ClusterMateConstants.QUERY_PARAM_KEYRANGE_LENGTH+"'");
+            }
+            try {
+                range = _cluster.getKeySpace().range(keyRangeStart, keyRangeLength);
+            } catch (Exception e) {
+                return (RESP) badRequest(response, "Invalid key-range definition (start '%s', end '%s'): %s",
+                        keyRangeStart, keyRangeLength, e.getMessage());
+            }
+        }
+        try {
+            _cluster.rebalance(range);
+        } catch (IllegalStateException e) {
+            return (RESP) badRequest(response, "Can not rebalance: %s", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return (RESP) badRequest(response, "Can not rebalance: %s", e.getMessage());
+        }
+        return (RESP) response.ok(new StreamingEntityImpl(_writer, _cluster.asMessage()))
+                .setContentTypeJson();
+    }
+
     /*
     /**********************************************************************
     /* Helper methods, error responses
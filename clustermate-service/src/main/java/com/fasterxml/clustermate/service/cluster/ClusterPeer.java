@@ -1,6 +1,7 @@
 package com.fasterxml.clustermate.service.cluster;
 
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.service.metrics.ExternalPeerSyncMetrics;
 import com.fasterxml.storemate.shared.IpAndPort;
 
 /**
@@ -21,6 +22,12 @@ public abstract class ClusterPeer
 
     public abstract long getSyncedUpTo();
 
+    /**
+     * Accessor for getting snapshot of replication metrics (lag, throughput,
+     * problems) for syncing from this peer.
+     */
+    public abstract ExternalPeerSyncMetrics getSyncMetrics();
+
     /*
     /**********************************************************************
     /* Public API
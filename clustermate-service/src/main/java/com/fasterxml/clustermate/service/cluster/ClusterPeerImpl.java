@@ -2,11 +2,13 @@ package com.fasterxml.clustermate.service.cluster;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.skife.config.TimeSpan;
 import org.slf4j.Logger;
@@ -19,10 +21,14 @@ import com.fasterxml.storemate.store.state.NodeStateStore;
 import com.fasterxml.storemate.store.util.BoundedInputStream;
 import com.fasterxml.clustermate.api.*;
 import com.fasterxml.clustermate.service.SharedServiceStuff;
+import com.fasterxml.clustermate.service.metrics.ExternalPeerSyncMetrics;
+import com.fasterxml.clustermate.service.metrics.PeerSyncMetrics;
 import com.fasterxml.clustermate.service.state.ActiveNodeState;
 import com.fasterxml.clustermate.service.store.StoredEntry;
 import com.fasterxml.clustermate.service.store.StoredEntryConverter;
 import com.fasterxml.clustermate.service.sync.*;
+import com.fasterxml.clustermate.service.throttle.SyncBandwidthLimiter;
+import com.fasterxml.clustermate.service.throttle.ThrottledInputStream;
 import com.fasterxml.clustermate.service.util.StoreUtil;
 
 public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
@@ -49,6 +55,13 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
     // no real hurry; use 20 seconds to account for GC, congestion etc
     private final static TimeSpan TIMEOUT_FOR_SYNCLIST = new TimeSpan(10L, TimeUnit.SECONDS);
 
+    /**
+     * Range snapshots are streamed as one long response; but server
+     * may have to skip through sizable number of out-of-range entries
+     * between writes, so use more generous read timeout.
+     */
+    private final static TimeSpan TIMEOUT_FOR_SNAPSHOT = new TimeSpan(60L, TimeUnit.SECONDS);
+
     /**
      * Lowish timeout for "bye bye" message, so it won't block shutdown
      */
@@ -76,6 +89,13 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
      */
     private final int MAX_FETCH_TRIES = 20;
 
+    /**
+     * Maximum time to wait for sync threads of other peers to complete
+     * pulls of entries we also need, before giving up and letting a later
+     * sync round retry.
+     */
+    private final static long MAX_WAIT_FOR_OTHER_PULLS_MSECS = 30000L;
+
     private final static Logger LOG = LoggerFactory.getLogger(ClusterPeer.class);
     
     /*
@@ -151,6 +171,18 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
      */
     protected final SyncListAccessor _syncListAccessor;
 
+    /**
+     * Limiter for bandwidth used for storing pulled entries; shared
+     * by all peers.
+     */
+    protected final SyncBandwidthLimiter _pullThrottle;
+
+    /**
+     * Registry of entries being pulled, shared by all peers; used to avoid
+     * pulling the same entry from multiple peers concurrently.
+     */
+    protected final InFlightPulls _inFlight;
+
     /**
      * Persistent data store in which we store information regarding
      * synchronization.
@@ -163,6 +195,11 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
      * on list response if hash differs.
      */
     protected long _lastClusterHash;
+
+    /**
+     * Replication metrics for syncing from this peer
+     */
+    protected final PeerSyncMetrics _syncMetrics = new PeerSyncMetrics();
     
     /*
     /**********************************************************************
@@ -171,9 +208,23 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
      */
 
     /**
-     * Synchronization state of this peer
+     * Synchronization state of this peer; replaced both by the sync thread
+     * and by threads handling key range changes, so all replacements must
+     * be done while holding {@link #_syncStateLock}.
+     */
+    protected volatile ActiveNodeState _syncState;
+
+    /**
+     * Lock used for guarding all updates to {@link #_syncState}.
      */
-    protected ActiveNodeState _syncState;
+    protected final Object _syncStateLock = new Object();
+
+    /**
+     * Counter incremented whenever sync range is recalculated; used by the
+     * sync thread to detect range changes that occur while it is processing
+     * a sync list, as the list does not cover slots newly shared since.
+     */
+    protected int _syncRangeVersion;
     
     /*
     /**********************************************************************
@@ -196,6 +247,8 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
         _timeMaster = stuff.getTimeMaster();
         _entryConverter = stuff.getEntryConverter();
         _statusAccessor = accessor;
+        _pullThrottle = stuff.getSyncPullApplyLimiter();
+        _inFlight = stuff.getInFlightPulls();
     }
 
     @Override
@@ -293,6 +346,12 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
         return _syncState.getSyncedUpTo();
     }
 
+    @Override
+    public ExternalPeerSyncMetrics getSyncMetrics() {
+        return _syncMetrics.externalize(_timeMaster.currentTimeMillis(),
+                _syncState.getSyncedUpTo(), _failCount.get());
+    }
+
     /*
     /**********************************************************************
     /* Public API
@@ -418,14 +477,21 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
          */
         
         long listTime = _timeMaster.currentTimeMillis();
+        final long listStartNanos = System.nanoTime();
+        final int rangeVersion;
+        synchronized (_syncStateLock) {
+            rangeVersion = _syncRangeVersion;
+        }
         SyncListResponse<?> syncResp = _fetchSyncList();
         if (!_running.get()) { // short-circuit during shutdown
             return;
         }
         if (syncResp == null) { // only for hard errors
+            _syncMetrics.setSleepMsecs(SLEEP_FOR_SYNCLIST_ERRORS_MSECS);
             _timeMaster.sleep(SLEEP_FOR_SYNCLIST_ERRORS_MSECS);
             return;
         }
+        _syncMetrics.syncListCompleted(System.nanoTime() - listStartNanos);
 
         // First things first:
         if (syncResp.clusterStatus != null) {
@@ -452,11 +518,10 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
 //long diff = (listTime - syncResp.lastSeen()) >> 10; // in seconds
 //LOG.warn("Received syncList with {} responses; last timestamp {} secs ago", syncResp.size(), diff);
         
-        List<SyncListResponseEntry> newEntries = syncResp.entries;
-        int insertedEntryCount = newEntries.size();
+        int insertedEntryCount = syncResp.size();
         if (insertedEntryCount == 0) { // nothing to update
             // may still need to update timestamp?
-            _updatePersistentState(listTime, lastSeenTimestamp);
+            _updatePersistentState(rangeVersion, listTime, lastSeenTimestamp);
 
             // Ok: maybe server instructed us as to how long to sleep?
             long sleepMsecs = syncResp.clientWait;
@@ -464,15 +529,25 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
                 sleepMsecs = SLEEP_FOR_EMPTY_SYNCLIST_MSECS;
             }
 //            long timeSpent = _timeMaster.currentTimeMillis() - listTime;
+            _syncMetrics.setSleepMsecs(sleepMsecs);
             _timeMaster.sleep(sleepMsecs);
             return;
         }
         // Ok, we got something, good.
-        // First: handle tombstones we may be getting:
-        @SuppressWarnings("unused")
-        int tombstoneCount = _handleTombstones(newEntries);
-        // then filter out entries that we already have:
-        _filterSeen(newEntries);
+        List<SyncListResponseEntry> newEntries;
+        if (syncResp.encodedEntries() != null) {
+            // binary lists are filtered while decoding, to only materialize entries to fetch
+            newEntries = _filterEncoded(syncResp.encodedEntries());
+        } else {
+            newEntries = syncResp.entries;
+            // With non-contiguous ownership, sync range may contain slots we do not share
+            _filterNotShared(newEntries);
+            // First: handle tombstones we may be getting:
+            @SuppressWarnings("unused")
+            int tombstoneCount = _handleTombstones(newEntries);
+            // then filter out entries that we already have:
+            _filterSeen(newEntries);
+        }
         if (!_running.get()) { // short-circuit during shutdown
             return;
         }
@@ -484,23 +559,40 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
                     new Object[] { insertedEntryCount, syncResp.lastSeen(), String.format("%.1f", msecs/1000.0)});
             }
             */
-            _updatePersistentState(listTime, lastSeenTimestamp);
+            _updatePersistentState(rangeVersion, listTime, lastSeenTimestamp);
         } else { // yes: need to do batch updates
             // but can at least update syncUpTo to first entry, right?
             int newCount = newEntries.size();
+            final long lastListed = newEntries.get(newCount-1).insertionTime;
             AtomicInteger rounds = new AtomicInteger(0);
-            long lastProcessed = _fetchMissing(newEntries, rounds);
-            int fetched = newCount - newEntries.size();
+            // entries other peers' sync threads are already pulling are deferred
+            List<StorableKey> claimed = new ArrayList<StorableKey>(newCount);
+            List<SyncListResponseEntry> deferred = _claimPulls(newEntries, claimed);
+            long lastProcessed = 0L;
+            try {
+                if (!newEntries.isEmpty()) {
+                    lastProcessed = _fetchMissing(newEntries, rounds);
+                }
+            } finally {
+                _releasePulls(claimed);
+            }
+            if (!deferred.isEmpty()) {
+                _syncMetrics.pullsDeferred(deferred.size());
+                _fetchDeferred(deferred, rounds);
+                lastProcessed = _resolvedUpTo(newEntries, deferred, lastListed);
+            }
+            int fetched = newCount - newEntries.size() - deferred.size();
 
             double secs = (_timeMaster.currentTimeMillis() - listTime) / 1000.0;
             String timeDesc = String.format("%.2f", secs);
             LOG.info("Fetched {}/{} missing entries from {} in {} seconds ({} rounds)",
                     new Object[] { fetched, newCount, getAddress(), timeDesc, rounds.get()});
-            _updatePersistentState(listTime, lastProcessed);
+            _updatePersistentState(rangeVersion, listTime, lastProcessed);
         }
         // And then sleep a bit, before doing next round of syncing
         long msecsBehind = (_timeMaster.currentTimeMillis() - _syncState.getSyncedUpTo());
         long delay = _calculateSleepBetweenSync(insertedEntryCount, msecsBehind);
+        _syncMetrics.setSleepMsecs(delay);
         
         if (delay > 0L) {
             // only bother informing if above 50 msec sleep
@@ -513,6 +605,102 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
         }
     }
 
+    /**
+     * Method called to bootstrap contents of the local node by streaming
+     * a snapshot of all entries within given key range from this peer.
+     * Must be called before sync thread for this peer is started.
+     *
+     * @return Timestamp from which incremental syncing is to continue,
+     *   if bootstrapping succeeded; 0L if it failed
+     */
+    public long bootstrapFromSnapshot(KeyRange range) throws InterruptedException
+    {
+        final long startTime = _timeMaster.currentTimeMillis();
+        long snapshotTime = transferRange(range);
+        if (snapshotTime > 0L) {
+            _updatePersistentState(startTime, snapshotTime);
+        }
+        return snapshotTime;
+    }
+
+    /**
+     * Method called to copy all entries within given key range from this
+     * peer, by streaming a snapshot; used both for bootstrapping and for
+     * transferring slots that move to the local node during rebalancing.
+     * Unlike {@link #bootstrapFromSnapshot}, does not update sync state.
+     *
+     * @return Timestamp of the snapshot, if copying succeeded; 0L if it failed
+     */
+    public long transferRange(KeyRange range) throws InterruptedException
+    {
+        final long startTime = _timeMaster.currentTimeMillis();
+        AtomicLong snapshotTime = new AtomicLong(0L);
+        InputStream in = _syncListAccessor.readSyncSnapshot(_cluster, range,
+                TIMEOUT_FOR_SNAPSHOT, getAddress(), snapshotTime);
+        if (in == null) {
+            return 0L;
+        }
+        final PullProblems probs = new PullProblems();
+        int count = 0;
+        long bytes = 0L;
+        try {
+            while (true) {
+                int headerLength = SyncPullResponse.readHeaderLength(in);
+                if (headerLength == SyncHandler.LENGTH_EOF) {
+                    break;
+                }
+                if (headerLength == SyncHandler.LENGTH_ERROR) {
+                    throw new IOException("Server failed to return rest of entries");
+                }
+                if (headerLength == 0) {
+                    ++probs.missing;
+                    continue;
+                }
+                byte[] headerBytes = new byte[headerLength];
+                int len = IOUtil.readFully(in, headerBytes);
+                if (len < headerLength) {
+                    throw new IOException("Unexpected end-of-input: got "+len+" bytes; needed "+headerLength);
+                }
+                SyncPullEntry header = _syncListAccessor.decodePullEntry(headerBytes);
+                // content bytes are throttled while copying
+                _pullThrottle.throttle(1, 0L);
+                /* Insertion time is needed for resolving conflicts with entries
+                 * we already have; snapshots include it, but if missing, creation
+                 * time is the closest approximation
+                 */
+                long insertionTime = (header.insertionTime > 0L) ? header.insertionTime : header.creationTime;
+                _pullEntry(insertionTime, header, in, probs);
+                ++count;
+                if (header.storageSize > 0L) {
+                    bytes += header.storageSize;
+                }
+                if ((count % 10000) == 0) {
+                    LOG.info("Copying range {} from {}: {} entries ({} bytes) copied so far",
+                            new Object[] { range, getAddress(), count, bytes });
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to copy range {} from {}, after {} entries: ({}) {}",
+                    new Object[] { range, getAddress(), count, e.getClass().getName(), e.getMessage() });
+            return 0L;
+        } finally {
+            try { in.close(); } catch (Exception e) { }
+        }
+        double secs = (_timeMaster.currentTimeMillis() - startTime) / 1000.0;
+        LOG.info("Copied range {} from {}: {} entries ({} bytes) in {} seconds; problems: {}",
+                new Object[] { range, getAddress(), count, bytes, String.format("%.1f", secs), probs });
+        return snapshotTime.get();
+    }
+
+    /**
+     * Method called to indicate that content from this peer is known to be
+     * synced up to given timestamp, usually after bootstrapping from another
+     * peer. Must be called before sync thread for this peer is started.
+     */
+    public void markSyncedUpTo(long timestamp) {
+        _updatePersistentState(_timeMaster.currentTimeMillis(), timestamp);
+    }
+
     /**
      * Method called when there is no key range overlap, and at most we want to
      * synchronize cluster view occasionally.
@@ -537,48 +725,120 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
      */
     public void markDisabled(long timestamp, boolean isDisabled)
     {
-        if (timestamp <= 0L) { // optional
-            timestamp = _syncState.getDisabledUpdated();
-        }
-        ActiveNodeState state = _syncState.withDisabled(timestamp, isDisabled);
-        if (state != _syncState) {
-            _syncState = state;
-            try {
-                _stateStore.upsertEntry(state.getAddress(), state);
-            } catch (Exception e) {
-                LOG.error("Failed to update node state (disabled to {}) for {}. Problem ({}): {}",
-                        isDisabled, _syncState, e.getClass().getName(), e.getMessage());
+        synchronized (_syncStateLock) {
+            if (timestamp <= 0L) { // optional
+                timestamp = _syncState.getDisabledUpdated();
+            }
+            ActiveNodeState state = _syncState.withDisabled(timestamp, isDisabled);
+            if (state != _syncState) {
+                _syncState = state;
+                try {
+                    _stateStore.upsertEntry(state.getAddress(), state);
+                } catch (Exception e) {
+                    LOG.error("Failed to update node state (disabled to {}) for {}. Problem ({}): {}",
+                            isDisabled, state, e.getClass().getName(), e.getMessage());
+                }
             }
         }
     }
     
+    /**
+     * Method called when key ranges of the local node have changed, to
+     * recalculate range to sync with this peer.
+     *
+     * @param copiedUpTo If non-zero, timestamp up to which entries in
+     *    any newly shared slots have been copied by other means (range
+     *    transfer); if zero, syncing of an expanded range restarts from
+     *    the beginning
+     */
+    public void localRangesChanged(ActiveNodeState localState, long copiedUpTo)
+    {
+        synchronized (_syncStateLock) {
+            _updateSyncRange(_syncState.withSyncRange(localState), copiedUpTo);
+        }
+    }
+
+    /**
+     * Method called when we receive more recent information on key ranges
+     * of this peer, usually due to rebalancing.
+     */
+    public void remoteRangesChanged(ActiveNodeState localState, NodeState remoteState)
+    {
+        synchronized (_syncStateLock) {
+            ActiveNodeState state = _syncState.withOwnershipOf(remoteState);
+            _updateSyncRange(state.withSyncRange(localState), 0L);
+        }
+    }
+
+    // NOTE: must be called while holding _syncStateLock
+    private void _updateSyncRange(ActiveNodeState state, long copiedUpTo)
+    {
+        final ActiveNodeState orig = _syncState;
+        // expanded range gets reset to 0L; may not need to go that far back
+        if (state.getSyncedUpTo() == 0L && orig.getSyncedUpTo() > 0L && copiedUpTo > 0L) {
+            state = state.withSyncedUpTo(Math.min(orig.getSyncedUpTo(), copiedUpTo));
+        }
+        if (!state.getRangeSync().equals(orig.getRangeSync())) {
+            LOG.info("Sync range with {} changed from {} to {}; synced up to {}",
+                    new Object[] { getAddress(), orig.getRangeSync(), state.getRangeSync(),
+                    state.getSyncedUpTo() });
+        }
+        _syncState = state;
+        ++_syncRangeVersion;
+        try {
+            _stateStore.upsertEntry(state.getAddress(), state);
+        } catch (Exception e) {
+            LOG.error("Failed to update node state for {}. Problem ({}): {}",
+                    state, e.getClass().getName(), e.getMessage());
+        }
+    }
+
     /*
     /**********************************************************************
     /* Internal methods, other
     /**********************************************************************
      */
     
+    /**
+     * Helper method called to update persistent state, when sync range
+     * can not have changed concurrently.
+     */
+    private void _updatePersistentState(long syncStartTime, long lastSeen)
+    {
+        synchronized (_syncStateLock) {
+            _updatePersistentState(_syncRangeVersion, syncStartTime, lastSeen);
+        }
+    }
+
     /**
      * Helper method called to update persistent state, based on sync list
      * information.
      * 
+     * @param rangeVersion Value of {@link #_syncRangeVersion} before sync list
+     *   was fetched: if sync range has changed since, 'syncedUpTo' is not
+     *   advanced, as the list did not cover any newly shared slots
      * @param syncStartTime Timestamp of when sync attempt was done
      * @param lastSeen
      */
-    private void _updatePersistentState(long syncStartTime, long lastSeen)
+    private void _updatePersistentState(int rangeVersion, long syncStartTime, long lastSeen)
     {
-        ActiveNodeState orig = _syncState;
-        _syncState = _syncState.withLastSyncAttempt(syncStartTime);
-        if (lastSeen > _syncState.getSyncedUpTo()) {
-            _syncState = _syncState.withSyncedUpTo(lastSeen);
-        }
-        if (_syncState != orig) {
-//LOG.warn("Saving sync state ({}) (args: {}, {}): lastStartTime {}, lastSeen {}", orig.address, syncStartTime, lastSeen, _syncState.lastSyncAttempt, _syncState.syncedUpTo);
-            try {
-                _stateStore.upsertEntry(_syncState.getAddress(), _syncState);
-            } catch (Exception e) {
-                LOG.error("Failed to update node state for {}. Problem ({}): {}",
-                        _syncState, e.getClass().getName(), e.getMessage());
+        synchronized (_syncStateLock) {
+            final ActiveNodeState orig = _syncState;
+            ActiveNodeState state = orig.withLastSyncAttempt(syncStartTime);
+            if (rangeVersion != _syncRangeVersion) {
+                LOG.info("Sync range with {} changed during sync; will not advance synced-up-to timestamp past {}",
+                        getAddress(), state.getSyncedUpTo());
+            } else if (lastSeen > state.getSyncedUpTo()) {
+                state = state.withSyncedUpTo(lastSeen);
+            }
+            if (state != orig) {
+                _syncState = state;
+                try {
+                    _stateStore.upsertEntry(state.getAddress(), state);
+                } catch (Exception e) {
+                    LOG.error("Failed to update node state for {}. Problem ({}): {}",
+                            state, e.getClass().getName(), e.getMessage());
+                }
             }
         }
     }
@@ -625,27 +885,100 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
         return count;
     }
 
+    /**
+     * Method called to remove entries that are within sync range, but not in
+     * slots shared by local node and this peer; only needed if either one
+     * has non-contiguous ownership.
+     */
+    protected void _filterNotShared(List<SyncListResponseEntry> entries)
+    {
+        final KeySlots shared = _sharedSlots();
+        if (shared == null) {
+            return;
+        }
+        final EntryKeyConverter<K> keyConverter = _entryConverter.keyConverter();
+        Iterator<SyncListResponseEntry> it = entries.iterator();
+        while (it.hasNext()) {
+            K key = keyConverter.rawToEntryKey(it.next().key);
+            if (!shared.contains(keyConverter.routingHashFor(key))) {
+                it.remove();
+            }
+        }
+    }
+
     protected void _filterSeen(List<SyncListResponseEntry> entries)
         throws IOException, StoreException
     {
         Iterator<SyncListResponseEntry> it = entries.iterator();
         while (it.hasNext()) {
             SyncListResponseEntry remoteEntry = it.next();
-            /* 11-Jun-2013, tatu: Although tombstones have been handled and removed,
-             *   need to pay attention here, since conflict resolution may be
-             *   necessary.
-             */
-            Storable localEntry = _entryStore.findEntry(StoreOperationSource.SYNC, null, remoteEntry.key);
-            if (localEntry != null) {
-                // Do we have an actual conflict? If so, needs resolution as per:
-                if (StoreUtil.needToPullRemoteToResolve(localEntry.getLastModified(), localEntry.getContentHash(),
-                        remoteEntry.insertionTime, remoteEntry.hash)) {
-                    continue;
-                }
+            if (_alreadyHave(remoteEntry.key, remoteEntry.insertionTime, remoteEntry.hash)) {
                 it.remove();
             }
         }
     }
+
+    /**
+     * Method that does the same filtering as {@link #_filterNotShared},
+     * {@link #_handleTombstones} and {@link #_filterSeen} in a single pass
+     * over a binary sync list, only materializing entries that need to be
+     * fetched.
+     */
+    protected List<SyncListResponseEntry> _filterEncoded(SyncListDecoder dec)
+        throws IOException, StoreException
+    {
+        final KeySlots shared = _sharedSlots();
+        final EntryKeyConverter<K> keyConverter = _entryConverter.keyConverter();
+        List<SyncListResponseEntry> result = new ArrayList<SyncListResponseEntry>();
+        while (dec.next()) {
+            StorableKey key = dec.key();
+            if (shared != null
+                    && !shared.contains(keyConverter.routingHashFor(keyConverter.rawToEntryKey(key)))) {
+                continue;
+            }
+            if (dec.deleted()) {
+                _entryStore.softDelete(StoreOperationSource.SYNC, null, dec.copyKey(), true, true);
+                continue;
+            }
+            if (!_alreadyHave(key, dec.insertionTime(), dec.hash())) {
+                result.add(dec.toEntry());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Slots shared by local node and this peer, if either one has
+     *    non-contiguous ownership; null if not
+     */
+    protected KeySlots _sharedSlots()
+    {
+        final NodeState localState = _cluster.getLocalState();
+        if (!localState.hasExplicitSlots() && !_syncState.hasExplicitSlots()) {
+            return null;
+        }
+        return localState.totalSlots().intersection(_syncState.totalSlots());
+    }
+
+    /**
+     * Helper method for checking whether we already have given listed entry
+     * locally, so that it need not be pulled.
+     */
+    protected boolean _alreadyHave(StorableKey key, long insertionTime, int hash)
+        throws IOException, StoreException
+    {
+        /* 11-Jun-2013, tatu: Although tombstones have been handled and removed,
+         *   need to pay attention here, since conflict resolution may be
+         *   necessary.
+         */
+        Storable localEntry = _entryStore.findEntry(StoreOperationSource.SYNC, null, key);
+        if (localEntry == null) {
+            return false;
+        }
+        // Do we have an actual conflict? If so, needs resolution as per:
+        return !StoreUtil.needToPullRemoteToResolve(localEntry.getLastModified(), localEntry.getContentHash(),
+                insertionTime, hash);
+    }
     
     /**
      * Helper method that handles actual fetching of missing entries, to synchronize
@@ -705,6 +1038,8 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
             int count = 0;
             int headerLength = 0;
             long payloadLength = 0;
+            int pulledCount = 0;
+            long pulledBytes = 0L;
             final PullProblems probs = new PullProblems();
             
             try {
@@ -718,6 +1053,10 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
                     if (headerLength == SyncHandler.LENGTH_EOF) {
                         break;
                     }
+                    // or failure to produce rest of entries (after some were written)
+                    if (headerLength == SyncHandler.LENGTH_ERROR) {
+                        throw new IOException("Server failed to return entries after first "+count+"/"+expCount);
+                    }
                     // sanity check:
                     if (count == expCount) {
                         ++probs.other;
@@ -740,8 +1079,12 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
                     }
                     SyncPullEntry header = _syncListAccessor.decodePullEntry(headerBytes);
                     payloadLength = header.storageSize;
+                    // content bytes are throttled while copying
+                    _pullThrottle.throttle(1, 0L);
                     // and then create the actual entry:
-                    _pullEntry(reqEntry, header, in, probs);
+                    _pullEntry(reqEntry.insertionTime, header, in, probs);
+                    ++pulledCount;
+                    pulledBytes += header.storageSize;
                     syncedUpTo = reqEntry.insertionTime; 
                 }
                 if (count < expCount) {
@@ -756,12 +1099,16 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
                 if (probs.hasIssues()) {
                     LOG.warn("Problems with pull request to {}: {}", _syncState.getAddress(), probs);
                 }
+            } catch (InterruptedException e) { // most likely shutdown; no point in retrying
+                throw e;
             } catch (Exception e) {
                 LOG.warn("Problem trying to fetch syncPull entry {}/{} (header-length: {}, length: {}): ({}) {}",
                         new Object[] { count+1, expCount, headerLength, payloadLength, e.getClass().getName(), e.getMessage() } );
                 _timeMaster.sleep(SLEEP_FOR_SYNCPULL_ERRORS_MSECS);
                 ++fails;
             } finally {
+                _syncMetrics.pullCompleted(expCount, pulledCount, pulledBytes,
+                        probs.redundant, probs.missing, probs.other);
                 if (in != null) {
                     try { in.close(); } catch (Exception e) { // shouldn't really happen
                         LOG.warn("Failed to close HTTP stream: {}", e.getMessage());
@@ -777,6 +1124,101 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
         return syncedUpTo;
     }
 
+    /**
+     * Method called to claim entries to pull in the shared in-flight registry;
+     * entries already being pulled by sync threads of other peers are removed
+     * from the list and returned separately.
+     *
+     * @param claimed List to which keys of claimed entries are added
+     *
+     * @return Entries claimed by others
+     */
+    protected List<SyncListResponseEntry> _claimPulls(List<SyncListResponseEntry> entries,
+            List<StorableKey> claimed)
+    {
+        List<SyncListResponseEntry> deferred = new ArrayList<SyncListResponseEntry>();
+        Iterator<SyncListResponseEntry> it = entries.iterator();
+        while (it.hasNext()) {
+            SyncListResponseEntry entry = it.next();
+            if (_inFlight.claim(entry.key, this) == null) {
+                claimed.add(entry.key);
+            } else {
+                deferred.add(entry);
+                it.remove();
+            }
+        }
+        return deferred;
+    }
+
+    protected void _releasePulls(List<StorableKey> claimed)
+    {
+        for (StorableKey key : claimed) {
+            _inFlight.release(key, this);
+        }
+    }
+
+    /**
+     * Method called to handle entries that were being pulled by other peers'
+     * sync threads: waits for those pulls to complete, and then pulls
+     * entries that still are missing (usually because other pull failed).
+     * Entries that remain unresolved are left in the list.
+     */
+    private void _fetchDeferred(List<SyncListResponseEntry> deferred, AtomicInteger rounds)
+        throws InterruptedException, IOException, StoreException
+    {
+        // note: must use real time, as waits are not done via TimeMaster
+        final long waitUntil = System.currentTimeMillis() + MAX_WAIT_FOR_OTHER_PULLS_MSECS;
+        List<SyncListResponseEntry> toPull = new ArrayList<SyncListResponseEntry>();
+        List<StorableKey> claimed = new ArrayList<StorableKey>();
+        try {
+            Iterator<SyncListResponseEntry> it = deferred.iterator();
+            while (it.hasNext()) {
+                SyncListResponseEntry entry = it.next();
+                InFlightPulls.Claim other;
+                while ((other = _inFlight.claim(entry.key, this)) != null) {
+                    long waitMsecs = waitUntil - System.currentTimeMillis();
+                    if (waitMsecs <= 0L || !other.await(waitMsecs)) {
+                        break;
+                    }
+                }
+                if (other == null) {
+                    claimed.add(entry.key);
+                    toPull.add(entry);
+                    it.remove();
+                }
+            }
+            // most if not all will have been stored by the other pull
+            _filterSeen(toPull);
+            if (!toPull.isEmpty() && _running.get()) {
+                _fetchMissing(toPull, rounds);
+            }
+        } finally {
+            _releasePulls(claimed);
+        }
+        deferred.addAll(toPull);
+    }
+
+    /**
+     * Helper method for calculating timestamp up to which listed entries
+     * have been resolved (either pulled locally, or by sync threads of other
+     * peers), when some of entries may remain unresolved.
+     */
+    private long _resolvedUpTo(List<SyncListResponseEntry> unfetched,
+            List<SyncListResponseEntry> deferred, long lastListed)
+    {
+        long firstUnresolved = Long.MAX_VALUE;
+        if (!unfetched.isEmpty()) {
+            firstUnresolved = unfetched.get(0).insertionTime;
+        }
+        for (SyncListResponseEntry entry : deferred) {
+            firstUnresolved = Math.min(firstUnresolved, entry.insertionTime);
+        }
+        if (firstUnresolved == Long.MAX_VALUE) {
+            return lastListed;
+        }
+        return firstUnresolved - 1L;
+    }
+
     private SyncPullRequest _buildSyncPullRequest(List<SyncListResponseEntry> missingEntries,
             int maxEntries, AtomicInteger expectedPayloadSize)
     {
@@ -831,7 +1273,7 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
      * Method that does the heavy lifting of pulling a single synchronized entry,
      * if and as necessary.
      */
-    private void _pullEntry(SyncListResponseEntry reqEntry, SyncPullEntry header,
+    private void _pullEntry(long insertionTime, SyncPullEntry header,
             InputStream in, PullProblems probs)
         throws IOException
     {
@@ -847,6 +1289,10 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
             _entryStore.softDelete(StoreOperationSource.SYNC, null, key, true, true);
             return;
         }
+        // throttle bytes as they are read, so big entries are copied at a steady rate
+        if (_pullThrottle.isEnabled()) {
+            in = new ThrottledInputStream(in, _pullThrottle);
+        }
         StorableCreationResult result;
         StorableCreationMetadata stdMetadata = new StorableCreationMetadata(header.compression,
                 header.checksum, header.checksumForCompressed);
@@ -872,7 +1318,7 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
             // 19-Sep-2013, tatu: May need to upsert, when resolving conflicts
             result = _entryStore.upsertConditionally(StoreOperationSource.SYNC, null, key, data,
                     stdMetadata, customMetadata, true,
-                    new ConflictOverwriteChecker(reqEntry.insertionTime));
+                    new ConflictOverwriteChecker(insertionTime));
         } else {
             /* 21-Sep-2012, tatu: Important -- we must ensure that store only reads
              *   bytes that belong to the entry payload. The easiest way is by adding
@@ -882,7 +1328,7 @@ public class ClusterPeerImpl<K extends EntryKey, E extends StoredEntry<K>>
             // 19-Sep-2013, tatu: May need to upsert, when resolving conflicts
             result = _entryStore.upsertConditionally(StoreOperationSource.SYNC, null, key, bin,
                     stdMetadata, customMetadata, true,
-                    new ConflictOverwriteChecker(reqEntry.insertionTime));
+                    new ConflictOverwriteChecker(insertionTime));
 
             if (result.succeeded() && !bin.isCompletelyRead()) { // error or warning?
                 Storable entry = result.getNewEntry();
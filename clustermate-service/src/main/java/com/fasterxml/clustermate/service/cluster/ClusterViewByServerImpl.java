@@ -2,6 +2,7 @@ package com.fasterxml.clustermate.service.cluster;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -26,6 +27,12 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
 {
     private final Logger LOG = LoggerFactory.getLogger(getClass());
 
+    /**
+     * When rebalancing, how often do we check whether slots the local node
+     * is giving up have enough copies elsewhere.
+     */
+    private final static long RELEASE_CHECK_INTERVAL_MSECS = 5000L;
+
     protected final SharedServiceStuff _stuff;
     
     /**
@@ -38,7 +45,7 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     /**
      * Information about this node; not included in the list of peer nodes.
      */
-    protected NodeState _localState;
+    protected volatile ActiveNodeState _localState;
 
     /**
      * States of all nodes found during bootstrapping, including the
@@ -57,6 +64,18 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     protected final AtomicLong _lastUpdated;
 
     protected final boolean _isTesting;
+
+    /**
+     * Thread used for bootstrapping contents from a range snapshot, if
+     * one is needed; cleared once done (or when stopping).
+     */
+    protected Thread _bootstrapThread;
+
+    /**
+     * Thread used for rebalancing key range of the local node, if one
+     * is in progress.
+     */
+    protected Thread _rebalanceThread;
     
     /*
     /**********************************************************************
@@ -95,6 +114,40 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     
     @Override
     public synchronized void start()
+    {
+        if (_stuff.getServiceConfig().cfgBootstrapFromSnapshot && _needsBootstrap()) {
+            // bootstrapping may take a while, so must do it asynchronously
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        _bootstrapFromSnapshot();
+                    } catch (InterruptedException e) {
+                        LOG.warn("Bootstrapping from snapshot interrupted; will not start syncing");
+                        return;
+                    } catch (Exception e) {
+                        LOG.error("Bootstrapping from snapshot failed ({}): {}; will sync incrementally",
+                                e.getClass().getName(), e.getMessage());
+                    }
+                    synchronized (ClusterViewByServerImpl.this) {
+                        if (_bootstrapThread == null) { // stopped while bootstrapping
+                            return;
+                        }
+                        _bootstrapThread = null;
+                    }
+                    _startSyncing();
+                }
+            });
+            t.setDaemon(true);
+            t.setName("SnapshotBootstrap");
+            _bootstrapThread = t;
+            t.start();
+            return;
+        }
+        _startSyncing();
+    }
+
+    protected synchronized void _startSyncing()
     {
         LOG.info("Starting sync threads to peers...");
         int count = 0;
@@ -111,6 +164,64 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
         LOG.info("Completed creation of sync threads ({}/{}) to peers", count, _peers.size());
     }
 
+    /**
+     * Bootstrapping is only needed if local node has never synced with any
+     * of its peers; that is, it is either a new node or one replacing a failed node.
+     */
+    protected boolean _needsBootstrap()
+    {
+        boolean overlap = false;
+        final KeyRange localRange = _localState.totalRange();
+        for (ClusterPeerImpl<?,?> peer : _peers.values()) {
+            if (peer.getSyncedUpTo() > 0L) {
+                return false;
+            }
+            overlap |= localRange.overlapsWith(peer.getTotalRange());
+        }
+        return overlap;
+    }
+
+    /**
+     * Method that will choose peer that shares biggest part of key range
+     * with the local node, and stream snapshot of shared range from it.
+     */
+    protected void _bootstrapFromSnapshot() throws InterruptedException
+    {
+        final KeyRange localRange = _localState.totalRange();
+        ClusterPeerImpl<K,E> source = null;
+        KeyRange sourceRange = null;
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            if (peer.isDisabled()) {
+                continue;
+            }
+            KeyRange shared = localRange.intersection(peer.getTotalRange());
+            if (sourceRange == null || shared.getLength() > sourceRange.getLength()) {
+                source = peer;
+                sourceRange = shared;
+            }
+        }
+        if (source == null || sourceRange.empty()) {
+            LOG.warn("No peer to bootstrap range {} from; will sync incrementally", localRange);
+            return;
+        }
+        LOG.info("Bootstrapping range {} from peer {}", sourceRange, source.getAddress());
+        final long snapshotTime = source.bootstrapFromSnapshot(sourceRange);
+        if (snapshotTime <= 0L) {
+            LOG.warn("Failed to bootstrap range {} from {}; will sync incrementally",
+                    sourceRange, source.getAddress());
+            return;
+        }
+        // Other peers need not list older entries, as long as snapshot covered what they share
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            if (peer != source) {
+                KeyRange shared = localRange.intersection(peer.getTotalRange());
+                if (!shared.empty() && sourceRange.contains(shared)) {
+                    peer.markSyncedUpTo(snapshotTime);
+                }
+            }
+        }
+    }
+
     @Override
     public synchronized void prepareForStop() {
         LOG.info("Pre-shutdown notice to stop active synchronization requests");
@@ -123,6 +234,14 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     @Override
     public synchronized void stop()
     {
+        if (_bootstrapThread != null) {
+            _bootstrapThread.interrupt();
+            _bootstrapThread = null;
+        }
+        if (_rebalanceThread != null) {
+            _rebalanceThread.interrupt();
+            _rebalanceThread = null;
+        }
         LOG.info("Shutting down sync threads to peers...");
         for (ClusterPeerImpl<?,?> peer : _peers.values()) {
             peer.stop();
@@ -183,7 +302,7 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     public boolean containsLocally(EntryKey key)
     {
         int hash = _stuff.getKeyConverter().routingHashFor(key);
-        return _localState.totalRange().contains(hash);
+        return _localState.totalSlots().contains(hash);
     }
 
     /*
@@ -369,11 +488,20 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     protected boolean _updateExistingPeer(NodeState nodeStatus, boolean forSender,
             ClusterPeerImpl<K,E> peer) throws IOException
     {
-//        final IpAndPort endpoint = nodeStatus.getAddress();
-
-        // !!! TODO: actual updating...
-        
-        return false;
+        // for now only key range changes (due to rebalancing) are handled
+        ActiveNodeState currentState = peer.getSyncState();
+        if (nodeStatus.getRangeActive() == null || nodeStatus.getRangePassive() == null
+                || (nodeStatus.getRangeActive().equals(currentState.getRangeActive())
+                        && nodeStatus.getRangePassive().equals(currentState.getRangePassive())
+                        && _equals(nodeStatus.getSlotsActive(), currentState.getSlotsActive())
+                        && _equals(nodeStatus.getSlotsPassive(), currentState.getSlotsPassive()))) {
+            return false;
+        }
+        LOG.info("Key ranges of node {} changed from {}/{} to {}/{}", new Object[] {
+                nodeStatus.getAddress(), currentState.getRangeActive(), currentState.getRangePassive(),
+                nodeStatus.getRangeActive(), nodeStatus.getRangePassive() });
+        peer.remoteRangesChanged(_localState, nodeStatus);
+        return true;
     }
     
     /**
@@ -414,6 +542,224 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
         }
     }
     
+    /*
+    /**********************************************************************
+    /* Rebalancing
+    /**********************************************************************
+     */
+
+    @Override
+    public synchronized KeyRange rebalance(KeyRange newRange)
+    {
+        if (_rebalanceThread != null) {
+            throw new IllegalStateException("Rebalancing of key range already in progress");
+        }
+        final ActiveNodeState orig = _localState;
+        if (newRange == null) {
+            newRange = _calculateRebalancedRange();
+        }
+        if (newRange.equals(orig.getRangeActive()) && newRange.equals(orig.getRangePassive())) {
+            return null;
+        }
+        // During transition we cover both old and new range, so they must be combinable
+        final KeyRange combined = orig.totalRange().union(newRange);
+        final KeyRange target = newRange;
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    _rebalance(target, combined);
+                } catch (InterruptedException e) {
+                    LOG.warn("Rebalancing of key range to {} interrupted", target);
+                } catch (Exception e) {
+                    LOG.error("Rebalancing of key range to "+target+" failed: "+e.getMessage(), e);
+                } finally {
+                    synchronized (ClusterViewByServerImpl.this) {
+                        _rebalanceThread = null;
+                    }
+                }
+            }
+        });
+        t.setDaemon(true);
+        t.setName("KeyRangeRebalance");
+        _rebalanceThread = t;
+        t.start();
+        return newRange;
+    }
+
+    /**
+     * Method for calculating key range for the local node, given all
+     * currently enabled nodes of the cluster.
+     */
+    protected KeyRange _calculateRebalancedRange()
+    {
+        List<NodeState> nodes = new ArrayList<NodeState>();
+        nodes.add(_localState);
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            if (!peer.isDisabled()) {
+                nodes.add(peer.getSyncState());
+            }
+        }
+        int copies = _stuff.getServiceConfig().cluster.numberOfCopies;
+        return KeyRangeRebalancer.linearRanges(_keyspace, nodes, copies).get(_localState.getAddress());
+    }
+
+    /**
+     * Method that performs actual rebalancing in three steps: first, slots that
+     * the local node is to gain are copied from peers that have them; then
+     * the active range is switched, while still retaining slots to give up as
+     * passive range; and finally, once the slots to give up are actively
+     * covered by enough peers, passive range is reduced. This way number of
+     * copies never falls below the configured value.
+     */
+    protected void _rebalance(KeyRange newRange, KeyRange combined) throws InterruptedException
+    {
+        final ActiveNodeState orig = _localState;
+        LOG.info("Rebalancing key range of local node from {} to {}", orig.totalRange(), newRange);
+
+        Map<IpAndPort,KeyRange> holders = new LinkedHashMap<IpAndPort,KeyRange>();
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            if (!peer.isDisabled()) {
+                holders.put(peer.getAddress(), peer.getTotalRange());
+            }
+        }
+        List<KeyRangeRebalancer.RangeTransfer> transfers = KeyRangeRebalancer.planTransfers(
+                orig.totalRange(), newRange, holders);
+        final long copiedUpTo = _transferRanges(transfers);
+        if (copiedUpTo <= 0L) {
+            LOG.error("Failed to copy slots for key range {}: will not switch ranges", newRange);
+            return;
+        }
+        ActiveNodeState state = orig.withRanges(newRange, combined, _nextUpdateTime(orig));
+        _setLocalState(state, copiedUpTo);
+        LOG.info("Switched active key range of local node to {}", newRange);
+
+        List<KeyRange> released = KeyRangeRebalancer.difference(combined, newRange);
+        if (!released.isEmpty()) {
+            final int copies = _requiredCopies();
+            final long waitUntil = _timeMaster.currentTimeMillis()
+                    + _stuff.getServiceConfig().cfgRebalanceReleaseTimeout.getMillis();
+            while (!_enoughCopies(released, copies)) {
+                if (_timeMaster.currentTimeMillis() >= waitUntil) {
+                    LOG.error("Timed out waiting for peers to cover slots {} with {} copies: will retain them as passive range",
+                            released, copies);
+                    return;
+                }
+                _timeMaster.sleep(RELEASE_CHECK_INTERVAL_MSECS);
+            }
+        }
+        state = _localState;
+        _setLocalState(state.withRanges(newRange, newRange, _nextUpdateTime(state)), 0L);
+        LOG.info("Completed rebalancing of key range of local node to {}", newRange);
+    }
+
+    /**
+     * @return Timestamp up to which all transferred slots were copied (oldest
+     *   snapshot timestamp), if all transfers succeeded; 0L if not
+     */
+    protected long _transferRanges(List<KeyRangeRebalancer.RangeTransfer> transfers)
+        throws InterruptedException
+    {
+        long copiedUpTo = _timeMaster.currentTimeMillis();
+        List<Callable<Long>> tasks = new ArrayList<Callable<Long>>();
+        for (KeyRangeRebalancer.RangeTransfer transfer : transfers) {
+            if (transfer.source == null) {
+                LOG.warn("No peer has slots {}: nothing to copy", transfer.range);
+                continue;
+            }
+            final ClusterPeerImpl<K,E> peer;
+            synchronized (_peers) {
+                peer = _peers.get(transfer.source);
+            }
+            final KeyRange range = transfer.range;
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return peer.transferRange(range);
+                }
+            });
+        }
+        if (tasks.isEmpty()) {
+            return copiedUpTo;
+        }
+        LOG.info("Copying {} slot ranges from peers: {}", tasks.size(), transfers);
+        int threads = Math.max(1, Math.min(tasks.size(),
+                _stuff.getServiceConfig().cfgRebalanceTransferThreads));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Long> result : executor.invokeAll(tasks)) {
+                long snapshotTime;
+                try {
+                    snapshotTime = result.get();
+                } catch (ExecutionException e) {
+                    LOG.warn("Failed to copy slots: {}", e.getCause().getMessage());
+                    snapshotTime = 0L;
+                }
+                if (snapshotTime <= 0L) {
+                    return 0L;
+                }
+                copiedUpTo = Math.min(copiedUpTo, snapshotTime);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return copiedUpTo;
+    }
+
+    protected int _requiredCopies()
+    {
+        int copies = _stuff.getServiceConfig().cluster.numberOfCopies;
+        int peerCount = _peers.size();
+        if (copies < 1 || copies > peerCount) {
+            return peerCount;
+        }
+        return copies;
+    }
+
+    protected boolean _enoughCopies(List<KeyRange> released, int copies)
+    {
+        List<KeyRange> active = new ArrayList<KeyRange>();
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            if (!peer.isDisabled()) {
+                // each slot is in at most one of these, so coverage counts are per-peer
+                active.addAll(peer.getSyncState().activeSlots().asRanges());
+            }
+        }
+        for (KeyRange range : released) {
+            if (KeyRangeRebalancer.minCoverage(range, active) < copies) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method called to replace state of the local node, persist it, and
+     * update sync ranges with peers accordingly.
+     */
+    protected void _setLocalState(ActiveNodeState state, long copiedUpTo)
+    {
+        _localState = state;
+        try {
+            _stores.getNodeStore().upsertEntry(state.getAddress(), state);
+        } catch (Exception e) {
+            LOG.error("Failed to update local node state. Problem ({}): {}",
+                    e.getClass().getName(), e.getMessage());
+        }
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            peer.localRangesChanged(state, copiedUpTo);
+        }
+        synchronized (_lastUpdated) {
+            if (state.getLastUpdated() > _lastUpdated.get()) {
+                _lastUpdated.set(state.getLastUpdated());
+            }
+        }
+    }
+
+    private long _nextUpdateTime(NodeState state) {
+        return Math.max(_timeMaster.currentTimeMillis(), state.getLastUpdated() + 1L);
+    }
+
     /*
     /**********************************************************************
     /* Advanced accessors
@@ -423,12 +769,12 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     @Override
     public int getActiveCoverage()
     {
-        ArrayList<KeyRange> ranges = new ArrayList<KeyRange>();
-        ranges.add(_localState.getRangeActive());
-        for (ClusterPeer peer : getPeers()) {
-            ranges.add(peer.getActiveRange());
+        ArrayList<KeySlots> slots = new ArrayList<KeySlots>();
+        slots.add(_localState.activeSlots());
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            slots.add(peer.getSyncState().activeSlots());
         }
-        return _keyspace.getCoverage(ranges);
+        return _keyspace.getSlotCoverage(slots);
     }
 
     @Override
@@ -439,12 +785,12 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     @Override
     public int getTotalCoverage()
     {
-        ArrayList<KeyRange> ranges = new ArrayList<KeyRange>();
-        ranges.add(_localState.totalRange());
-        for (ClusterPeer peer : getPeers()) {
-            ranges.add(peer.getTotalRange());
+        ArrayList<KeySlots> slots = new ArrayList<KeySlots>();
+        slots.add(_localState.totalSlots());
+        for (ClusterPeerImpl<K,E> peer : _peerImpls()) {
+            slots.add(peer.getSyncState().totalSlots());
         }
-        return _keyspace.getCoverage(ranges);
+        return _keyspace.getSlotCoverage(slots);
     }
     
     @Override
@@ -499,6 +845,10 @@ public class ClusterViewByServerImpl<K extends EntryKey, E extends StoredEntry<K
     /**********************************************************************
      */
 
+    private static boolean _equals(Object o1, Object o2) {
+        return (o1 == null) ? (o2 == null) : o1.equals(o2);
+    }
+
     private int _coveragePct(int absCoverage) {
         int len = _keyspace.getLength();
         if (absCoverage == len) {
@@ -44,4 +44,28 @@ public abstract class ClusterViewByServerUpdatable
      * is being deactivated (is shutting down).
      */
     public abstract void nodeDeactivated(IpAndPort node, long timestamp);
+
+    /*
+    /**********************************************************************
+    /* Methods for key range rebalancing
+    /**********************************************************************
+     */
+
+    /**
+     * Method called to start online rebalancing of the key range of the local
+     * node. Rebalancing proceeds asynchronously: slots that the node is to
+     * gain are copied from peers first, and key ranges are switched only
+     * after this has completed.
+     *
+     * @param newRange Key range for the local node to have; if null, will
+     *    be calculated based on current cluster membership
+     *
+     * @return Range that the local node is being rebalanced to; null if no
+     *    changes are needed
+     *
+     * @throws IllegalStateException If rebalancing is already in progress
+     * @throws IllegalArgumentException If the new range neither overlaps nor
+     *    is adjacent to the current range
+     */
+    public abstract KeyRange rebalance(KeyRange newRange);
 }
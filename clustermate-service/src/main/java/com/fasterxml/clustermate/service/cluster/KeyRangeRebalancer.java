@@ -0,0 +1,213 @@
+package com.fasterxml.clustermate.service.cluster;
+
+import java.util.*;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySpace;
+import com.fasterxml.clustermate.api.NodeState;
+
+/**
+ * Helper class that contains logic for calculating changes needed when
+ * key ranges of the cluster are rebalanced (usually due to addition
+ * or removal of a node): new ranges for nodes, slots that move
+ * between nodes, and peers to copy moving slots from.
+ *<p>
+ * All methods are stateless and deterministic, so that all nodes of the
+ * cluster come up with the same plan given the same cluster view.
+ */
+public class KeyRangeRebalancer
+{
+    private KeyRangeRebalancer() { }
+
+    /*
+    /**********************************************************************
+    /* Range calculation
+    /**********************************************************************
+     */
+
+    /**
+     * Method for calculating key ranges for given set of nodes, using
+     * the same division as {@link com.fasterxml.clustermate.service.cfg.KeyRangeAllocationStrategy#SIMPLE_LINEAR};
+     * nodes are ordered by their index, and for nodes with same index
+     * (such as ones with unknown index), by their address.
+     *
+     * @param copies Number of copies to keep; values below 1, or above
+     *    number of nodes, are taken to mean "as many as there are nodes"
+     */
+    public static Map<IpAndPort,KeyRange> linearRanges(KeySpace space,
+            Collection<? extends NodeState> nodes, int copies)
+    {
+        List<NodeState> ordered = new ArrayList<NodeState>(nodes);
+        Collections.sort(ordered, new Comparator<NodeState>() {
+            @Override
+            public int compare(NodeState n1, NodeState n2) {
+                int diff = n1.getIndex() - n2.getIndex();
+                if (diff == 0) {
+                    diff = n1.getAddress().toString().compareTo(n2.getAddress().toString());
+                }
+                return diff;
+            }
+        });
+        final int count = ordered.size();
+        if (copies < 1 || copies > count) {
+            copies = count;
+        }
+        Map<IpAndPort,KeyRange> result = new LinkedHashMap<IpAndPort,KeyRange>();
+        for (int i = 0; i < count; ++i) {
+            result.put(ordered.get(i).getAddress(), space.calcSegment(i, count, copies));
+        }
+        return result;
+    }
+
+    /**
+     * Method for calculating slots that are included in the first range
+     * but not in the second one; returned as a list of consecutive ranges,
+     * ordered clockwise from the start of the first range.
+     */
+    public static List<KeyRange> difference(KeyRange range, KeyRange minus)
+    {
+        List<KeyRange> result = new ArrayList<KeyRange>();
+        final KeySpace space = range.getKeyspace();
+        final int spaceLength = space.getLength();
+        int runStart = -1;
+        int runLength = 0;
+        for (int i = 0, len = range.getLength(); i < len; ++i) {
+            int slot = (range.getStart() + i) % spaceLength;
+            if (minus.contains(slot)) {
+                if (runLength > 0) {
+                    result.add(space.range(runStart, runLength));
+                    runLength = 0;
+                }
+            } else {
+                if (runLength == 0) {
+                    runStart = slot;
+                }
+                ++runLength;
+            }
+        }
+        if (runLength > 0) {
+            result.add(space.range(runStart, runLength));
+        }
+        return result;
+    }
+
+    /**
+     * Method for calculating the smallest number of given ranges that cover
+     * any one slot of specified range.
+     */
+    public static int minCoverage(KeyRange range, Collection<KeyRange> ranges)
+    {
+        final int spaceLength = range.getKeyspace().getLength();
+        int min = Integer.MAX_VALUE;
+        for (int i = 0, len = range.getLength(); i < len; ++i) {
+            int slot = (range.getStart() + i) % spaceLength;
+            int count = 0;
+            for (KeyRange r : ranges) {
+                if (r.contains(slot)) {
+                    ++count;
+                }
+            }
+            min = Math.min(min, count);
+        }
+        return (min == Integer.MAX_VALUE) ? 0 : min;
+    }
+
+    /*
+    /**********************************************************************
+    /* Transfer planning
+    /**********************************************************************
+     */
+
+    /**
+     * Method for figuring out which slots a node needs to copy from its peers
+     * when its range changes from <code>currentRange</code> to <code>newRange</code>,
+     * and which peer to copy each one from.
+     * Consecutive slots held by the same set of peers are divided evenly
+     * between those peers, so that transfers may proceed in parallel
+     * without loading a single peer.
+     *
+     * @param holders Current total ranges of peers that may be used as sources
+     *
+     * @return List of transfers needed; transfers for slots that no peer holds
+     *    have <code>null</code> as their source
+     */
+    public static List<RangeTransfer> planTransfers(KeyRange currentRange, KeyRange newRange,
+            Map<IpAndPort,KeyRange> holders)
+    {
+        List<RangeTransfer> result = new ArrayList<RangeTransfer>();
+        final KeySpace space = newRange.getKeyspace();
+        final int spaceLength = space.getLength();
+
+        for (KeyRange gained : difference(newRange, currentRange)) {
+            // group consecutive slots with same set of candidate sources
+            List<IpAndPort> prevCandidates = null;
+            int segStart = gained.getStart();
+            int segLength = 0;
+            for (int i = 0, len = gained.getLength(); i < len; ++i) {
+                int slot = (gained.getStart() + i) % spaceLength;
+                List<IpAndPort> candidates = new ArrayList<IpAndPort>();
+                for (Map.Entry<IpAndPort,KeyRange> entry : holders.entrySet()) {
+                    if (entry.getValue().contains(slot)) {
+                        candidates.add(entry.getKey());
+                    }
+                }
+                if (prevCandidates != null && !candidates.equals(prevCandidates)) {
+                    _split(space.range(segStart, segLength), prevCandidates, result);
+                    segStart = slot;
+                    segLength = 0;
+                }
+                prevCandidates = candidates;
+                ++segLength;
+            }
+            if (segLength > 0) {
+                _split(space.range(segStart, segLength), prevCandidates, result);
+            }
+        }
+        return result;
+    }
+
+    private static void _split(KeyRange segment, List<IpAndPort> sources,
+            List<RangeTransfer> result)
+    {
+        if (sources.isEmpty()) {
+            result.add(new RangeTransfer(null, segment));
+            return;
+        }
+        final KeySpace space = segment.getKeyspace();
+        final int parts = Math.min(sources.size(), segment.getLength());
+        int start = segment.getStart();
+        for (int i = 0; i < parts; ++i) {
+            int len = (segment.getLength() * (i+1)) / parts - (segment.getLength() * i) / parts;
+            result.add(new RangeTransfer(sources.get(i), space.range(start, len)));
+            start = (start + len) % space.getLength();
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper types
+    /**********************************************************************
+     */
+
+    /**
+     * Value class that describes a single range of slots to copy from
+     * a peer.
+     */
+    public static class RangeTransfer
+    {
+        public final IpAndPort source;
+
+        public final KeyRange range;
+
+        public RangeTransfer(IpAndPort source, KeyRange range) {
+            this.source = source;
+            this.range = range;
+        }
+
+        @Override
+        public String toString() {
+            return range+" from "+source;
+        }
+    }
+}
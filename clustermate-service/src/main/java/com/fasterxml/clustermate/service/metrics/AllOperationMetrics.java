@@ -1,8 +1,10 @@
 package com.fasterxml.clustermate.service.metrics;
 
+import java.util.Map;
+
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
-@JsonPropertyOrder({ "GET", "PUT", "DELETE", "LIST", "SYNCLIST", "SYNCPULL" })
+@JsonPropertyOrder({ "GET", "PUT", "DELETE", "LIST", "SYNCLIST", "SYNCPULL", "PEERS" })
 public class AllOperationMetrics
 {
     public ExternalOperationMetrics GET;
@@ -13,6 +15,11 @@ public class AllOperationMetrics
 
     public ExternalOperationMetrics SYNCLIST;
     public ExternalOperationMetrics SYNCPULL;
+
+    /**
+     * Replication metrics for syncing from peers, keyed by peer address
+     */
+    public Map<String,ExternalPeerSyncMetrics> PEERS;
     
     public static interface Provider {
         public void fillOperationMetrics(AllOperationMetrics metrics);
@@ -0,0 +1,28 @@
+package com.fasterxml.clustermate.service.metrics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Container class for exposing state of a concurrency limiter
+ * externally, usually as JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+@JsonPropertyOrder({ "limit", "inFlight", "rejected" })
+public class ExternalConcurrencyLimit
+{
+    public int limit;
+
+    public int inFlight;
+
+    /**
+     * Number of requests rejected (with 503) so far
+     */
+    public long rejected;
+
+    // // Latency averages used for adjusting limit, if adaptive
+
+    public double shortLatencyMsecs;
+
+    public double longLatencyMsecs;
+}
@@ -1,5 +1,7 @@
 package com.fasterxml.clustermate.service.metrics;
 
+import java.util.Map;
+
 import com.codahale.metrics.*;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -35,12 +37,24 @@ public class ExternalOperationMetrics
 
     public Histogram requestEntryCounts;
 
+    /**
+     * Breakdown of request times by processing phase (metadata access,
+     * lock waits, file I/O, response writing)
+     */
+    public Map<String,PhaseHistogram> phases;
+
     /**
      * Optional extra information about queuing; currently only used with
      * DELETE operations.
      */
     public DeferQueueMetrics queue;
 
+    /**
+     * Optional information on concurrency limiting for the operation,
+     * if enabled.
+     */
+    public ExternalConcurrencyLimit concurrencyLimit;
+
     protected ExternalOperationMetrics(OperationMetrics raw)
     {
         inFlight = raw._metricInFlight.getCount();
@@ -54,6 +68,7 @@ public class ExternalOperationMetrics
         requestTimes = _histogram(raw._metricTimes, true);
         requestSizes = _histogram(raw._metricSizes, false);
         requestEntryCounts = _histogram(raw._metricEntryCounts, false);
+        phases = (raw._metricPhases == null) ? null : raw._metricPhases.externalize();
     }
     
     public static ExternalOperationMetrics create(OperationMetrics raw) {
@@ -106,4 +121,38 @@ public class ExternalOperationMetrics
         	}
         }
     }
+
+    /**
+     * Latency distribution based on HdrHistogram; unlike {@link Histogram}
+     * contains all values (not just a sample), and uses fractional milliseconds
+     * since most phases take less than a millisecond.
+     */
+    @JsonPropertyOrder({ "count", "mean", "pct50", "pct90", "pct99", "pct999", "max" })
+    public static class PhaseHistogram
+    {
+        public long count;
+        public double mean;
+        public double pct50;
+        public double pct90;
+        public double pct99;
+        public double pct999;
+        public double max;
+
+        protected PhaseHistogram() { } // if deserializing
+        public PhaseHistogram(org.HdrHistogram.Histogram h)
+        {
+            count = h.getTotalCount();
+            mean = _microsToMillis(h.getMean());
+            pct50 = _microsToMillis(h.getValueAtPercentile(50.0));
+            pct90 = _microsToMillis(h.getValueAtPercentile(90.0));
+            pct99 = _microsToMillis(h.getValueAtPercentile(99.0));
+            pct999 = _microsToMillis(h.getValueAtPercentile(99.9));
+            max = _microsToMillis(h.getMaxValue());
+        }
+
+        // round to microsecond precision, which is what is recorded
+        private static double _microsToMillis(double micros) {
+            return Math.round(micros) / 1000.0;
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package com.fasterxml.clustermate.service.metrics;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Container class for exposing {@link PeerSyncMetrics} externally,
+ * usually as JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({ "syncLagMsecs", "syncedUpTo", "failCount", "sleepMsecs" })
+public class ExternalPeerSyncMetrics
+{
+    /**
+     * How far behind (in milliseconds) syncing from the peer is;
+     * -1 if nothing has been synced yet.
+     */
+    public long syncLagMsecs;
+
+    /**
+     * Timestamp up to which entries have been synced from the peer
+     */
+    public long syncedUpTo;
+
+    public int failCount;
+
+    /**
+     * Length of the latest sleep between sync rounds
+     */
+    public long sleepMsecs;
+
+    // // Throughput
+
+    public long entriesPulled;
+    public double entriesPerSec;
+
+    public long bytesPulled;
+    public double bytesPerSec;
+
+    // // Latencies, batch sizes
+
+    public long syncListCount;
+
+    public ExternalOperationMetrics.Histogram syncListTimes;
+
+    public ExternalOperationMetrics.Histogram pullBatchSizes;
+
+    // // Problems with pulls
+
+    public long redundant;
+    public long missing;
+    public long otherProblems;
+
+    /**
+     * Number of entries left for another peer's sync thread to pull
+     */
+    public long deferred;
+}
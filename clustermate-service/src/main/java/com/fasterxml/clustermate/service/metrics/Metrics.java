@@ -4,7 +4,9 @@ import java.util.HashMap;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.Metric;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -21,6 +23,15 @@ public class Metrics
     protected final static MetricRegistry _metrics = new MetricRegistry();
 
     protected final static HashMap<String, Metric> _registered = new HashMap<String,Metric>();
+
+    protected final static HashMap<String, PhaseLatencyMetrics> _phaseLatencies
+        = new HashMap<String, PhaseLatencyMetrics>();
+
+    /**
+     * Reporter used for exposing metrics via JMX, if enabled; only one
+     * is created per JVM, regardless of number of services.
+     */
+    protected static JmxReporter _jmxReporter;
     
     public static synchronized Counter newCounter(String name) {
         Counter c = (Counter) _registered.get(name);
@@ -51,4 +62,56 @@ public class Metrics
         }
         return h;
     }
+
+    @SuppressWarnings("unchecked")
+    public static synchronized <T> Gauge<T> newGauge(String name, Gauge<T> gauge)
+    {
+        Gauge<T> g = (Gauge<T>) _registered.get(name);
+        if (g == null) {
+            g = _metrics.register(name, gauge);
+            _registered.put(name, g);
+        }
+        return g;
+    }
+
+    /**
+     * Method for finding or creating set of per-phase latency histograms
+     * for given metric name prefix; percentile gauges are registered
+     * when histograms are created.
+     */
+    public static synchronized PhaseLatencyMetrics newPhaseLatencies(String prefix)
+    {
+        PhaseLatencyMetrics m = _phaseLatencies.get(prefix);
+        if (m == null) {
+            m = new PhaseLatencyMetrics();
+            _phaseLatencies.put(prefix, m);
+            m.registerGauges(prefix);
+        }
+        return m;
+    }
+
+    /**
+     * Method called to start exposing all registered metrics as MBeans under
+     * given JMX domain. Calls after the first one have no effect.
+     */
+    public static synchronized void startJmxReporting(String domain)
+    {
+        if (_jmxReporter == null) {
+            _jmxReporter = JmxReporter.forRegistry(_metrics)
+                    .inDomain(domain)
+                    .build();
+            _jmxReporter.start();
+        }
+    }
+
+    /**
+     * Method called to stop exposing metrics via JMX, if reporting was started.
+     */
+    public static synchronized void stopJmxReporting()
+    {
+        if (_jmxReporter != null) {
+            _jmxReporter.stop();
+            _jmxReporter = null;
+        }
+    }
 }
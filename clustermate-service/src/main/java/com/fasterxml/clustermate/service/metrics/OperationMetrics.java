@@ -31,6 +31,10 @@ public class OperationMetrics
 
     protected final Histogram _metricEntryCounts;
 
+    // // Per-phase latencies, based on OperationDiagnostics
+
+    protected final PhaseLatencyMetrics _metricPhases;
+
     /*
     /**********************************************************************
     /* Public API for JSON serialization
@@ -52,6 +56,10 @@ public class OperationMetrics
     public Histogram getEntryCounts() {
         return _metricEntryCounts;
     }
+
+    public PhaseLatencyMetrics getPhases() {
+        return _metricPhases;
+    }
     
     /*
     /**********************************************************************
@@ -78,6 +86,7 @@ public class OperationMetrics
                 Metrics.newHistogram(metricGroup + operationName + ".sizes") : null;
         _metricEntryCounts = includeEntryCounts ?
                 Metrics.newHistogram(metricGroup + operationName + ".counts") : null;
+        _metricPhases = Metrics.newPhaseLatencies(metricGroup + operationName + ".phases.");
     }
 
     public static OperationMetrics forEntityOperation(ServiceConfig serviceConfig, String operationName)
@@ -111,6 +120,9 @@ public class OperationMetrics
             timer.stop();
         }
         if (opStats != null) {
+            if (timer != null) {
+                _metricPhases.update(opStats);
+            }
             if (_metricSizes != null) {
                 Storable entity = opStats.getEntry();
                 if (entity != null) {
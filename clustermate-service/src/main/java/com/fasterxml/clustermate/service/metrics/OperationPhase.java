@@ -0,0 +1,57 @@
+package com.fasterxml.clustermate.service.metrics;
+
+/**
+ * Enumeration of phases of request processing for which separate
+ * latency histograms are kept (see {@link PhaseLatencyMetrics}).
+ * Values are extracted from
+ * {@link com.fasterxml.storemate.store.util.OperationDiagnostics}.
+ */
+public enum OperationPhase
+{
+    /**
+     * Total time taken by the operation, from start to finish
+     */
+    TOTAL("total"),
+
+    /**
+     * Time spent on metadata (database) access, excluding waits
+     */
+    METADATA("metadata"),
+
+    /**
+     * Time spent waiting to get access to database: lock waits and throttling
+     */
+    LOCK_WAIT("lockWait"),
+
+    /**
+     * Time spent reading content from files, excluding waits
+     */
+    FILE_READ("fileRead"),
+
+    /**
+     * Time spent writing content to files, excluding waits
+     */
+    FILE_WRITE("fileWrite"),
+
+    /**
+     * Time spent waiting for file access (throttling)
+     */
+    FILE_WAIT("fileWait"),
+
+    /**
+     * Time spent reading request and writing response payloads
+     */
+    REQUEST_RESPONSE("requestResponse")
+    ;
+
+    private final String _id;
+
+    private OperationPhase(String id) {
+        _id = id;
+    }
+
+    /**
+     * Id used for the phase in metric names and JSON
+     */
+    public String id() { return _id; }
+}
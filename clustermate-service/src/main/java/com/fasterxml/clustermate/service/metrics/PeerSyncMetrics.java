@@ -0,0 +1,124 @@
+package com.fasterxml.clustermate.service.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+/**
+ * Container for replication metrics of a single peer: how far behind
+ * we are in syncing from it, how fast we are pulling entries, and
+ * problems encountered. Since peers come and go, these are not
+ * registered in the shared {@link Metrics} registry, but only exposed
+ * via {@link ExternalPeerSyncMetrics}.
+ */
+public class PeerSyncMetrics
+{
+    protected final Meter _entriesPulled = new Meter();
+
+    protected final Meter _bytesPulled = new Meter();
+
+    protected final Timer _syncListTimes = new Timer();
+
+    protected final Histogram _pullBatchSizes = new Histogram(new ExponentiallyDecayingReservoir());
+
+    protected final AtomicLong _redundant = new AtomicLong();
+
+    protected final AtomicLong _missing = new AtomicLong();
+
+    protected final AtomicLong _otherProblems = new AtomicLong();
+
+    /**
+     * Number of entries not pulled from this peer, since another peer's
+     * sync thread was already pulling them
+     */
+    protected final AtomicLong _deferred = new AtomicLong();
+
+    /**
+     * Length of the latest sleep between sync rounds, in milliseconds
+     */
+    protected volatile long _sleepMsecs;
+
+    /*
+    /**********************************************************************
+    /* Updates
+    /**********************************************************************
+     */
+
+    public void syncListCompleted(long nanosTaken) {
+        _syncListTimes.update(nanosTaken, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Method called after a single sync-pull request has been processed.
+     *
+     * @param requested Number of entries requested
+     * @param pulled Number of entries actually received
+     * @param bytes Number of content bytes received
+     */
+    public void pullCompleted(int requested, int pulled, long bytes,
+            int redundant, int missing, int other)
+    {
+        _pullBatchSizes.update(requested);
+        _entriesPulled.mark(pulled);
+        _bytesPulled.mark(bytes);
+        if (redundant > 0) {
+            _redundant.addAndGet(redundant);
+        }
+        if (missing > 0) {
+            _missing.addAndGet(missing);
+        }
+        if (other > 0) {
+            _otherProblems.addAndGet(other);
+        }
+    }
+
+    public void pullsDeferred(int count) {
+        _deferred.addAndGet(count);
+    }
+
+    public void setSleepMsecs(long msecs) {
+        _sleepMsecs = msecs;
+    }
+
+    /*
+    /**********************************************************************
+    /* Access
+    /**********************************************************************
+     */
+
+    /**
+     * @param now Current time, used for calculating sync lag
+     * @param syncedUpTo Timestamp up to which peer's entries have been synced
+     * @param failCount Number of failures encountered during syncing
+     */
+    public ExternalPeerSyncMetrics externalize(long now, long syncedUpTo, int failCount)
+    {
+        ExternalPeerSyncMetrics ext = new ExternalPeerSyncMetrics();
+        ext.syncedUpTo = syncedUpTo;
+        ext.syncLagMsecs = (syncedUpTo <= 0L) ? -1L : Math.max(0L, now - syncedUpTo);
+        ext.failCount = failCount;
+        ext.sleepMsecs = _sleepMsecs;
+
+        ext.entriesPulled = _entriesPulled.getCount();
+        ext.entriesPerSec = _entriesPulled.getOneMinuteRate();
+        ext.bytesPulled = _bytesPulled.getCount();
+        ext.bytesPerSec = _bytesPulled.getOneMinuteRate();
+
+        ext.syncListCount = _syncListTimes.getCount();
+        if (ext.syncListCount > 0L) {
+            ext.syncListTimes = new ExternalOperationMetrics.Histogram(_syncListTimes.getSnapshot(), true);
+        }
+        if (_pullBatchSizes.getCount() > 0L) {
+            ext.pullBatchSizes = new ExternalOperationMetrics.Histogram(_pullBatchSizes.getSnapshot(), false);
+        }
+        ext.redundant = _redundant.get();
+        ext.missing = _missing.get();
+        ext.otherProblems = _otherProblems.get();
+        ext.deferred = _deferred.get();
+        return ext;
+    }
+}
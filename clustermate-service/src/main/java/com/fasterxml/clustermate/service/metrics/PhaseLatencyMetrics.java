@@ -0,0 +1,202 @@
+package com.fasterxml.clustermate.service.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.codahale.metrics.Gauge;
+
+import com.fasterxml.storemate.store.util.OperationDiagnostics;
+import com.fasterxml.storemate.store.util.TotalTime;
+import com.fasterxml.storemate.store.util.TotalTimeAndBytes;
+
+/**
+ * Set of latency histograms for a single operation type, one per
+ * {@link OperationPhase}, built from {@link OperationDiagnostics}
+ * so that high latencies can be attributed to database access, file
+ * I/O, throttling or response writing.
+ *<p>
+ * Unlike the default Yammer histograms (which use a sampling reservoir),
+ * HdrHistogram records every value, which gives accurate high
+ * percentiles. Values are recorded in microseconds, and reported
+ * over a sliding window of one to two {@link #WINDOW_MSECS} periods.
+ */
+public class PhaseLatencyMetrics
+{
+    protected final static int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Length of a single window: reported values cover the current
+     * window and the one before it.
+     */
+    protected final static long WINDOW_MSECS = 60 * 1000L;
+
+    /**
+     * To keep access to gauges cheap, only fold recorded values into
+     * reported histograms at most once per second.
+     */
+    protected final static long MIN_MSECS_BETWEEN_REFRESH = 1000L;
+
+    private final static OperationPhase[] PHASES = OperationPhase.values();
+
+    protected final Recorder[] _recorders;
+
+    protected Histogram[] _currentWindow;
+
+    protected Histogram[] _previousWindow;
+
+    /**
+     * Combination of current and previous window, as of the latest refresh.
+     */
+    protected final Histogram[] _reported;
+
+    protected long _windowStart;
+
+    protected long _lastRefresh;
+
+    public PhaseLatencyMetrics()
+    {
+        final int count = PHASES.length;
+        _recorders = new Recorder[count];
+        _currentWindow = new Histogram[count];
+        _previousWindow = new Histogram[count];
+        _reported = new Histogram[count];
+        for (int i = 0; i < count; ++i) {
+            _recorders[i] = new Recorder(SIGNIFICANT_DIGITS);
+            _currentWindow[i] = new Histogram(SIGNIFICANT_DIGITS);
+            _previousWindow[i] = new Histogram(SIGNIFICANT_DIGITS);
+            _reported[i] = new Histogram(SIGNIFICANT_DIGITS);
+        }
+        _windowStart = System.currentTimeMillis();
+    }
+
+    /*
+    /**********************************************************************
+    /* Recording
+    /**********************************************************************
+     */
+
+    public void update(OperationDiagnostics diag)
+    {
+        _record(OperationPhase.TOTAL, diag.getNanosSpent());
+        if (diag.hasDbAccess()) {
+            TotalTime db = diag.getDbAccess();
+            _record(OperationPhase.METADATA, db.getTotalTimeWithoutWait());
+            _record(OperationPhase.LOCK_WAIT, db.getWaitTime());
+        }
+        if (diag.hasFileAccess()) {
+            TotalTimeAndBytes files = diag.getFileAccess();
+            _record(diag.hasFileWrites() ? OperationPhase.FILE_WRITE : OperationPhase.FILE_READ,
+                    files.getTotalTimeWithoutWait());
+            _record(OperationPhase.FILE_WAIT, files.getWaitTime());
+        }
+        if (diag.hasRequestResponseTotal()) {
+            _record(OperationPhase.REQUEST_RESPONSE, diag.getRequestResponseTotal());
+        }
+    }
+
+    private void _record(OperationPhase phase, long nanos)
+    {
+        _recorders[phase.ordinal()].recordValue(Math.max(0L, nanos / 1000L));
+    }
+
+    /*
+    /**********************************************************************
+    /* Access
+    /**********************************************************************
+     */
+
+    /**
+     * Accessor for latency histogram (in microseconds) of given phase,
+     * over the reporting window.
+     */
+    public synchronized Histogram histogramFor(OperationPhase phase)
+    {
+        _refresh(System.currentTimeMillis());
+        return _reported[phase.ordinal()].copy();
+    }
+
+    /**
+     * Method for constructing externally exposable versions of
+     * histograms; phases for which nothing has been recorded are omitted.
+     */
+    public synchronized Map<String, ExternalOperationMetrics.PhaseHistogram> externalize()
+    {
+        _refresh(System.currentTimeMillis());
+        Map<String, ExternalOperationMetrics.PhaseHistogram> result
+            = new LinkedHashMap<String, ExternalOperationMetrics.PhaseHistogram>();
+        for (OperationPhase phase : PHASES) {
+            Histogram h = _reported[phase.ordinal()];
+            if (h.getTotalCount() > 0L) {
+                result.put(phase.id(), new ExternalOperationMetrics.PhaseHistogram(h));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method for registering gauges for main percentiles of all phases
+     * with {@link Metrics}, so that they are exposed via JMX as well.
+     */
+    public void registerGauges(String metricPrefix)
+    {
+        for (final OperationPhase phase : PHASES) {
+            String base = metricPrefix + phase.id() + ".";
+            _registerPercentile(base + "p50", phase, 50.0);
+            _registerPercentile(base + "p99", phase, 99.0);
+            _registerPercentile(base + "p999", phase, 99.9);
+            _registerPercentile(base + "max", phase, 100.0);
+        }
+    }
+
+    private void _registerPercentile(String name, final OperationPhase phase, final double pct)
+    {
+        Metrics.newGauge(name, new Gauge<Double>() {
+            @Override
+            public Double getValue() {
+                return _percentileInMsecs(phase, pct);
+            }
+        });
+    }
+
+    protected synchronized double _percentileInMsecs(OperationPhase phase, double pct)
+    {
+        _refresh(System.currentTimeMillis());
+        return _reported[phase.ordinal()].getValueAtPercentile(pct) / 1000.0;
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    // NOTE: caller must hold the lock
+    private void _refresh(long now)
+    {
+        if (now < (_lastRefresh + MIN_MSECS_BETWEEN_REFRESH)) {
+            return;
+        }
+        _lastRefresh = now;
+        final boolean rollOver = (now >= _windowStart + WINDOW_MSECS);
+        if (rollOver) {
+            _windowStart = now;
+        }
+        for (int i = 0, end = PHASES.length; i < end; ++i) {
+            Histogram current = _currentWindow[i];
+            current.add(_recorders[i].getIntervalHistogram());
+            if (rollOver) {
+                Histogram prev = _previousWindow[i];
+                prev.reset();
+                _previousWindow[i] = current;
+                _currentWindow[i] = prev;
+            }
+            Histogram reported = _reported[i];
+            reported.reset();
+            reported.add(_previousWindow[i]);
+            reported.add(_currentWindow[i]);
+        }
+    }
+}
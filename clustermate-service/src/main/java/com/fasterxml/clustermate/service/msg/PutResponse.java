@@ -62,4 +62,14 @@ public class PutResponse<K extends EntryKey> extends CRUDResponseBase<K>
     public static <K extends EntryKey> PutResponse<K> ok(K key, Storable entry) {
         return new PutResponse<K>(key, entry, null);
     }
+
+    /**
+     * Factory method for constructing a response message that indicates
+     * that payload of given size was accepted, but has not yet been stored.
+     */
+    public static <K extends EntryKey> PutResponse<K> accepted(K key, long size) {
+        PutResponse<K> resp = new PutResponse<K>(key);
+        resp.size = size;
+        return resp;
+    }
 }
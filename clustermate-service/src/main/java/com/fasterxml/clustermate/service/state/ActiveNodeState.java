@@ -1,6 +1,7 @@
 package com.fasterxml.clustermate.service.state;
 
 import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.clustermate.api.NodeDefinition;
 import com.fasterxml.clustermate.api.NodeState;
 
@@ -48,6 +49,8 @@ public final class ActiveNodeState extends NodeState
         index = localNode.getIndex();
         rangeActive = localNode.getActiveRange();
         rangePassive = localNode.getPassiveRange();
+        slotsActive = localNode.getSlots();
+        slotsPassive = slotsActive;
         // can't calculate sync range without more info:
         rangeSync = rangeActive.withLength(0);
         disabled = false; // assume nodes start as active
@@ -74,6 +77,8 @@ public final class ActiveNodeState extends NodeState
         index = remoteNode.getIndex();
         rangeActive = remoteNode.getActiveRange();
         rangePassive = remoteNode.getPassiveRange();
+        slotsActive = remoteNode.getSlots();
+        slotsPassive = slotsActive;
         lastUpdated = updateTime;
 
         // need to know total range of remove node
@@ -107,6 +112,8 @@ public final class ActiveNodeState extends NodeState
         index = remoteNode.getIndex();
         rangeActive = remoteNode.getRangeActive();
         rangePassive = remoteNode.getRangePassive();
+        slotsActive = remoteNode.getSlotsActive();
+        slotsPassive = remoteNode.getSlotsPassive();
         lastUpdated = updateTime;
 
         // need to know total range of remove node
@@ -134,6 +141,8 @@ public final class ActiveNodeState extends NodeState
         lastUpdated = src.lastUpdated;
         rangeActive = src.rangeActive;
         rangePassive = src.rangePassive;
+        slotsActive = src.slotsActive;
+        slotsPassive = src.slotsPassive;
         rangeSync = newSyncRange;
         disabled = src.disabled;
         disabledUpdated = src.disabledUpdated;
@@ -150,6 +159,8 @@ public final class ActiveNodeState extends NodeState
         this.lastUpdated = lastUpdated;
         rangeActive = src.rangeActive;
         rangePassive = src.rangePassive;
+        slotsActive = src.slotsActive;
+        slotsPassive = src.slotsPassive;
         rangeSync = src.rangeSync;
         disabled = src.disabled;
         disabledUpdated = src.disabledUpdated;
@@ -157,6 +168,25 @@ public final class ActiveNodeState extends NodeState
         this.syncedUpTo = syncedUpTo;
     }
 
+    // used via fluent factory
+    private ActiveNodeState(ActiveNodeState src,
+            KeyRange newActive, KeyRange newPassive,
+            KeySlots newActiveSlots, KeySlots newPassiveSlots, long lastUpdated)
+    {
+        address = src.address;
+        index = src.index;
+        this.lastUpdated = lastUpdated;
+        rangeActive = newActive;
+        rangePassive = newPassive;
+        slotsActive = newActiveSlots;
+        slotsPassive = newPassiveSlots;
+        rangeSync = src.rangeSync;
+        disabled = src.disabled;
+        disabledUpdated = src.disabledUpdated;
+        lastSyncAttempt = src.lastSyncAttempt;
+        syncedUpTo = src.syncedUpTo;
+    }
+
     // used via fluent factory
     private ActiveNodeState(ActiveNodeState src, int newIndex)
     {
@@ -165,6 +195,8 @@ public final class ActiveNodeState extends NodeState
         lastUpdated = src.lastUpdated;
         rangeActive = src.rangeActive;
         rangePassive = src.rangePassive;
+        slotsActive = src.slotsActive;
+        slotsPassive = src.slotsPassive;
         rangeSync = src.rangeSync;
         disabled = src.disabled;
         disabledUpdated = src.disabledUpdated;
@@ -181,6 +213,8 @@ public final class ActiveNodeState extends NodeState
         lastUpdated = src.lastUpdated;
         rangeActive = src.rangeActive;
         rangePassive = src.rangePassive;
+        slotsActive = src.slotsActive;
+        slotsPassive = src.slotsPassive;
         rangeSync = src.rangeSync;
         this.disabled = disabled;
         this.disabledUpdated = disabledUpdated;
@@ -204,13 +238,46 @@ public final class ActiveNodeState extends NodeState
      */
     public ActiveNodeState withSyncRange(ActiveNodeState localNode) {
         long syncTimestamp = syncedUpTo;
-        KeyRange newSync = localNode.totalRange().intersection(totalRange());
+        KeyRange newSync = localNode.calcSyncRange(this);
         if (!rangeSync.contains(newSync)) {
             syncTimestamp = 0L;
         }
         return new ActiveNodeState(this, newSync, syncTimestamp);
     }
 
+    /**
+     * Fluent factory used when key ranges of the node change, as a result
+     * of rebalancing; any explicit slots are cleared.
+     * Note that sync range is NOT recalculated, since that
+     * requires knowledge of the local node.
+     */
+    public ActiveNodeState withRanges(KeyRange newActive, KeyRange newPassive,
+            long timestamp) {
+        return new ActiveNodeState(this, newActive, newPassive, null, null, timestamp);
+    }
+
+    /**
+     * Fluent factory used for taking ranges and slots, as well as last-updated
+     * timestamp, from given more up-to-date state of the same node.
+     */
+    public ActiveNodeState withOwnershipOf(NodeState src) {
+        return new ActiveNodeState(this, src.getRangeActive(), src.getRangePassive(),
+                src.getSlotsActive(), src.getSlotsPassive(), src.getLastUpdated());
+    }
+
+    /**
+     * Helper method for calculating range to sync between this node and given
+     * other node: with contiguous ranges, simply their intersection; with
+     * explicit slots, the smallest range that contains all shared slots.
+     */
+    public KeyRange calcSyncRange(NodeState other)
+    {
+        if (!hasExplicitSlots() && !other.hasExplicitSlots()) {
+            return totalRange().intersection(other.totalRange());
+        }
+        return totalSlots().intersection(other.totalSlots()).boundingRange();
+    }
+
     public ActiveNodeState withLastUpdated(long timestamp) {
     	// sanity check: MUST NOT use older timestamp
     	if (timestamp <= lastUpdated) {
@@ -273,6 +340,8 @@ public final class ActiveNodeState extends NodeState
      *  </li>
      * <li>Passive Range
      *  </li>
+     * <li>Active and passive slots, if any
+     *  </li>
      * <li>Index
      *  </li>
      *</ul>
@@ -299,10 +368,14 @@ public final class ActiveNodeState extends NodeState
                 || !_rangesEqual(rangePassive, other.rangePassive)) {
             return false;
         }
+        if (!_rangesEqual(slotsActive, other.slotsActive)
+                || !_rangesEqual(slotsPassive, other.slotsPassive)) {
+            return false;
+        }
         return true;
     }
 
-    private final static boolean _rangesEqual(KeyRange r1, KeyRange r2) {
+    private final static boolean _rangesEqual(Object r1, Object r2) {
         if (r1 == null) {
             return (r2 == null);
         }
@@ -0,0 +1,76 @@
+package com.fasterxml.clustermate.service.store;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper class used for writing entries of PUTs with durability level of
+ * {@link com.fasterxml.clustermate.api.PutDurability#BUFFERED}
+ * asynchronously, after PUT has been acknowledged. Writes are done by a
+ * single background thread, from a bounded queue: if queue is full, caller
+ * is expected to write entry itself before acknowledging PUT.
+ */
+public class BufferedPuts
+{
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Let's not wait for more than 10 seconds for queued writes to complete
+     * when stopping.
+     */
+    protected final static long MAX_WAIT_ON_STOP_MSECS = 10000L;
+
+    protected final ThreadPoolExecutor _executor;
+
+    public BufferedPuts(int maxQueued)
+    {
+        // NOTE: thread is only started when first write is queued
+        _executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, maxQueued)),
+                new ThreadFactory() {
+                    private final AtomicInteger _count = new AtomicInteger(0);
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "BufferedPuts-"+_count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Method called to queue given write.
+     *
+     * @return True if write was queued; false if queue is full (or writer
+     *   has been stopped), in which case caller has to do write itself
+     */
+    public boolean offer(Runnable write)
+    {
+        try {
+            _executor.execute(write);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    public int queuedCount() {
+        return _executor.getQueue().size();
+    }
+
+    /**
+     * Method called when service is stopping: will stop accepting new writes,
+     * and wait (for a limited time) for queued writes to complete.
+     */
+    public void stop() throws InterruptedException
+    {
+        _executor.shutdown();
+        if (!_executor.awaitTermination(MAX_WAIT_ON_STOP_MSECS, TimeUnit.MILLISECONDS)) {
+            LOG.warn("Failed to complete buffered PUTs within {} msecs; {} writes dropped",
+                    MAX_WAIT_ON_STOP_MSECS, _executor.shutdownNow().size());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.fasterxml.clustermate.service.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import com.fasterxml.clustermate.service.util.FileSyncs;
+
+/**
+ * Helper class used for group commit of content files of PUTs with
+ * durability level of {@link com.fasterxml.clustermate.api.PutDurability#SYNC_CONTENT}:
+ * concurrent sync requests are collected into batches, each of which
+ * is forced to disk by one of the calling threads (the "leader"), while
+ * other callers wait for their files to be synced. Leader syncs the batch
+ * once it is full, or once maximum wait time has passed since it started
+ * collecting the batch; and if more requests arrived in the meantime,
+ * hands leadership over to the caller of the oldest one.
+ *<p>
+ * Savings come from forcing each distinct directory only once per batch
+ * (instead of once per file), and from letting the file system combine
+ * journal commits of files synced back-to-back.
+ * Entry metadata is not covered, since the entry store does not
+ * expose a way to force its writes to disk.
+ *<p>
+ * Each request still gets its own outcome: failure to sync a file (or its
+ * directory) is only reported to callers whose files were affected.
+ */
+public class GroupCommitter
+{
+    protected final int _maxBatchSize;
+
+    protected final long _maxWaitMsecs;
+
+    protected final Object _lock = new Object();
+
+    /**
+     * Sync requests waiting to be handled, in order of arrival.
+     */
+    protected final ArrayList<Sync> _queue = new ArrayList<Sync>();
+
+    /**
+     * Flag set when one of callers is collecting or syncing a batch.
+     */
+    protected boolean _leaderActive;
+
+    public GroupCommitter(int maxBatchSize, long maxWaitMsecs)
+    {
+        _maxBatchSize = Math.max(1, maxBatchSize);
+        _maxWaitMsecs = Math.max(0L, maxWaitMsecs);
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method for forcing given file, and directory that contains it, to disk
+     * as part of a batch; will block until file has been synced.
+     *<p>
+     * Note that the calling thread being interrupted does not cancel the
+     * sync (which may already be part of a batch being synced): interrupt
+     * status is retained, but call only returns once sync is complete.
+     */
+    public void sync(File file) throws IOException
+    {
+        final Sync sync = new Sync(file);
+        boolean leader;
+        boolean interrupted = false;
+        synchronized (_lock) {
+            _queue.add(sync);
+            leader = !_leaderActive;
+            if (leader) {
+                _leaderActive = true;
+            } else if (_queue.size() >= _maxBatchSize) { // leader may be waiting for batch to fill
+                _lock.notifyAll();
+            }
+            while (!leader) {
+                if (sync._completed) {
+                    break;
+                }
+                if (sync._leader) {
+                    leader = true;
+                    break;
+                }
+                try {
+                    _lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        // Leader's request is always the oldest one queued, so it gets synced with the batch
+        if (leader && _lead()) {
+            interrupted = true;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (sync._failure != null) {
+            throw sync._failure;
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Overridable methods for actual syncing
+    /**********************************************************************
+     */
+
+    protected void _forceFile(File f) throws IOException {
+        FileSyncs.forceFile(f);
+    }
+
+    protected void _forceDirectory(File dir) throws IOException {
+        FileSyncs.forceDirectory(dir);
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    /**
+     * Method called by the leader to collect a batch of requests, sync it,
+     * and then either give up or hand over leadership.
+     *
+     * @return True if the leader was interrupted while collecting the batch
+     */
+    protected boolean _lead()
+    {
+        boolean interrupted = false;
+        final List<Sync> batch;
+        synchronized (_lock) {
+            final long endTime = System.currentTimeMillis() + _maxWaitMsecs;
+            while (_queue.size() < _maxBatchSize) {
+                long left = endTime - System.currentTimeMillis();
+                if (left <= 0L) {
+                    break;
+                }
+                try {
+                    _lock.wait(left);
+                } catch (InterruptedException e) {
+                    // no point in waiting more; sync what we have
+                    interrupted = true;
+                    break;
+                }
+            }
+            List<Sync> first = _queue.subList(0, Math.min(_queue.size(), _maxBatchSize));
+            batch = new ArrayList<Sync>(first);
+            first.clear();
+        }
+        try {
+            _syncBatch(batch);
+        } finally {
+            synchronized (_lock) {
+                for (Sync sync : batch) {
+                    sync._completed = true;
+                }
+                if (_queue.isEmpty()) {
+                    _leaderActive = false;
+                } else {
+                    _queue.get(0)._leader = true;
+                }
+                _lock.notifyAll();
+            }
+        }
+        return interrupted;
+    }
+
+    /**
+     * Method called to sync files of a batch, followed by each distinct
+     * directory they are in; failures are recorded in the individual requests.
+     */
+    protected void _syncBatch(List<Sync> batch)
+    {
+        Map<File, List<Sync>> byDir = new LinkedHashMap<File, List<Sync>>();
+        for (Sync sync : batch) {
+            try {
+                _forceFile(sync._file);
+            } catch (IOException e) {
+                sync._failure = e;
+                continue;
+            }
+            File dir = sync._file.getAbsoluteFile().getParentFile();
+            List<Sync> syncs = byDir.get(dir);
+            if (syncs == null) {
+                syncs = new ArrayList<Sync>();
+                byDir.put(dir, syncs);
+            }
+            syncs.add(sync);
+        }
+        for (Map.Entry<File, List<Sync>> entry : byDir.entrySet()) {
+            try {
+                _forceDirectory(entry.getKey());
+            } catch (IOException e) {
+                for (Sync sync : entry.getValue()) {
+                    sync._failure = e;
+                }
+            }
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Single file to sync as part of a batch.
+     */
+    protected static class Sync
+    {
+        protected final File _file;
+
+        // NOTE: no need for volatile, visibility is guaranteed by lock of committer
+        protected IOException _failure;
+
+        protected boolean _completed, _leader;
+
+        public Sync(File f) {
+            _file = f;
+        }
+    }
+}
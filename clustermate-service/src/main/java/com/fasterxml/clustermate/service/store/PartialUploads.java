@@ -0,0 +1,305 @@
+package com.fasterxml.clustermate.service.store;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.clustermate.api.EntryKey;
+
+/**
+ * Helper class used for storing partial content of resumable uploads:
+ * content of each upload is appended to a file (named after upload id
+ * and entry key), and length of that file is the offset from which
+ * client can resume the upload after a failure. Once all content has
+ * been received, caller creates the actual entry from the file, and
+ * removes the file.
+ *<p>
+ * Files of uploads that are not completed are removed once they have
+ * not been updated for configured period of time. Number of pending uploads,
+ * as well as total length of their content (as declared by clients), are
+ * limited, so that abandoned uploads can not fill up the disk.
+ *<p>
+ * Calls that access content of an upload ({@link #append}, {@link #remove},
+ * as well as reading of {@link #contentFile}) must be done between calls to
+ * {@link #startUpdate} and {@link #endUpdate}, so that only one request
+ * at a time accesses content of the upload.
+ */
+public class PartialUploads
+{
+    private final Logger LOG = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Upload ids are used as part of file names, so need to limit
+     * their length, as well as characters used.
+     */
+    public final static int MAX_UPLOAD_ID_LENGTH = 64;
+
+    /**
+     * Let's not check for stale uploads more often than once a minute.
+     */
+    protected final static long MIN_DELAY_BETWEEN_CLEANUPS_MSECS = 60 * 1000L;
+
+    protected final static String SUFFIX = ".upload";
+
+    protected final File _directory;
+
+    protected final long _maxIdleMsecs;
+
+    protected final int _maxUploads;
+
+    protected final long _maxTotalLength;
+
+    /**
+     * Set of uploads being currently appended to (or completed), used to
+     * prevent concurrent access to the same file (which may happen if client
+     * retries before server has noticed failure of the earlier request).
+     */
+    protected final ConcurrentHashMap<String,Boolean> _activeUploads
+        = new ConcurrentHashMap<String,Boolean>();
+
+    /**
+     * Lengths of content reserved by pending uploads, by file name:
+     * either total length declared by client, or, for uploads left over
+     * from an earlier run, length of content received.
+     * Access synchronized on the map itself.
+     */
+    protected final Map<String,Long> _reservedLengths = new HashMap<String,Long>();
+
+    protected long _reservedTotal;
+
+    protected volatile long _nextCleanup;
+
+    public PartialUploads(File directory, long maxIdleMsecs,
+            int maxUploads, long maxTotalLength)
+    {
+        _directory = directory;
+        _maxIdleMsecs = maxIdleMsecs;
+        _maxUploads = maxUploads;
+        _maxTotalLength = maxTotalLength;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().endsWith(SUFFIX)) {
+                    _reservedLengths.put(f.getName(), f.length());
+                    _reservedTotal += f.length();
+                }
+            }
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    public static boolean isValidUploadId(String uploadId)
+    {
+        final int len = (uploadId == null) ? 0 : uploadId.length();
+        if (len == 0 || len > MAX_UPLOAD_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < len; ++i) {
+            char c = uploadId.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9') || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method for finding out how much content has been received for
+     * specified upload.
+     *
+     * @return Length of content received so far, if upload exists;
+     *    -1 if not.
+     */
+    public long receivedLength(EntryKey key, String uploadId)
+    {
+        File f = _file(key, uploadId);
+        return f.exists() ? f.length() : -1L;
+    }
+
+    /**
+     * Method to call before accessing content of specified upload.
+     *
+     * @return True if caller may proceed (and must call {@link #endUpdate}
+     *   once done); false if another request is accessing the upload
+     */
+    public boolean startUpdate(EntryKey key, String uploadId) {
+        return _activeUploads.putIfAbsent(_file(key, uploadId).getName(), Boolean.TRUE) == null;
+    }
+
+    public void endUpdate(EntryKey key, String uploadId) {
+        _activeUploads.remove(_file(key, uploadId).getName());
+    }
+
+    /**
+     * Method for appending content from given stream to specified upload,
+     * starting at given offset (any content after offset is discarded).
+     * If reading of content fails, content received before failure is
+     * retained, so that upload can be resumed.
+     * At most one byte more than declared total length is read, to allow
+     * caller to detect that too much content was sent.
+     *
+     * @param totalLength Total length of content of the upload, as declared
+     *   by client
+     *
+     * @return Length of content received so far
+     *
+     * @throws IllegalArgumentException If offset is beyond end of content
+     *   received so far
+     * @throws LimitExceededException If upload can not be accepted without
+     *   exceeding limits for number or total length of pending uploads
+     */
+    public long append(EntryKey key, String uploadId, long offset, long totalLength,
+            InputStream in)
+        throws IOException
+    {
+        _cleanupIfNeeded();
+        final File f = _file(key, uploadId);
+        long length = f.exists() ? f.length() : 0L;
+        if (offset > length) {
+            throw new IllegalArgumentException("Invalid offset ("+offset
+                    +") for upload '"+uploadId+"': only "+length+" bytes received");
+        }
+        _reserve(f.getName(), totalLength);
+        if (!_directory.exists()) {
+            _directory.mkdirs();
+        }
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.setLength(offset);
+            raf.seek(offset);
+            final byte[] buffer = new byte[16000];
+            long left = totalLength + 1L - offset;
+            int count;
+            while (left > 0L
+                    && (count = in.read(buffer, 0, (int) Math.min(buffer.length, left))) > 0) {
+                raf.write(buffer, 0, count);
+                left -= count;
+            }
+            return raf.length();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Accessor for the file that contains content received for
+     * specified upload.
+     */
+    public File contentFile(EntryKey key, String uploadId) {
+        return _file(key, uploadId);
+    }
+
+    public void remove(EntryKey key, String uploadId)
+    {
+        File f = _file(key, uploadId);
+        if (f.exists() && !f.delete()) {
+            LOG.warn("Failed to delete partial upload file {}", f.getAbsolutePath());
+        }
+        _release(f.getName());
+    }
+
+    public int getPendingCount() {
+        synchronized (_reservedLengths) {
+            return _reservedLengths.size();
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected File _file(EntryKey key, String uploadId)
+    {
+        // key is included to avoid collisions between uploads that (incorrectly) use same id
+        return new File(_directory, uploadId+"-"+Integer.toHexString(key.asStorableKey().hashCode())+SUFFIX);
+    }
+
+    protected void _reserve(String name, long length) throws LimitExceededException
+    {
+        synchronized (_reservedLengths) {
+            Long old = _reservedLengths.get(name);
+            if (old == null && _reservedLengths.size() >= _maxUploads) {
+                throw new LimitExceededException("Too many pending uploads ("
+                        +_reservedLengths.size()+"); maximum "+_maxUploads);
+            }
+            long newTotal = _reservedTotal + length - ((old == null) ? 0L : old.longValue());
+            if (newTotal > _reservedTotal && newTotal > _maxTotalLength) {
+                throw new LimitExceededException("Too much content in pending uploads ("
+                        +_reservedTotal+" bytes, new upload "+length+"); maximum "+_maxTotalLength);
+            }
+            _reservedLengths.put(name, length);
+            _reservedTotal = newTotal;
+        }
+    }
+
+    protected void _release(String name)
+    {
+        synchronized (_reservedLengths) {
+            Long old = _reservedLengths.remove(name);
+            if (old != null) {
+                _reservedTotal -= old.longValue();
+            }
+        }
+    }
+
+    protected void _cleanupIfNeeded()
+    {
+        // NOTE: must use real time, not TimeMaster, to compare with file modification times
+        final long now = System.currentTimeMillis();
+        if (now < _nextCleanup) {
+            return;
+        }
+        _nextCleanup = now + MIN_DELAY_BETWEEN_CLEANUPS_MSECS;
+        File[] files = _directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long oldest = now - _maxIdleMsecs;
+        for (File f : files) {
+            final String name = f.getName();
+            if (name.endsWith(SUFFIX) && f.lastModified() < oldest
+                    // must not remove uploads being accessed
+                    && _activeUploads.putIfAbsent(name, Boolean.TRUE) == null) {
+                try {
+                    if (f.delete()) {
+                        _release(name);
+                        LOG.info("Removed stale partial upload file {}", f.getAbsolutePath());
+                    }
+                } finally {
+                    _activeUploads.remove(name);
+                }
+            }
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper classes
+    /**********************************************************************
+     */
+
+    /**
+     * Exception thrown if an upload can not be accepted due to limits
+     * for pending uploads.
+     */
+    public static class LimitExceededException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        public LimitExceededException(String msg) {
+            super(msg);
+        }
+    }
+}
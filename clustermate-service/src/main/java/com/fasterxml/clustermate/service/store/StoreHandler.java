@@ -1,7 +1,9 @@
 package com.fasterxml.clustermate.service.store;
 
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -17,6 +19,7 @@ import com.fasterxml.storemate.shared.TimeMaster;
 import com.fasterxml.storemate.shared.compress.Compression;
 import com.fasterxml.storemate.shared.compress.Compressors;
 import com.fasterxml.storemate.shared.hash.HashConstants;
+import com.fasterxml.storemate.shared.util.BufferRecycler;
 import com.fasterxml.storemate.store.*;
 import com.fasterxml.storemate.store.backend.IterationAction;
 import com.fasterxml.storemate.store.backend.StorableIterationCallback;
@@ -27,10 +30,12 @@ import com.fasterxml.clustermate.api.*;
 import com.fasterxml.clustermate.api.msg.ListItem;
 import com.fasterxml.clustermate.api.msg.ListResponse;
 import com.fasterxml.clustermate.service.*;
+import com.fasterxml.clustermate.service.cfg.GroupCommitConfig;
 import com.fasterxml.clustermate.service.cfg.ServiceConfig;
 import com.fasterxml.clustermate.service.cluster.ClusterViewByServer;
 import com.fasterxml.clustermate.service.metrics.AllOperationMetrics;
 import com.fasterxml.clustermate.service.metrics.ExternalOperationMetrics;
+import com.fasterxml.clustermate.service.util.FileSyncs;
 import com.fasterxml.clustermate.service.msg.*;
 import com.fasterxml.storemate.store.util.SimpleLogThrottler;
 
@@ -108,6 +113,9 @@ public abstract class StoreHandler<
     // log dup puts at max rate of 1 per second
     protected final SimpleLogThrottler _dupPutsLogger = LOG_DUP_PUTS ?
             new SimpleLogThrottler(LOG, 1000) : null;
+
+    // as well as failures of buffered puts
+    protected final SimpleLogThrottler _bufferedPutsLogger = new SimpleLogThrottler(LOG, 1000);
     
     /*
     /**********************************************************************
@@ -120,6 +128,35 @@ public abstract class StoreHandler<
      */
     protected final DeferredDeleter _deferredDeleter;
     
+    /**
+     * Storage for partial content of resumable uploads
+     */
+    protected final PartialUploads _partialUploads;
+
+    /*
+    /**********************************************************************
+    /* Helper objects, buffered PUT support
+    /**********************************************************************
+     */
+
+    /**
+     * Writer for entries of PUTs that are acknowledged before they are
+     * written (durability level of {@link PutDurability#BUFFERED}).
+     */
+    protected final BufferedPuts _bufferedPuts;
+
+    /**
+     * Read buffers used for content of buffered PUTs; recycled per thread
+     */
+    protected final BufferRecycler _bufferedPutBuffers;
+
+    /**
+     * Helper object for syncing content files of PUTs with durability
+     * level of {@link PutDurability#SYNC_CONTENT} in batches, if group
+     * commit is enabled; null if not.
+     */
+    protected final GroupCommitter _groupCommitter;
+
     /*
     /**********************************************************************
     /* Construction
@@ -149,6 +186,21 @@ public abstract class StoreHandler<
 
         // Are we to do deferred deletions?
         _deferredDeleter = constructDeleter(stuff, stores);
+
+        File uploadDir = _serviceConfig.uploadDirectory;
+        if (uploadDir == null) {
+            uploadDir = new File(_serviceConfig.metadataDirectory, "uploads");
+        }
+        _partialUploads = new PartialUploads(uploadDir, _serviceConfig.cfgPartialUploadTTL.getMillis(),
+                _serviceConfig.cfgMaxPartialUploads, _serviceConfig.cfgMaxPartialUploadBytes);
+
+        _bufferedPuts = new BufferedPuts(_serviceConfig.cfgMaxBufferedPuts);
+        _bufferedPutBuffers = new BufferRecycler(Math.max(0, _serviceConfig.cfgMaxBufferedPutLength) + 1);
+
+        GroupCommitConfig gcConfig = _serviceConfig.groupCommit;
+        _groupCommitter = (gcConfig != null && gcConfig.enabled)
+                ? new GroupCommitter(gcConfig.maxBatchSize, gcConfig.maxWait.getMillis())
+                : null;
     }
 
     /*
@@ -168,6 +220,8 @@ public abstract class StoreHandler<
     @Override
     public void prepareForStop() throws Exception
     {
+        // let buffered PUTs complete before stores are closed
+        _bufferedPuts.stop();
         if (_deferredDeleter != null) {
             _deferredDeleter.prepareForStop();
         }
@@ -347,11 +401,7 @@ public abstract class StoreHandler<
         // Issue #6: Need to provide Etag, if content hash available
         int contentHash = rawEntry.getContentHash();
         if (contentHash != HashConstants.NO_CHECKSUM) {
-            StringBuilder sb = new StringBuilder();
-            sb.append('"');
-            sb.append(contentHash);
-            sb.append('"');
-            response = response.addHeader(ClusterMateConstants.HTTP_HEADER_ETAG, sb.toString());
+            response = response.addHeader(ClusterMateConstants.HTTP_HEADER_ETAG, _etagFor(contentHash));
         }
         
         // also need to let client know we left compression in there:
@@ -361,6 +411,15 @@ public abstract class StoreHandler<
         return response;
     }
     
+    protected static String _etagFor(int contentHash)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append('"');
+        sb.append(contentHash);
+        sb.append('"');
+        return sb.toString();
+    }
+
     protected boolean _notChanged(ServiceRequest request, Storable rawEntry)
     {
         // First: entry must have hash value to compare against
@@ -404,6 +463,16 @@ public abstract class StoreHandler<
             OperationDiagnostics diag)
         throws StoreException
     {
+        // Status of a resumable upload, instead of an entry?
+        final String uploadId = request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_ID);
+        if (uploadId != null) {
+            long received = PartialUploads.isValidUploadId(uploadId) ?
+                    _partialUploads.receivedLength(key, uploadId) : -1L;
+            if (received < 0L) {
+                return response.notFound();
+            }
+            return response.ok().setContentLength(received);
+        }
         // Do we need special handling for Range requests? (GET only?)
     	// Should this update last-accessed as well? (for now, won't)
         Storable rawEntry;
@@ -422,6 +491,11 @@ public abstract class StoreHandler<
         if (rawEntry.isDeleted()) {
             return response.noContent();
         }
+        // Conditional HEAD with Etag: used by clients as pre-flight check before
+        // PUTs, to avoid uploading content that already exists
+        if (_notChanged(request, rawEntry)) {
+            return response.notChanged();
+        }
 
         final long accessTime = _timeMaster.currentTimeMillis();
         final E entry = _entryConverter.entryFromStorable(rawEntry);
@@ -441,7 +515,12 @@ public abstract class StoreHandler<
         } else {
             size = entry.getActualUncompressedLength();
         }
-        return response.ok().setContentLength(size);
+        response = response.ok().setContentLength(size);
+        int contentHash = rawEntry.getContentHash();
+        if (contentHash != HashConstants.NO_CHECKSUM) {
+            response = response.addHeader(ClusterMateConstants.HTTP_HEADER_ETAG, _etagFor(contentHash));
+        }
+        return response;
     }
 
     /*
@@ -460,9 +539,102 @@ public abstract class StoreHandler<
             K key, InputStream dataIn, OperationDiagnostics metadata)
     {
         final int checksum = _decodeInt(request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_CHECKSUM), 0);
+        final String uploadId = request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_UPLOAD_ID);
+        if (uploadId != null) {
+            return putPartialEntry(request, response, key, uploadId, checksum, dataIn, metadata);
+        }
         return putEntry(request, response, key, checksum, dataIn, null, null, metadata);
     }
 
+    /**
+     * Method called for PUTs that are part of a resumable upload: content is
+     * appended to partial content of the upload, and once all content has been
+     * received, entry is created from it (with usual checksum verification).
+     * If content can not be fully read, content received so far is retained,
+     * and client may resume upload from the offset returned by a HEAD request
+     * (or included in the failure response).
+     * Partial content is only removed once entry has been created, or if
+     * content turns out to be invalid; after other (transient) failures
+     * upload can be retried.
+     */
+    protected ServiceResponse putPartialEntry(ServiceRequest request, ServiceResponse response,
+            K key, String uploadId, int checksum, InputStream dataIn,
+            OperationDiagnostics stats)
+    {
+        if (!PartialUploads.isValidUploadId(uploadId)) {
+            return response.badRequest(PutResponse.badArg(key, "Invalid upload id '"+uploadId+"'"));
+        }
+        final long offset = _findLongParam(request, ClusterMateConstants.QUERY_PARAM_UPLOAD_OFFSET);
+        final long totalLength = _findLongParam(request, ClusterMateConstants.QUERY_PARAM_UPLOAD_LENGTH);
+        if (totalLength <= 0L || offset < 0L || offset > totalLength) {
+            return response.badRequest(PutResponse.badArg(key, "Invalid offset ("+offset
+                    +") or length ("+totalLength+") for upload '"+uploadId+"'"));
+        }
+        // only one request may access content of the upload at a time
+        if (!_partialUploads.startUpdate(key, uploadId)) { // another request for the same upload still in progress
+            return response.serverOverload();
+        }
+        boolean remove = false;
+        try {
+            long received;
+            try {
+                received = _partialUploads.append(key, uploadId, offset, totalLength, dataIn);
+            } catch (IllegalArgumentException e) {
+                return response.badRequest(PutResponse.badArg(key, e.getMessage()));
+            } catch (PartialUploads.LimitExceededException e) {
+                LOG.warn("Refused upload '{}' of entry '{}': {}", uploadId, key, e.getMessage());
+                return response.serverOverload();
+            } catch (IOException e) {
+                // most likely client disconnect; content received so far is retained for resuming
+                LOG.warn("Failed to receive content for upload '{}' of entry '{}': {}",
+                        uploadId, key, e.getMessage());
+                return _uploadOffset(response.internalError(PutResponse.error(key,
+                        "Failed to receive content for upload '"+uploadId+"': "+e.getMessage())),
+                        key, uploadId);
+            }
+            if (received < totalLength) { // can be resumed, so indicate this with 503, offset
+                return response.serverOverload()
+                        .setEntity(PutResponse.error(key, "Incomplete content for upload '"
+                        +uploadId+"': received "+received+" of "+totalLength+" bytes"))
+                        .addHeader(ClusterMateConstants.CUSTOM_HTTP_HEADER_UPLOAD_OFFSET, received);
+            }
+            if (received > totalLength) {
+                remove = true;
+                return response.badRequest(PutResponse.badArg(key, "Too much content for upload '"
+                        +uploadId+"': received more than "+totalLength+" bytes"));
+            }
+            // all content received; can now create the entry
+            try {
+                InputStream in = new FileInputStream(_partialUploads.contentFile(key, uploadId));
+                try {
+                    response = putEntry(request, response, key, checksum, in, null, null, stats);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return internalPutError(response, key,
+                        e, "Failed to PUT an entry from upload '"+uploadId+"'");
+            }
+            // created, or content failed verification: either way, partial content no longer needed
+            remove = !response.isError() || (response.getStatus() == HttpURLConnection.HTTP_BAD_REQUEST);
+            return response;
+        } finally {
+            if (remove) {
+                _partialUploads.remove(key, uploadId);
+            }
+            _partialUploads.endUpdate(key, uploadId);
+        }
+    }
+
+    protected ServiceResponse _uploadOffset(ServiceResponse response, K key, String uploadId)
+    {
+        long received = _partialUploads.receivedLength(key, uploadId);
+        if (received >= 0L) {
+            response = response.addHeader(ClusterMateConstants.CUSTOM_HTTP_HEADER_UPLOAD_OFFSET, received);
+        }
+        return response;
+    }
+
     // Public due to unit tests
     public ServiceResponse putEntry(ServiceRequest request, ServiceResponse response,
             K key, int checksum,// 32-bit hash by client
@@ -472,6 +644,22 @@ public abstract class StoreHandler<
     {
         final long  creationTime = _timeMaster.currentTimeMillis();
 
+        final PutDurability durability;
+        String durabilityStr = request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_DURABILITY);
+        if (durabilityStr == null) {
+            durability = PutDurability.WRITE;
+        } else {
+            durability = PutDurability.find(durabilityStr);
+            if (durability == null) {
+                return response.badRequest(PutResponse.badArg(key, "Invalid value for parameter '"
+                        +ClusterMateConstants.QUERY_PARAM_DURABILITY+"': '"+durabilityStr+"'"));
+            }
+        }
+
+        // Read-repairs must not recreate entries deleted from this node
+        final boolean allowUndelete = _serviceConfig.cfgAllowUndelete
+                && !"true".equals(request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_NO_UNDELETE));
+
         // What compression, if any, is payload using?
         Compression inputCompression = Compression.forContentEncoding(request.getHeader(
                 ClusterMateConstants.HTTP_HEADER_COMPRESSION));
@@ -498,19 +686,51 @@ public abstract class StoreHandler<
         ByteContainer customMetadata = constructPutMetadata(request, key, creationTime,
         		minTTLSinceAccess, maxTTL);
         StorableCreationResult result;
+        // read buffer for buffered PUTs is recycled (per thread), to keep memory usage bounded
+        BufferRecycler.Holder bufferHolder = null;
+        byte[] buffer = null;
 
         try {
-            /* This gets quite convoluted but that's how it goes: if undelete (put with
-             * exact same content) is allowed, we must use different method:
-             */
-            if (_serviceConfig.cfgAllowUndelete) {
-                result = _stores.getEntryStore().upsertConditionally(StoreOperationSource.REQUEST, stats,
-                        key.asStorableKey(),
-                        dataIn, stdMetadata, customMetadata, true,
-                        AllowUndeletingUpdates.instance);
-            } else {
-                result = _stores.getEntryStore().insert(StoreOperationSource.REQUEST, stats,
-                        key.asStorableKey(), dataIn, stdMetadata, customMetadata);
+            result = null;
+            // Small content may be buffered, for asynchronous write
+            final int maxBuffered = (durability == PutDurability.BUFFERED) ? _serviceConfig.cfgMaxBufferedPutLength : 0;
+            if (maxBuffered > 0) {
+                // small enough? Need to read content to know
+                bufferHolder = _bufferedPutBuffers.getHolder();
+                buffer = bufferHolder.borrowBuffer(maxBuffered + 1);
+                int len = _readUpTo(dataIn, buffer, maxBuffered + 1);
+                if (len <= maxBuffered) {
+                    // only content of queued writes is copied
+                    ByteContainer data = ByteContainer.simple(Arrays.copyOf(buffer, len));
+                    // problems must be caught before acknowledging, as they could only be logged later on
+                    if (!_checksumMatches(data, stdMetadata)) {
+                        return response.badRequest
+                                (PutResponse.badArg(key, "Bad Checksum information passed: content hash does not match"));
+                    }
+                    // existing entries (including tombstones) need checks done by regular write
+                    if (!_stores.getEntryStore().hasEntry(StoreOperationSource.REQUEST, stats, key.asStorableKey())
+                            && _bufferedPuts.offer(_bufferedWrite(key, data, stdMetadata, customMetadata, allowUndelete))) {
+                        return response.accepted(PutResponse.accepted(key, len));
+                    }
+                    // if not (or queue is full), write now
+                    result = _insertEntry(key, data, stdMetadata, customMetadata, allowUndelete, stats);
+                } else {
+                    dataIn = new SequenceInputStream(new ByteArrayInputStream(buffer, 0, len), dataIn);
+                }
+            }
+            if (result == null) {
+                /* This gets quite convoluted but that's how it goes: if undelete (put with
+                 * exact same content) is allowed, we must use different method:
+                 */
+                if (allowUndelete) {
+                    result = _stores.getEntryStore().upsertConditionally(StoreOperationSource.REQUEST, stats,
+                            key.asStorableKey(),
+                            dataIn, stdMetadata, customMetadata, true,
+                            AllowUndeletingUpdates.instance);
+                } else {
+                    result = _stores.getEntryStore().insert(StoreOperationSource.REQUEST, stats,
+                            key.asStorableKey(), dataIn, stdMetadata, customMetadata);
+                }
             }
         } catch (StoreException.Input e) { // something client did wrong
             switch (e.getProblem()) {
@@ -529,6 +749,10 @@ public abstract class StoreHandler<
         } catch (IOException e) {
             return internalPutError(response, key,
             		e, "Failed to PUT an entry: "+e.getMessage());
+        } finally {
+            if (buffer != null) {
+                bufferHolder.returnBuffer(buffer);
+            }
         }
 
         // And then check whether it was a dup put; and if so, that checksums match
@@ -540,7 +764,7 @@ public abstract class StoreHandler<
             _logDuplicatePut(key);
             // first: will not allow "recreating" a soft-deleted entry
             if (prev.isDeleted()) {
-                if (!_serviceConfig.cfgAllowUndelete) {
+                if (!allowUndelete) {
                     String prob = "Failed PUT: trying to recreate deleted entry '"+key+"'";
                     return response.gone(PutResponse.error(key, prev, prob));
                 }
@@ -556,9 +780,134 @@ public abstract class StoreHandler<
         } else if (stats != null) {
             stats.setEntry(result.getNewEntry());
         }
+        if (durability == PutDurability.SYNC_CONTENT) {
+            Storable entry = (result.getNewEntry() == null) ? prev : result.getNewEntry();
+            try {
+                _forceToDisk(entry);
+            } catch (IOException e) {
+                return internalPutError(response, key,
+                        e, "Failed to sync content of an entry: "+e.getMessage());
+            }
+        }
         return response.ok(PutResponse.ok(key, result.getNewEntry()));
     }
-    
+
+    /**
+     * Method for checking whether content hash passed by client (if any) matches
+     * given content, which may be compressed. Used for buffered PUTs, since store
+     * only verifies checksum once entry is written.
+     */
+    protected boolean _checksumMatches(ByteContainer data, StorableCreationMetadata stdMetadata)
+    {
+        if (stdMetadata.contentHash == HashConstants.NO_CHECKSUM) {
+            return true;
+        }
+        Compression comp = stdMetadata.compression;
+        if (comp != null && comp != Compression.NONE) {
+            try {
+                data = Compressors.uncompress(data, comp, (int) stdMetadata.uncompressedSize);
+            } catch (IOException e) { // can not be valid, then
+                return false;
+            }
+        }
+        return _keyConverter.contentHashFor(data) == stdMetadata.contentHash;
+    }
+
+    /**
+     * Helper method for reading up to given number of bytes in given buffer.
+     *
+     * @return Number of bytes read; less than <code>max</code> only if end of
+     *   content was reached
+     */
+    protected static int _readUpTo(InputStream in, byte[] buffer, int max) throws IOException
+    {
+        int offset = 0;
+        while (offset < max) {
+            int count = in.read(buffer, offset, max-offset);
+            if (count < 0) {
+                break;
+            }
+            offset += count;
+        }
+        return offset;
+    }
+
+    /**
+     * Method called to insert a small entry, content of which has been fully
+     * read in memory.
+     */
+    protected StorableCreationResult _insertEntry(K key, ByteContainer data,
+            StorableCreationMetadata stdMetadata, ByteContainer customMetadata,
+            boolean allowUndelete, OperationDiagnostics stats)
+        throws IOException
+    {
+        if (allowUndelete) {
+            return _stores.getEntryStore().upsertConditionally(StoreOperationSource.REQUEST, stats,
+                    key.asStorableKey(), data, stdMetadata, customMetadata, true,
+                    AllowUndeletingUpdates.instance);
+        }
+        return _stores.getEntryStore().insert(StoreOperationSource.REQUEST, stats,
+                key.asStorableKey(), data, stdMetadata, customMetadata);
+    }
+
+    /**
+     * Method for constructing the write of a PUT with durability level of
+     * {@link PutDurability#BUFFERED}: since PUT has already been acknowledged,
+     * problems (including conflicts with existing entries) can only be logged.
+     */
+    protected Runnable _bufferedWrite(final K key, final ByteContainer data,
+            final StorableCreationMetadata stdMetadata, final ByteContainer customMetadata,
+            final boolean allowUndelete)
+    {
+        return new Runnable() {
+            @Override
+            public void run() {
+                String prob;
+                try {
+                    StorableCreationResult result = _insertEntry(key, data, stdMetadata, customMetadata,
+                            allowUndelete, null);
+                    Storable prev = result.getPreviousEntry();
+                    if (prev == null) {
+                        return;
+                    }
+                    if (prev.isDeleted() && !allowUndelete) {
+                        prob = "trying to recreate deleted entry";
+                    } else {
+                        prob = _verifyChecksums(prev, stdMetadata);
+                    }
+                } catch (IOException e) {
+                    prob = e.getMessage();
+                } catch (RuntimeException e) {
+                    prob = e.toString();
+                }
+                if (prob != null) {
+                    _bufferedPutsLogger.logWarn("Failed buffered PUT of entry '{}': {}", key, prob);
+                }
+            }
+        };
+    }
+
+    /**
+     * Method called for PUTs with durability level of {@link PutDurability#SYNC_CONTENT},
+     * to force content file of the entry (if any), and the directory entry
+     * of the file, to disk; either directly or as part of a group commit
+     * (if enabled). Inlined content is stored along with metadata,
+     * durability of which is determined by the store backend.
+     */
+    protected void _forceToDisk(Storable entry) throws IOException
+    {
+        if (entry == null || !entry.hasExternalData()) {
+            return;
+        }
+        File f = entry.getExternalFile(_fileManager);
+        if (_groupCommitter != null) {
+            _groupCommitter.sync(f);
+            return;
+        }
+        FileSyncs.forceFile(f);
+        FileSyncs.forceDirectory(f.getParentFile());
+    }
+
     private String _verifyChecksums(Storable oldEntry, StorableCreationMetadata newEntry)
     {
         if (oldEntry.getContentHash() != newEntry.contentHash) { 
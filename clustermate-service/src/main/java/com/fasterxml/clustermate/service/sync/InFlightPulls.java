@@ -0,0 +1,92 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.storemate.shared.StorableKey;
+
+/**
+ * Node-wide registry of entries currently being pulled from peers.
+ * Since sync threads for all peers run independently, an entry that was
+ * written to multiple replicas is typically listed by more than one peer;
+ * registry is used for ensuring that only one of threads pulls the
+ * payload, and others wait for it to complete instead.
+ */
+public class InFlightPulls
+{
+    protected final ConcurrentHashMap<StorableKey, Claim> _claims
+        = new ConcurrentHashMap<StorableKey, Claim>();
+
+    /**
+     * Method called by a sync thread before pulling specified entry.
+     *
+     * @return Null if the caller claimed the entry, and is to pull it (and
+     *    then call {@link #release}); otherwise claim by another thread,
+     *    which caller may wait for.
+     */
+    public Claim claim(StorableKey key, Object owner)
+    {
+        Claim ours = new Claim(owner);
+        Claim existing = _claims.putIfAbsent(key, ours);
+        if (existing == null || existing.owner == owner) {
+            return null;
+        }
+        return existing;
+    }
+
+    /**
+     * Method called once entry claimed earlier has been pulled, or
+     * pulling has failed.
+     */
+    public void release(StorableKey key, Object owner)
+    {
+        Claim claim = _claims.get(key);
+        if (claim != null && claim.owner == owner) {
+            _claims.remove(key, claim);
+            claim.done();
+        }
+    }
+
+    /**
+     * @return Number of entries currently being pulled
+     */
+    public int size() {
+        return _claims.size();
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper types
+    /**********************************************************************
+     */
+
+    /**
+     * Marker for an entry pull in progress.
+     */
+    public final static class Claim
+    {
+        protected final Object owner;
+
+        private final CountDownLatch _done = new CountDownLatch(1);
+
+        Claim(Object owner) {
+            this.owner = owner;
+        }
+
+        void done() {
+            _done.countDown();
+        }
+
+        /**
+         * Method for waiting until pull is completed, up to specified amount
+         * of time.
+         *
+         * @return True if pull completed (successfully or not); false if
+         *    wait timed out
+         */
+        public boolean await(long msecs) throws InterruptedException {
+            return _done.await(msecs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.skife.config.TimeSpan;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.storemate.shared.util.IOUtil;
+
+import com.fasterxml.clustermate.api.ClusterMateConstants;
+import com.fasterxml.clustermate.api.ContentType;
+import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+
+/**
+ * Default {@link PeerTransport} implementation, based on JDK
+ * {@link HttpURLConnection}. JDK already reuses persistent connections,
+ * but only if response content is fully read (and not too much of it is
+ * left unread when stream is closed) and if the number of concurrently used
+ * connections to a peer stays within size of its keep-alive cache; so this
+ * implementation:
+ *<ul>
+ * <li>Limits number of concurrent calls per peer (callers block until
+ *   a connection is available, up to call timeout)</li>
+ * <li>Reads any remaining content (up to a limit) of both successful and
+ *   failed responses before closing them</li>
+ *</ul>
+ * Note that JDK keeps at most "http.maxConnections" (system property;
+ * defaults to 5) idle connections per peer, so that configuring more
+ * connections per node than that will not reuse all connections.
+ */
+public class JdkPeerTransport extends PeerTransport
+{
+    /**
+     * Maximum amount of unread content we are willing to read (and discard)
+     * when closing a response, to allow connection to be reused; if more
+     * is left, connection is closed instead.
+     */
+    protected final static int MAX_BYTES_TO_DRAIN = 64000;
+
+    protected final ConcurrentHashMap<IpAndPort, Semaphore> _connectionsPerPeer
+        = new ConcurrentHashMap<IpAndPort, Semaphore>();
+
+    protected int _maxConnectionsPerPeer = 1;
+
+    protected final AtomicBoolean _stopped = new AtomicBoolean(false);
+
+    public JdkPeerTransport() { }
+
+    @Override
+    public void init(ServiceConfig config) {
+        _maxConnectionsPerPeer = Math.max(1, config.cfgPeerConnectionsPerNode);
+    }
+
+    @Override
+    public void stop() {
+        _stopped.set(true);
+    }
+
+    /*
+    /**********************************************************************
+    /* PeerTransport impl
+    /**********************************************************************
+     */
+
+    @Override
+    public Response get(IpAndPort peer, String url, TimeSpan timeout, String accept)
+        throws IOException, InterruptedException
+    {
+        Semaphore permits = _acquire(peer, timeout);
+        try {
+            HttpURLConnection conn = _prepare(url, timeout, "GET", false);
+            if (accept != null) {
+                conn.setRequestProperty(ClusterMateConstants.HTTP_HEADER_ACCEPT, accept);
+            }
+            conn.connect();
+            return _response(conn, permits);
+        } catch (IOException e) {
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Response post(IpAndPort peer, String url, TimeSpan timeout,
+            ContentType contentType, byte[] body)
+        throws IOException, InterruptedException
+    {
+        Semaphore permits = _acquire(peer, timeout);
+        try {
+            final boolean hasBody = (body != null);
+            HttpURLConnection conn = _prepare(url, timeout, "POST", hasBody);
+            if (contentType != null) {
+                conn.setRequestProperty(ClusterMateConstants.HTTP_HEADER_CONTENT_TYPE, contentType.toString());
+            }
+            if (hasBody) {
+                // since we do know length in advance, let's just do this:
+                conn.setFixedLengthStreamingMode(body.length);
+            }
+            conn.connect();
+            if (hasBody) {
+                OutputStream out = conn.getOutputStream();
+                try {
+                    out.write(body);
+                } finally {
+                    out.close();
+                }
+            }
+            return _response(conn, permits);
+        } catch (IOException e) {
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    protected Semaphore _acquire(IpAndPort peer, TimeSpan timeout)
+        throws IOException, InterruptedException
+    {
+        if (_stopped.get()) {
+            throw new IOException("Transport stopped, can not call "+peer);
+        }
+        Semaphore permits = _connectionsPerPeer.get(peer);
+        if (permits == null) {
+            permits = new Semaphore(_maxConnectionsPerPeer, true);
+            Semaphore old = _connectionsPerPeer.putIfAbsent(peer, permits);
+            if (old != null) {
+                permits = old;
+            }
+        }
+        if (!permits.tryAcquire(timeout.getMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IOException("Timed out ("+timeout+") waiting for a connection to "+peer
+                    +" (all "+_maxConnectionsPerPeer+" in use)");
+        }
+        return permits;
+    }
+
+    protected HttpURLConnection _prepare(String urlStr, TimeSpan timeout,
+            String methodName, boolean sendInput)
+        throws IOException
+    {
+        URL url = new URL(urlStr);
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod(methodName);
+        conn.setAllowUserInteraction(false);
+        conn.setUseCaches(false);
+        conn.setDoOutput(sendInput);
+        conn.setDoInput(true); // we always read response
+
+        // how about timeouts... JDK one does not give us whole-operation granularity but:
+        int timeoutMs = (int) timeout.getMillis();
+        // let's give only half to connect; more likely we detect down servers on connect
+        conn.setConnectTimeout(timeoutMs/2);
+        conn.setReadTimeout(timeoutMs);
+        return conn;
+    }
+
+    protected Response _response(HttpURLConnection conn, Semaphore permits)
+        throws IOException
+    {
+        // need to force reading of status line, to know which stream to use
+        int statusCode = conn.getResponseCode();
+        return new JdkResponse(conn, statusCode, permits);
+    }
+
+    protected static class JdkResponse extends Response
+    {
+        protected final HttpURLConnection _conn;
+
+        protected final int _statusCode;
+
+        protected final Semaphore _permits;
+
+        protected final AtomicBoolean _closed = new AtomicBoolean(false);
+
+        protected InputStream _in;
+
+        public JdkResponse(HttpURLConnection conn, int statusCode, Semaphore permits) {
+            _conn = conn;
+            _statusCode = statusCode;
+            _permits = permits;
+        }
+
+        @Override
+        public int statusCode() { return _statusCode; }
+
+        @Override
+        public String contentType() { return _conn.getContentType(); }
+
+        @Override
+        public long contentLength() {
+            String str = _conn.getHeaderField(ClusterMateConstants.HTTP_HEADER_CONTENT_LENGTH);
+            if (str != null) {
+                try {
+                    return Long.parseLong(str.trim());
+                } catch (NumberFormatException e) { }
+            }
+            return -1L;
+        }
+
+        @Override
+        public String header(String name) { return _conn.getHeaderField(name); }
+
+        @Override
+        public InputStream body() throws IOException
+        {
+            final InputStream in = _stream();
+            return new FilterInputStream(in) {
+                @Override
+                public void close() {
+                    JdkResponse.this.close();
+                }
+            };
+        }
+
+        @Override
+        public String excerpt()
+        {
+            try {
+                return IOUtil.getExcerpt(_stream());
+            } catch (Exception e) {
+                return "N/A ("+e.getMessage()+")";
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            if (!_closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                InputStream in = _stream();
+                if (in != null) {
+                    if (_drain(in)) {
+                        in.close();
+                    } else { // too much left; cheaper to just drop the connection
+                        _conn.disconnect();
+                    }
+                }
+            } catch (IOException e) {
+                _conn.disconnect();
+            } finally {
+                _permits.release();
+            }
+        }
+
+        protected InputStream _stream() throws IOException
+        {
+            if (_in == null) {
+                // note: error stream may be null, if there is no content
+                _in = (_statusCode < 400) ? _conn.getInputStream() : _conn.getErrorStream();
+            }
+            return _in;
+        }
+
+        protected boolean _drain(InputStream in) throws IOException
+        {
+            byte[] buffer = new byte[4000];
+            int total = 0;
+            int count;
+            while ((count = in.read(buffer)) >= 0) {
+                total += count;
+                if (total > MAX_BYTES_TO_DRAIN) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
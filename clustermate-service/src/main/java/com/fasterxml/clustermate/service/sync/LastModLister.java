@@ -1,27 +1,30 @@
 package com.fasterxml.clustermate.service.sync;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.api.EntryKeyConverter;
-import com.fasterxml.clustermate.api.KeyRange;
-import com.fasterxml.clustermate.service.store.StoredEntry;
-import com.fasterxml.clustermate.service.store.StoredEntryConverter;
+import com.fasterxml.clustermate.api.KeySlots;
 import com.fasterxml.storemate.shared.StorableKey;
 import com.fasterxml.storemate.shared.TimeMaster;
 import com.fasterxml.storemate.store.Storable;
 import com.fasterxml.storemate.store.backend.IterationAction;
 import com.fasterxml.storemate.store.backend.StorableLastModIterationCallback;
 
-class LastModLister<K extends EntryKey, E extends StoredEntry<K>>
+/**
+ * Iteration callback used for listing entries for sync lists. Entries are
+ * added to the result list directly from raw {@link Storable}s, as
+ * {@link SyncListResponseEntry} instances, since only key, timestamp,
+ * size and content hash are needed; there is no need to decode metadata.
+ */
+class LastModLister<K extends EntryKey>
     extends StorableLastModIterationCallback
 {
     private final TimeMaster _timeMaster;
-    private final StoredEntryConverter<K,E,?> _entryConverter;
 
     // // Limits
     
-    private final KeyRange _inRange;
+    private final KeySlots _inSlots;
 
     private final EntryKeyConverter<K> _keyConverter;
 
@@ -31,15 +34,11 @@ class LastModLister<K extends EntryKey, E extends StoredEntry<K>>
 
     private final int _maxCount;
     
-    // // Temporary values
-    
-    private K key = null;
-
     // // Result values
     
     private int _total = 0;
 
-    private final ArrayList<E> _result;
+    private final List<SyncListResponseEntry> _result;
     
     // last timestamp traversed that was in legal timestamp range
     private long _lastSeenValidTimestamp;
@@ -50,15 +49,14 @@ class LastModLister<K extends EntryKey, E extends StoredEntry<K>>
     // to ensure List advances timestamp:
     private boolean _timestampHasAdvanced = false;
     
-    public LastModLister(TimeMaster timeMaster, StoredEntryConverter<K,E,?> entryConverter,
-            KeyRange inRange, long since, long upTo, long processUntil, int maxCount,
-            ArrayList<E> result)
+    public LastModLister(TimeMaster timeMaster, EntryKeyConverter<K> keyConverter,
+            KeySlots inSlots, long since, long upTo, long processUntil, int maxCount,
+            List<SyncListResponseEntry> result)
     {
         _timeMaster = timeMaster;
-        _entryConverter = entryConverter;
-        _keyConverter = entryConverter.keyConverter();
+        _keyConverter = keyConverter;
 
-        _inRange = inRange;
+        _inSlots = inSlots;
         _since = since;
         _upTo = upTo;
         _processUntil = processUntil;
@@ -100,9 +98,8 @@ class LastModLister<K extends EntryKey, E extends StoredEntry<K>>
             }
         }
         // and then verify that we are in range...
-        key = _keyConverter.rawToEntryKey(rawKey);
-        int hash = _keyConverter.routingHashFor(key);
-        if (_inRange.contains(hash)) {
+        int hash = _keyConverter.routingHashFor(_keyConverter.rawToEntryKey(rawKey));
+        if (_inSlots.contains(hash)) {
             return IterationAction.PROCESS_ENTRY;
         }
         return IterationAction.SKIP_ENTRY;
@@ -111,8 +108,7 @@ class LastModLister<K extends EntryKey, E extends StoredEntry<K>>
     @Override
     public IterationAction processEntry(Storable storable)
     {
-        E entry = _entryConverter.entryFromStorable(key, storable);
-        _result.add(entry);
+        _result.add(SyncListResponseEntry.valueOf(storable));
         /* One limitation, however; we MUST advance timer beyond initial
          * 'since' time. This may require including more than 'max' entries.
          */
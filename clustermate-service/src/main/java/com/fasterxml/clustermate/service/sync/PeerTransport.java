@@ -0,0 +1,95 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.skife.config.TimeSpan;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+
+import com.fasterxml.clustermate.api.ContentType;
+import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+
+/**
+ * Abstraction for HTTP transport used for node-to-node calls (sync lists,
+ * sync pulls, snapshots and status updates). Implementations are expected
+ * to reuse connections to peers (using keep-alive, or multiplexing over
+ * a single connection), and to limit number of concurrent connections
+ * per peer to {@link ServiceConfig#cfgPeerConnectionsPerNode}.
+ *<p>
+ * Implementation to use is configured using
+ * {@link ServiceConfig#peerTransportType}; default implementation is
+ * {@link JdkPeerTransport}.
+ */
+public abstract class PeerTransport
+{
+    /**
+     * Method called once after instantiation, before any calls are made.
+     */
+    public abstract void init(ServiceConfig config);
+
+    /**
+     * Method called when service is shutting down, to close any
+     * pooled connections.
+     */
+    public abstract void stop();
+
+    /**
+     * Method for sending a GET request to given peer.
+     *
+     * @param accept Value for "Accept" header, if any
+     */
+    public abstract Response get(IpAndPort peer, String url, TimeSpan timeout,
+            String accept)
+        throws IOException, InterruptedException;
+
+    /**
+     * Method for sending a POST request to given peer, with given
+     * request body (if any).
+     */
+    public abstract Response post(IpAndPort peer, String url, TimeSpan timeout,
+            ContentType contentType, byte[] body)
+        throws IOException, InterruptedException;
+
+    /**
+     * Response returned by a peer: holds on to the underlying connection
+     * until closed, so callers must call {@link #close} once done, either
+     * directly, or by closing stream returned by {@link #body}.
+     */
+    public abstract static class Response
+    {
+        public abstract int statusCode();
+
+        /**
+         * @return Content type of response, if known; null if not
+         */
+        public abstract String contentType();
+
+        /**
+         * @return Length of response body, if known; -1 if not
+         */
+        public abstract long contentLength();
+
+        public abstract String header(String name);
+
+        /**
+         * Method for accessing response body as a stream; closing the
+         * stream also closes the response.
+         */
+        public abstract InputStream body() throws IOException;
+
+        /**
+         * Method for reading up to first couple of hundred characters of
+         * response body, usually for error messages; also closes the
+         * response.
+         */
+        public abstract String excerpt();
+
+        /**
+         * Method called to release the underlying connection; for
+         * connections that are to be reused, any remaining content
+         * is read before release.
+         */
+        public abstract void close();
+    }
+}
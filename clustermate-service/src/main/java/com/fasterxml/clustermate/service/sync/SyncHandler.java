@@ -3,6 +3,7 @@ package com.fasterxml.clustermate.service.sync;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
@@ -22,6 +23,7 @@ import com.fasterxml.clustermate.service.cluster.ClusterViewByServerUpdatable;
 import com.fasterxml.clustermate.service.msg.StreamingEntityImpl;
 import com.fasterxml.clustermate.service.store.StoredEntry;
 import com.fasterxml.clustermate.service.store.StoredEntryConverter;
+import com.fasterxml.clustermate.service.throttle.SyncBandwidthLimiter;
 
 /**
  * Class that handles requests related to node-to-node synchronization
@@ -42,6 +44,13 @@ public class SyncHandler<K extends EntryKey, E extends StoredEntry<K>>
      */
     public final static int LENGTH_EOF = 0xFFFF;
 
+    /**
+     * Marker used to signal that response could not be completed (due to
+     * a store problem); needed since response status (200) has already
+     * been sent by then.
+     */
+    public final static int LENGTH_ERROR = 0xFFFE;
+
     public final static int MAX_HEADER_LENGTH = 0x7FFF;
 
     /*
@@ -74,6 +83,17 @@ public class SyncHandler<K extends EntryKey, E extends StoredEntry<K>>
     
     protected final ObjectReader _jsonSyncPullReader;
 
+    /**
+     * Limiter used to keep bandwidth used for serving sync-pulls in check
+     */
+    protected final SyncBandwidthLimiter _pullThrottle;
+
+    /**
+     * Executor used for reading ahead external files of entries to pull;
+     * null if read-ahead is disabled
+     */
+    protected final ExecutorService _pullReadAheadExecutor;
+
     /*
     /**********************************************************************
     /* Configuration
@@ -129,6 +149,8 @@ public class SyncHandler<K extends EntryKey, E extends StoredEntry<K>>
         _syncListSmileWriter = stuff.smileWriter();
         _syncPullSmileWriter = stuff.smileWriter();
         _jsonSyncPullReader = stuff.jsonReader(SyncPullRequest.class);
+        _pullThrottle = stuff.getSyncPullServeLimiter();
+        _pullReadAheadExecutor = stuff.getSyncPullReadAheadExecutor();
 
         // error responses always as JSON:
         _errorJsonWriter = stuff.jsonWriter();
@@ -184,6 +206,19 @@ public class SyncHandler<K extends EntryKey, E extends StoredEntry<K>>
             return (OUT) badRequest(response, "Invalid key-range definition (start '%s', end '%s'): %s",
                     keyRangeStart, keyRangeLength, e.getMessage());
         }
+        // Caller may also request listing for multiple ranges (within bounding range), in one go
+        KeySlots slots;
+        String rangesStr = request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_KEYRANGES);
+        if (rangesStr == null || rangesStr.isEmpty()) {
+            slots = KeySlots.of(range);
+        } else {
+            try {
+                slots = _cluster.getKeySpace().slots(rangesStr);
+            } catch (Exception e) {
+                return (OUT) badRequest(response, "Invalid key-ranges definition '%s': %s",
+                        rangesStr, e.getMessage());
+            }
+        }
 
         /* 20-Nov-2012, tatu: We can now piggyback auto-registration by sending minimal
          *   info about caller...
@@ -193,6 +228,7 @@ public class SyncHandler<K extends EntryKey, E extends StoredEntry<K>>
             _cluster.checkMembership(caller, 0L, range);
         }
         boolean useSmile = _acceptSmileContentType(request);
+        boolean useBinary = _acceptBinarySyncList(request);
         final long currentTime = _timeMaster.currentTimeMillis();
         long since = (sinceL == null) ? 0L : sinceL.longValue();
 
@@ -212,10 +248,10 @@ public class SyncHandler<K extends EntryKey, E extends StoredEntry<K>>
          */
         NodeState localState = _cluster.getLocalState();
         final SyncListResponse<E> resp;
-        KeyRange localRange = localState.totalRange();
-        if (localRange.overlapsWith(range)) {
+        KeySlots localSlots = localState.totalSlots();
+        if (localSlots.overlapsWith(slots)) {
             try {
-                resp = _listEntries(range, since, _maxToListPerRequest);
+                resp = _listEntries(slots, since, _maxToListPerRequest);
             } catch (StoreException e) {
                 return _storeError(response, e);
             }
@@ -225,8 +261,8 @@ System.err.println("Sync for "+_localState.getRangeActive()+" (slice of "+range+
 +_stores.getEntryStore().getEntryCount()+" entries... (time: "+_timeMaster.currentTimeMillis()+")");
 */
         } else {
-            LOG.warn("Sync list request by {} for range {}; does not overlap with local range of {}; skipping",
-                    caller, range, localRange);
+            LOG.warn("Sync list request by {} for slots {}; do not overlap with local slots {}; skipping",
+                    new Object[] { caller, slots, localSlots });
             resp = SyncListResponse.emptyResponse();
         }
         if (metadata != null) {
@@ -237,6 +273,14 @@ System.err.println("Sync for "+_localState.getRangeActive()+" (slice of "+range+
         ClusterStatusMessage clusterStatus = (clusterHash == 0L || clusterHash != currentHash) ?
                 _cluster.asMessage() : null;
         resp.setClusterStatus(clusterStatus);                
+        if (useBinary) {
+            try {
+                return (OUT) response.ok(new SyncListEncoder(resp, _syncListSmileWriter))
+                        .setContentType(SyncListEncoder.CONTENT_TYPE);
+            } catch (IOException e) { // should never occur as we write in memory
+                return (OUT) badRequest(response, "Failed to encode sync list: %s", e.getMessage());
+            }
+        }
         final ObjectWriter w = useSmile ? _syncListSmileWriter : _syncListJsonWriter;
         final String contentType = useSmile ? ContentType.SMILE.toString() : ContentType.JSON.toString();
         
@@ -275,25 +319,51 @@ System.err.println("Sync for "+_localState.getRangeActive()+" (slice of "+range+
         }
         
         List<StorableKey> ids = requestEntity.entries;
-        ArrayList<E> entries = new ArrayList<E>(ids.size());
-        StorableStore store = _stores.getEntryStore();
+        // entries are looked up while streaming response, to start output early;
+        // hence, item count of diagnostics is only set once response is written
+        return (OUT) response.ok(new SyncPullLookupResponse<K,E>(_fileManager, _syncPullSmileWriter,
+                _pullThrottle, _stores.getEntryStore(), _entryConverter, ids,
+                _pullReadAheadExecutor, metadata));
+    }
 
+    /**
+     * Access endpoint used by new (or replaced) nodes to bootstrap their
+     * contents: streams all entries within specified key range, along with
+     * timestamp from which incremental syncing is to continue.
+     */
+    @SuppressWarnings("unchecked")
+    public <OUT extends ServiceResponse> OUT snapshotEntries(ServiceRequest request, OUT response,
+            OperationDiagnostics metadata)
+    {
+        Integer keyRangeStart = _findIntParam(request, ClusterMateConstants.QUERY_PARAM_KEYRANGE_START);
+        if (keyRangeStart == null) {
+            return (OUT) missingArgument(response, ClusterMateConstants.QUERY_PARAM_KEYRANGE_START);
+        }
+        Integer keyRangeLength = _findIntParam(request, ClusterMateConstants.QUERY_PARAM_KEYRANGE_LENGTH);
+        if (keyRangeLength == null) {
+            return (OUT) missingArgument(response, ClusterMateConstants.QUERY_PARAM_KEYRANGE_LENGTH);
+        }
+        KeyRange range;
         try {
-            for (StorableKey key : ids) {
-                // null -> let's not pass 'metadata' yet since we don't use timings?
-                Storable raw = store.findEntry(StoreOperationSource.SYNC, null, key);
-                // note: this may give null as well; caller needs to check (converter passes null as-is)
-                E entry = (E) _entryConverter.entryFromStorable(raw);
-                entries.add(entry);
-            }
-        } catch (StoreException e) {
-            return _storeError(response, e);
-        } finally {
-            if (metadata != null) {
-                metadata = metadata.setItemCount(entries.size());
-            }
-        } 
-        return (OUT) response.ok(new SyncPullResponse<E>(_fileManager, _syncPullSmileWriter, entries));
+            range = _cluster.getKeySpace().range(keyRangeStart, keyRangeLength);
+        } catch (Exception e) {
+            return (OUT) badRequest(response, "Invalid key-range definition (start '%s', end '%s'): %s",
+                    keyRangeStart, keyRangeLength, e.getMessage());
+        }
+        final StorableStore store = _stores.getEntryStore();
+        /* Entries modified within grace period (or still in-flight) may or may not
+         * be included; so incremental syncing must start before those.
+         */
+        long snapshotTime = _timeMaster.currentTimeMillis() - _cfgSyncGracePeriodMsecs;
+        long oldestInFlight = store.getOldestInFlightTimestamp();
+        if (oldestInFlight != 0L && oldestInFlight < snapshotTime) {
+            snapshotTime = oldestInFlight;
+        }
+        LOG.info("Starting to stream snapshot of range {} (snapshot time {}) for {}",
+                range, snapshotTime, getCallerQueryParam(request));
+        return (OUT) response.ok(new SyncSnapshotResponse<K,E>(_fileManager, _syncPullSmileWriter,
+                _pullThrottle, store, _entryConverter, range))
+                .addHeader(ClusterMateConstants.CUSTOM_HTTP_HEADER_SNAPSHOT_TIME, snapshotTime);
     }
 
     /*
@@ -305,9 +375,21 @@ System.err.println("Sync for "+_localState.getRangeActive()+" (slice of "+range+
     protected SyncListResponse<E> _listEntries(final KeyRange inRange,
             final long since, final int maxCount)
         throws InterruptedException, StoreException
+    {
+        return _listEntries(KeySlots.of(inRange), since, maxCount);
+    }
+
+    /**
+     * Method for listing entries within any of given slots; since entries
+     * are scanned in modification order, all ranges are covered by a single
+     * scan, and returned last-seen timestamp applies to all of them.
+     */
+    protected SyncListResponse<E> _listEntries(final KeySlots inSlots,
+            final long since, final int maxCount)
+        throws InterruptedException, StoreException
     {
         final StorableStore store = _stores.getEntryStore();
-        final ArrayList<E> result = new ArrayList<E>(Math.min(100, maxCount));
+        final ArrayList<SyncListResponseEntry> result = new ArrayList<SyncListResponseEntry>(Math.min(100, maxCount));
         long lastSeenTimestamp = 0L;
         long clientWait = 0L; // we may instruct client to do bit of waiting before retry
         
@@ -340,7 +422,7 @@ System.err.println("Sync for "+_localState.getRangeActive()+" (slice of "+range+
             final long upTo = upTo0;
             final long processUntil = realStartTime + MAX_LIST_PROC_TIME_IN_MSECS;
     
-            LastModLister<K,E> cb = new LastModLister<K,E>(_timeMaster, _entryConverter, inRange,
+            LastModLister<K> cb = new LastModLister<K>(_timeMaster, _keyConverter, inSlots,
                     since, upTo, processUntil, maxCount, result);
             IterationResult r = _stores.getEntryStore().iterateEntriesByModifiedTime(StoreOperationSource.REQUEST,
                     // null -> no need for diagnostics/timing info
@@ -415,7 +497,7 @@ targetTime, _timeMaster.currentTimeMillis());
                 }
             }
         }
-        SyncListResponse<E> resp = new SyncListResponse<E>(result);
+        SyncListResponse<E> resp = SyncListResponse.forEntries(result);
         // one more twist; if no entries found, can sync up to 'upUntil' time...
         if (result.size() == 0 && upTo0 > lastSeenTimestamp) {
             lastSeenTimestamp = upTo0-1;
@@ -434,6 +516,11 @@ targetTime, _timeMaster.currentTimeMillis());
     /**********************************************************************
      */
 
+    protected boolean _acceptBinarySyncList(ServiceRequest request) {
+        String acceptHeader = request.getHeader(ClusterMateConstants.HTTP_HEADER_ACCEPT);
+        return (acceptHeader != null) && acceptHeader.indexOf(SyncListEncoder.CONTENT_TYPE) >= 0;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     protected <OUT extends ServiceResponse> OUT _badRequest(ServiceResponse response, String msg) {
@@ -1,9 +1,9 @@
 package com.fasterxml.clustermate.service.sync;
 
 import java.io.*;
-import java.net.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.skife.config.TimeSpan;
 import org.slf4j.Logger;
@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.clustermate.api.*;
+import com.fasterxml.clustermate.api.msg.ClusterStatusMessage;
 import com.fasterxml.clustermate.service.SharedServiceStuff;
 import com.fasterxml.clustermate.service.cfg.ServiceConfig;
 import com.fasterxml.clustermate.service.cluster.ClusterViewByServerUpdatable;
@@ -28,15 +29,32 @@ public class SyncListAccessor
     public final static String ACCEPTED_CONTENT_TYPES
         = ContentType.SMILE.toString() + ", " + ContentType.JSON.toString();
 
+    /**
+     * For sync lists, compact binary format is preferred, if server supports
+     * it; otherwise Smile
+     */
+    protected final static String ACCEPTED_SYNC_LIST_TYPES
+        = SyncListEncoder.CONTENT_TYPE + ", " + ACCEPTED_CONTENT_TYPES;
+
+    /**
+     * Maximum length of the key ranges parameter for sync list requests: with
+     * highly fragmented slot ownership, listing all ranges could exceed header
+     * buffer sizes of servers (Jetty defaults to 8k for the request line and
+     * headers). If longer, only the bounding range is sent, and entries outside
+     * of shared slots are filtered out locally.
+     */
+    protected final static int MAX_KEYRANGES_PARAM_LENGTH = 2000;
+
     protected final SharedServiceStuff _stuff;
 
     protected final RequestPathStrategy<?> _pathStrategy;
-    
-//    protected final AsyncHttpClient _asyncHttpClient;
-//    protected final HttpClient _blockingHttpClient;
+
+    protected final PeerTransport _transport;
     
     protected final ObjectReader _syncListReader;
 
+    protected final ObjectReader _clusterStatusReader;
+
     protected final ObjectReader _syncEntryReader;
     
     protected final ObjectWriter _syncPullRequestWriter;
@@ -48,12 +66,10 @@ public class SyncListAccessor
         _stuff = stuff;
         _pathStrategy = _stuff.getPathStrategy();
         _syncListReader = stuff.smileReader(SyncListResponse.class);
+        _clusterStatusReader = stuff.smileReader(ClusterStatusMessage.class);
         _syncEntryReader = stuff.smileReader(SyncPullEntry.class);
         _syncPullRequestWriter = stuff.jsonWriter(SyncPullRequest.class);
-
-//      _asyncHttpClient = new AsyncHttpClient();
-// important: if not using pooled conn manager, must use local instance:
-//        _blockingHttpClient = new DefaultHttpClient();
+        _transport = stuff.getPeerTransport();
     }
 
     @Override public void start() { }
@@ -71,7 +87,7 @@ public class SyncListAccessor
      
     // quick note: errors are in JSON, data as Smile.
         
-    // And then the Real Thing, with basic JDK stuff:
+    // And then the Real Thing, using configured transport:
     
     /*
             _syncState.getAddress(), 
@@ -83,11 +99,11 @@ public class SyncListAccessor
         throws InterruptedException
     {
         final String urlStr = _buildSyncListUrl(cluster, remote, lastClusterHash);
-        HttpURLConnection conn;
+        PeerTransport.Response resp;
         try {
-            conn = prepareGet(urlStr, timeout);
-            conn.setRequestProperty(ClusterMateConstants.HTTP_HEADER_ACCEPT, ACCEPTED_CONTENT_TYPES);
-            conn.connect();
+            resp = _transport.get(remote.getAddress(), urlStr, timeout, ACCEPTED_SYNC_LIST_TYPES);
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             LOG.warn("fetchSyncList request to {} failed on send with Exception ({}): {}",
                     new Object[] { urlStr, e.getClass().getName(), e.getMessage()});
@@ -96,34 +112,43 @@ public class SyncListAccessor
         
         // and if we are good, deal with status code, handle headers/response:
         try {
-            int statusCode = conn.getResponseCode();
+            int statusCode = resp.statusCode();
             if (IOUtil.isHTTPSuccess(statusCode)) {
-                InputStream in = conn.getInputStream();
-                SyncListResponse<?> resp;
+                InputStream in = resp.body();
+                SyncListResponse<?> syncList;
+                final String contentType = resp.contentType();
+                final boolean binary = (contentType != null) && contentType.startsWith(SyncListEncoder.CONTENT_TYPE);
                 try {
-                    resp = _syncListReader.readValue(in);
+                    if (binary) {
+                        syncList = SyncListDecoder.decode(_readAll(in, (int) resp.contentLength()),
+                                _clusterStatusReader);
+                    } else {
+                        syncList = _syncListReader.readValue(in);
+                    }
                 } catch (IOException e) {
-                    throw new IOException("Invalid sync list returned by '"+urlStr+"', failed to parse Smile: "+e.getMessage());
-                } finally {
-                    try {
-                        in.close();
-                    } catch (Exception e) { }
+                    throw new IOException("Invalid sync list returned by '"+urlStr+"', failed to parse "
+                            +(binary ? "binary content" : "Smile")+": "+e.getMessage());
                 }
                 // Bit of validation, as unknown props are allowed:
-                if (resp.hasUnknownProperties()) {
-                    LOG.warn("Unrecognized properties in SyncListResponse: "+resp.unknownProperties());
+                if (syncList.hasUnknownProperties()) {
+                    LOG.warn("Unrecognized properties in SyncListResponse: "+syncList.unknownProperties());
                 }
-                return resp;
+                return syncList;
             }
-            handleHTTPFailure(conn, urlStr, statusCode, "fetchSyncList");
+            handleHTTPFailure(resp, urlStr, statusCode, "fetchSyncList");
         } catch (Exception e) {
             LOG.warn("syncList request to {} failed on response with Exception ({}): {}",
                     new Object[] { urlStr, e.getClass().getName(), e.getMessage()});
-        }            
+        } finally {
+            resp.close();
+        }
         return null;
-
     }
 
+    /**
+     * @return Stream to read sync-pull response from, if successful; null if not.
+     *    Caller must close the stream, to release connection used.
+     */
     public InputStream readSyncPullResponse(SyncPullRequest request, TimeSpan timeout,
             IpAndPort endpoint, AtomicInteger statusCodeWrapper,
             int expectedPayloadSize)
@@ -131,48 +156,97 @@ public class SyncListAccessor
     {
         final String urlStr = _buildSyncPullUrl(endpoint);
         byte[] reqPayload = _syncPullRequestWriter.writeValueAsBytes(request);
-        final int reqLength = reqPayload.length;
         
-        HttpURLConnection conn;
-        OutputStream out = null;
+        PeerTransport.Response resp;
         try {
-            conn = preparePost(urlStr, timeout, ContentType.JSON);
-            // since we do know length in advance, let's just do this:
-            conn.setFixedLengthStreamingMode(reqLength);
-            conn.connect();
-            out = conn.getOutputStream();
-            out.write(reqPayload);
-            out.close();
+            resp = _transport.post(endpoint, urlStr, timeout, ContentType.JSON, reqPayload);
+        } catch (InterruptedException e) {
+            // most likely shutting down; retain interrupt status for caller to see
+            Thread.currentThread().interrupt();
+            LOG.warn("readSyncPullResponse request to {} interrupted", urlStr);
+            return null;
         } catch (Exception e) {
             LOG.warn("readSyncPullResponse request to {} failed on send with Exception ({}): {}",
                     new Object[] { urlStr, e.getClass().getName(), e.getMessage()});
             return null;
-        } finally {
-            if (out != null) {
-                try { out.close(); } catch (IOException e) { }
-            }
         }
 
         try {
-            int statusCode = conn.getResponseCode();
+            int statusCode = resp.statusCode();
+            statusCodeWrapper.set(statusCode);
             if (IOUtil.isHTTPSuccess(statusCode)) {
                 try {
-                	return conn.getInputStream();
+                	return resp.body();
                 } catch (IOException e) {
+                    resp.close();
                     throw new IOException("readSyncPullResponse from '"+urlStr+"' failed: "
                     		+e.getMessage(), e);
                 }
             }
-            handleHTTPFailure(conn, urlStr, statusCode,
+            handleHTTPFailure(resp, urlStr, statusCode,
             		"readSyncPullResponse (requesting "+request.size()+" entries (of about "+expectedPayloadSize+" mB total payload)"
             		);
         } catch (Exception e) {
+            resp.close();
             LOG.warn("syncList request to {} failed on response with Exception ({}): {}",
                     new Object[] { urlStr, e.getClass().getName(), e.getMessage()});
         }            
         return null;
     }
 
+    /**
+     * Method for requesting a snapshot of all entries within given key range
+     * from specified peer; used for bootstrapping contents of a new node.
+     *
+     * @param snapshotTime Wrapper used for returning timestamp from which
+     *    incremental syncing is to continue
+     *
+     * @return Stream to read snapshot entries from, if successful; null if not
+     */
+    public InputStream readSyncSnapshot(ClusterViewByServerUpdatable cluster, KeyRange range,
+            TimeSpan timeout, IpAndPort endpoint, AtomicLong snapshotTime)
+    {
+        final String urlStr = _buildSyncSnapshotUrl(cluster, endpoint, range);
+        PeerTransport.Response resp;
+        try {
+            resp = _transport.get(endpoint, urlStr, timeout, null);
+        } catch (InterruptedException e) {
+            // most likely shutting down; retain interrupt status for caller to see
+            Thread.currentThread().interrupt();
+            LOG.warn("readSyncSnapshot request to {} interrupted", urlStr);
+            return null;
+        } catch (Exception e) {
+            LOG.warn("readSyncSnapshot request to {} failed on send with Exception ({}): {}",
+                    new Object[] { urlStr, e.getClass().getName(), e.getMessage()});
+            return null;
+        }
+        try {
+            int statusCode = resp.statusCode();
+            if (IOUtil.isHTTPSuccess(statusCode)) {
+                String str = resp.header(ClusterMateConstants.CUSTOM_HTTP_HEADER_SNAPSHOT_TIME);
+                long timestamp = 0L;
+                if (str != null) {
+                    try {
+                        timestamp = Long.parseLong(str.trim());
+                    } catch (NumberFormatException e) { }
+                }
+                if (timestamp <= 0L) {
+                    LOG.warn("Missing or invalid snapshot timestamp ('{}') from '{}'", str, urlStr);
+                    resp.close();
+                    return null;
+                }
+                snapshotTime.set(timestamp);
+                return resp.body();
+            }
+            handleHTTPFailure(resp, urlStr, statusCode, "readSyncSnapshot");
+        } catch (Exception e) {
+            resp.close();
+            LOG.warn("readSyncSnapshot request to {} failed on response with Exception ({}): {}",
+                    new Object[] { urlStr, e.getClass().getName(), e.getMessage()});
+        }
+        return null;
+    }
+
     /**
      * Helper method used for sending simple status update message, usually
      * done when service starts up or shuts down.
@@ -181,28 +255,25 @@ public class SyncListAccessor
             TimeSpan timeout, IpAndPort remote, String newStatus)
     {
         final String urlStr = _buildNodeStatusUpdateUrl(cluster, remote, newStatus);
-        HttpURLConnection conn;
+        PeerTransport.Response resp;
         try {
-            conn = preparePost(urlStr, timeout, ContentType.JSON);
-            conn.setDoOutput(false);
-            conn.connect();
-        } catch (Exception e) {
-            LOG.warn("sendStatusUpdate request to {} failed on send with Exception ({}): {}",
-                    urlStr, e.getClass().getName(), e.getMessage());
+            resp = _transport.post(remote, urlStr, timeout, ContentType.JSON, null);
+        } catch (InterruptedException e) {
+            // most likely shutting down; retain interrupt status for caller to see
+            Thread.currentThread().interrupt();
+            LOG.warn("sendStatusUpdate request to {} interrupted", urlStr);
             return false;
-        }
-        int statusCode;
-        try {
-            statusCode = conn.getResponseCode();
-        } catch (IOException e) {
+        } catch (Exception e) {
             LOG.warn("sendStatusUpdate request to {} failed with Exception ({}): {}",
                     urlStr, e.getClass().getName(), e.getMessage());
             return false;
         }
+        int statusCode = resp.statusCode();
         if (IOUtil.isHTTPSuccess(statusCode)) {
+            resp.close();
             return true;
         }
-        handleHTTPFailure(conn, urlStr, statusCode, "sendStatusUpdate");
+        handleHTTPFailure(resp, urlStr, statusCode, "sendStatusUpdate");
         return false;
     }
     
@@ -211,41 +282,16 @@ public class SyncListAccessor
     /* Helper methods
     /**********************************************************************
      */
-    
-    protected HttpURLConnection preparePost(String urlStr, TimeSpan timeout,
-            ContentType contentType)
-        throws IOException
-    {
-        return prepareHttpMethod(urlStr, timeout, "POST", true, contentType);
-    }
 
-    protected HttpURLConnection prepareGet(String urlStr, TimeSpan timeout)
-            throws IOException
+    protected byte[] _readAll(InputStream in, int expLength) throws IOException
     {
-        return prepareHttpMethod(urlStr, timeout, "GET", false, null);
-    }
-    
-    protected HttpURLConnection prepareHttpMethod(String urlStr, TimeSpan timeout,
-            String methodName, boolean sendInput, ContentType contentType)
-        throws IOException
-    {
-        URL url = new URL(urlStr);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod(methodName);
-        conn.setAllowUserInteraction(false);
-        conn.setUseCaches(false);
-        conn.setDoOutput(sendInput);
-        conn.setDoInput(true); // we always read response
-        if (contentType != null) { // should also indicate content type...
-            conn.setRequestProperty(ClusterMateConstants.HTTP_HEADER_CONTENT_TYPE, contentType.toString());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((expLength > 0) ? expLength : 4000);
+        byte[] buffer = new byte[4000];
+        int count;
+        while ((count = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, count);
         }
-        
-        // how about timeouts... JDK one does not give us whole-operation granularity but:
-        int timeoutMs = (int) timeout.getMillis();
-        // let's give only half to connect; more likely we detect down servers on connect
-        conn.setConnectTimeout(timeoutMs/2);
-        conn.setReadTimeout(timeoutMs);
-        return conn;
+        return bytes.toByteArray();
     }
 
     // public as it's accessed from outside the package
@@ -254,19 +300,15 @@ public class SyncListAccessor
         return _syncEntryReader.readValue(data);
     }
 
-    protected void handleHTTPFailure(HttpURLConnection conn, String urlStr, int statusCode,
+    /**
+     * Method for logging a failed call; also closes the response.
+     */
+    protected void handleHTTPFailure(PeerTransport.Response resp, String urlStr, int statusCode,
     		String operation)
     {
-        String msg = "N/A";
-        try {
-            InputStream e = conn.getErrorStream();
-            msg = IOUtil.getExcerpt(e);
-        } catch (Exception e) {
-            LOG.warn("Problem reading ErrorStream for failed {} request to '{}': {}",
-                    operation, urlStr, e.getMessage());
-        }
+        String msg = resp.excerpt();
         LOG.warn("Failed to process {} response from '{}': status code {}, response excerpt: {}",
-                operation, urlStr, statusCode, msg);
+                new Object[] { operation, urlStr, statusCode, msg });
     }
 
     protected String _buildSyncListUrl(ClusterViewByServerUpdatable cluster, NodeState remote,
@@ -289,6 +331,21 @@ public class SyncListAccessor
                 String.valueOf(syncedUpTo));
         pathBuilder = pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_KEYRANGE_START, String.valueOf(syncRange.getStart()));
         pathBuilder = pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_KEYRANGE_LENGTH, String.valueOf(syncRange.getLength()));
+        /* With non-contiguous ownership, shared slots may consist of multiple
+         * ranges; if so, list them all, so that server can filter out entries
+         * in gaps between them (servers that do not recognize the parameter
+         * just list the whole range, and we filter locally)
+         */
+        if (local.hasExplicitSlots() || remote.hasExplicitSlots()) {
+            KeySlots shared = local.totalSlots().intersection(remote.totalSlots());
+            if (shared.asRanges().size() > 1) {
+                String rangesStr = shared.toString();
+                if (rangesStr.length() <= MAX_KEYRANGES_PARAM_LENGTH) {
+                    pathBuilder = pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_KEYRANGES,
+                            rangesStr);
+                }
+            }
+        }
         // this will include 'caller' param:
         pathBuilder = cluster.addClusterStateInfo(pathBuilder);
         pathBuilder = pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_CLUSTER_HASH,
@@ -314,6 +371,21 @@ public class SyncListAccessor
         return pathBuilder.toString();
     }
     
+    protected String _buildSyncSnapshotUrl(ClusterViewByServerUpdatable cluster,
+            IpAndPort endpoint, KeyRange range)
+    {
+        final ServiceConfig config = _stuff.getServiceConfig();
+        JdkHttpClientPathBuilder pathBuilder = new JdkHttpClientPathBuilder(endpoint)
+            .addPathSegments(config.servicePathRoot);
+        // snapshots are requested using GET on the sync-pull end point
+        pathBuilder = _pathStrategy.appendSyncPullPath(pathBuilder);
+        pathBuilder = pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_KEYRANGE_START, String.valueOf(range.getStart()));
+        pathBuilder = pathBuilder.addParameter(ClusterMateConstants.QUERY_PARAM_KEYRANGE_LENGTH, String.valueOf(range.getLength()));
+        // this will include 'caller' param:
+        pathBuilder = cluster.addClusterStateInfo(pathBuilder);
+        return pathBuilder.toString();
+    }
+
     protected String _buildSyncPullUrl(IpAndPort endpoint)
     {
         final ServiceConfig config = _stuff.getServiceConfig();
@@ -0,0 +1,218 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.storemate.shared.StorableKey;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+
+/**
+ * Streaming decoder for sync lists encoded using {@link SyncListEncoder}.
+ * Entries are accessed one at a time, using a cursor-style API, so
+ * that caller can filter out entries it does not need (ones it already
+ * has, tombstones) without materializing them as
+ * {@link SyncListResponseEntry} instances.
+ *<p>
+ * Instances are not thread-safe, and may only be iterated once.
+ */
+public class SyncListDecoder
+{
+    protected final byte[] _data;
+
+    protected int _ptr;
+
+    protected final int _count;
+
+    protected int _left;
+
+    // // Current entry
+
+    protected byte[] _keyBuffer = new byte[64];
+
+    protected int _keyLength;
+
+    protected long _insertionTime;
+
+    protected long _size;
+
+    protected int _hash;
+
+    protected SyncListDecoder(byte[] data, int ptr, int count)
+    {
+        _data = data;
+        _ptr = ptr;
+        _count = count;
+        _left = count;
+    }
+
+    /**
+     * Method for decoding response metadata from given encoded data, and
+     * constructing response object that has decoder for accessing entries
+     * (see {@link SyncListResponse#encodedEntries}).
+     */
+    public static SyncListResponse<?> decode(byte[] data, ObjectReader clusterStatusReader)
+        throws IOException
+    {
+        final byte[] hdr = SyncListEncoder.HEADER;
+        if (data.length < hdr.length) {
+            throw new IOException("Invalid binary sync list: only "+data.length+" bytes");
+        }
+        for (int i = 0; i < hdr.length; ++i) {
+            if (data[i] != hdr[i]) {
+                throw new IOException("Invalid binary sync list: unrecognized header byte 0x"
+                        +Integer.toHexString(data[i] & 0xFF)+" at #"+i);
+            }
+        }
+        SyncListDecoder dec = new SyncListDecoder(data, hdr.length, 0);
+        SyncListResponse<?> resp = new SyncListResponse<StoredEntry<?>>();
+        resp.lastSeenTimestamp = dec._readVLong();
+        resp.clusterHash = dec._readLong();
+        resp.clientWait = dec._readVLong();
+        int statusLength = dec._readLength();
+        if (statusLength > 0) {
+            dec._need(statusLength);
+            resp.clusterStatus = clusterStatusReader.readValue(data, dec._ptr, statusLength);
+            dec._ptr += statusLength;
+        }
+        int count = dec._readLength();
+        resp._encodedEntries = new SyncListDecoder(data, dec._ptr, count);
+        return resp;
+    }
+
+    /*
+    /**********************************************************************
+    /* Iteration
+    /**********************************************************************
+     */
+
+    /**
+     * @return Total number of entries in the list
+     */
+    public int entryCount() { return _count; }
+
+    /**
+     * Method for advancing to the next entry, if any.
+     *
+     * @return True if there was another entry; false if not
+     */
+    public boolean next() throws IOException
+    {
+        if (_left <= 0) {
+            return false;
+        }
+        --_left;
+        long delta = _readVLong();
+        _insertionTime += (delta >>> 1) ^ -(delta & 1);
+        int common = _readLength();
+        int suffix = _readLength();
+        if (common > _keyLength) {
+            throw new IOException("Invalid binary sync list: shared key prefix of "+common
+                    +" bytes, previous key only "+_keyLength+" bytes");
+        }
+        _keyLength = common + suffix;
+        if (_keyLength > _keyBuffer.length) {
+            byte[] old = _keyBuffer;
+            _keyBuffer = new byte[Math.max(_keyLength, old.length * 2)];
+            System.arraycopy(old, 0, _keyBuffer, 0, common);
+        }
+        _need(suffix);
+        System.arraycopy(_data, _ptr, _keyBuffer, common, suffix);
+        _ptr += suffix;
+        _size = _readVLong() - 1L;
+        _need(4);
+        _hash = ((_data[_ptr] & 0xFF) << 24) | ((_data[_ptr+1] & 0xFF) << 16)
+                | ((_data[_ptr+2] & 0xFF) << 8) | (_data[_ptr+3] & 0xFF);
+        _ptr += 4;
+        return true;
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors for the current entry
+    /**********************************************************************
+     */
+
+    /**
+     * Accessor for key of the current entry; note that returned key
+     * shares the underlying buffer with decoder, and is only valid until
+     * {@link #next} is called. Use {@link #copyKey} for a stable copy.
+     */
+    public StorableKey key() {
+        return new StorableKey(_keyBuffer, 0, _keyLength);
+    }
+
+    public StorableKey copyKey() {
+        byte[] b = new byte[_keyLength];
+        System.arraycopy(_keyBuffer, 0, b, 0, _keyLength);
+        return new StorableKey(b);
+    }
+
+    public long insertionTime() { return _insertionTime; }
+
+    public long size() { return _size; }
+
+    public int hash() { return _hash; }
+
+    public boolean deleted() { return _size < 0L; }
+
+    /**
+     * Method for materializing the current entry.
+     */
+    public SyncListResponseEntry toEntry()
+    {
+        SyncListResponseEntry e = new SyncListResponseEntry();
+        e.key = copyKey();
+        e.insertionTime = _insertionTime;
+        e.size = _size;
+        e.hash = _hash;
+        return e;
+    }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    private void _need(int bytes) throws IOException
+    {
+        if (_ptr + bytes > _data.length) {
+            throw new IOException("Unexpected end of binary sync list: needed "+bytes
+                    +" more bytes at offset "+_ptr+" (of "+_data.length+")");
+        }
+    }
+
+    private int _readLength() throws IOException
+    {
+        long l = _readVLong();
+        if (l < 0L || l > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length ("+l+") in binary sync list at offset "+_ptr);
+        }
+        return (int) l;
+    }
+
+    private long _readVLong() throws IOException
+    {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            _need(1);
+            int b = _data[_ptr++];
+            value |= ((long) (b & 0x7F)) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid variable-length number in binary sync list at offset "+_ptr);
+    }
+
+    private long _readLong() throws IOException
+    {
+        _need(8);
+        long hi = ((_data[_ptr] & 0xFFL) << 24) | ((_data[_ptr+1] & 0xFF) << 16)
+                | ((_data[_ptr+2] & 0xFF) << 8) | (_data[_ptr+3] & 0xFF);
+        long lo = ((_data[_ptr+4] & 0xFFL) << 24) | ((_data[_ptr+5] & 0xFF) << 16)
+                | ((_data[_ptr+6] & 0xFF) << 8) | (_data[_ptr+7] & 0xFF);
+        _ptr += 8;
+        return (hi << 32) | lo;
+    }
+}
@@ -0,0 +1,150 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.io.*;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.storemate.shared.StorableKey;
+import com.fasterxml.storemate.shared.util.WithBytesCallback;
+import com.fasterxml.clustermate.service.msg.StreamingResponseContent;
+
+/**
+ * Encoder for compact binary representation of {@link SyncListResponse}s,
+ * used instead of Smile when requested by caller (via Accept header).
+ * Entries are listed in order of increasing insertion time, so the
+ * representation takes advantage of that, as well as of common key
+ * prefixes:
+ *<ul>
+ * <li>Insertion times are encoded as deltas from the preceding entry</li>
+ * <li>Keys are encoded as length of prefix shared with the preceding key,
+ *    followed by the remaining bytes</li>
+ * <li>Sizes and other numbers as variable-length integers</li>
+ *</ul>
+ * Encoded content is decoded using {@link SyncListDecoder}.
+ */
+public class SyncListEncoder
+    implements StreamingResponseContent
+{
+    /**
+     * Content type used for binary sync lists
+     */
+    public final static String CONTENT_TYPE = "application/x-clustermate-synclist";
+
+    protected final static byte[] HEADER = new byte[] { (byte) 0xC5, 'S', 'L', 1 };
+
+    protected final byte[] _encoded;
+
+    public SyncListEncoder(SyncListResponse<?> resp, ObjectWriter clusterStatusWriter)
+        throws IOException
+    {
+        _encoded = encode(resp, clusterStatusWriter);
+    }
+
+    public static byte[] encode(SyncListResponse<?> resp, ObjectWriter clusterStatusWriter)
+        throws IOException
+    {
+        final List<SyncListResponseEntry> entries = resp.entries;
+        final int count = (entries == null) ? 0 : entries.size();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(64 + count * 32);
+        out.write(HEADER);
+        writeVLong(out, resp.lastSeenTimestamp);
+        writeLong(out, resp.clusterHash);
+        writeVLong(out, resp.clientWait);
+        if (resp.clusterStatus == null) {
+            writeVLong(out, 0L);
+        } else {
+            byte[] status = clusterStatusWriter.writeValueAsBytes(resp.clusterStatus);
+            writeVLong(out, status.length);
+            out.write(status);
+        }
+        writeVLong(out, count);
+
+        // key bytes are copied directly from keys, without intermediate arrays
+        final WithBytesCallback<Void> keyWriter = new WithBytesCallback<Void>() {
+            @Override
+            public Void withBytes(byte[] buffer, int offset, int length) {
+                out.write(buffer, offset, length);
+                return null;
+            }
+        };
+        long prevTime = 0L;
+        StorableKey prevKey = null;
+        for (int i = 0; i < count; ++i) {
+            SyncListResponseEntry entry = entries.get(i);
+            writeVLong(out, zigzag(entry.insertionTime - prevTime));
+            prevTime = entry.insertionTime;
+            final StorableKey key = entry.key;
+            final int keyLength = key.length();
+            int common = 0;
+            if (prevKey != null) {
+                int max = Math.min(prevKey.length(), keyLength);
+                while (common < max && prevKey.byteAt(common) == key.byteAt(common)) {
+                    ++common;
+                }
+            }
+            writeVLong(out, common);
+            writeVLong(out, keyLength - common);
+            key.withRange(keyWriter, common, keyLength - common);
+            prevKey = key;
+            // size is -1 for tombstones
+            writeVLong(out, entry.size + 1L);
+            writeInt(out, entry.hash);
+        }
+        return out.toByteArray();
+    }
+
+    /*
+    /**********************************************************************
+    /* StreamingResponseContent impl
+    /**********************************************************************
+     */
+
+    @Override
+    public void writeContent(OutputStream out) throws IOException {
+        out.write(_encoded);
+    }
+
+    @Override
+    public long getLength() {
+        return _encoded.length;
+    }
+
+    @Override
+    public boolean hasFile() { return false; }
+
+    @Override
+    public boolean inline() { return true; }
+
+    /*
+    /**********************************************************************
+    /* Helper methods
+    /**********************************************************************
+     */
+
+    protected static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    protected static void writeVLong(OutputStream out, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0L) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    protected static void writeInt(OutputStream out, int value) throws IOException
+    {
+        out.write(value >> 24);
+        out.write(value >> 16);
+        out.write(value >> 8);
+        out.write(value);
+    }
+
+    protected static void writeLong(OutputStream out, long value) throws IOException
+    {
+        writeInt(out, (int) (value >> 32));
+        writeInt(out, (int) value);
+    }
+}
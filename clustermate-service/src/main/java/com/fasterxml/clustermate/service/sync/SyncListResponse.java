@@ -2,6 +2,7 @@ package com.fasterxml.clustermate.service.sync;
 
 import java.util.*;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import com.fasterxml.clustermate.api.msg.ClusterStatusMessage;
@@ -53,6 +54,13 @@ public class SyncListResponse<E extends StoredEntry<?>>
     public ClusterStatusMessage clusterStatus;
     
     public List<SyncListResponseEntry> entries;
+
+    /**
+     * Alternatively, when read from binary representation (see
+     * {@link SyncListEncoder}), entries are accessed using decoder.
+     */
+    @JsonIgnore
+    protected SyncListDecoder _encodedEntries;
     
     public SyncListResponse() { }
     public SyncListResponse(String error) { message = error; }
@@ -76,14 +84,35 @@ public class SyncListResponse<E extends StoredEntry<?>>
         this.clusterHash = clusterHash;
     }
 
+    /**
+     * Factory method for constructing response with given entries, as
+     * listed directly from the store.
+     */
+    public static <E2 extends StoredEntry<?>> SyncListResponse<E2> forEntries(List<SyncListResponseEntry> entries) {
+        SyncListResponse<E2> resp = new SyncListResponse<E2>();
+        resp.entries = entries;
+        return resp;
+    }
+
     public static <E2 extends StoredEntry<?>> SyncListResponse<E2> emptyResponse() {
         return new SyncListResponse<E2>(false);
     }
     
     public int size() {
+        if (_encodedEntries != null) {
+            return _encodedEntries.entryCount();
+        }
         return (entries == null) ? 0 : entries.size();
     }
 
+    /**
+     * @return Decoder for accessing entries, if response was read from
+     *    binary representation; null if not
+     */
+    public SyncListDecoder encodedEntries() {
+        return _encodedEntries;
+    }
+
     public long lastSeen() {
         return lastSeenTimestamp;
     }
@@ -23,11 +23,18 @@ public class SyncListResponseEntry
     // Content hash of the entry
     public int hash;
     
-    static SyncListResponseEntry valueOf(StoredEntry<?> src)
+    static SyncListResponseEntry valueOf(StoredEntry<?> src) {
+        return valueOf(src.getRaw());
+    }
+
+    /**
+     * Factory method used when listing entries directly from the store,
+     * without converting them to {@link StoredEntry} instances.
+     */
+    static SyncListResponseEntry valueOf(Storable raw)
     {
         SyncListResponseEntry e = new SyncListResponseEntry();
-        e.key = src.getKey().asStorableKey();
-        Storable raw = src.getRaw();
+        e.key = raw.getKey();
         e.insertionTime = raw.getLastModified();
         e.size = raw.isDeleted() ? -1L : raw.getStorageLength();
         e.hash = raw.getContentHash();
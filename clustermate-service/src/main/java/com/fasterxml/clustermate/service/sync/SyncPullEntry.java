@@ -1,5 +1,7 @@
 package com.fasterxml.clustermate.service.sync;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import com.fasterxml.clustermate.service.store.StoredEntry;
 import com.fasterxml.storemate.shared.StorableKey;
 import com.fasterxml.storemate.shared.compress.Compression;
@@ -17,6 +19,14 @@ public class SyncPullEntry
 
     public long creationTime;
 
+    /**
+     * Timestamp of insertion of the entry into the store of the sending node,
+     * used for resolving conflicts. Only included in snapshots: with regular
+     * sync-pulls, receiver gets it from the sync list.
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public long insertionTime;
+
     public int minTTLSecs, maxTTLSecs;
 
     public long size, storageSize;
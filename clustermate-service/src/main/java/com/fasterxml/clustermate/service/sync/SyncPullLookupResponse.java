@@ -0,0 +1,251 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.fasterxml.storemate.shared.StorableKey;
+import com.fasterxml.storemate.shared.util.IOUtil;
+import com.fasterxml.storemate.store.Storable;
+import com.fasterxml.storemate.store.StorableStore;
+import com.fasterxml.storemate.store.StoreException;
+import com.fasterxml.storemate.store.StoreOperationSource;
+import com.fasterxml.storemate.store.file.FileManager;
+import com.fasterxml.storemate.store.util.OperationDiagnostics;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.store.StoredEntryConverter;
+import com.fasterxml.clustermate.service.throttle.SyncBandwidthLimiter;
+
+/**
+ * {@link SyncPullResponse} used for serving sync-pull requests: instead of
+ * looking up all requested entries before writing anything, entries are
+ * looked up in small batches (in key order within batch, for better
+ * locality of store access), and each batch is written as soon as it
+ * is ready. Entries are still written in request order, as expected
+ * by callers.
+ *<p>
+ * If an executor is given, beginning of external files of the next
+ * couple of entries is read ahead while preceding entries are written.
+ *<p>
+ * Since response status has been sent before lookups, failure of a lookup
+ * is indicated by writing {@link SyncHandler#LENGTH_ERROR} marker and
+ * ending response.
+ */
+public class SyncPullLookupResponse<K extends EntryKey, E extends StoredEntry<K>>
+    extends SyncPullResponse<E>
+{
+    /**
+     * Number of entries to look up at a time
+     */
+    private final static int LOOKUP_BATCH_SIZE = 32;
+
+    /**
+     * Number of entries following the one being written, for which external
+     * content is read ahead
+     */
+    private final static int READ_AHEAD_ENTRIES = 2;
+
+    /**
+     * Maximum number of bytes to read ahead per external file
+     */
+    private final static int READ_AHEAD_BYTES = 64000;
+
+    private final static Logger LOG = LoggerFactory.getLogger(SyncPullLookupResponse.class);
+
+    private final StorableStore _store;
+
+    private final StoredEntryConverter<K,E,?> _entryConverter;
+
+    private final List<StorableKey> _keys;
+
+    /**
+     * Executor used for reading ahead, if any
+     */
+    private final ExecutorService _readAheadExecutor;
+
+    /**
+     * Read-ahead operations in progress, for entries of the current batch
+     */
+    private final Map<E, Future<InputStream>> _readAheads = new IdentityHashMap<E, Future<InputStream>>();
+
+    /**
+     * Diagnostics to update with the number of entries returned, if any
+     */
+    private final OperationDiagnostics _diagnostics;
+
+    public SyncPullLookupResponse(FileManager fileManager, ObjectWriter smileWriter,
+            SyncBandwidthLimiter throttle, StorableStore store,
+            StoredEntryConverter<K,E,?> entryConverter, List<StorableKey> keys,
+            ExecutorService readAheadExecutor, OperationDiagnostics diagnostics)
+    {
+        super(fileManager, smileWriter, Collections.<E>emptyList(), throttle);
+        _store = store;
+        _entryConverter = entryConverter;
+        _keys = keys;
+        _readAheadExecutor = readAheadExecutor;
+        _diagnostics = diagnostics;
+    }
+
+    @Override
+    public void writeContent(final OutputStream output) throws IOException
+    {
+        final int count = _keys.size();
+        int included = 0;
+        try {
+            for (int start = 0; start < count; start += LOOKUP_BATCH_SIZE) {
+                List<E> batch = _lookup(start, Math.min(count, start + LOOKUP_BATCH_SIZE));
+                try {
+                    included += _writeEntries(output, batch);
+                } finally {
+                    _cancelReadAheads();
+                }
+                // let's push out entries as soon as possible
+                output.flush();
+            }
+            _writeLength(output, SyncHandler.LENGTH_EOF);
+            output.flush();
+        } catch (StoreException e) {
+            LOG.error("Store problem during writing of "+count+" sync-pull entries ("+included
+                    +" written): "+e.getMessage(), e);
+            // can not change status any more, but can let caller know response is incomplete
+            _writeLength(output, SyncHandler.LENGTH_ERROR);
+            output.flush();
+        } catch (IOException e) {
+            LOG.error("I/O problem during writing of "+count+" sync-pull entries: "+e.getMessage(), e);
+            throw e;
+        } catch (RuntimeException e) {
+            LOG.error("Internal error during writing of "+count+" sync-pull entries: "+e.getMessage(), e);
+            throw e;
+        } finally {
+            if (_diagnostics != null) {
+                _diagnostics.setItemCount(included);
+            }
+        }
+    }
+
+    /**
+     * Method for looking up entries for keys in specified index range;
+     * lookups are done in key order, but results are returned in
+     * request order. Entries not found are returned as nulls.
+     */
+    @SuppressWarnings("unchecked")
+    protected List<E> _lookup(int start, int end) throws IOException, StoreException
+    {
+        Integer[] order = new Integer[end - start];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = start + i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return _keys.get(i1).compareTo(_keys.get(i2));
+            }
+        });
+        List<E> result = new ArrayList<E>(Collections.<E>nCopies(order.length, null));
+        for (Integer ix : order) {
+            Storable raw = _store.findEntry(StoreOperationSource.SYNC, null, _keys.get(ix));
+            // note: converter passes null as-is, caller needs to check
+            result.set(ix - start, (E) _entryConverter.entryFromStorable(raw));
+        }
+        return result;
+    }
+
+    /*
+    /**********************************************************************
+    /* Read-ahead handling
+    /**********************************************************************
+     */
+
+    @Override
+    protected void _beforeEntry(List<E> entries, int index)
+    {
+        if (_readAheadExecutor == null) {
+            return;
+        }
+        final int end = Math.min(entries.size(), index + 1 + READ_AHEAD_ENTRIES);
+        for (int i = index+1; i < end; ++i) {
+            final E entry = entries.get(i);
+            if (entry == null || entry.isDeleted() || !entry.hasExternalData()
+                    || _readAheads.containsKey(entry)) {
+                continue;
+            }
+            final File f = entry.getRaw().getExternalFile(_fileManager);
+            try {
+                _readAheads.put(entry, _readAheadExecutor.submit(new Callable<InputStream>() {
+                    @Override
+                    public InputStream call() throws IOException {
+                        return _readAhead(f, entry.getStorageLength());
+                    }
+                }));
+            } catch (RejectedExecutionException e) { // shutting down? just skip
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected InputStream _openExternal(E entry, File f) throws IOException
+    {
+        Future<InputStream> readAhead = _readAheads.remove(entry);
+        if (readAhead == null) {
+            return super._openExternal(entry, f);
+        }
+        try {
+            return readAhead.get();
+        } catch (InterruptedException e) {
+            // let it complete, to be closed along with other unused read-aheads
+            _readAheads.put(entry, readAhead);
+            throw new InterruptedIOException("Interrupted while waiting for read-ahead of '"
+                    +f.getAbsolutePath()+"'");
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw new IOException("Failed to read ahead '"+f.getAbsolutePath()+"': "+t.getMessage(), t);
+        }
+    }
+
+    /**
+     * Method called (from read-ahead threads) to open given file and read
+     * the first bytes of its contents.
+     */
+    protected static InputStream _readAhead(File f, long length) throws IOException
+    {
+        FileInputStream in = new FileInputStream(f);
+        try {
+            byte[] head = new byte[(int) Math.min(length, READ_AHEAD_BYTES)];
+            int count = IOUtil.readFully(in, head);
+            return new SequenceInputStream(new ByteArrayInputStream(head, 0, count), in);
+        } catch (IOException e) {
+            try { in.close(); } catch (IOException e2) { }
+            throw e;
+        }
+    }
+
+    /**
+     * Method called after a batch has been written (or writing has failed),
+     * to close streams read ahead but not used.
+     */
+    protected void _cancelReadAheads()
+    {
+        // note: can not just cancel, as tasks may be running; must wait to close streams
+        for (Future<InputStream> readAhead : _readAheads.values()) {
+            try {
+                readAhead.get().close();
+            } catch (Exception e) { } // failed read-aheads have nothing to close
+        }
+        _readAheads.clear();
+    }
+}
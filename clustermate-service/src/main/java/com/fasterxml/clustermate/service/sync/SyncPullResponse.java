@@ -15,6 +15,8 @@ import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.api.msg.ExtensibleType;
 import com.fasterxml.clustermate.service.msg.StreamingResponseContent;
 import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.throttle.SyncBandwidthLimiter;
+import com.fasterxml.clustermate.service.throttle.ThrottledInputStream;
 
 /**
  * Helper class used for producing response for "sync pull" requests.
@@ -23,7 +25,10 @@ import com.fasterxml.clustermate.service.store.StoredEntry;
  * we want has to differ from usual 'simple' JSON or Smile structure.
  * Instead of serializing a full structure, we serialize a sequence of
  * metadata-payload pairs; both of which are preceded by 4-byte length
- * indicators; and then a 0-length marker at the end.
+ * indicators; and then an end marker ({@link SyncHandler#LENGTH_EOF}).
+ * If response can not be completed after writing has started, an error
+ * marker ({@link SyncHandler#LENGTH_ERROR}) is written instead, if possible;
+ * callers must consider any response without end marker as truncated.
  */
 public class SyncPullResponse<E extends StoredEntry<? extends EntryKey>>
     extends ExtensibleType
@@ -49,21 +54,38 @@ public class SyncPullResponse<E extends StoredEntry<? extends EntryKey>>
     // and here's how recycling will work
     protected final static BufferRecycler _readBuffers = new BufferRecycler(BUFFER_LENGTH);
 
-    private final FileManager _fileManager;
+    protected final FileManager _fileManager;
     
     /**
      * Smile serializer to use for metadata entries
      */
     private final ObjectWriter _smileWriter;
     
+    /**
+     * Optional limiter used to keep output within bandwidth limits
+     */
+    private final SyncBandwidthLimiter _throttle;
+
     private List<E> _entries;
+
+    /**
+     * Number of problems reported so far
+     */
+    protected int _warningsPrinted;
     
     public SyncPullResponse(FileManager fileManager, ObjectWriter smileWriter,
             List<E> entries)
+    {
+        this(fileManager, smileWriter, entries, null);
+    }
+
+    public SyncPullResponse(FileManager fileManager, ObjectWriter smileWriter,
+            List<E> entries, SyncBandwidthLimiter throttle)
     {
         _fileManager = fileManager;
         _smileWriter = smileWriter;
         _entries = entries;
+        _throttle = (throttle == null || !throttle.isEnabled()) ? null : throttle;
     }
 
     // kinda, since we copy contents from files
@@ -83,57 +105,8 @@ public class SyncPullResponse<E extends StoredEntry<? extends EntryKey>>
     public void writeContent(final OutputStream output) throws IOException
     {
         final int count = _entries.size();
-        int warningsPrinted = 0;
         try {
-            for (int i = 0; i < count; ++i) {
-                E entry  = _entries.get(i);
-
-                // Can entry actually be null? Seems unlikely, may occur since expiration
-                // and clean up threads are asynchronous; so let's allow it:
-                if (entry == null) {
-                    LOG.warn("Missing entry ({}/{}), returned to caller as empty", i, count);
-                    _writeLength(output, 0);
-                    continue;
-                }
-                SyncPullEntry header = new SyncPullEntry(entry);
-                byte[] metadata = _smileWriter.writeValueAsBytes(header);
-                if (metadata.length > SyncHandler.MAX_HEADER_LENGTH) { // sanity check; never to occur...
-                    LOG.error("Internal error: too long header ({}) (entry key '{}'); must skip",
-                            metadata.length, entry.getKey());
-                    continue;
-                }
-                // first: if state is DELETED, may need special handling? Or just skip...
-                if (entry.isDeleted()) {
-                    _writeLength(output, metadata.length);
-                    output.write(metadata);
-                    continue;
-                }
-                String warning;
-                if (entry.hasExternalData()) {
-                    warning = _writeExternal(output, entry, metadata);
-                } else {
-                    warning = _writeInlined(output, entry, metadata);
-                }
-                if (warning == null) { // ok, no problem
-                    continue;
-                }
-
-                if (++warningsPrinted <= MAX_ERRORS_PER_PULL) {
-                    if (warningsPrinted < MAX_ERRORS_PER_PULL) {
-                        LOG.error("Failed to include pull entry {}/{}, reason: {}", i, count, warning);
-                        /*
-long age = System.currentTimeMillis() - entry.getLastModifiedTime();
-long ttl = 1000L * entry.getMaxTTLSecs();
-if (1 == warningsPrinted) LOG.error("AGE of failed entry (raw mod time "+entry.getLastModifiedTime()+"): "+TimeMaster.timeDesc(age)
-        +", max TTL "+TimeMaster.timeDesc(ttl));
-                        
-                        */
-                    } else {
-                        LOG.error("Failed to include pull entry {}/{}, reason: {} -- NOTE: max warnings ({}) reached, will suppress rest"
-                                , i, count, warning, MAX_ERRORS_PER_PULL);
-                    }
-                }
-            }
+            _writeEntries(output, _entries);
             // and finally, write end marker
             _writeLength(output, SyncHandler.LENGTH_EOF);
             output.flush();
@@ -147,13 +120,114 @@ if (1 == warningsPrinted) LOG.error("AGE of failed entry (raw mod time "+entry.g
         }
     }
 
+    /**
+     * Method for writing out given entries, without end marker.
+     *
+     * @return Number of entries included in response (ones not missing or skipped)
+     */
+    protected int _writeEntries(final OutputStream output, List<E> entries) throws IOException
+    {
+        final int count = entries.size();
+        int included = 0;
+        for (int i = 0; i < count; ++i) {
+            _beforeEntry(entries, i);
+            E entry  = entries.get(i);
+
+            // Can entry actually be null? Seems unlikely, may occur since expiration
+            // and clean up threads are asynchronous; so let's allow it:
+            if (entry == null) {
+                LOG.warn("Missing entry ({}/{}), returned to caller as empty", i, count);
+                _writeLength(output, 0);
+                continue;
+            }
+            // content of external entries is throttled while copying
+            if (_throttle != null) {
+                _throttle((entry.isDeleted() || entry.hasExternalData()) ? 0L : entry.getStorageLength());
+            }
+            SyncPullEntry header = _entryHeader(entry);
+            byte[] metadata = _smileWriter.writeValueAsBytes(header);
+            if (metadata.length > SyncHandler.MAX_HEADER_LENGTH) { // sanity check; never to occur...
+                LOG.error("Internal error: too long header ({}) (entry key '{}'); must skip",
+                        metadata.length, entry.getKey());
+                continue;
+            }
+            // first: if state is DELETED, may need special handling? Or just skip...
+            if (entry.isDeleted()) {
+                _writeLength(output, metadata.length);
+                output.write(metadata);
+                ++included;
+                continue;
+            }
+            String warning;
+            if (entry.hasExternalData()) {
+                warning = _writeExternal(output, entry, metadata);
+            } else {
+                warning = _writeInlined(output, entry, metadata);
+            }
+            if (warning == null) { // ok, no problem
+                ++included;
+                continue;
+            }
+
+            if (++_warningsPrinted <= MAX_ERRORS_PER_PULL) {
+                if (_warningsPrinted < MAX_ERRORS_PER_PULL) {
+                    LOG.error("Failed to include pull entry {}/{}, reason: {}", i, count, warning);
+                    /*
+long age = System.currentTimeMillis() - entry.getLastModifiedTime();
+long ttl = 1000L * entry.getMaxTTLSecs();
+if (1 == warningsPrinted) LOG.error("AGE of failed entry (raw mod time "+entry.getLastModifiedTime()+"): "+TimeMaster.timeDesc(age)
+        +", max TTL "+TimeMaster.timeDesc(ttl));
+                    
+                    */
+                } else {
+                    LOG.error("Failed to include pull entry {}/{}, reason: {} -- NOTE: max warnings ({}) reached, will suppress rest"
+                            , i, count, warning, MAX_ERRORS_PER_PULL);
+                }
+            }
+        }
+        return included;
+    }
+
+    /**
+     * Method called before writing the entry at given index; by default does
+     * nothing, but sub-classes may use it to prepare following entries.
+     */
+    protected void _beforeEntry(List<E> entries, int index) { }
+
+    /**
+     * Method called to create metadata header to write for given entry.
+     */
+    protected SyncPullEntry _entryHeader(E entry) {
+        return new SyncPullEntry(entry);
+    }
+
+    /**
+     * Method called to open stream for reading contents of the external
+     * file of given entry.
+     */
+    protected InputStream _openExternal(E entry, File f) throws IOException {
+        return new FileInputStream(f);
+    }
+
+    private void _throttle(long bytes) throws IOException
+    {
+        try {
+            _throttle.throttle(1, bytes);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while throttling sync-pull output");
+        }
+    }
+
     private String _writeExternal(final OutputStream output, E entry, byte[] metadata)
         throws IOException
     {
         File f = entry.getRaw().getExternalFile(_fileManager);
-        FileInputStream in;
+        InputStream in;
         try {
-            in = new FileInputStream(f);
+            in = _openExternal(entry, f);
+            if (_throttle != null) {
+                in = new ThrottledInputStream(in, _throttle);
+            }
         } catch (FileNotFoundException e) {
             /* 15-Jan-2012, tatu: It is possible (rarely, but still) that cleanup process could
              *   delete data file before its metadata, and although sync list should try to
@@ -192,7 +266,7 @@ if (1 == warningsPrinted) LOG.error("AGE of failed entry (raw mod time "+entry.g
         return null;
     }
     
-    private void _copyFile(File f, FileInputStream in, OutputStream out, final long size)
+    private void _copyFile(File f, InputStream in, OutputStream out, final long size)
         throws IOException
     {
         BufferRecycler.Holder bufferHolder = _readBuffers.getHolder();        
@@ -219,7 +293,7 @@ if (1 == warningsPrinted) LOG.error("AGE of failed entry (raw mod time "+entry.g
         }
     }
 
-    private void _writeLength(OutputStream out, int length) throws IOException
+    protected void _writeLength(OutputStream out, int length) throws IOException
     {
         final byte[] LENGTH_BUFFER = new byte[4];
         LENGTH_BUFFER[0] = (byte) LENGTH_HEADER_BYTE;
@@ -0,0 +1,164 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.io.*;
+import java.util.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import com.fasterxml.storemate.shared.StorableKey;
+import com.fasterxml.storemate.store.Storable;
+import com.fasterxml.storemate.store.StorableStore;
+import com.fasterxml.storemate.store.StoreException;
+import com.fasterxml.storemate.store.StoreOperationSource;
+import com.fasterxml.storemate.store.backend.IterationAction;
+import com.fasterxml.storemate.store.backend.IterationResult;
+import com.fasterxml.storemate.store.backend.StorableIterationCallback;
+import com.fasterxml.storemate.store.file.FileManager;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.api.EntryKeyConverter;
+import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.store.StoredEntryConverter;
+import com.fasterxml.clustermate.service.throttle.SyncBandwidthLimiter;
+
+/**
+ * Response used for streaming a snapshot of all entries within a key range,
+ * used for bootstrapping new (or replaced) nodes. Format is the same as
+ * with {@link SyncPullResponse}; but instead of explicitly requested
+ * entries, all entries of the range are included, in key order.
+ *<p>
+ * Entries are read from the store in batches, to avoid keeping
+ * store cursors open while writing output.
+ */
+public class SyncSnapshotResponse<K extends EntryKey, E extends StoredEntry<K>>
+    extends SyncPullResponse<E>
+{
+    /**
+     * Maximum number of entries to read from store at a time
+     */
+    private final static int MAX_BATCH_ENTRIES = 200;
+
+    private final static Logger LOG = LoggerFactory.getLogger(SyncSnapshotResponse.class);
+
+    private final StorableStore _store;
+
+    private final StoredEntryConverter<K,E,?> _entryConverter;
+
+    private final KeyRange _range;
+
+    public SyncSnapshotResponse(FileManager fileManager, ObjectWriter smileWriter,
+            SyncBandwidthLimiter throttle, StorableStore store,
+            StoredEntryConverter<K,E,?> entryConverter, KeyRange range)
+    {
+        super(fileManager, smileWriter, Collections.<E>emptyList(), throttle);
+        _store = store;
+        _entryConverter = entryConverter;
+        _range = range;
+    }
+
+    @Override
+    public void writeContent(final OutputStream output) throws IOException
+    {
+        int total = 0;
+        try {
+            StorableKey lastKey = null;
+            while (true) {
+                BatchCollector<K,E> cb = new BatchCollector<K,E>(_entryConverter, _range,
+                        new ArrayList<E>(MAX_BATCH_ENTRIES));
+                IterationResult r;
+                if (lastKey == null) {
+                    r = _store.iterateEntriesByKey(StoreOperationSource.SYNC, null, null, cb);
+                } else {
+                    r = _store.iterateEntriesAfterKey(StoreOperationSource.SYNC, null, lastKey, cb);
+                }
+                List<E> batch = cb.getEntries();
+                _writeEntries(output, batch);
+                total += batch.size();
+                if (r != IterationResult.TERMINATED_FOR_ENTRY) {
+                    break;
+                }
+                lastKey = cb.getLastKey();
+            }
+            _writeLength(output, SyncHandler.LENGTH_EOF);
+            output.flush();
+        } catch (StoreException e) {
+            LOG.error("Store problem during writing of range snapshot ("+total+" entries written): "+e.getMessage(), e);
+            throw new IOException(e);
+        } catch (IOException e) {
+            LOG.error("I/O problem during writing of range snapshot ("+total+" entries written): "+e.getMessage(), e);
+            throw e;
+        } catch (RuntimeException e) {
+            LOG.error("Internal error during writing of range snapshot ("+total+" entries written): "+e.getMessage(), e);
+            throw e;
+        }
+        LOG.info("Completed writing of snapshot for range {}: {} entries", _range, total);
+    }
+
+    /**
+     * Unlike with sync-pulls, receiver has no sync list to get insertion
+     * timestamps from, so they are included in entry headers.
+     */
+    @Override
+    protected SyncPullEntry _entryHeader(E entry) {
+        SyncPullEntry header = super._entryHeader(entry);
+        header.insertionTime = entry.getLastModifiedTime();
+        return header;
+    }
+
+    /**
+     * Iteration callback used to collect a batch of entries within key range.
+     */
+    static class BatchCollector<K extends EntryKey, E extends StoredEntry<K>>
+        extends StorableIterationCallback
+    {
+        private final StoredEntryConverter<K,E,?> _entryConverter;
+
+        private final EntryKeyConverter<K> _keyConverter;
+
+        private final KeyRange _range;
+
+        private final List<E> _entries;
+
+        private K _key;
+
+        private StorableKey _lastKey;
+
+        public BatchCollector(StoredEntryConverter<K,E,?> entryConverter, KeyRange range,
+                List<E> entries)
+        {
+            _entryConverter = entryConverter;
+            _keyConverter = entryConverter.keyConverter();
+            _range = range;
+            _entries = entries;
+        }
+
+        @Override
+        public IterationAction verifyKey(StorableKey rawKey)
+        {
+            _key = _keyConverter.rawToEntryKey(rawKey);
+            if (_range.contains(_keyConverter.routingHashFor(_key))) {
+                return IterationAction.PROCESS_ENTRY;
+            }
+            return IterationAction.SKIP_ENTRY;
+        }
+
+        @Override
+        public IterationAction processEntry(Storable storable)
+        {
+            _entries.add(_entryConverter.entryFromStorable(_key, storable));
+            _lastKey = storable.getKey();
+            if (_entries.size() >= MAX_BATCH_ENTRIES) {
+                return IterationAction.TERMINATE_ITERATION;
+            }
+            return IterationAction.PROCESS_ENTRY;
+        }
+
+        public List<E> getEntries() { return _entries; }
+
+        public StorableKey getLastKey() { return _lastKey; }
+    }
+}
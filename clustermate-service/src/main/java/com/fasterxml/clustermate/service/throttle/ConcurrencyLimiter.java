@@ -0,0 +1,254 @@
+package com.fasterxml.clustermate.service.throttle;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.clustermate.service.cfg.ConcurrencyLimitConfig;
+import com.fasterxml.clustermate.service.metrics.ExternalConcurrencyLimit;
+
+/**
+ * Adaptive limiter for number of concurrent requests of a single
+ * operation type. Limit is adjusted using latency gradient: ratio
+ * between long-term and short-term average latencies. As long as
+ * short-term latency stays within tolerance, limit may grow (but only
+ * if it is actually being approached); when latency increases due to
+ * queuing, limit shrinks proportionally. Explicit overload signals
+ * (like back end timeouts) reduce limit multiplicatively.
+ *<p>
+ * Limiter may also be configured to yield to other limiters: this is
+ * used to give client requests priority over sync requests, so that
+ * latter are shed first.
+ */
+public class ConcurrencyLimiter
+{
+    /**
+     * Weight of a new sample for short-term latency average
+     */
+    private final static double SHORT_WEIGHT = 0.1;
+
+    /**
+     * Weight of a new sample for long-term latency average; about
+     * 500 samples
+     */
+    private final static double LONG_WEIGHT = 0.002;
+
+    /**
+     * Multiplier used with explicit overload signals
+     */
+    private final static double BACKOFF_RATIO = 0.9;
+
+    /**
+     * How much of newly calculated limit is applied at once
+     */
+    private final static double SMOOTHING = 0.2;
+
+    /*
+    /**********************************************************************
+    /* Configuration
+    /**********************************************************************
+     */
+
+    protected final String _name;
+
+    protected final int _minLimit, _maxLimit;
+
+    protected final double _tolerance;
+
+    /**
+     * Whether limit is adjusted based on latency or not: not all
+     * operations (like long-polling sync list) have meaningful latencies.
+     */
+    protected final boolean _adaptive;
+
+    /**
+     * Optional set of limiters this limiter yields to: if any of them
+     * is at {@link #_yieldRatio} of its limit, requests are rejected.
+     */
+    protected final ConcurrencyLimiter[] _yieldTo;
+
+    protected final double _yieldRatio;
+
+    /*
+    /**********************************************************************
+    /* State
+    /**********************************************************************
+     */
+
+    protected final AtomicInteger _inFlight = new AtomicInteger(0);
+
+    protected final AtomicLong _rejected = new AtomicLong(0L);
+
+    /**
+     * Current limit, as an integer; updated from {@link #_estimatedLimit}
+     */
+    protected volatile int _limit;
+
+    protected final Object _lock = new Object();
+
+    // all guarded by _lock:
+    protected double _estimatedLimit;
+
+    protected double _shortLatency, _longLatency;
+
+    /*
+    /**********************************************************************
+    /* Life-cycle
+    /**********************************************************************
+     */
+
+    public ConcurrencyLimiter(String name, ConcurrencyLimitConfig config, boolean adaptive,
+            ConcurrencyLimiter[] yieldTo)
+    {
+        if (config.minLimit < 1 || config.minLimit > config.maxLimit) {
+            throw new IllegalArgumentException("Invalid limit bounds: min "+config.minLimit
+                    +", max "+config.maxLimit);
+        }
+        _name = name;
+        _minLimit = config.minLimit;
+        _maxLimit = config.maxLimit;
+        _tolerance = Math.max(1.0, config.latencyTolerance);
+        _adaptive = adaptive;
+        _yieldTo = (yieldTo == null || yieldTo.length == 0) ? null : yieldTo;
+        _yieldRatio = config.syncYieldRatio;
+        _estimatedLimit = Math.max(_minLimit, Math.min(_maxLimit, config.initialLimit));
+        _limit = (int) _estimatedLimit;
+    }
+
+    /*
+    /**********************************************************************
+    /* Public API
+    /**********************************************************************
+     */
+
+    /**
+     * Method to call before starting an operation: if true is returned,
+     * operation may proceed and caller MUST call one of
+     * <code>release</code> methods once operation completes; if false,
+     * operation should be rejected.
+     */
+    public boolean tryAcquire()
+    {
+        if (_yieldTo != null) {
+            for (ConcurrencyLimiter other : _yieldTo) {
+                if (other.utilization() >= _yieldRatio) {
+                    _rejected.incrementAndGet();
+                    return false;
+                }
+            }
+        }
+        final int limit = _limit;
+        while (true) {
+            int curr = _inFlight.get();
+            if (curr >= limit) {
+                _rejected.incrementAndGet();
+                return false;
+            }
+            if (_inFlight.compareAndSet(curr, curr+1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Method to call when an acquired operation completes
+     *
+     * @param nanosTaken Time operation took, used as latency sample
+     * @param overloaded Whether operation failed due to overload of
+     *    back end (timeout or such)
+     */
+    public void release(long nanosTaken, boolean overloaded)
+    {
+        final int inFlight = _inFlight.getAndDecrement();
+        if (_adaptive && nanosTaken > 0L) {
+            _update((double) nanosTaken, inFlight, overloaded);
+        }
+    }
+
+    /**
+     * Method to call when an acquired operation completes without
+     * a meaningful latency sample.
+     */
+    public void release() {
+        _inFlight.decrementAndGet();
+    }
+
+    /*
+    /**********************************************************************
+    /* Accessors
+    /**********************************************************************
+     */
+
+    public String getName() { return _name; }
+
+    public int getLimit() { return _limit; }
+
+    public int getInFlight() { return _inFlight.get(); }
+
+    public long getRejectedCount() { return _rejected.get(); }
+
+    /**
+     * Portion of current limit in use
+     */
+    public double utilization() {
+        return (double) _inFlight.get() / (double) _limit;
+    }
+
+    public ExternalConcurrencyLimit externalize()
+    {
+        ExternalConcurrencyLimit ext = new ExternalConcurrencyLimit();
+        ext.limit = _limit;
+        ext.inFlight = _inFlight.get();
+        ext.rejected = _rejected.get();
+        if (_adaptive) {
+            synchronized (_lock) {
+                ext.shortLatencyMsecs = _shortLatency / 1000000.0;
+                ext.longLatencyMsecs = _longLatency / 1000000.0;
+            }
+        }
+        return ext;
+    }
+
+    @Override
+    public String toString() {
+        return "[ConcurrencyLimiter '"+_name+"': limit "+_limit+", in-flight "+_inFlight.get()+"]";
+    }
+
+    /*
+    /**********************************************************************
+    /* Internal methods
+    /**********************************************************************
+     */
+
+    protected void _update(double sample, int inFlight, boolean overloaded)
+    {
+        synchronized (_lock) {
+            if (_longLatency == 0.0) {
+                _shortLatency = _longLatency = sample;
+            } else {
+                _shortLatency += (sample - _shortLatency) * SHORT_WEIGHT;
+                _longLatency += (sample - _longLatency) * LONG_WEIGHT;
+                // if load has dropped, let long-term average recover faster
+                if (_longLatency > 2.0 * _shortLatency) {
+                    _longLatency *= 0.95;
+                }
+            }
+            final double limit = _estimatedLimit;
+            double newLimit;
+            if (overloaded) {
+                newLimit = limit * BACKOFF_RATIO;
+            } else {
+                // No point in growing limit unless we are actually getting close to it
+                if (inFlight < (limit / 2.0)) {
+                    return;
+                }
+                double gradient = (_tolerance * _longLatency) / _shortLatency;
+                gradient = Math.max(0.5, Math.min(1.0, gradient));
+                newLimit = limit * gradient + Math.sqrt(limit);
+                newLimit = (limit * (1.0 - SMOOTHING)) + (newLimit * SMOOTHING);
+            }
+            newLimit = Math.max(_minLimit, Math.min(_maxLimit, newLimit));
+            _estimatedLimit = newLimit;
+            _limit = (int) newLimit;
+        }
+    }
+}
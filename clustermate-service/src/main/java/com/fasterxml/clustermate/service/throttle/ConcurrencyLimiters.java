@@ -0,0 +1,71 @@
+package com.fasterxml.clustermate.service.throttle;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.fasterxml.clustermate.service.cfg.ConcurrencyLimitConfig;
+
+/**
+ * Container for {@link ConcurrencyLimiter}s of all operation types,
+ * shared by all front-end handlers of a service.
+ * Limiters for sync operations yield to those of client operations,
+ * giving client traffic priority.
+ */
+public class ConcurrencyLimiters
+{
+    protected final EnumMap<OperationType,ConcurrencyLimiter> _limiters;
+
+    protected ConcurrencyLimiters(EnumMap<OperationType,ConcurrencyLimiter> limiters) {
+        _limiters = limiters;
+    }
+
+    public static ConcurrencyLimiters construct(ConcurrencyLimitConfig config)
+    {
+        EnumMap<OperationType,ConcurrencyLimiter> limiters = new EnumMap<OperationType,ConcurrencyLimiter>(OperationType.class);
+        if (config != null && config.enabled) {
+            ConcurrencyLimiter[] clientLimiters = new ConcurrencyLimiter[] {
+                    _limiter(limiters, OperationType.GET, config, true, null),
+                    _limiter(limiters, OperationType.HEAD, config, true, null),
+                    _limiter(limiters, OperationType.PUT, config, true, null),
+                    _limiter(limiters, OperationType.DELETE, config, true, null),
+                    _limiter(limiters, OperationType.LIST, config, true, null)
+            };
+            // sync list uses long-polling, so its latency is not meaningful
+            _limiter(limiters, OperationType.SYNCLIST, config, false, clientLimiters);
+            _limiter(limiters, OperationType.SYNCPULL, config, true, clientLimiters);
+        }
+        return new ConcurrencyLimiters(limiters);
+    }
+
+    private static ConcurrencyLimiter _limiter(EnumMap<OperationType,ConcurrencyLimiter> limiters,
+            OperationType type, ConcurrencyLimitConfig config, boolean adaptive,
+            ConcurrencyLimiter[] yieldTo)
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(type.name(), config, adaptive, yieldTo);
+        limiters.put(type, limiter);
+        return limiter;
+    }
+
+    /**
+     * @return Limiter for given operation type, if limits are enabled;
+     *   null if not.
+     */
+    public ConcurrencyLimiter limiterFor(OperationType type) {
+        return _limiters.get(type);
+    }
+
+    /**
+     * Accessor for finding highest utilization (portion of limit in use)
+     * of client (non-sync) operations; 0.0 if limits are not enabled.
+     */
+    public double clientUtilization()
+    {
+        double max = 0.0;
+        for (Map.Entry<OperationType,ConcurrencyLimiter> entry : _limiters.entrySet()) {
+            if (!entry.getKey().isSyncOperation()) {
+                max = Math.max(max, entry.getValue().utilization());
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,28 @@
+package com.fasterxml.clustermate.service.throttle;
+
+/**
+ * Enumeration of operation types that have separate concurrency limits.
+ */
+public enum OperationType
+{
+    GET(false),
+    HEAD(false),
+    PUT(false),
+    DELETE(false),
+    LIST(false),
+    SYNCLIST(true),
+    SYNCPULL(true)
+    ;
+
+    private final boolean _sync;
+
+    private OperationType(boolean sync) {
+        _sync = sync;
+    }
+
+    /**
+     * Whether operation is used for server-to-server synchronization,
+     * as opposed to serving client requests.
+     */
+    public boolean isSyncOperation() { return _sync; }
+}
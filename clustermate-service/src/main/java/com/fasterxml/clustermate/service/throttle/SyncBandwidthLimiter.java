@@ -0,0 +1,89 @@
+package com.fasterxml.clustermate.service.throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limiter used for limiting bandwidth (bytes and entries per second)
+ * used for node-to-node synchronization. Limiter may optionally adapt
+ * to load of client requests, reducing rates when client operations are
+ * getting close to their concurrency limits.
+ */
+public class SyncBandwidthLimiter
+{
+    /**
+     * Size of allowed bursts, in seconds worth of tokens
+     */
+    private final static double BURST_SECONDS = 1.0;
+
+    /**
+     * Minimum portion of configured rate retained regardless of client load,
+     * to ensure syncing eventually completes.
+     */
+    private final static double MIN_RATE_FACTOR = 0.1;
+
+    protected final TokenBucket _bytes;
+
+    protected final TokenBucket _entries;
+
+    /**
+     * Optional limiters to use for adapting to client load
+     */
+    protected final ConcurrencyLimiters _clientLimiters;
+
+    protected final AtomicLong _throttledNanos = new AtomicLong(0L);
+
+    public SyncBandwidthLimiter(long bytesPerSecond, int entriesPerSecond,
+            ConcurrencyLimiters clientLimiters)
+    {
+        final long now = System.nanoTime();
+        _bytes = (bytesPerSecond <= 0L) ? null
+                : new TokenBucket(bytesPerSecond, BURST_SECONDS, now);
+        _entries = (entriesPerSecond <= 0) ? null
+                : new TokenBucket(entriesPerSecond, BURST_SECONDS, now);
+        _clientLimiters = clientLimiters;
+    }
+
+    public boolean isEnabled() {
+        return (_bytes != null) || (_entries != null);
+    }
+
+    /**
+     * Total time callers have been made to wait so far, in milliseconds
+     */
+    public long getThrottledMsecs() {
+        return TimeUnit.NANOSECONDS.toMillis(_throttledNanos.get());
+    }
+
+    /**
+     * Method to call before processing given number of entries
+     * and bytes; will block as necessary to keep within rate limits.
+     */
+    public void throttle(int entries, long bytes) throws InterruptedException
+    {
+        if (!isEnabled()) {
+            return;
+        }
+        final double factor = _rateFactor();
+        final long now = System.nanoTime();
+        long waitNanos = 0L;
+        if (_bytes != null) {
+            waitNanos = _bytes.reserve(now, bytes, factor);
+        }
+        if (_entries != null) {
+            waitNanos = Math.max(waitNanos, _entries.reserve(now, entries, factor));
+        }
+        if (waitNanos > 0L) {
+            _throttledNanos.addAndGet(waitNanos);
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    protected double _rateFactor()
+    {
+        if (_clientLimiters == null) {
+            return 1.0;
+        }
+        return Math.max(MIN_RATE_FACTOR, 1.0 - _clientLimiters.clientUtilization());
+    }
+}
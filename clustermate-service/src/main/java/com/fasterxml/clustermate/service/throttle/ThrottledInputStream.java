@@ -0,0 +1,62 @@
+package com.fasterxml.clustermate.service.throttle;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Input stream wrapper that charges bytes read against given
+ * {@link SyncBandwidthLimiter}, one read at a time: this way copying of
+ * big entries is spread over time, instead of having to wait for the
+ * whole entry before starting to copy it.
+ */
+public class ThrottledInputStream extends FilterInputStream
+{
+    protected final SyncBandwidthLimiter _throttle;
+
+    public ThrottledInputStream(InputStream in, SyncBandwidthLimiter throttle)
+    {
+        super(in);
+        _throttle = throttle;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        int b = in.read();
+        if (b >= 0) {
+            _throttle(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int len) throws IOException
+    {
+        int count = in.read(b, offset, len);
+        if (count > 0) {
+            _throttle(count);
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        long count = in.skip(n);
+        if (count > 0L) {
+            _throttle(count);
+        }
+        return count;
+    }
+
+    private void _throttle(long bytes) throws IOException
+    {
+        try {
+            _throttle.throttle(0, bytes);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while throttling sync content");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.fasterxml.clustermate.service.throttle;
+
+/**
+ * Simple token bucket implementation, used for rate limiting. Instead
+ * of blocking, callers reserve tokens and are told how long to wait
+ * before proceeding: this allows reserving amounts that exceed
+ * maximum burst size (like big entries), by letting the bucket go
+ * into "debt" that later callers have to wait out.
+ */
+public class TokenBucket
+{
+    private final static double NANOS_PER_SECOND = 1000.0 * 1000.0 * 1000.0;
+
+    /**
+     * Number of tokens added per second
+     */
+    protected final double _ratePerSecond;
+
+    /**
+     * Maximum number of tokens bucket can hold (size of allowed burst)
+     */
+    protected final double _maxTokens;
+
+    // both guarded by 'this':
+    protected double _tokens;
+
+    protected long _lastRefillNanos;
+
+    /**
+     * @param ratePerSecond Number of tokens added per second
+     * @param burstSeconds Number of seconds worth of tokens bucket can hold
+     */
+    public TokenBucket(double ratePerSecond, double burstSeconds, long nowNanos)
+    {
+        if (ratePerSecond <= 0.0) {
+            throw new IllegalArgumentException("Invalid rate ("+ratePerSecond+"): must be positive");
+        }
+        _ratePerSecond = ratePerSecond;
+        _maxTokens = Math.max(1.0, ratePerSecond * burstSeconds);
+        _tokens = _maxTokens;
+        _lastRefillNanos = nowNanos;
+    }
+
+    public double getRatePerSecond() { return _ratePerSecond; }
+
+    /**
+     * Method for reserving specified number of tokens.
+     *
+     * @param nowNanos Current time in nanoseconds (as per {@link System#nanoTime})
+     * @param tokens Number of tokens to reserve
+     * @param rateFactor Multiplier to apply to the base rate (between 0.0
+     *    and 1.0), to allow temporary reduction of rate
+     *
+     * @return Number of nanoseconds caller needs to wait before proceeding;
+     *    0 if no wait is needed
+     */
+    public synchronized long reserve(long nowNanos, long tokens, double rateFactor)
+    {
+        final double rate = _ratePerSecond * rateFactor;
+        long elapsed = nowNanos - _lastRefillNanos;
+        if (elapsed > 0L) {
+            _tokens = Math.min(_maxTokens, _tokens + (elapsed * rate / NANOS_PER_SECOND));
+            _lastRefillNanos = nowNanos;
+        }
+        _tokens -= tokens;
+        if (_tokens >= 0.0) {
+            return 0L;
+        }
+        return (long) (-_tokens * NANOS_PER_SECOND / rate);
+    }
+}
@@ -0,0 +1,53 @@
+package com.fasterxml.clustermate.service.util;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helper methods for forcing files, and directory entries of files,
+ * to disk.
+ */
+public class FileSyncs
+{
+    /**
+     * Method for forcing contents (and metadata) of given file to disk.
+     */
+    public static void forceFile(File f) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.getChannel().force(true);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Method for forcing given directory (that is, entries of files it contains)
+     * to disk; needed for newly created files to survive a crash.
+     * Note that some platforms (Windows) do not allow opening directories;
+     * if so, nothing is done, since there is no way to force them.
+     *
+     * @return True if directory was forced to disk; false if platform does
+     *   not allow it
+     */
+    public static boolean forceDirectory(File dir) throws IOException
+    {
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            if (!dir.isDirectory()) {
+                throw new FileNotFoundException("No directory '"+dir.getAbsolutePath()+"' to sync");
+            }
+            return false;
+        }
+        try {
+            ch.force(true);
+        } finally {
+            ch.close();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package com.fasterxml.clustermate.service.cluster;
+
+import java.util.*;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.storemate.shared.IpAndPort;
+import com.fasterxml.clustermate.api.KeyRange;
+import com.fasterxml.clustermate.api.KeySpace;
+
+public class TestKeyRangeRebalancer extends TestCase
+{
+    private final KeySpace SPACE = new KeySpace(360);
+
+    private final IpAndPort NODE1 = new IpAndPort("localhost:9001");
+    private final IpAndPort NODE2 = new IpAndPort("localhost:9002");
+    private final IpAndPort NODE3 = new IpAndPort("localhost:9003");
+
+    public void testDifference()
+    {
+        List<KeyRange> diff = KeyRangeRebalancer.difference(SPACE.range(0, 180), SPACE.range(60, 60));
+        assertEquals(2, diff.size());
+        assertEquals(SPACE.range(0, 60), diff.get(0));
+        assertEquals(SPACE.range(120, 60), diff.get(1));
+
+        // contained: nothing left
+        assertEquals(0, KeyRangeRebalancer.difference(SPACE.range(60, 60), SPACE.range(0, 180)).size());
+
+        // wrapping ranges are returned as single ranges
+        diff = KeyRangeRebalancer.difference(SPACE.range(300, 120), SPACE.range(30, 60));
+        assertEquals(1, diff.size());
+        assertEquals(SPACE.range(300, 90), diff.get(0));
+    }
+
+    public void testMinCoverage()
+    {
+        List<KeyRange> ranges = Arrays.asList(SPACE.range(0, 240), SPACE.range(120, 240));
+        assertEquals(2, KeyRangeRebalancer.minCoverage(SPACE.range(120, 120), ranges));
+        assertEquals(1, KeyRangeRebalancer.minCoverage(SPACE.range(60, 120), ranges));
+        assertEquals(0, KeyRangeRebalancer.minCoverage(SPACE.range(0, 360),
+                Collections.singletonList(SPACE.range(0, 180))));
+    }
+
+    public void testTransfersFromSingleHolder()
+    {
+        Map<IpAndPort,KeyRange> holders = new LinkedHashMap<IpAndPort,KeyRange>();
+        holders.put(NODE2, SPACE.range(120, 120));
+        holders.put(NODE3, SPACE.range(240, 120));
+        // node growing from [0,+120] to [0,+180] needs [120,+60], only held by node 2
+        List<KeyRangeRebalancer.RangeTransfer> transfers = KeyRangeRebalancer.planTransfers(
+                SPACE.range(0, 120), SPACE.range(0, 180), holders);
+        assertEquals(1, transfers.size());
+        assertEquals(NODE2, transfers.get(0).source);
+        assertEquals(SPACE.range(120, 60), transfers.get(0).range);
+    }
+
+    public void testTransfersSplitBetweenHolders()
+    {
+        Map<IpAndPort,KeyRange> holders = new LinkedHashMap<IpAndPort,KeyRange>();
+        holders.put(NODE2, SPACE.range(120, 240));
+        holders.put(NODE3, SPACE.range(180, 180));
+        // [180,+60] is held by both; should be split evenly
+        List<KeyRangeRebalancer.RangeTransfer> transfers = KeyRangeRebalancer.planTransfers(
+                SPACE.range(0, 180), SPACE.range(0, 240), holders);
+        assertEquals(2, transfers.size());
+        assertEquals(NODE2, transfers.get(0).source);
+        assertEquals(SPACE.range(180, 30), transfers.get(0).range);
+        assertEquals(NODE3, transfers.get(1).source);
+        assertEquals(SPACE.range(210, 30), transfers.get(1).range);
+
+        // and if nobody has the slots, no source
+        transfers = KeyRangeRebalancer.planTransfers(SPACE.range(0, 180), SPACE.range(0, 240),
+                Collections.<IpAndPort,KeyRange>emptyMap());
+        assertEquals(1, transfers.size());
+        assertNull(transfers.get(0).source);
+    }
+
+    public void testNothingToTransferWhenShrinking()
+    {
+        Map<IpAndPort,KeyRange> holders = new LinkedHashMap<IpAndPort,KeyRange>();
+        holders.put(NODE1, SPACE.range(0, 360));
+        assertEquals(0, KeyRangeRebalancer.planTransfers(SPACE.range(0, 240), SPACE.range(0, 180),
+                holders).size());
+    }
+}
@@ -0,0 +1,61 @@
+package com.fasterxml.clustermate.service.metrics;
+
+import junit.framework.TestCase;
+
+public class TestPeerSyncMetrics extends TestCase
+{
+    private final static long MSECS = 1000L * 1000L;
+
+    public void testEmpty()
+    {
+        ExternalPeerSyncMetrics ext = new PeerSyncMetrics().externalize(10000L, 0L, 0);
+        // not yet synced at all: lag unknown
+        assertEquals(-1L, ext.syncLagMsecs);
+        assertEquals(0L, ext.syncedUpTo);
+        assertEquals(0L, ext.entriesPulled);
+        assertEquals(0L, ext.syncListCount);
+        assertNull(ext.syncListTimes);
+        assertNull(ext.pullBatchSizes);
+    }
+
+    public void testSyncLag()
+    {
+        PeerSyncMetrics metrics = new PeerSyncMetrics();
+        ExternalPeerSyncMetrics ext = metrics.externalize(10000L, 7500L, 3);
+        assertEquals(2500L, ext.syncLagMsecs);
+        assertEquals(7500L, ext.syncedUpTo);
+        assertEquals(3, ext.failCount);
+
+        // and with clock skew, peer may appear to be ahead; lag never negative
+        ext = metrics.externalize(10000L, 12000L, 0);
+        assertEquals(0L, ext.syncLagMsecs);
+        assertEquals(12000L, ext.syncedUpTo);
+    }
+
+    public void testCountUpdates()
+    {
+        PeerSyncMetrics metrics = new PeerSyncMetrics();
+        metrics.syncListCompleted(4 * MSECS);
+        metrics.syncListCompleted(6 * MSECS);
+        metrics.pullCompleted(10, 8, 4000L, 1, 1, 0);
+        metrics.pullCompleted(5, 4, 1000L, 0, 0, 1);
+        metrics.pullsDeferred(3);
+        metrics.pullsDeferred(2);
+        metrics.setSleepMsecs(250L);
+
+        ExternalPeerSyncMetrics ext = metrics.externalize(10000L, 9000L, 0);
+        assertEquals(1000L, ext.syncLagMsecs);
+        assertEquals(250L, ext.sleepMsecs);
+        assertEquals(12L, ext.entriesPulled);
+        assertEquals(5000L, ext.bytesPulled);
+        assertEquals(2L, ext.syncListCount);
+        assertNotNull(ext.syncListTimes);
+        assertEquals(6, ext.syncListTimes.pct99);
+        assertNotNull(ext.pullBatchSizes);
+        assertEquals(10, ext.pullBatchSizes.pct99);
+        assertEquals(1L, ext.redundant);
+        assertEquals(1L, ext.missing);
+        assertEquals(1L, ext.otherProblems);
+        assertEquals(5L, ext.deferred);
+    }
+}
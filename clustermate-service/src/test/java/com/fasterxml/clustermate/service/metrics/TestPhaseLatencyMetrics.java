@@ -0,0 +1,38 @@
+package com.fasterxml.clustermate.service.metrics;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.storemate.store.util.OperationDiagnostics;
+
+public class TestPhaseLatencyMetrics extends TestCase
+{
+    private final static long MSECS = 1000L * 1000L;
+
+    public void testPhaseBreakdown()
+    {
+        PhaseLatencyMetrics metrics = new PhaseLatencyMetrics();
+        final long start = System.nanoTime() - 20 * MSECS;
+        OperationDiagnostics diag = new OperationDiagnostics(start);
+        // db access: 2 msecs waiting, then 3 msecs of actual access
+        diag.addDbAccess(start, start + 2 * MSECS, start + 5 * MSECS);
+        diag.addResponseWriteTime(start + 10 * MSECS, start + 14 * MSECS);
+        metrics.update(diag);
+
+        assertEquals(1L, metrics.histogramFor(OperationPhase.TOTAL).getTotalCount());
+        assertEquals(3000.0, metrics.histogramFor(OperationPhase.METADATA).getMean(), 5.0);
+        assertEquals(2000.0, metrics.histogramFor(OperationPhase.LOCK_WAIT).getMean(), 5.0);
+        assertEquals(4000.0, metrics.histogramFor(OperationPhase.REQUEST_RESPONSE).getMean(), 5.0);
+        // no file access, so nothing recorded
+        assertEquals(0L, metrics.histogramFor(OperationPhase.FILE_READ).getTotalCount());
+
+        Map<String, ExternalOperationMetrics.PhaseHistogram> ext = metrics.externalize();
+        assertFalse(ext.containsKey("fileRead"));
+        ExternalOperationMetrics.PhaseHistogram meta = ext.get("metadata");
+        assertNotNull(meta);
+        assertEquals(1L, meta.count);
+        assertEquals(3.0, meta.pct99, 0.01);
+        assertTrue(ext.get("total").max >= 20.0);
+    }
+}
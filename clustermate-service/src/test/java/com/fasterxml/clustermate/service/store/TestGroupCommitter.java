@@ -0,0 +1,159 @@
+package com.fasterxml.clustermate.service.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class TestGroupCommitter extends TestCase
+{
+    public void testSingleSync() throws Exception
+    {
+        CountingCommitter committer = new CountingCommitter(10, 0L);
+        committer.sync(new File("/data/a/1"));
+        assertEquals(1, committer.files.get());
+        assertEquals(Arrays.asList(new File("/data/a")), committer.dirs);
+    }
+
+    public void testDirectorySyncedOncePerBatch() throws Exception
+    {
+        // wait time long enough that test would time out if batch was not synced when full
+        final CountingCommitter committer = new CountingCommitter(4, 60000L);
+        List<Thread> threads = new ArrayList<Thread>();
+        final AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 4; ++i) {
+            final File f = new File((i < 3) ? "/data/a" : "/data/b", String.valueOf(i));
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        committer.sync(f);
+                        done.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(10000L);
+        }
+        assertEquals(4, done.get());
+        assertEquals(4, committer.files.get());
+        // all in one batch, synced by leader: so one sync per directory
+        assertEquals(1, new HashSet<Thread>(committer.syncThreads).size());
+        assertEquals(2, committer.dirs.size());
+        assertEquals(new HashSet<File>(Arrays.asList(new File("/data/a"), new File("/data/b"))),
+                new HashSet<File>(committer.dirs));
+    }
+
+    public void testFailuresReportedPerFile() throws Exception
+    {
+        final CountingCommitter committer = new CountingCommitter(3, 5000L);
+        committer.failFile = new File("/data/a/bad");
+        committer.failDir = new File("/data/c");
+        final Map<String,IOException> problems = Collections.synchronizedMap(new HashMap<String,IOException>());
+        final CountDownLatch done = new CountDownLatch(2);
+        for (final String path : new String[] { "/data/a/bad", "/data/c/1" }) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        committer.sync(new File(path));
+                    } catch (IOException e) {
+                        problems.put(path, e);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        committer.sync(new File("/data/a/ok"));
+        done.await();
+        assertEquals(2, problems.size());
+        assertEquals("Bad file", problems.get("/data/a/bad").getMessage());
+        assertEquals("Bad dir", problems.get("/data/c/1").getMessage());
+        // directory of a file that could not be synced is not needed for it, but is for the good file
+        assertTrue(committer.dirs.contains(new File("/data/a")));
+    }
+
+    public void testManyConcurrentSyncs() throws Exception
+    {
+        final CountingCommitter committer = new CountingCommitter(3, 1L);
+        final AtomicInteger done = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 20; ++i) {
+            final int index = i;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10; ++j) {
+                        try {
+                            committer.sync(new File("/data/"+(index % 3), index+"-"+j));
+                            done.incrementAndGet();
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(10000L);
+        }
+        assertEquals(200, committer.files.get());
+        assertEquals(200, done.get());
+        assertTrue(committer.dirs.size() <= 200);
+    }
+
+    // Also verify that real syncing works on this platform
+    public void testSyncRealFile() throws Exception
+    {
+        File f = File.createTempFile("group-commit", ".tmp");
+        try {
+            new GroupCommitter(4, 0L).sync(f);
+        } finally {
+            f.delete();
+        }
+    }
+
+    static class CountingCommitter extends GroupCommitter
+    {
+        final AtomicInteger files = new AtomicInteger();
+
+        final List<File> dirs = Collections.synchronizedList(new ArrayList<File>());
+
+        final List<Thread> syncThreads = Collections.synchronizedList(new ArrayList<Thread>());
+
+        File failFile, failDir;
+
+        CountingCommitter(int maxBatchSize, long maxWaitMsecs) {
+            super(maxBatchSize, maxWaitMsecs);
+        }
+
+        @Override
+        protected void _forceFile(File f) throws IOException {
+            files.incrementAndGet();
+            syncThreads.add(Thread.currentThread());
+            if (f.equals(failFile)) {
+                throw new IOException("Bad file");
+            }
+        }
+
+        @Override
+        protected void _forceDirectory(File dir) throws IOException {
+            dirs.add(dir);
+            if (dir.equals(failDir)) {
+                throw new IOException("Bad dir");
+            }
+        }
+    }
+}
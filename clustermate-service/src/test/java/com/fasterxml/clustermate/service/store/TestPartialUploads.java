@@ -0,0 +1,102 @@
+package com.fasterxml.clustermate.service.store;
+
+import java.io.*;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.storemate.shared.StorableKey;
+
+import com.fasterxml.clustermate.api.EntryKey;
+
+public class TestPartialUploads extends TestCase
+{
+    public void testExclusiveAccess() throws Exception
+    {
+        PartialUploads uploads = new PartialUploads(_tempDir(), 60000L, 10, 1000L);
+        final EntryKey KEY = _key("a");
+        assertTrue(uploads.startUpdate(KEY, "up1"));
+        // same upload can not be accessed concurrently...
+        assertFalse(uploads.startUpdate(KEY, "up1"));
+        // but others can
+        assertTrue(uploads.startUpdate(KEY, "up2"));
+        uploads.endUpdate(KEY, "up1");
+        assertTrue(uploads.startUpdate(KEY, "up1"));
+    }
+
+    public void testAppend() throws Exception
+    {
+        PartialUploads uploads = new PartialUploads(_tempDir(), 60000L, 10, 1000L);
+        final EntryKey KEY = _key("a");
+        assertEquals(-1L, uploads.receivedLength(KEY, "up"));
+        assertEquals(4L, uploads.append(KEY, "up", 0L, 10L, _stream(4)));
+        assertEquals(4L, uploads.receivedLength(KEY, "up"));
+        // resume, overwriting last byte
+        assertEquals(10L, uploads.append(KEY, "up", 3L, 10L, _stream(7)));
+        // too much content: only one byte more than declared length is read
+        assertEquals(11L, uploads.append(KEY, "up", 5L, 10L, _stream(100)));
+        try {
+            uploads.append(KEY, "up", 12L, 20L, _stream(1));
+            fail("Should not allow offset beyond content received");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Invalid offset"));
+        }
+        uploads.remove(KEY, "up");
+        assertEquals(-1L, uploads.receivedLength(KEY, "up"));
+        assertEquals(0, uploads.getPendingCount());
+    }
+
+    public void testLimits() throws Exception
+    {
+        File dir = _tempDir();
+        // one upload left over from earlier run
+        FileOutputStream out = new FileOutputStream(new File(dir, "old-1234"+PartialUploads.SUFFIX));
+        out.write(new byte[20]);
+        out.close();
+
+        PartialUploads uploads = new PartialUploads(dir, 60000L, 3, 100L);
+        assertEquals(1, uploads.getPendingCount());
+        uploads.append(_key("a"), "up", 0L, 40L, _stream(10));
+        uploads.append(_key("b"), "up", 0L, 30L, _stream(10));
+        // too many uploads
+        try {
+            uploads.append(_key("c"), "up", 0L, 1L, _stream(1));
+            fail("Should not allow more uploads");
+        } catch (PartialUploads.LimitExceededException e) {
+            assertTrue(e.getMessage().contains("Too many pending uploads"));
+        }
+        // but appending to existing ones is fine
+        uploads.append(_key("a"), "up", 10L, 40L, _stream(10));
+
+        uploads.remove(_key("b"), "up");
+        // total declared length would exceed maximum
+        try {
+            uploads.append(_key("c"), "up", 0L, 41L, _stream(1));
+            fail("Should not allow more content");
+        } catch (PartialUploads.LimitExceededException e) {
+            assertTrue(e.getMessage().contains("Too much content"));
+        }
+        assertEquals(1L, uploads.append(_key("c"), "up", 0L, 40L, _stream(1)));
+        assertEquals(3, uploads.getPendingCount());
+    }
+
+    private EntryKey _key(final String id)
+    {
+        return new EntryKey() {
+            @Override public StorableKey asStorableKey() { return new StorableKey(id.getBytes()); }
+            @Override public byte[] asBytes() { return id.getBytes(); }
+        };
+    }
+
+    private InputStream _stream(int length) {
+        return new ByteArrayInputStream(new byte[length]);
+    }
+
+    private File _tempDir() throws IOException
+    {
+        File dir = File.createTempFile("cm-uploads", "");
+        dir.delete();
+        dir.mkdirs();
+        dir.deleteOnExit();
+        return dir;
+    }
+}
@@ -0,0 +1,58 @@
+package com.fasterxml.clustermate.service.sync;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.storemate.shared.StorableKey;
+
+public class TestInFlightPulls extends TestCase
+{
+    private final StorableKey KEY1 = new StorableKey("abc".getBytes());
+    private final StorableKey KEY2 = new StorableKey("def".getBytes());
+
+    public void testClaimAndRelease() throws Exception
+    {
+        InFlightPulls pulls = new InFlightPulls();
+        final Object peer1 = new Object();
+        final Object peer2 = new Object();
+
+        assertNull(pulls.claim(KEY1, peer1));
+        // re-claiming by owner is fine
+        assertNull(pulls.claim(KEY1, peer1));
+        assertNull(pulls.claim(KEY2, peer2));
+        assertEquals(2, pulls.size());
+
+        InFlightPulls.Claim other = pulls.claim(KEY1, peer2);
+        assertNotNull(other);
+        assertFalse(other.await(1L));
+
+        // release by non-owner ignored
+        pulls.release(KEY1, peer2);
+        assertFalse(other.await(1L));
+        pulls.release(KEY1, peer1);
+        assertTrue(other.await(1L));
+        assertEquals(1, pulls.size());
+
+        // and can be claimed now
+        assertNull(pulls.claim(KEY1, peer2));
+    }
+
+    public void testWaitForOtherThread() throws Exception
+    {
+        final InFlightPulls pulls = new InFlightPulls();
+        final Object peer1 = new Object();
+        assertNull(pulls.claim(KEY1, peer1));
+        InFlightPulls.Claim other = pulls.claim(KEY1, new Object());
+        assertNotNull(other);
+
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pulls.release(KEY1, peer1);
+            }
+        });
+        t.start();
+        assertTrue(other.await(5000L));
+        t.join();
+        assertEquals(0, pulls.size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.storemate.shared.StorableKey;
+import com.fasterxml.clustermate.api.msg.ClusterStatusMessage;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+
+public class TestSyncListEncoding extends TestCase
+{
+    private final ObjectMapper MAPPER = new ObjectMapper();
+
+    public void testRoundTrip() throws Exception
+    {
+        SyncListResponse<StoredEntry<?>> resp = SyncListResponse.emptyResponse();
+        resp.entries = new ArrayList<SyncListResponseEntry>();
+        resp.entries.add(_entry("abc/def/1", 1000L, 200L, 0x12345678));
+        resp.entries.add(_entry("abc/def/22", 1000L, 0L, -1));
+        // tombstone
+        resp.entries.add(_entry("abc/xyz", 1500L, -1L, 0));
+        resp.entries.add(_entry("b", 98765432100L, 1L << 40, 7));
+        resp.setLastSeenTimestamp(98765432100L)
+            .setClusterHash(0xFEDCBA9876543210L)
+            .setClientWait(250L);
+
+        byte[] encoded = SyncListEncoder.encode(resp, MAPPER.writer());
+        SyncListResponse<?> result = SyncListDecoder.decode(encoded, MAPPER.reader(ClusterStatusMessage.class));
+
+        assertEquals(98765432100L, result.lastSeen());
+        assertEquals(0xFEDCBA9876543210L, result.clusterHash);
+        assertEquals(250L, result.clientWait);
+        assertNull(result.clusterStatus);
+        assertEquals(4, result.size());
+
+        SyncListDecoder dec = result.encodedEntries();
+        assertNotNull(dec);
+        for (SyncListResponseEntry exp : resp.entries) {
+            assertTrue(dec.next());
+            assertEquals(exp.key, dec.key());
+            assertEquals(exp.insertionTime, dec.insertionTime());
+            assertEquals(exp.size, dec.size());
+            assertEquals(exp.hash, dec.hash());
+            assertEquals(exp.deleted(), dec.deleted());
+            SyncListResponseEntry act = dec.toEntry();
+            assertEquals(exp.key, act.key);
+            assertEquals(exp.insertionTime, act.insertionTime);
+        }
+        assertFalse(dec.next());
+    }
+
+    public void testEmptyWithClusterStatus() throws Exception
+    {
+        SyncListResponse<StoredEntry<?>> resp = SyncListResponse.emptyResponse();
+        resp.setClusterStatus(new ClusterStatusMessage(123L, 456L, null, null));
+        byte[] encoded = SyncListEncoder.encode(resp, MAPPER.writer());
+        SyncListResponse<?> result = SyncListDecoder.decode(encoded, MAPPER.reader(ClusterStatusMessage.class));
+        assertEquals(0, result.size());
+        assertNotNull(result.clusterStatus);
+        assertEquals(123L, result.clusterStatus.creationTime);
+        assertEquals(456L, result.clusterStatus.clusterLastUpdated);
+        assertFalse(result.encodedEntries().next());
+    }
+
+    public void testTruncated() throws Exception
+    {
+        SyncListResponse<StoredEntry<?>> resp = SyncListResponse.emptyResponse();
+        resp.entries = new ArrayList<SyncListResponseEntry>();
+        resp.entries.add(_entry("abc", 1000L, 200L, 3));
+        byte[] encoded = SyncListEncoder.encode(resp, MAPPER.writer());
+        byte[] truncated = new byte[encoded.length - 2];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+        SyncListDecoder dec = SyncListDecoder.decode(truncated, MAPPER.reader(ClusterStatusMessage.class))
+                .encodedEntries();
+        try {
+            dec.next();
+            fail("Should not pass");
+        } catch (java.io.IOException e) {
+            assertTrue(e.getMessage().contains("Unexpected end"));
+        }
+    }
+
+    private SyncListResponseEntry _entry(String key, long time, long size, int hash)
+    {
+        SyncListResponseEntry e = new SyncListResponseEntry();
+        e.key = new StorableKey(key.getBytes());
+        e.insertionTime = time;
+        e.size = size;
+        e.hash = hash;
+        return e;
+    }
+}
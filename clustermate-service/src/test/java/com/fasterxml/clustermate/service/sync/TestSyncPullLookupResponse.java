@@ -0,0 +1,83 @@
+package com.fasterxml.clustermate.service.sync;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.storemate.shared.StorableKey;
+import com.fasterxml.storemate.store.StoreException;
+import com.fasterxml.storemate.store.util.OperationDiagnostics;
+
+import com.fasterxml.clustermate.api.EntryKey;
+import com.fasterxml.clustermate.service.store.StoredEntry;
+
+public class TestSyncPullLookupResponse extends TestCase
+{
+    /**
+     * Response for which lookups find nothing, and fail after given
+     * number of entries.
+     */
+    static class FailingResponse<K extends EntryKey, E extends StoredEntry<K>>
+        extends SyncPullLookupResponse<K,E>
+    {
+        final int _failAt;
+
+        public FailingResponse(List<StorableKey> keys, int failAt, OperationDiagnostics diag) {
+            super(null, new ObjectMapper().writer(), null, null, null, keys, null, diag);
+            _failAt = failAt;
+        }
+
+        @Override
+        protected List<E> _lookup(int start, int end) throws StoreException {
+            if (end > _failAt) {
+                throw new StoreException.Internal(_keys(1).get(0), "Simulated store failure");
+            }
+            return new ArrayList<E>(Collections.<E>nCopies(end - start, null));
+        }
+    }
+
+    public void testCompleteResponse() throws Exception
+    {
+        OperationDiagnostics diag = new OperationDiagnostics(0L);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new FailingResponse<EntryKey,StoredEntry<EntryKey>>(_keys(40), Integer.MAX_VALUE, diag)
+            .writeContent(bytes);
+        InputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        for (int i = 0; i < 40; ++i) { // all missing
+            assertEquals(0, SyncPullResponse.readHeaderLength(in));
+        }
+        assertEquals(SyncHandler.LENGTH_EOF, SyncPullResponse.readHeaderLength(in));
+        assertEquals(-1, in.read());
+        // missing entries are not returned
+        assertEquals(0, diag.getItemCount());
+    }
+
+    // Lookup failure after response has started must be indicated with error marker
+    public void testFailedLookup() throws Exception
+    {
+        OperationDiagnostics diag = new OperationDiagnostics(0L);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new FailingResponse<EntryKey,StoredEntry<EntryKey>>(_keys(40), 35, diag)
+            .writeContent(bytes);
+        InputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        // first batch gets written, but not the second one
+        for (int i = 0; i < 32; ++i) {
+            assertEquals(0, SyncPullResponse.readHeaderLength(in));
+        }
+        assertEquals(SyncHandler.LENGTH_ERROR, SyncPullResponse.readHeaderLength(in));
+        assertEquals(-1, in.read());
+    }
+
+    private static List<StorableKey> _keys(int count)
+    {
+        List<StorableKey> keys = new ArrayList<StorableKey>();
+        for (int i = 0; i < count; ++i) {
+            keys.add(new StorableKey(("key"+i).getBytes()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,86 @@
+package com.fasterxml.clustermate.service.throttle;
+
+import com.fasterxml.clustermate.service.cfg.ConcurrencyLimitConfig;
+
+import junit.framework.TestCase;
+
+public class TestConcurrencyLimiter extends TestCase
+{
+    private final static long MSECS = 1000L * 1000L;
+
+    public void testSimpleLimit()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", _config(3), false, null);
+        assertEquals(3, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1L, limiter.getRejectedCount());
+        limiter.release();
+        assertEquals(2, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    public void testDecreaseOnLatency()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", _config(40), true, null);
+        // first, establish baseline with full load
+        for (int i = 0; i < 20; ++i) {
+            _fill(limiter);
+            _drain(limiter, 10 * MSECS);
+        }
+        final int baseline = limiter.getLimit();
+        assertTrue(baseline >= 40);
+        // and then latencies shoot up, which should reduce limit
+        _fill(limiter);
+        _drain(limiter, 200 * MSECS);
+        assertTrue("Limit should decrease from "+baseline+", was "+limiter.getLimit(),
+                limiter.getLimit() < baseline);
+    }
+
+    public void testDecreaseOnOverload()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", _config(100), true, null);
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(MSECS, true);
+        }
+        assertTrue(limiter.getLimit() < 100);
+    }
+
+    public void testSyncYieldsToClient()
+    {
+        ConcurrencyLimitConfig config = _config(4);
+        ConcurrencyLimiter client = new ConcurrencyLimiter("GET", config, true, null);
+        ConcurrencyLimiter sync = new ConcurrencyLimiter("SYNCPULL", config, true,
+                new ConcurrencyLimiter[] { client });
+        assertTrue(sync.tryAcquire());
+        sync.release();
+        // 3 out of 4 is at 'syncYieldRatio' of 0.75, so sync must yield
+        for (int i = 0; i < 3; ++i) {
+            assertTrue(client.tryAcquire());
+        }
+        assertFalse(sync.tryAcquire());
+        assertTrue(client.tryAcquire());
+    }
+
+    private ConcurrencyLimitConfig _config(int limit)
+    {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.enabled = true;
+        config.initialLimit = limit;
+        config.minLimit = 1;
+        return config;
+    }
+
+    private void _fill(ConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire()) { }
+    }
+
+    private void _drain(ConcurrencyLimiter limiter, long nanos) {
+        while (limiter.getInFlight() > 0) {
+            limiter.release(nanos, false);
+        }
+    }
+}
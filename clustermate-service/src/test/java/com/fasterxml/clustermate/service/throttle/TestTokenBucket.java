@@ -0,0 +1,44 @@
+package com.fasterxml.clustermate.service.throttle;
+
+import junit.framework.TestCase;
+
+public class TestTokenBucket extends TestCase
+{
+    private final static long SECOND = 1000L * 1000L * 1000L;
+
+    public void testWithinBurst()
+    {
+        // 100 tokens per sec, 1 second burst
+        TokenBucket bucket = new TokenBucket(100.0, 1.0, 0L);
+        assertEquals(0L, bucket.reserve(0L, 60, 1.0));
+        assertEquals(0L, bucket.reserve(0L, 40, 1.0));
+        // bucket empty; 50 more tokens take half a second
+        assertEquals(SECOND / 2, bucket.reserve(0L, 50, 1.0));
+    }
+
+    public void testRefill()
+    {
+        TokenBucket bucket = new TokenBucket(100.0, 1.0, 0L);
+        assertEquals(0L, bucket.reserve(0L, 100, 1.0));
+        // after one second, should be full again, but not more
+        assertEquals(0L, bucket.reserve(SECOND, 100, 1.0));
+        assertEquals(0L, bucket.reserve(10 * SECOND, 100, 1.0));
+        assertEquals(SECOND / 10, bucket.reserve(10 * SECOND, 10, 1.0));
+    }
+
+    public void testBigReservation()
+    {
+        // reservations bigger than burst are allowed, but need to be waited out
+        TokenBucket bucket = new TokenBucket(100.0, 1.0, 0L);
+        assertEquals(2 * SECOND, bucket.reserve(0L, 300, 1.0));
+        assertEquals(3 * SECOND, bucket.reserve(0L, 100, 1.0));
+    }
+
+    public void testReducedRate()
+    {
+        TokenBucket bucket = new TokenBucket(100.0, 1.0, 0L);
+        assertEquals(0L, bucket.reserve(0L, 100, 1.0));
+        // at half the rate, one second only gives 50 tokens
+        assertEquals(SECOND / 2, bucket.reserve(SECOND, 75, 0.5));
+    }
+}
@@ -1,24 +1,99 @@
 package com.fasterxml.clustermate.servlet;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
 import com.fasterxml.clustermate.service.SharedServiceStuff;
 import com.fasterxml.clustermate.service.cluster.ClusterViewByServer;
 import com.fasterxml.clustermate.service.metrics.AllOperationMetrics;
+import com.fasterxml.clustermate.service.metrics.ExternalOperationMetrics;
+import com.fasterxml.clustermate.service.throttle.ConcurrencyLimiter;
+import com.fasterxml.clustermate.service.throttle.ConcurrencyLimiters;
+import com.fasterxml.clustermate.service.throttle.OperationType;
 
 /**
  * Intermediate class we use to denote servlets that are to provide
  * metrics information.
+ * Also contains helper methods for enforcing per-operation
+ * concurrency limits, if enabled.
  */
 @SuppressWarnings("serial")
 public abstract class ServletWithMetricsBase
     extends ServletBase
     implements AllOperationMetrics.Provider
 {
+    protected final ConcurrencyLimiters _limiters;
+
     protected ServletWithMetricsBase(SharedServiceStuff stuff,
             ClusterViewByServer clusterView, String servletPathBase)
     {
         super(stuff, clusterView, servletPathBase);
+        _limiters = stuff.getConcurrencyLimiters();
     }
     
     @Override
     public abstract void fillOperationMetrics(AllOperationMetrics metrics);
+
+    /*
+    /**********************************************************************
+    /* Helper methods for concurrency limits
+    /**********************************************************************
+     */
+
+    /**
+     * Helper method called to write response for a request rejected due
+     * to concurrency limit having been reached.
+     */
+    protected void _writeOverloaded(ServletServiceResponse response, ConcurrencyLimiter limiter)
+        throws IOException
+    {
+        response = response.serverOverload()
+                .setContentTypeText()
+                .setEntity("Server overloaded: too many concurrent "+limiter.getName()+" requests");
+        // no need to track bytes returned since it's not real payload
+        response.writeOut(null);
+    }
+
+    /**
+     * Helper method called once a request allowed by given limiter
+     * (if any) has completed.
+     */
+    protected void _releaseLimit(ConcurrencyLimiter limiter, long startNanos,
+            ServletServiceResponse response)
+    {
+        _releaseLimit(limiter, startNanos, -1L, response);
+    }
+
+    /**
+     * Variant of {@link #_releaseLimit(ConcurrencyLimiter, long, ServletServiceResponse)}
+     * used when latency sample is to exclude writing of response content
+     * (whose duration depends on client, as well as content length).
+     *
+     * @param latencyNanos Latency to report, if known (non-negative);
+     *    if negative, time since start is used
+     */
+    protected void _releaseLimit(ConcurrencyLimiter limiter, long startNanos, long latencyNanos,
+            ServletServiceResponse response)
+    {
+        if (limiter != null) {
+            if (latencyNanos < 0L) {
+                latencyNanos = System.nanoTime() - startNanos;
+            }
+            // 503 from back end (like timeouts for deletes) is a clear overload signal
+            limiter.release(latencyNanos,
+                    response.getStatus() == HttpURLConnection.HTTP_UNAVAILABLE);
+        }
+    }
+
+    protected ExternalOperationMetrics _withLimit(ExternalOperationMetrics metrics,
+            OperationType type)
+    {
+        if (metrics != null) {
+            ConcurrencyLimiter limiter = _limiters.limiterFor(type);
+            if (limiter != null) {
+                metrics.concurrencyLimit = limiter.externalize();
+            }
+        }
+        return metrics;
+    }
 }
@@ -18,6 +18,8 @@ import com.fasterxml.clustermate.service.metrics.ExternalOperationMetrics;
 import com.fasterxml.clustermate.service.metrics.OperationMetrics;
 import com.fasterxml.clustermate.service.store.StoreHandler;
 import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.throttle.ConcurrencyLimiter;
+import com.fasterxml.clustermate.service.throttle.OperationType;
 
 /**
  * Servlet that handles basic CRUD operations for individual entries.
@@ -122,9 +124,9 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
     @Override
     public void fillOperationMetrics(AllOperationMetrics metrics)
     {
-        metrics.GET = ExternalOperationMetrics.create(_getMetrics);
-        metrics.PUT = ExternalOperationMetrics.create(_putMetrics);
-        metrics.DELETE = ExternalOperationMetrics.create(_deleteMetrics);
+        metrics.GET = _withLimit(ExternalOperationMetrics.create(_getMetrics), OperationType.GET);
+        metrics.PUT = _withLimit(ExternalOperationMetrics.create(_putMetrics), OperationType.PUT);
+        metrics.DELETE = _withLimit(ExternalOperationMetrics.create(_deleteMetrics), OperationType.DELETE);
         _storeHandler.augmentOperationMetrics(metrics);
     }
     
@@ -149,6 +151,15 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
     public void handleGet(ServletServiceRequest request, ServletServiceResponse response,
             OperationDiagnostics stats) throws IOException
     {
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.GET);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        // latency sample is time to first byte: streaming of content can take
+        // arbitrarily long, depending on entry size and client
+        long latencyNanos = -1L;
         final OperationMetrics metrics = _getMetrics;
         Context timer = (metrics == null) ? null : metrics.start();
         try {
@@ -156,11 +167,13 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
             if (key != null) { // null means trouble; response has all we need
                 response = _handleGet(request, response, stats, key);
             }
+            latencyNanos = System.nanoTime() - startNanos;
             response.writeOut(_jsonWriter);
         } finally {
             if (metrics != null) {
                  metrics.finish(timer, stats);
             }
+            _releaseLimit(limiter, startNanos, latencyNanos, response);
         }
     }
 
@@ -168,11 +181,21 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
     public void handleHead(ServletServiceRequest request, ServletServiceResponse response,
             OperationDiagnostics stats) throws IOException
     {
-        K key = _findKey(request, response);
-        if (key != null) {
-            response = _handleHead(request, response, stats, key);
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.HEAD);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        try {
+            K key = _findKey(request, response);
+            if (key != null) {
+                response = _handleHead(request, response, stats, key);
+            }
+            // note: should be enough to just add headers; no content to write
+        } finally {
+            _releaseLimit(limiter, startNanos, response);
         }
-        // note: should be enough to just add headers; no content to write
     }
 
     // We'll allow POST as an alias to PUT
@@ -187,6 +210,12 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
     public void handlePut(ServletServiceRequest request, ServletServiceResponse response,
             OperationDiagnostics stats) throws IOException
     {
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.PUT);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        final long startNanos = System.nanoTime();
         final OperationMetrics metrics = _putMetrics;
         Context timer = (metrics == null) ? null : metrics.start();
 
@@ -200,6 +229,7 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
             if (metrics != null) {
                  metrics.finish(timer, stats);
             }
+            _releaseLimit(limiter, startNanos, response);
         }
     }
 
@@ -207,6 +237,12 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
     public void handleDelete(ServletServiceRequest request, ServletServiceResponse response,
             OperationDiagnostics stats) throws IOException
     {
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.DELETE);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        final long startNanos = System.nanoTime();
         final OperationMetrics metrics = _deleteMetrics;
         Context timer = (metrics == null) ? null : metrics.start();
 
@@ -220,6 +256,7 @@ public class StoreEntryServlet<K extends EntryKey, E extends StoredEntry<K>>
             if (metrics != null) {
                 metrics.finish(timer, stats);
             }
+            _releaseLimit(limiter, startNanos, response);
         }
     }
 
@@ -16,6 +16,8 @@ import com.fasterxml.clustermate.service.metrics.ExternalOperationMetrics;
 import com.fasterxml.clustermate.service.metrics.OperationMetrics;
 import com.fasterxml.clustermate.service.store.StoreHandler;
 import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.throttle.ConcurrencyLimiter;
+import com.fasterxml.clustermate.service.throttle.OperationType;
 
 @SuppressWarnings("serial")
 public class StoreListServlet<K extends EntryKey,
@@ -65,7 +67,7 @@ public class StoreListServlet<K extends EntryKey,
 
     @Override
     public void fillOperationMetrics(AllOperationMetrics metrics) {
-        metrics.LIST = ExternalOperationMetrics.create(_listMetrics);
+        metrics.LIST = _withLimit(ExternalOperationMetrics.create(_listMetrics), OperationType.LIST);
     }
     
     /*
@@ -89,6 +91,12 @@ public class StoreListServlet<K extends EntryKey,
     public void handleGet(ServletServiceRequest request, ServletServiceResponse response,
             OperationDiagnostics stats) throws IOException
     {
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.LIST);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        final long startNanos = System.nanoTime();
         final OperationMetrics metrics = _listMetrics;
         Context timer = (metrics == null) ? null : metrics.start();
         try {
@@ -104,6 +112,7 @@ public class StoreListServlet<K extends EntryKey,
             if (metrics != null) {
                  metrics.finish(timer, stats);
             }
+            _releaseLimit(limiter, startNanos, response);
         }
     }
 }
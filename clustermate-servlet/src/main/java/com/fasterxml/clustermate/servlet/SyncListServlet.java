@@ -1,6 +1,8 @@
 package com.fasterxml.clustermate.servlet;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.codahale.metrics.Timer.Context;
@@ -12,11 +14,15 @@ import com.fasterxml.clustermate.api.ClusterMateConstants;
 import com.fasterxml.clustermate.api.EntryKey;
 import com.fasterxml.clustermate.service.SharedServiceStuff;
 import com.fasterxml.clustermate.service.cfg.ServiceConfig;
+import com.fasterxml.clustermate.service.cluster.ClusterPeer;
 import com.fasterxml.clustermate.service.cluster.ClusterViewByServer;
 import com.fasterxml.clustermate.service.metrics.AllOperationMetrics;
 import com.fasterxml.clustermate.service.metrics.ExternalOperationMetrics;
+import com.fasterxml.clustermate.service.metrics.ExternalPeerSyncMetrics;
 import com.fasterxml.clustermate.service.metrics.OperationMetrics;
 import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.throttle.ConcurrencyLimiter;
+import com.fasterxml.clustermate.service.throttle.OperationType;
 import com.fasterxml.clustermate.service.sync.SyncHandler;
 
 @SuppressWarnings("serial")
@@ -55,13 +61,26 @@ public class SyncListServlet<K extends EntryKey, E extends StoredEntry<K>>
 
     @Override
     public void fillOperationMetrics(AllOperationMetrics metrics) {
-        metrics.SYNCLIST = ExternalOperationMetrics.create(_listMetrics);
+        metrics.SYNCLIST = _withLimit(ExternalOperationMetrics.create(_listMetrics), OperationType.SYNCLIST);
+        if (_listMetrics != null && _clusterView != null) {
+            Map<String,ExternalPeerSyncMetrics> peers = new LinkedHashMap<String,ExternalPeerSyncMetrics>();
+            for (ClusterPeer peer : _clusterView.getPeers()) {
+                peers.put(String.valueOf(peer.getAddress()), peer.getSyncMetrics());
+            }
+            metrics.PEERS = peers;
+        }
     }
 
     @Override
     public void handleGet(ServletServiceRequest request, ServletServiceResponse response,
             OperationDiagnostics stats) throws IOException
     {
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.SYNCLIST);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        final long startNanos = System.nanoTime();
         final OperationMetrics metrics = _listMetrics;
         Context timer = (metrics == null) ? null : metrics.start();
         String str = request.getQueryParameter(ClusterMateConstants.QUERY_PARAM_SINCE);
@@ -104,6 +123,7 @@ public class SyncListServlet<K extends EntryKey, E extends StoredEntry<K>>
             if (metrics != null) {
                 metrics.finish(timer, stats);
            }
+            _releaseLimit(limiter, startNanos, response);
         }
     }
 }
@@ -16,6 +16,8 @@ import com.fasterxml.clustermate.service.metrics.AllOperationMetrics;
 import com.fasterxml.clustermate.service.metrics.ExternalOperationMetrics;
 import com.fasterxml.clustermate.service.metrics.OperationMetrics;
 import com.fasterxml.clustermate.service.store.StoredEntry;
+import com.fasterxml.clustermate.service.throttle.ConcurrencyLimiter;
+import com.fasterxml.clustermate.service.throttle.OperationType;
 import com.fasterxml.clustermate.service.sync.SyncHandler;
 
 @SuppressWarnings("serial")
@@ -46,23 +48,59 @@ public class SyncPullServlet<K extends EntryKey, E extends StoredEntry<K>>
 
     @Override
     public void fillOperationMetrics(AllOperationMetrics metrics) {
-        metrics.SYNCPULL = ExternalOperationMetrics.create(_pullMetrics);
+        metrics.SYNCPULL = _withLimit(ExternalOperationMetrics.create(_pullMetrics), OperationType.SYNCPULL);
     }
-    
+
+    /**
+     * GET is used for requesting snapshot of all entries in a key range,
+     * for bootstrapping new nodes.
+     */
+    @Override
+    public void handleGet(ServletServiceRequest request, ServletServiceResponse response,
+            OperationDiagnostics metadata) throws IOException
+    {
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.SYNCPULL);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        try {
+            response = _syncHandler.snapshotEntries(request, response, metadata);
+            _addStdHeaders(response);
+            response.writeOut(_jsonWriter);
+        } finally {
+            // snapshots take arbitrarily long, so no latency sample
+            if (limiter != null) {
+                limiter.release();
+            }
+        }
+    }
+
     @Override
     public void handlePost(ServletServiceRequest request, ServletServiceResponse response,
             OperationDiagnostics metadata) throws IOException
     {
+        final ConcurrencyLimiter limiter = _limiters.limiterFor(OperationType.SYNCPULL);
+        if (limiter != null && !limiter.tryAcquire()) {
+            _writeOverloaded(response, limiter);
+            return;
+        }
+        final long startNanos = System.nanoTime();
+        // as with GETs, latency sample excludes streaming of entries,
+        // which depends on amount of content and speed of the peer
+        long latencyNanos = -1L;
         final OperationMetrics metrics = _pullMetrics;
         Context timer = (metrics == null) ? null : metrics.start();
         try {
             _syncHandler.pullEntries(request, response, request.getInputStream(), metadata);
             _addStdHeaders(response);
+            latencyNanos = System.nanoTime() - startNanos;
             response.writeOut(_jsonWriter);
         } finally {
             if (metrics != null) {
                 metrics.finish(timer, metadata);
            }
+            _releaseLimit(limiter, startNanos, latencyNanos, response);
         }
     }
 }